@@ -31,6 +31,7 @@ import javax.cache.CacheBuilder;
 import javax.cache.CacheConfiguration;
 import javax.cache.CacheManager;
 import javax.cache.Caching;
+import javax.cache.Status;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
@@ -45,6 +46,7 @@ public class BaseCache<K extends Serializable, V extends Serializable> {
     private CacheBuilder<K, V> cacheBuilder;
     private String cacheName;
     private List<AbstractCacheListener> cacheListeners = new ArrayList<AbstractCacheListener>();
+    private volatile Cache<K, V> resolvedCache;
 
     public BaseCache(String cacheName) {
         this.cacheName = cacheName;
@@ -54,55 +56,58 @@ public class BaseCache<K extends Serializable, V extends Serializable> {
         }
     }
 
+    /**
+     * Returns the cache bound to this instance. The cache is resolved from the cache manager only on the first access
+     * or after the bound cache has been stopped, so this should be called within a super tenant flow.
+     *
+     * @return Bound cache.
+     */
     private Cache<K, V> getBaseCache() {
 
-        Cache<K, V> cache = null;
-        try {
+        Cache<K, V> cache = resolvedCache;
+        if (cache != null && cache.getStatus() == Status.STARTED) {
+            return cache;
+        }
+        return resolveBaseCache();
+    }
 
-            PrivilegedCarbonContext.startTenantFlow();
-            PrivilegedCarbonContext carbonContext = PrivilegedCarbonContext.getThreadLocalCarbonContext();
-            carbonContext.setTenantId(MultitenantConstants.SUPER_TENANT_ID);
-            carbonContext.setTenantDomain(MultitenantConstants.SUPER_TENANT_DOMAIN_NAME);
-
-            CacheManager cacheManager = Caching.getCacheManagerFactory()
-                    .getCacheManager(CACHE_MANAGER_NAME);
-
-            if (getCacheTimeout() > 0 && cacheBuilder == null) {
-                synchronized (cacheName.intern()) {
-                    if (cacheBuilder == null) {
-                        cacheManager.removeCache(cacheName);
-                        cacheBuilder = cacheManager.<K, V>createCacheBuilder(cacheName).
-                                setExpiry(CacheConfiguration.ExpiryType.ACCESSED,
-                                        new CacheConfiguration
-                                                .Duration(TimeUnit.SECONDS, getCacheTimeout())).
-                                setExpiry(CacheConfiguration.ExpiryType.MODIFIED,
-                                        new CacheConfiguration
-                                                .Duration(TimeUnit.SECONDS, getCacheTimeout())).
-                                setStoreByValue(false);
-                        cache = cacheBuilder.build();
-
-                        for (AbstractCacheListener cacheListener : cacheListeners) {
-                            if (cacheListener.isEnable()) {
-                                this.cacheBuilder.registerCacheEntryListener(cacheListener);
-                            }
-                        }
+    private Cache<K, V> resolveBaseCache() {
 
-                        setCapacity((CacheImpl) cache);
-                    } else {
-                        cache = cacheManager.getCache(cacheName);
-                        setCapacity((CacheImpl) cache);
-                    }
-                }
+        Cache<K, V> cache;
+        CacheManager cacheManager = Caching.getCacheManagerFactory()
+                .getCacheManager(CACHE_MANAGER_NAME);
 
-            } else {
-                cache = cacheManager.getCache(cacheName);
-                setCapacity((CacheImpl) cache);
+        if (getCacheTimeout() > 0 && cacheBuilder == null) {
+            synchronized (cacheName.intern()) {
+                if (cacheBuilder == null) {
+                    cacheManager.removeCache(cacheName);
+                    cacheBuilder = cacheManager.<K, V>createCacheBuilder(cacheName).
+                            setExpiry(CacheConfiguration.ExpiryType.ACCESSED,
+                                    new CacheConfiguration
+                                            .Duration(TimeUnit.SECONDS, getCacheTimeout())).
+                            setExpiry(CacheConfiguration.ExpiryType.MODIFIED,
+                                    new CacheConfiguration
+                                            .Duration(TimeUnit.SECONDS, getCacheTimeout())).
+                            setStoreByValue(false);
+                    cache = cacheBuilder.build();
 
+                    for (AbstractCacheListener cacheListener : cacheListeners) {
+                        if (cacheListener.isEnable()) {
+                            this.cacheBuilder.registerCacheEntryListener(cacheListener);
+                        }
+                    }
+                } else {
+                    cache = cacheManager.getCache(cacheName);
+                }
             }
-        } finally {
-            PrivilegedCarbonContext.endTenantFlow();
+        } else {
+            cache = cacheManager.getCache(cacheName);
         }
 
+        if (cache != null) {
+            setCapacity((CacheImpl) cache);
+        }
+        resolvedCache = cache;
         return cache;
     }
 
@@ -117,19 +122,17 @@ public class BaseCache<K extends Serializable, V extends Serializable> {
             return;
         }
 
+        boolean tenantFlowStarted = startSuperTenantFlow();
         try {
-            PrivilegedCarbonContext.startTenantFlow();
-            PrivilegedCarbonContext carbonContext = PrivilegedCarbonContext
-                    .getThreadLocalCarbonContext();
-            carbonContext.setTenantId(MultitenantConstants.SUPER_TENANT_ID);
-            carbonContext.setTenantDomain(MultitenantConstants.SUPER_TENANT_DOMAIN_NAME);
             // Element already in the cache. Remove it first
             Cache<K, V> cache = getBaseCache();
             if (cache != null) {
                 cache.put(key, entry);
             }
         } finally {
-            PrivilegedCarbonContext.endTenantFlow();
+            if (tenantFlowStarted) {
+                PrivilegedCarbonContext.endTenantFlow();
+            }
         }
     }
 
@@ -148,19 +151,17 @@ public class BaseCache<K extends Serializable, V extends Serializable> {
             return null;
         }
 
+        boolean tenantFlowStarted = startSuperTenantFlow();
         try {
-            PrivilegedCarbonContext.startTenantFlow();
-            PrivilegedCarbonContext carbonContext = PrivilegedCarbonContext
-                    .getThreadLocalCarbonContext();
-            carbonContext.setTenantId(MultitenantConstants.SUPER_TENANT_ID);
-            carbonContext.setTenantDomain(MultitenantConstants.SUPER_TENANT_DOMAIN_NAME);
             Cache<K, V> cache = getBaseCache();
-            if (cache != null && cache.get(key) != null) {
-                return (V) cache.get(key);
+            if (cache != null) {
+                return cache.get(key);
             }
             return null;
         } finally {
-            PrivilegedCarbonContext.endTenantFlow();
+            if (tenantFlowStarted) {
+                PrivilegedCarbonContext.endTenantFlow();
+            }
         }
     }
 
@@ -174,18 +175,16 @@ public class BaseCache<K extends Serializable, V extends Serializable> {
             return;
         }
 
+        boolean tenantFlowStarted = startSuperTenantFlow();
         try {
-            PrivilegedCarbonContext.startTenantFlow();
-            PrivilegedCarbonContext carbonContext = PrivilegedCarbonContext
-                    .getThreadLocalCarbonContext();
-            carbonContext.setTenantId(MultitenantConstants.SUPER_TENANT_ID);
-            carbonContext.setTenantDomain(MultitenantConstants.SUPER_TENANT_DOMAIN_NAME);
             Cache<K, V> cache = getBaseCache();
             if (cache != null) {
                 cache.remove(key);
             }
         } finally {
-            PrivilegedCarbonContext.endTenantFlow();
+            if (tenantFlowStarted) {
+                PrivilegedCarbonContext.endTenantFlow();
+            }
         }
     }
 
@@ -197,19 +196,38 @@ public class BaseCache<K extends Serializable, V extends Serializable> {
             return;
         }
 
+        boolean tenantFlowStarted = startSuperTenantFlow();
         try {
-            PrivilegedCarbonContext.startTenantFlow();
-            PrivilegedCarbonContext carbonContext = PrivilegedCarbonContext
-                    .getThreadLocalCarbonContext();
-            carbonContext.setTenantId(MultitenantConstants.SUPER_TENANT_ID);
-            carbonContext.setTenantDomain(MultitenantConstants.SUPER_TENANT_DOMAIN_NAME);
             Cache<K, V> cache = getBaseCache();
             if (cache != null) {
                 cache.removeAll();
             }
         } finally {
-            PrivilegedCarbonContext.endTenantFlow();
+            if (tenantFlowStarted) {
+                PrivilegedCarbonContext.endTenantFlow();
+            }
+        }
+    }
+
+    /**
+     * Caches are owned by the super tenant. Starts a super tenant flow unless the thread is already running in the
+     * super tenant context.
+     *
+     * @return true if a tenant flow was started and should be ended by the caller.
+     */
+    private boolean startSuperTenantFlow() {
+
+        PrivilegedCarbonContext carbonContext = PrivilegedCarbonContext.getThreadLocalCarbonContext();
+        if (carbonContext.getTenantId() == MultitenantConstants.SUPER_TENANT_ID &&
+                MultitenantConstants.SUPER_TENANT_DOMAIN_NAME.equals(carbonContext.getTenantDomain())) {
+            return false;
         }
+
+        PrivilegedCarbonContext.startTenantFlow();
+        carbonContext = PrivilegedCarbonContext.getThreadLocalCarbonContext();
+        carbonContext.setTenantId(MultitenantConstants.SUPER_TENANT_ID);
+        carbonContext.setTenantDomain(MultitenantConstants.SUPER_TENANT_DOMAIN_NAME);
+        return true;
     }
 
     public void addListener(AbstractCacheListener listener){
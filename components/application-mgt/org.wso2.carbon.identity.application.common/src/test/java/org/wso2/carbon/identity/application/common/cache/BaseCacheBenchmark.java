@@ -0,0 +1,108 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.application.common.cache;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+import org.wso2.carbon.context.PrivilegedCarbonContext;
+import org.wso2.carbon.utils.multitenancy.MultitenantConstants;
+
+import java.nio.file.Paths;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the get and put time of a BaseCache, for callers running as the super tenant and as another
+ * tenant. This is not a unit test and is not run by the build. Run it with the main method from the test class path.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(4)
+@Fork(1)
+public class BaseCacheBenchmark {
+
+    private static final String CACHED_KEY = "cached";
+    private static final String MISSING_KEY = "missing";
+
+    @Param({MultitenantConstants.SUPER_TENANT_DOMAIN_NAME, "wso2.com"})
+    private String callerTenantDomain;
+
+    private BaseCache<String, String> cache;
+
+    @Setup
+    public void setUp() {
+
+        System.setProperty("carbon.home", Paths.get(System.getProperty("user.dir"), "target").toString());
+        // The state is kept by each thread, so that the tenant flow is started on the thread running the benchmark.
+        PrivilegedCarbonContext.startTenantFlow();
+        PrivilegedCarbonContext carbonContext = PrivilegedCarbonContext.getThreadLocalCarbonContext();
+        carbonContext.setTenantDomain(callerTenantDomain);
+        carbonContext.setTenantId(MultitenantConstants.SUPER_TENANT_DOMAIN_NAME.equals(callerTenantDomain) ?
+                MultitenantConstants.SUPER_TENANT_ID : 1);
+
+        cache = new BaseCache<>("BaseCacheBenchmark");
+        cache.addToCache(CACHED_KEY, "value");
+    }
+
+    @TearDown
+    public void tearDown() {
+
+        cache.clear();
+        PrivilegedCarbonContext.endTenantFlow();
+    }
+
+    @Benchmark
+    public String getHit() {
+
+        return cache.getValueFromCache(CACHED_KEY);
+    }
+
+    @Benchmark
+    public String getMiss() {
+
+        return cache.getValueFromCache(MISSING_KEY);
+    }
+
+    @Benchmark
+    public void put() {
+
+        cache.addToCache(CACHED_KEY, "value");
+    }
+
+    public static void main(String[] args) throws RunnerException {
+
+        new Runner(new OptionsBuilder().include(BaseCacheBenchmark.class.getSimpleName()).build()).run();
+    }
+}
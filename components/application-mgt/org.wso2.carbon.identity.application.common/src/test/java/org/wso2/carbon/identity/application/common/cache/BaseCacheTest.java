@@ -0,0 +1,178 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.application.common.cache;
+
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.testng.PowerMockTestCase;
+import org.testng.IObjectFactory;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.ObjectFactory;
+import org.testng.annotations.Test;
+import org.wso2.carbon.caching.impl.CacheImpl;
+import org.wso2.carbon.context.PrivilegedCarbonContext;
+import org.wso2.carbon.identity.core.model.IdentityCacheConfig;
+import org.wso2.carbon.identity.core.model.IdentityCacheConfigKey;
+import org.wso2.carbon.identity.core.util.IdentityUtil;
+import org.wso2.carbon.utils.multitenancy.MultitenantConstants;
+
+import java.nio.file.Paths;
+import java.util.concurrent.atomic.AtomicReference;
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.CacheManagerFactory;
+import javax.cache.Caching;
+import javax.cache.Status;
+
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.powermock.api.mockito.PowerMockito.mockStatic;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+@PrepareForTest({Caching.class, IdentityUtil.class})
+public class BaseCacheTest extends PowerMockTestCase {
+
+    private static final String CACHE_NAME = "BaseCacheTest";
+    private static final String TENANT_DOMAIN = "wso2.com";
+    private static final int TENANT_ID = 1;
+
+    private CacheManager cacheManager;
+    private CacheImpl cache;
+    private BaseCache<String, String> baseCache;
+
+    @BeforeClass
+    public void setUpClass() {
+
+        System.setProperty("carbon.home", Paths.get(System.getProperty("user.dir"), "target").toString());
+    }
+
+    @BeforeMethod
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+
+        // Without a cache config, the cache is enabled and has no timeout or capacity.
+        mockStatic(IdentityUtil.class);
+
+        cache = mock(CacheImpl.class);
+        when(cache.getStatus()).thenReturn(Status.STARTED);
+        cacheManager = mock(CacheManager.class);
+        when(cacheManager.getCache(CACHE_NAME)).thenReturn((Cache) cache);
+        CacheManagerFactory cacheManagerFactory = mock(CacheManagerFactory.class);
+        when(cacheManagerFactory.getCacheManager(anyString())).thenReturn(cacheManager);
+        mockStatic(Caching.class);
+        when(Caching.getCacheManagerFactory()).thenReturn(cacheManagerFactory);
+
+        baseCache = new BaseCache<>(CACHE_NAME);
+    }
+
+    @ObjectFactory
+    public IObjectFactory getObjectFactory() {
+
+        return new org.powermock.modules.testng.PowerMockObjectFactory();
+    }
+
+    @Test
+    public void testGetLooksUpOnce() {
+
+        when(cache.get("key")).thenReturn("value");
+
+        assertEquals(baseCache.getValueFromCache("key"), "value");
+        verify(cache, times(1)).get("key");
+    }
+
+    @Test
+    public void testMissLooksUpOnce() {
+
+        assertNull(baseCache.getValueFromCache("key"));
+        verify(cache, times(1)).get("key");
+    }
+
+    @Test
+    public void testCacheResolvedOnce() {
+
+        baseCache.addToCache("key", "value");
+        baseCache.getValueFromCache("key");
+        baseCache.clearCacheEntry("key");
+        baseCache.clear();
+
+        verify(cacheManager, times(1)).getCache(CACHE_NAME);
+        verify(cache).put("key", "value");
+        verify(cache).remove("key");
+        verify(cache).removeAll();
+    }
+
+    @Test
+    public void testStoppedCacheResolvedAgain() {
+
+        baseCache.getValueFromCache("key");
+        when(cache.getStatus()).thenReturn(Status.STOPPED);
+        baseCache.getValueFromCache("key");
+
+        verify(cacheManager, times(2)).getCache(CACHE_NAME);
+    }
+
+    @Test
+    public void testDisabledCacheNotLookedUp() {
+
+        IdentityCacheConfig cacheConfig = new IdentityCacheConfig(new IdentityCacheConfigKey(
+                "IdentityApplicationManagementCacheManager", CACHE_NAME));
+        cacheConfig.setEnabled(false);
+        cacheConfig.setDistributed(true);
+        when(IdentityUtil.getIdentityCacheConfig(anyString(), anyString())).thenReturn(cacheConfig);
+        baseCache = new BaseCache<>(CACHE_NAME);
+
+        baseCache.addToCache("key", "value");
+        assertNull(baseCache.getValueFromCache("key"));
+        verify(cacheManager, never()).getCache(anyString());
+    }
+
+    @Test
+    public void testTenantCallerReadsSuperTenantCache() {
+
+        final AtomicReference<String> cacheTenantDomain = new AtomicReference<>();
+        when(cache.get("key")).thenAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) {
+                cacheTenantDomain.set(PrivilegedCarbonContext.getThreadLocalCarbonContext().getTenantDomain());
+                return "value";
+            }
+        });
+
+        PrivilegedCarbonContext.startTenantFlow();
+        try {
+            PrivilegedCarbonContext carbonContext = PrivilegedCarbonContext.getThreadLocalCarbonContext();
+            carbonContext.setTenantId(TENANT_ID);
+            carbonContext.setTenantDomain(TENANT_DOMAIN);
+
+            assertEquals(baseCache.getValueFromCache("key"), "value");
+            assertEquals(cacheTenantDomain.get(), MultitenantConstants.SUPER_TENANT_DOMAIN_NAME);
+            // The super tenant flow of the lookup is ended, leaving the tenant of the caller.
+            assertEquals(PrivilegedCarbonContext.getThreadLocalCarbonContext().getTenantDomain(), TENANT_DOMAIN);
+        } finally {
+            PrivilegedCarbonContext.endTenantFlow();
+        }
+    }
+}
@@ -0,0 +1,47 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.application.authentication.framework.cache;
+
+import org.wso2.carbon.identity.application.common.cache.BaseCache;
+
+/**
+ * This cache keeps the consent metadata used to build the consent receipts of SSO logins, which is the PII category
+ * of each claim and the default purpose and purpose category of a tenant.
+ */
+public class SSOConsentMetadataCache extends BaseCache<SSOConsentMetadataCacheKey, SSOConsentMetadataCacheEntry> {
+
+    private static final String CACHE_NAME = "SSOConsentMetadataCache";
+
+    private static volatile SSOConsentMetadataCache instance;
+
+    private SSOConsentMetadataCache() {
+        super(CACHE_NAME);
+    }
+
+    public static SSOConsentMetadataCache getInstance() {
+        if (instance == null) {
+            synchronized (SSOConsentMetadataCache.class) {
+                if (instance == null) {
+                    instance = new SSOConsentMetadataCache();
+                }
+            }
+        }
+        return instance;
+    }
+}
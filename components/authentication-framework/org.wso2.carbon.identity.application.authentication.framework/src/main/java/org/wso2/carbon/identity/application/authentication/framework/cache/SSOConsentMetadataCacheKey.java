@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.application.authentication.framework.cache;
+
+import org.wso2.carbon.identity.application.common.cache.CacheKey;
+
+public class SSOConsentMetadataCacheKey extends CacheKey {
+
+    private static final long serialVersionUID = 8496361317405283957L;
+
+    /**
+     * Types of the cached consent metadata.
+     */
+    public enum MetadataType {
+        PII_CATEGORY, PURPOSE, PURPOSE_CATEGORY
+    }
+
+    private MetadataType type;
+    private String name;
+
+    public SSOConsentMetadataCacheKey(MetadataType type, String name, String tenantDomain) {
+        this.type = type;
+        this.name = name;
+        this.tenantDomain = tenantDomain.toLowerCase();
+    }
+
+    public MetadataType getType() {
+        return type;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass() || !super.equals(o)) {
+            return false;
+        }
+
+        SSOConsentMetadataCacheKey that = (SSOConsentMetadataCacheKey) o;
+
+        return type == that.type && name.equals(that.name);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = super.hashCode();
+        result = 31 * result + type.hashCode();
+        result = 31 * result + name.hashCode();
+        return result;
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.application.authentication.framework.cache;
+
+import org.wso2.carbon.identity.application.common.cache.BaseCache;
+
+/**
+ * This cache keeps consent receipts by receipt identifier, so that the receipt is not retrieved from the consent
+ * manager on each SSO login. A receipt is not changed once it is issued. Revoking or updating a consent changes the
+ * state of the receipt, or replaces it with a new receipt, so the active receipt of a user is always searched from
+ * the consent manager and only its content is served from this cache.
+ */
+public class SSOConsentReceiptCache extends BaseCache<SSOConsentReceiptCacheKey, SSOConsentReceiptCacheEntry> {
+
+    private static final String CACHE_NAME = "SSOConsentReceiptCache";
+
+    private static volatile SSOConsentReceiptCache instance;
+
+    private SSOConsentReceiptCache() {
+        super(CACHE_NAME);
+    }
+
+    public static SSOConsentReceiptCache getInstance() {
+        if (instance == null) {
+            synchronized (SSOConsentReceiptCache.class) {
+                if (instance == null) {
+                    instance = new SSOConsentReceiptCache();
+                }
+            }
+        }
+        return instance;
+    }
+}
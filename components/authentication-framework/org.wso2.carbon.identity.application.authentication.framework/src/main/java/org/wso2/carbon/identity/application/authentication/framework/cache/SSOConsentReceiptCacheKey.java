@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.application.authentication.framework.cache;
+
+import org.wso2.carbon.identity.application.common.cache.CacheKey;
+
+public class SSOConsentReceiptCacheKey extends CacheKey {
+
+    private static final long serialVersionUID = -2310757046218734521L;
+
+    private String receiptId;
+
+    public SSOConsentReceiptCacheKey(String receiptId, String tenantDomain) {
+        this.receiptId = receiptId;
+        this.tenantDomain = tenantDomain.toLowerCase();
+    }
+
+    public String getReceiptId() {
+        return receiptId;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass() || !super.equals(o)) {
+            return false;
+        }
+
+        SSOConsentReceiptCacheKey that = (SSOConsentReceiptCacheKey) o;
+
+        return receiptId.equals(that.receiptId);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = super.hashCode();
+        result = 31 * result + receiptId.hashCode();
+        return result;
+    }
+}
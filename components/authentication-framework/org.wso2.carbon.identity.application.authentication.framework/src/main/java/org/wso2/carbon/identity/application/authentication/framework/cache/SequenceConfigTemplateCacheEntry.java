@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.application.authentication.framework.cache;
+
+import org.wso2.carbon.identity.application.authentication.framework.config.model.SequenceConfig;
+import org.wso2.carbon.identity.application.common.cache.CacheEntry;
+import org.wso2.carbon.identity.application.common.model.ServiceProvider;
+
+public class SequenceConfigTemplateCacheEntry extends CacheEntry {
+
+    private static final long serialVersionUID = 2871406370356151946L;
+
+    private ServiceProvider serviceProvider;
+    private SequenceConfig sequenceConfig;
+
+    /**
+     * @param serviceProvider service provider instance the template is built from
+     * @param sequenceConfig  template, which must not be handed out
+     */
+    public SequenceConfigTemplateCacheEntry(ServiceProvider serviceProvider, SequenceConfig sequenceConfig) {
+        this.serviceProvider = serviceProvider;
+        this.sequenceConfig = sequenceConfig;
+    }
+
+    public ServiceProvider getServiceProvider() {
+        return serviceProvider;
+    }
+
+    public SequenceConfig getSequenceConfig() {
+        return sequenceConfig;
+    }
+}
@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.application.authentication.framework.cache;
+
+import org.wso2.carbon.identity.application.common.cache.BaseCache;
+
+/**
+ * This cache keeps the local claim URIs which should be fetched from the user store for a service provider, when only
+ * the claims required by the service provider are fetched.
+ */
+public class ServiceProviderLocalClaimsCache extends
+        BaseCache<ServiceProviderLocalClaimsCacheKey, ServiceProviderLocalClaimsCacheEntry> {
+
+    private static final String CACHE_NAME = "ServiceProviderLocalClaimsCache";
+
+    private static volatile ServiceProviderLocalClaimsCache instance;
+
+    private ServiceProviderLocalClaimsCache() {
+        super(CACHE_NAME);
+    }
+
+    public static ServiceProviderLocalClaimsCache getInstance() {
+        if (instance == null) {
+            synchronized (ServiceProviderLocalClaimsCache.class) {
+                if (instance == null) {
+                    instance = new ServiceProviderLocalClaimsCache();
+                }
+            }
+        }
+        return instance;
+    }
+}
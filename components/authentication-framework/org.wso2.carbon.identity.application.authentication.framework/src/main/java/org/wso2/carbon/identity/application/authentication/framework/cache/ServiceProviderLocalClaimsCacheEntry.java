@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.application.authentication.framework.cache;
+
+import org.wso2.carbon.identity.application.common.cache.CacheEntry;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+
+public class ServiceProviderLocalClaimsCacheEntry extends CacheEntry {
+
+    private static final long serialVersionUID = -3860184733092514572L;
+
+    private HashSet<String> localClaimURIs;
+
+    public ServiceProviderLocalClaimsCacheEntry(Set<String> localClaimURIs) {
+        this.localClaimURIs = new HashSet<>(localClaimURIs);
+    }
+
+    public Set<String> getLocalClaimURIs() {
+        return Collections.unmodifiableSet(localClaimURIs);
+    }
+}
@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.application.authentication.framework.cache;
+
+import org.wso2.carbon.identity.application.common.cache.CacheKey;
+
+public class ServiceProviderLocalClaimsCacheKey extends CacheKey {
+
+    private static final long serialVersionUID = 4125839927158315740L;
+
+    private String applicationName;
+
+    public ServiceProviderLocalClaimsCacheKey(String applicationName, String tenantDomain) {
+        this.applicationName = applicationName;
+        this.tenantDomain = tenantDomain.toLowerCase();
+    }
+
+    public String getApplicationName() {
+        return applicationName;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass() || !super.equals(o)) {
+            return false;
+        }
+
+        ServiceProviderLocalClaimsCacheKey that = (ServiceProviderLocalClaimsCacheKey) o;
+
+        return applicationName.equals(that.applicationName);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * super.hashCode() + applicationName.hashCode();
+    }
+}
@@ -22,6 +22,9 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.wso2.carbon.identity.application.authentication.framework.ApplicationAuthenticator;
 import org.wso2.carbon.identity.application.authentication.framework.JsFunctionRegistry;
+import org.wso2.carbon.identity.application.authentication.framework.cache.SequenceConfigTemplateCache;
+import org.wso2.carbon.identity.application.authentication.framework.cache.SequenceConfigTemplateCacheEntry;
+import org.wso2.carbon.identity.application.authentication.framework.cache.SequenceConfigTemplateCacheKey;
 import org.wso2.carbon.identity.application.authentication.framework.config.model.ApplicationConfig;
 import org.wso2.carbon.identity.application.authentication.framework.config.model.AuthenticatorConfig;
 import org.wso2.carbon.identity.application.authentication.framework.config.model.SequenceConfig;
@@ -78,7 +81,7 @@ public class UIBasedConfigurationLoader implements SequenceLoader {
             authenticationSteps = localAndOutboundAuthenticationConfig.getAuthenticationSteps();
         }
 
-        SequenceConfig sequenceConfig = getSequence(serviceProvider, tenantDomain, authenticationSteps);
+        SequenceConfig sequenceConfig = copy(getSequenceTemplate(serviceProvider, tenantDomain, authenticationSteps));
 
         //Use script based evaluation if script is present.
         if (isAuthenticationScriptBasedSequence(localAndOutboundAuthenticationConfig.getAuthenticationScriptConfig())) {
@@ -99,6 +102,85 @@ public class UIBasedConfigurationLoader implements SequenceLoader {
         return sequenceConfig;
     }
 
+    /**
+     * Returns the sequence configuration template of a service provider, which must be copied before use.
+     * <p>
+     * A template is bound to the service provider instance it is built from. The service provider cache replaces the
+     * instance when the service provider is changed on this node or in the cluster, so a template of a stale instance
+     * is rebuilt.
+     */
+    private SequenceConfig getSequenceTemplate(ServiceProvider serviceProvider, String tenantDomain,
+                                               AuthenticationStep[] authenticationSteps) throws FrameworkException {
+
+        if (tenantDomain == null) {
+            return getSequence(serviceProvider, tenantDomain, authenticationSteps);
+        }
+        SequenceConfigTemplateCacheKey cacheKey = new SequenceConfigTemplateCacheKey(
+                serviceProvider.getApplicationName(), tenantDomain);
+        SequenceConfigTemplateCacheEntry cacheEntry = SequenceConfigTemplateCache.getInstance()
+                .getValueFromCache(cacheKey);
+        if (cacheEntry != null && cacheEntry.getServiceProvider() == serviceProvider) {
+            return cacheEntry.getSequenceConfig();
+        }
+        SequenceConfig template = getSequence(serviceProvider, tenantDomain, authenticationSteps);
+        SequenceConfigTemplateCache.getInstance().addToCache(cacheKey,
+                new SequenceConfigTemplateCacheEntry(serviceProvider, template));
+        return template;
+    }
+
+    private SequenceConfig copy(SequenceConfig template) throws FrameworkException {
+
+        SequenceConfig sequenceConfig = new SequenceConfig();
+        sequenceConfig.setName(template.getName());
+        sequenceConfig.setApplicationId(template.getApplicationId());
+        sequenceConfig.setForceAuthn(template.isForceAuthn());
+        sequenceConfig.setCheckAuthn(template.isCheckAuthn());
+        try {
+            sequenceConfig.setApplicationConfig((ApplicationConfig) template.getApplicationConfig().clone());
+        } catch (CloneNotSupportedException e) {
+            throw new FrameworkException("Error while copying the application configuration of: " +
+                    template.getApplicationId(), e);
+        }
+
+        List<AuthenticatorConfig> reqPathAuthenticators = new ArrayList<>();
+        for (AuthenticatorConfig authenticatorConfig : template.getReqPathAuthenticators()) {
+            reqPathAuthenticators.add(copy(authenticatorConfig));
+        }
+        sequenceConfig.setReqPathAuthenticators(reqPathAuthenticators);
+
+        for (Map.Entry<Integer, StepConfig> entry : template.getStepMap().entrySet()) {
+            sequenceConfig.getStepMap().put(entry.getKey(), copy(entry.getValue()));
+        }
+        return sequenceConfig;
+    }
+
+    private StepConfig copy(StepConfig template) {
+
+        StepConfig stepConfig = new StepConfig();
+        stepConfig.setOrder(template.getOrder());
+        stepConfig.setLoginPage(template.getLoginPage());
+        stepConfig.setSubjectIdentifierStep(template.isSubjectIdentifierStep());
+        stepConfig.setSubjectAttributeStep(template.isSubjectAttributeStep());
+        stepConfig.setMultiOption(template.isMultiOption());
+        stepConfig.setAuthenticatorMappings(new ArrayList<>(template.getAuthenticatorMappings()));
+        for (AuthenticatorConfig authenticatorConfig : template.getAuthenticatorList()) {
+            stepConfig.getAuthenticatorList().add(copy(authenticatorConfig));
+        }
+        return stepConfig;
+    }
+
+    private AuthenticatorConfig copy(AuthenticatorConfig template) {
+
+        Map<String, String> parameterMap = template.getParameterMap() == null ? null :
+                new HashMap<>(template.getParameterMap());
+        AuthenticatorConfig authenticatorConfig = new AuthenticatorConfig(template.getName(), template.isEnabled(),
+                parameterMap);
+        authenticatorConfig.setApplicationAuthenticator(template.getApplicationAuthenticator());
+        authenticatorConfig.getIdpNames().addAll(template.getIdpNames());
+        authenticatorConfig.getIdps().putAll(template.getIdps());
+        return authenticatorConfig;
+    }
+
     private boolean isAuthenticationScriptBasedSequence(AuthenticationScriptConfig authenticationScriptConfig) {
         return authenticationScriptConfig != null && authenticationScriptConfig.isEnabled();
     }
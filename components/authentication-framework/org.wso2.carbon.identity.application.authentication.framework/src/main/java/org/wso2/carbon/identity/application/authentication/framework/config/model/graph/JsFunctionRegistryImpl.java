@@ -23,6 +23,7 @@ import org.wso2.carbon.identity.application.authentication.framework.JsFunctionR
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Consumer;
 
 /**
@@ -31,11 +32,13 @@ import java.util.function.Consumer;
 public class JsFunctionRegistryImpl implements JsFunctionRegistry {
 
     private Map<Subsystem, Map<String, Object>> subsystemMap = new HashMap<>();
+    private final AtomicInteger version = new AtomicInteger();
 
     @Override
     public void register(Subsystem subsystem, String functionName, Object function) {
         Map<String, Object> functionNameMap = subsystemMap.computeIfAbsent(subsystem, k -> new HashMap<>());
         functionNameMap.put(functionName, function);
+        version.incrementAndGet();
     }
 
     @Override
@@ -47,6 +50,15 @@ public class JsFunctionRegistryImpl implements JsFunctionRegistry {
         return Collections.unmodifiableMap(functionMap);
     }
 
+    /**
+     * Returns the version of the registered functions, which changes whenever a function is registered.
+     *
+     * @return version of the registered functions.
+     */
+    int getVersion() {
+        return version.get();
+    }
+
     @Override
     public void deRegister(Subsystem subsystem, String functionName) {
 
@@ -23,7 +23,6 @@ import jdk.nashorn.api.scripting.ScriptObjectMirror;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.wso2.carbon.identity.application.authentication.framework.AuthenticationDecisionEvaluator;
-import org.wso2.carbon.identity.application.authentication.framework.JsFunctionRegistry;
 import org.wso2.carbon.identity.application.authentication.framework.config.model.StepConfig;
 import org.wso2.carbon.identity.application.authentication.framework.config.model.graph.js.JsAuthenticationContext;
 import org.wso2.carbon.identity.application.authentication.framework.context.AuthenticationContext;
@@ -34,7 +33,6 @@ import java.util.Map;
 import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import javax.script.Bindings;
-import javax.script.Compilable;
 import javax.script.CompiledScript;
 import javax.script.ScriptContext;
 import javax.script.ScriptEngine;
@@ -98,19 +96,14 @@ public class JsGraphBuilder {
     public JsGraphBuilder createWith(String script) {
 
         try {
-            Compilable compilable = (Compilable) engine;
-            //TODO: Think about keeping a cached compiled scripts. May be the last updated timestamp.
-            CompiledScript compiledScript = compilable.compile(script);
+            CompiledScript compiledScript = JsGraphBuilderFactory.getCompiledScript(engine,
+                    authenticationContext.getTenantDomain() + ":" + authenticationContext.getServiceProviderName(),
+                    script);
 
             Bindings globalBindings = engine.getBindings(ScriptContext.GLOBAL_SCOPE);
             globalBindings.put(FrameworkConstants.JSAttributes.JS_FUNC_EXECUTE_STEP, (Consumer<Map>) this::executeStep);
             globalBindings.put(FrameworkConstants.JSAttributes.JS_FUNC_SEND_ERROR, (Consumer<Map>) this::sendError);
-            JsFunctionRegistry jsFunctionRegistrar = FrameworkServiceDataHolder.getInstance().getJsFunctionRegistry();
-            if (jsFunctionRegistrar != null) {
-                Map<String, Object> functionMap = jsFunctionRegistrar
-                        .getSubsystemFunctionsMap(JsFunctionRegistry.Subsystem.SEQUENCE_HANDLER);
-                functionMap.forEach(globalBindings::put);
-            }
+            // The functions of the registry are bound to the engine by the factory.
             JSObject builderFunction = (JSObject) compiledScript.eval(globalBindings);
             builderFunction.call(null, new JsAuthenticationContext(authenticationContext));
             JsGraphBuilderFactory.persistCurrentContext(authenticationContext, engine);
@@ -120,6 +113,12 @@ public class JsGraphBuilder {
             if (log.isDebugEnabled()) {
                 log.debug("Error in executing the Javascript.", e);
             }
+        } finally {
+            JsGraphBuilderFactory jsGraphBuilderFactory = FrameworkServiceDataHolder.getInstance()
+                    .getJsGraphBuilderFactory();
+            if (jsGraphBuilderFactory != null) {
+                jsGraphBuilderFactory.releaseEngine(engine);
+            }
         }
         return this;
     }
@@ -366,17 +365,10 @@ public class JsGraphBuilder {
                     //Now re-assign the executeStep function to dynamic evaluation
                     globalBindings.put(FrameworkConstants.JSAttributes.JS_FUNC_EXECUTE_STEP,
                             (Consumer<Map>) JsGraphBuilder::executeStepInAsyncEvent);
-                    JsFunctionRegistry jsFunctionRegistry = FrameworkServiceDataHolder.getInstance()
-                            .getJsFunctionRegistry();
-                    if (jsFunctionRegistry != null) {
-                        Map<String, Object> functionMap = jsFunctionRegistry
-                                .getSubsystemFunctionsMap(JsFunctionRegistry.Subsystem.SEQUENCE_HANDLER);
-                        functionMap.forEach(globalBindings::put);
-                    }
-                    Compilable compilable = (Compilable) scriptEngine;
                     JsGraphBuilder.contextForJs.set(authenticationContext);
 
-                    CompiledScript compiledScript = compilable.compile(jsFunction.getSource());
+                    CompiledScript compiledScript = JsGraphBuilderFactory.getCompiledScript(scriptEngine, null,
+                            jsFunction.getSource());
                     JSObject builderFunction = (JSObject) compiledScript.eval();
                     builderFunction.call(null, new JsAuthenticationContext(authenticationContext));
 
@@ -396,6 +388,7 @@ public class JsGraphBuilder {
                 } finally {
                     contextForJs.remove();
                     dynamicallyBuiltBaseNode.remove();
+                    FrameworkServiceDataHolder.getInstance().getJsGraphBuilderFactory().releaseEngine(scriptEngine);
                 }
 
             } else {
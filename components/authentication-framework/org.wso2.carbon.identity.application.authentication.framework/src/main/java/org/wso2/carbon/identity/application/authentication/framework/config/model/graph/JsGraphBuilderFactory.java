@@ -19,6 +19,8 @@
 package org.wso2.carbon.identity.application.authentication.framework.config.model.graph;
 
 import jdk.nashorn.api.scripting.ScriptObjectMirror;
+import org.apache.commons.codec.digest.DigestUtils;
+import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.wso2.carbon.identity.application.authentication.framework.JsFunctionRegistry;
@@ -29,25 +31,52 @@ import org.wso2.carbon.identity.application.authentication.framework.exception.F
 import org.wso2.carbon.identity.application.authentication.framework.handler.sequence.impl.SelectAcrFromFunction;
 import org.wso2.carbon.identity.application.authentication.framework.handler.sequence.impl.SelectOneFunction;
 import org.wso2.carbon.identity.application.authentication.framework.util.FrameworkConstants;
+import org.wso2.carbon.identity.core.util.IdentityUtil;
 
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
 import javax.script.Bindings;
+import javax.script.Compilable;
+import javax.script.CompiledScript;
 import javax.script.ScriptContext;
 import javax.script.ScriptEngine;
 import javax.script.ScriptEngineManager;
 import javax.script.ScriptException;
+import javax.script.SimpleBindings;
 
 /**
  * Factory to create a Javascript based sequence builder.
  * This factory is there to reuse of Nashorn engine and any related expnsive objects.
+ * Engines are kept in a bounded pool and each pooled engine keeps a cache of the scripts compiled on it, so that a
+ * script is compiled once per engine rather than once per authentication request.
+ * <p>
+ * Each engine has its own global bindings, with the functions of the {@link JsFunctionRegistry} bound when the
+ * engine is created or released. The functions are bound again when an engine is taken from the pool only if
+ * functions were registered after they were bound.
  */
 public class JsGraphBuilderFactory {
 
     private static final String JS_BINDING_CURRENT_CONTEXT = "JS_BINDING_CURRENT_CONTEXT";
     private static final String NASHORN_GLOBAL = "nashorn.global";
+    private static final String ENGINE_POOL_SIZE = "AdaptiveAuth.ScriptEngine.PoolSize";
+    private static final String COMPILED_SCRIPT_CACHE_SIZE = "AdaptiveAuth.ScriptEngine.CompiledScriptCacheSize";
+    private static final int DEFAULT_ENGINE_POOL_SIZE = 10;
+    private static final int DEFAULT_COMPILED_SCRIPT_CACHE_SIZE = 100;
+
+    /**
+     * State of the pooled engines. A compiled script can only be evaluated on the engine it was compiled with.
+     */
+    private static final Map<ScriptEngine, EngineState> engineStates = new ConcurrentHashMap<>();
+    private static int compiledScriptCacheSize = DEFAULT_COMPILED_SCRIPT_CACHE_SIZE;
+
     private JsFunctionRegistry jsFunctionRegistry;
     private ScriptEngineManager nashornScriptManager;
+    private BlockingQueue<ScriptEngine> enginePool;
 
     private static final Log jsLog = LogFactory
             .getLog(JsGraphBuilder.class.getPackage().getName() + ".JsBasedSequence");
@@ -55,22 +84,189 @@ public class JsGraphBuilderFactory {
     public void init() {
 
         nashornScriptManager = new ScriptEngineManager();
+
+        Bindings bindings = nashornScriptManager.getBindings();
+        SelectAcrFromFunction selectAcrFromFunction = new SelectAcrFromFunction();
+        bindings.put(FrameworkConstants.JSAttributes.JS_FUNC_SELECT_ACR_FROM,
+                (SelectOneFunction) selectAcrFromFunction::evaluate);
+        bindings.put(FrameworkConstants.JSAttributes.JS_LOG, new JsLogger());
+
+        compiledScriptCacheSize = getPositiveIntProperty(COMPILED_SCRIPT_CACHE_SIZE,
+                DEFAULT_COMPILED_SCRIPT_CACHE_SIZE);
+        int enginePoolSize = getPositiveIntProperty(ENGINE_POOL_SIZE, DEFAULT_ENGINE_POOL_SIZE);
+        enginePool = new ArrayBlockingQueue<>(enginePoolSize);
+        for (int i = 0; i < enginePoolSize; i++) {
+            ScriptEngine engine = nashornScriptManager.getEngineByName("nashorn");
+            EngineState engineState = new EngineState(createCompiledScriptCache());
+            engineState.functionsVersion = initBindings(engine);
+            engineStates.put(engine, engineState);
+            enginePool.offer(engine);
+        }
     }
 
+    /**
+     * Returns a script engine from the pool, or a new engine if the pool is exhausted. The engine should be given
+     * back with {@link #releaseEngine(ScriptEngine)} once the script evaluation is complete.
+     *
+     * @param authenticationContext current authentication context.
+     * @return script engine.
+     */
     public ScriptEngine createEngine(AuthenticationContext authenticationContext) {
 
-        ScriptEngine engine = nashornScriptManager.getEngineByName("nashorn");
+        ScriptEngine engine = enginePool != null ? enginePool.poll() : null;
+        if (engine == null) {
+            return newEngine();
+        }
+        EngineState engineState = engineStates.get(engine);
+        int functionsVersion = getFunctionsVersion();
+        if (engineState != null && (functionsVersion < 0 || engineState.functionsVersion != functionsVersion)) {
+            engineState.functionsVersion = bindFunctions(engine);
+        }
+        return engine;
+    }
 
-        Bindings bindings = engine.getBindings(ScriptContext.GLOBAL_SCOPE);
-        SelectAcrFromFunction selectAcrFromFunction = new SelectAcrFromFunction();
-        bindings.put(FrameworkConstants.JSAttributes.JS_FUNC_SELECT_ACR_FROM,
-                (SelectOneFunction) selectAcrFromFunction::evaluate);
+    /**
+     * Returns an engine to the pool with new engine and global bindings, so that no variable of a script is seen by
+     * the next script evaluated on the engine. The compiled scripts of the engine are kept. The engine is discarded
+     * if the pool is already full.
+     *
+     * @param engine script engine obtained from {@link #createEngine(AuthenticationContext)}.
+     */
+    public void releaseEngine(ScriptEngine engine) {
+
+        if (engine == null || enginePool == null) {
+            return;
+        }
+        // The variables of a script can not all be removed one by one, as a top level var is not configurable.
+        engine.setBindings(engine.createBindings(), ScriptContext.ENGINE_SCOPE);
+        EngineState engineState = engineStates.computeIfAbsent(engine,
+                key -> new EngineState(createCompiledScriptCache()));
+        engineState.functionsVersion = initBindings(engine);
+        if (!enginePool.offer(engine)) {
+            engineStates.remove(engine);
+        }
+    }
+
+    /**
+     * Returns the compiled form of the script for the given engine, compiling it only if it is not already compiled
+     * on the engine.
+     *
+     * @param engine    script engine the script will be evaluated on.
+     * @param keyPrefix prefix to scope the cached script, i.e. tenant and service provider.
+     * @param script    script source.
+     * @return compiled script.
+     * @throws ScriptException when the script can not be compiled.
+     */
+    public static CompiledScript getCompiledScript(ScriptEngine engine, String keyPrefix, String script)
+            throws ScriptException {
+
+        EngineState engineState = engineStates.get(engine);
+        if (engineState == null) {
+            // The engine is not pooled, hence the compiled script would not be reused.
+            return ((Compilable) engine).compile(script);
+        }
+        Map<String, CompiledScript> engineScripts = engineState.compiledScripts;
+
+        String scriptKey = StringUtils.defaultString(keyPrefix) + ":" + DigestUtils.sha256Hex(script);
+        CompiledScript compiledScript = engineScripts.get(scriptKey);
+        if (compiledScript == null) {
+            compiledScript = ((Compilable) engine).compile(script);
+            engineScripts.put(scriptKey, compiledScript);
+        }
+        return compiledScript;
+    }
+
+    private static Map<String, CompiledScript> createCompiledScriptCache() {
+
+        return Collections.synchronizedMap(new LinkedHashMap<String, CompiledScript>(16, 0.75f, true) {
+
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CompiledScript> eldest) {
+
+                return size() > compiledScriptCacheSize;
+            }
+        });
+    }
+
+    /**
+     * Returns the number of engines available in the pool.
+     */
+    int getPooledEngineCount() {
+
+        return enginePool != null ? enginePool.size() : 0;
+    }
+
+    private ScriptEngine newEngine() {
 
-        JsLogger jsLogger = new JsLogger();
-        bindings.put(FrameworkConstants.JSAttributes.JS_LOG, jsLogger);
+        ScriptEngine engine = nashornScriptManager.getEngineByName("nashorn");
+        initBindings(engine);
         return engine;
     }
 
+    /**
+     * Gives the engine its own global bindings, holding the shared selectAcrFrom and Log bindings of the manager and
+     * the registered functions, so that the functions bound by each request are not shared between the engines.
+     *
+     * @return version of the bound functions.
+     */
+    private int initBindings(ScriptEngine engine) {
+
+        Bindings globalBindings = new SimpleBindings();
+        globalBindings.putAll(nashornScriptManager.getBindings());
+        engine.setBindings(globalBindings, ScriptContext.GLOBAL_SCOPE);
+        return bindFunctions(engine);
+    }
+
+    /**
+     * Binds the registered functions to the global bindings of the engine.
+     *
+     * @return version of the bound functions.
+     */
+    private int bindFunctions(ScriptEngine engine) {
+
+        // The version is read before the functions, so that functions registered while binding are bound later.
+        int functionsVersion = getFunctionsVersion();
+        if (jsFunctionRegistry != null) {
+            Bindings globalBindings = engine.getBindings(ScriptContext.GLOBAL_SCOPE);
+            jsFunctionRegistry.getSubsystemFunctionsMap(JsFunctionRegistry.Subsystem.SEQUENCE_HANDLER)
+                    .forEach(globalBindings::put);
+        }
+        return functionsVersion;
+    }
+
+    /**
+     * Returns the version of the registered functions. A registry which does not track its changes is bound every
+     * time an engine is taken from the pool.
+     */
+    private int getFunctionsVersion() {
+
+        if (jsFunctionRegistry == null) {
+            return 0;
+        }
+        if (jsFunctionRegistry instanceof JsFunctionRegistryImpl) {
+            return ((JsFunctionRegistryImpl) jsFunctionRegistry).getVersion();
+        }
+        return -1;
+    }
+
+    private static int getPositiveIntProperty(String propertyName, int defaultValue) {
+
+        String value = IdentityUtil.getProperty(propertyName);
+        if (StringUtils.isNotBlank(value)) {
+            try {
+                int intValue = Integer.parseInt(value.trim());
+                if (intValue > 0) {
+                    return intValue;
+                }
+            } catch (NumberFormatException e) {
+                // Fall back to the default value.
+            }
+            jsLog.warn("Invalid value: " + value + " configured for " + propertyName + ". Using default value: "
+                    + defaultValue);
+        }
+        return defaultValue;
+    }
+
     public static void persistCurrentContext(AuthenticationContext context, ScriptEngine engine) {
 
         Bindings bindings = engine.getBindings(ScriptContext.GLOBAL_SCOPE);
@@ -102,7 +298,7 @@ public class JsGraphBuilderFactory {
         if (value instanceof SerializableJsFunction) {
             SerializableJsFunction serializableJsFunction = (SerializableJsFunction) value;
             try {
-                Object fn = engine.eval(serializableJsFunction.getSource());
+                Object fn = getCompiledScript(engine, null, serializableJsFunction.getSource()).eval();
                 return fn;
             } catch (ScriptException e) {
                 throw new FrameworkException("Error in resurrecting a Javascript Function : " + serializableJsFunction);
@@ -141,4 +337,15 @@ public class JsGraphBuilderFactory {
 
         this.jsFunctionRegistry = jsFunctionRegistry;
     }
+
+    private static class EngineState {
+
+        private final Map<String, CompiledScript> compiledScripts;
+        private volatile int functionsVersion = -1;
+
+        EngineState(Map<String, CompiledScript> compiledScripts) {
+
+            this.compiledScripts = compiledScripts;
+        }
+    }
 }
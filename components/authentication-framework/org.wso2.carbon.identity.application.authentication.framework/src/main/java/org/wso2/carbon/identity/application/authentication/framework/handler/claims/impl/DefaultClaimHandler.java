@@ -26,6 +26,9 @@ import org.wso2.carbon.CarbonException;
 import org.wso2.carbon.base.MultitenantConstants;
 import org.wso2.carbon.core.util.AnonymousSessionUtil;
 import org.wso2.carbon.identity.application.authentication.framework.ApplicationAuthenticator;
+import org.wso2.carbon.identity.application.authentication.framework.cache.ServiceProviderLocalClaimsCache;
+import org.wso2.carbon.identity.application.authentication.framework.cache.ServiceProviderLocalClaimsCacheEntry;
+import org.wso2.carbon.identity.application.authentication.framework.cache.ServiceProviderLocalClaimsCacheKey;
 import org.wso2.carbon.identity.application.authentication.framework.config.model.ApplicationConfig;
 import org.wso2.carbon.identity.application.authentication.framework.config.model.StepConfig;
 import org.wso2.carbon.identity.application.authentication.framework.context.AuthenticationContext;
@@ -42,6 +45,7 @@ import org.wso2.carbon.identity.application.mgt.ApplicationConstants;
 import org.wso2.carbon.identity.claim.metadata.mgt.ClaimMetadataHandler;
 import org.wso2.carbon.identity.claim.metadata.mgt.exception.ClaimMetadataException;
 import org.wso2.carbon.identity.core.util.IdentityCoreConstants;
+import org.wso2.carbon.identity.core.util.IdentityUtil;
 import org.wso2.carbon.user.api.ClaimManager;
 import org.wso2.carbon.user.api.RealmConfiguration;
 import org.wso2.carbon.user.api.UserStoreException;
@@ -50,7 +54,9 @@ import org.wso2.carbon.user.core.UserRealm;
 
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.LinkedList;
 import java.util.List;
@@ -64,6 +70,7 @@ public class DefaultClaimHandler implements ClaimHandler {
     public static final String SERVICE_PROVIDER_SUBJECT_CLAIM_VALUE =
             FrameworkConstants.SERVICE_PROVIDER_SUBJECT_CLAIM_VALUE;
     private static final Log log = LogFactory.getLog(DefaultClaimHandler.class);
+    private static final String FETCH_REQUESTED_CLAIMS_ONLY = "ClaimHandler.FetchRequestedClaimsOnly";
     private static volatile DefaultClaimHandler instance;
 
     public static DefaultClaimHandler getInstance() {
@@ -388,7 +395,7 @@ public class DefaultClaimHandler implements ClaimHandler {
 
         // Retrieve all non-null user claim values against local claim uris.
         allLocalClaims = retrieveAllNunNullUserClaimValues(authenticatedUser, claimManager, appConfig,
-                (org.wso2.carbon.user.core.UserStoreManager) userStore);
+                (org.wso2.carbon.user.core.UserStoreManager) userStore, context);
 
         context.setProperty(FrameworkConstants.UNFILTERED_LOCAL_CLAIM_VALUES, allLocalClaims);
 
@@ -523,7 +530,8 @@ public class DefaultClaimHandler implements ClaimHandler {
 
     private Map<String, String> retrieveAllNunNullUserClaimValues(AuthenticatedUser authenticatedUser,
             ClaimManager claimManager, ApplicationConfig appConfig,
-            org.wso2.carbon.user.core.UserStoreManager userStore) throws FrameworkException {
+            org.wso2.carbon.user.core.UserStoreManager userStore, AuthenticationContext context)
+            throws FrameworkException {
 
         String tenantDomain = authenticatedUser.getTenantDomain();
         String tenantAwareUserName = authenticatedUser.getUserName();
@@ -533,10 +541,17 @@ public class DefaultClaimHandler implements ClaimHandler {
 
             org.wso2.carbon.user.api.ClaimMapping[] claimMappings = claimManager
                     .getAllClaimMappings(ApplicationConstants.LOCAL_IDP_DEFAULT_CLAIM_DIALECT);
+            // Null if all the local claims should be fetched.
+            Set<String> requiredLocalClaimURIs = getRequiredLocalClaimURIs(appConfig, context);
             List<String> localClaimURIs = new ArrayList<>();
             for (org.wso2.carbon.user.api.ClaimMapping mapping : claimMappings) {
                 String claimURI = mapping.getClaim().getClaimUri();
-                localClaimURIs.add(claimURI);
+                if (requiredLocalClaimURIs == null || requiredLocalClaimURIs.contains(claimURI)) {
+                    localClaimURIs.add(claimURI);
+                }
+            }
+            if (localClaimURIs.isEmpty()) {
+                return new HashMap<>();
             }
             allLocalClaims = userStore.getUserClaimValues(tenantAwareUserName,
                     localClaimURIs.toArray(new String[localClaimURIs.size()]), null);
@@ -544,7 +559,8 @@ public class DefaultClaimHandler implements ClaimHandler {
             if (allLocalClaims != null) {
                 for (Map.Entry<String, String> entry : allLocalClaims.entrySet()) {
                     //set local2sp role mappings
-                    if (FrameworkConstants.LOCAL_ROLE_CLAIM_URI.equals(entry.getKey())) {
+                    if (FrameworkConstants.LOCAL_ROLE_CLAIM_URI.equals(entry.getKey()) &&
+                            MapUtils.isNotEmpty(appConfig.getRoleMappings())) {
                         RealmConfiguration realmConfiguration = userStore.getRealmConfiguration();
                         String claimSeparator = realmConfiguration
                                 .getUserStoreProperty(IdentityCoreConstants.MULTI_ATTRIBUTE_SEPARATOR);
@@ -573,6 +589,88 @@ public class DefaultClaimHandler implements ClaimHandler {
         return allLocalClaims;
     }
 
+    /**
+     * Returns the local claim URIs required by the service provider, if only those claims should be fetched from the
+     * user store. These are the requested and mandatory claims, the subject claim and the role claim.
+     *
+     * @param appConfig application config of the service provider
+     * @param context   authentication context
+     * @return required local claim URIs, or null if all the local claims should be fetched
+     */
+    private Set<String> getRequiredLocalClaimURIs(ApplicationConfig appConfig, AuthenticationContext context) {
+
+        if (!Boolean.parseBoolean(IdentityUtil.getProperty(FETCH_REQUESTED_CLAIMS_ONLY))) {
+            return null;
+        }
+        // All the service provider mapped claims are returned for OpenID requests, and all the local claims are
+        // returned by the sequence handlers if the service provider has not requested any claims.
+        if (FrameworkConstants.RequestType.CLAIM_TYPE_OPENID.equals(context.getRequestType()) ||
+                MapUtils.isEmpty(appConfig.getRequestedClaimMappings())) {
+            return null;
+        }
+
+        String applicationName = appConfig.getApplicationName();
+        String tenantDomain = context.getTenantDomain();
+        if (applicationName == null || tenantDomain == null) {
+            return buildRequiredLocalClaimURIs(appConfig);
+        }
+
+        ServiceProviderLocalClaimsCacheKey cacheKey =
+                new ServiceProviderLocalClaimsCacheKey(applicationName, tenantDomain);
+        ServiceProviderLocalClaimsCacheEntry cacheEntry =
+                ServiceProviderLocalClaimsCache.getInstance().getValueFromCache(cacheKey);
+        if (cacheEntry != null) {
+            return cacheEntry.getLocalClaimURIs();
+        }
+
+        Set<String> localClaimURIs = buildRequiredLocalClaimURIs(appConfig);
+        ServiceProviderLocalClaimsCache.getInstance().addToCache(cacheKey,
+                new ServiceProviderLocalClaimsCacheEntry(localClaimURIs));
+        if (log.isDebugEnabled()) {
+            log.debug("Local claims required by service provider: " + applicationName + " in tenant: " +
+                    tenantDomain + " are: " + localClaimURIs);
+        }
+        return localClaimURIs;
+    }
+
+    private Set<String> buildRequiredLocalClaimURIs(ApplicationConfig appConfig) {
+
+        Set<String> localClaimURIs = new HashSet<>();
+        addLocalClaimURIs(localClaimURIs, appConfig.getRequestedClaimMappings().values());
+        if (appConfig.getMandatoryClaimMappings() != null) {
+            addLocalClaimURIs(localClaimURIs, appConfig.getMandatoryClaimMappings().values());
+        }
+
+        Map<String, String> claimMappings = appConfig.getClaimMappings();
+        if (claimMappings == null) {
+            claimMappings = new HashMap<>();
+        }
+        // Subject and role claim URIs can be either local or service provider claim URIs.
+        String subjectClaimUri = appConfig.getSubjectClaimUri();
+        if (StringUtils.isNotBlank(subjectClaimUri)) {
+            localClaimURIs.add(subjectClaimUri.trim());
+            addLocalClaimURIs(localClaimURIs, Arrays.asList(claimMappings.get(subjectClaimUri)));
+        }
+        String roleClaimUri = appConfig.getRoleClaim();
+        if (StringUtils.isNotBlank(roleClaimUri) || MapUtils.isNotEmpty(appConfig.getRoleMappings())) {
+            localClaimURIs.add(FrameworkConstants.LOCAL_ROLE_CLAIM_URI);
+            if (StringUtils.isNotBlank(roleClaimUri)) {
+                localClaimURIs.add(roleClaimUri);
+                addLocalClaimURIs(localClaimURIs, Arrays.asList(claimMappings.get(roleClaimUri)));
+            }
+        }
+        return localClaimURIs;
+    }
+
+    private void addLocalClaimURIs(Set<String> localClaimURIs, Collection<String> claimURIs) {
+
+        for (String claimURI : claimURIs) {
+            if (StringUtils.isNotBlank(claimURI)) {
+                localClaimURIs.add(claimURI);
+            }
+        }
+    }
+
     private UserStoreManager getUserStoreManager(String tenantDomain, UserRealm realm, String userDomain) throws
             FrameworkException {
         UserStoreManager userStore = null;
@@ -36,6 +36,13 @@ import org.wso2.carbon.consent.mgt.core.model.ReceiptPurposeInput;
 import org.wso2.carbon.consent.mgt.core.model.ReceiptService;
 import org.wso2.carbon.consent.mgt.core.model.ReceiptServiceInput;
 import org.wso2.carbon.context.PrivilegedCarbonContext;
+import org.wso2.carbon.identity.application.authentication.framework.cache.SSOConsentMetadataCache;
+import org.wso2.carbon.identity.application.authentication.framework.cache.SSOConsentMetadataCacheEntry;
+import org.wso2.carbon.identity.application.authentication.framework.cache.SSOConsentMetadataCacheKey;
+import org.wso2.carbon.identity.application.authentication.framework.cache.SSOConsentMetadataCacheKey.MetadataType;
+import org.wso2.carbon.identity.application.authentication.framework.cache.SSOConsentReceiptCache;
+import org.wso2.carbon.identity.application.authentication.framework.cache.SSOConsentReceiptCacheEntry;
+import org.wso2.carbon.identity.application.authentication.framework.cache.SSOConsentReceiptCacheKey;
 import org.wso2.carbon.identity.application.authentication.framework.handler.request.impl.consent.constant
         .SSOConsentConstants;
 import org.wso2.carbon.identity.application.authentication.framework.handler.request.impl.consent.exception
@@ -413,6 +420,8 @@ public class SSOConsentServiceImpl implements SSOConsentService {
             startTenantFlowWithUser(subject, subjectTenantDomain);
             receiptResponse = getConsentManager().addConsent(receiptInput);
         } catch (ConsentManagementException e) {
+            // The cached purpose or PII category identifiers may refer to ones deleted from the consent manager.
+            SSOConsentMetadataCache.getInstance().clear();
             throw new SSOConsentServiceException("Consent receipt error", "Error while adding the consent " +
                                                                                  "receipt", e);
         } finally {
@@ -435,17 +444,17 @@ public class SSOConsentServiceImpl implements SSOConsentService {
                              CONSENT_VALIDITY_TYPE_VALID_UNTIL_INDEFINITE;
         String policyUrl = "NONE";
 
-        Purpose purpose = getDefaultPurpose();
-        PurposeCategory purposeCategory = getDefaultPurposeCategory();
+        int purposeId = getDefaultPurposeId();
+        int purposeCategoryId = getDefaultPurposeCategoryId();
         List<PIICategoryValidity> piiCategoryIds = getPiiCategoryValiditiesForClaims(claims, termination);
         List<ReceiptServiceInput> serviceInputs = new ArrayList<>();
         List<ReceiptPurposeInput> purposeInputs = new ArrayList<>();
         List<Integer> purposeCategoryIds = new ArrayList<>();
         Map<String, String> properties = new HashMap<>();
 
-        purposeCategoryIds.add(purposeCategory.getId());
+        purposeCategoryIds.add(purposeCategoryId);
 
-        ReceiptPurposeInput purposeInput = getReceiptPurposeInput(consentType, termination, purpose, piiCategoryIds,
+        ReceiptPurposeInput purposeInput = getReceiptPurposeInput(consentType, termination, purposeId, piiCategoryIds,
                                                                   purposeCategoryIds);
         purposeInputs.add(purposeInput);
 
@@ -491,7 +500,7 @@ public class SSOConsentServiceImpl implements SSOConsentService {
         return serviceInput;
     }
 
-    private ReceiptPurposeInput getReceiptPurposeInput(String consentType, String termination, Purpose purpose,
+    private ReceiptPurposeInput getReceiptPurposeInput(String consentType, String termination, int purposeId,
                                                        List<PIICategoryValidity> piiCategoryIds,
                                                        List<Integer> purposeCategoryIds) {
 
@@ -500,7 +509,7 @@ public class SSOConsentServiceImpl implements SSOConsentService {
         purposeInput.setTermination(termination);
         purposeInput.setConsentType(consentType);
         purposeInput.setThirdPartyDisclosure(false);
-        purposeInput.setPurposeId(purpose.getId());
+        purposeInput.setPurposeId(purposeId);
         purposeInput.setPurposeCategoryId(purposeCategoryIds);
         purposeInput.setPiiCategory(piiCategoryIds);
         return purposeInput;
@@ -512,6 +521,15 @@ public class SSOConsentServiceImpl implements SSOConsentService {
         List<PIICategoryValidity> piiCategoryIds = new ArrayList<>();
 
         for (ClaimMetaData claim : claims) {
+            SSOConsentMetadataCacheKey cacheKey = new SSOConsentMetadataCacheKey(MetadataType.PII_CATEGORY,
+                    claim.getClaimUri(), getCurrentTenantDomain());
+            SSOConsentMetadataCacheEntry cacheEntry = SSOConsentMetadataCache.getInstance()
+                    .getValueFromCache(cacheKey);
+            if (cacheEntry != null) {
+                piiCategoryIds.add(new PIICategoryValidity(cacheEntry.getId(), termination));
+                continue;
+            }
+
             PIICategory piiCategory;
             try {
                 piiCategory = getConsentManager().getPIICategoryByName(claim.getClaimUri());
@@ -527,6 +545,8 @@ public class SSOConsentServiceImpl implements SSOConsentService {
                 throw new SSOConsentServiceException("Consent PII category error", "Error while retrieving " +
                         "PII category: " + DEFAULT_PURPOSE_CATEGORY, e);
             }
+            SSOConsentMetadataCache.getInstance().addToCache(cacheKey,
+                    new SSOConsentMetadataCacheEntry(piiCategory.getId()));
             piiCategoryIds.add(new PIICategoryValidity(piiCategory.getId(), termination));
         }
         return piiCategoryIds;
@@ -551,6 +571,19 @@ public class SSOConsentServiceImpl implements SSOConsentService {
         return ERROR_CODE_PII_CAT_NAME_INVALID.getCode().equals(e.getErrorCode());
     }
 
+    private int getDefaultPurposeCategoryId() throws SSOConsentServiceException {
+
+        SSOConsentMetadataCacheKey cacheKey = new SSOConsentMetadataCacheKey(MetadataType.PURPOSE_CATEGORY,
+                DEFAULT_PURPOSE_CATEGORY, getCurrentTenantDomain());
+        SSOConsentMetadataCacheEntry cacheEntry = SSOConsentMetadataCache.getInstance().getValueFromCache(cacheKey);
+        if (cacheEntry != null) {
+            return cacheEntry.getId();
+        }
+        int purposeCategoryId = getDefaultPurposeCategory().getId();
+        SSOConsentMetadataCache.getInstance().addToCache(cacheKey, new SSOConsentMetadataCacheEntry(purposeCategoryId));
+        return purposeCategoryId;
+    }
+
     private PurposeCategory getDefaultPurposeCategory() throws SSOConsentServiceException {
 
         PurposeCategory purposeCategory;
@@ -590,6 +623,19 @@ public class SSOConsentServiceImpl implements SSOConsentService {
         return ERROR_CODE_PURPOSE_CAT_NAME_INVALID.getCode().equals(e.getErrorCode());
     }
 
+    private int getDefaultPurposeId() throws SSOConsentServiceException {
+
+        SSOConsentMetadataCacheKey cacheKey = new SSOConsentMetadataCacheKey(MetadataType.PURPOSE, DEFAULT_PURPOSE,
+                getCurrentTenantDomain());
+        SSOConsentMetadataCacheEntry cacheEntry = SSOConsentMetadataCache.getInstance().getValueFromCache(cacheKey);
+        if (cacheEntry != null) {
+            return cacheEntry.getId();
+        }
+        int purposeId = getDefaultPurpose().getId();
+        SSOConsentMetadataCache.getInstance().addToCache(cacheKey, new SSOConsentMetadataCacheEntry(purposeId));
+        return purposeId;
+    }
+
     private Purpose getDefaultPurpose() throws SSOConsentServiceException {
 
         Purpose purpose;
@@ -979,6 +1025,18 @@ public class SSOConsentServiceImpl implements SSOConsentService {
     private Receipt getReceipt(AuthenticatedUser authenticatedUser, String receiptId) throws
             SSOConsentServiceException {
 
+        // A receipt is not changed once issued. Only the receipts found active are retrieved, so a cached receipt
+        // is never served after it is revoked.
+        SSOConsentReceiptCacheKey cacheKey = new SSOConsentReceiptCacheKey(receiptId,
+                authenticatedUser.getTenantDomain());
+        SSOConsentReceiptCacheEntry cacheEntry = SSOConsentReceiptCache.getInstance().getValueFromCache(cacheKey);
+        if (cacheEntry != null) {
+            if (isDebugEnabled()) {
+                logDebug("Consent receipt: " + receiptId + " is found in the cache.");
+            }
+            return cacheEntry.getReceipt();
+        }
+
         Receipt currentReceipt;
         String subject = buildSubjectWithUserStoreDomain(authenticatedUser);
         try {
@@ -990,6 +1048,9 @@ public class SSOConsentServiceImpl implements SSOConsentService {
         } finally {
             PrivilegedCarbonContext.endTenantFlow();
         }
+        if (currentReceipt != null) {
+            SSOConsentReceiptCache.getInstance().addToCache(cacheKey, new SSOConsentReceiptCacheEntry(currentReceipt));
+        }
         return currentReceipt;
     }
 
@@ -1003,6 +1064,19 @@ public class SSOConsentServiceImpl implements SSOConsentService {
         return receiptListResponses.size() > 1;
     }
 
+    /**
+     * The purposes and PII categories used for the receipts are read from the consent manager in the tenant of the
+     * thread, so they are cached against it.
+     */
+    private String getCurrentTenantDomain() {
+
+        String tenantDomain = PrivilegedCarbonContext.getThreadLocalCarbonContext().getTenantDomain();
+        if (isBlank(tenantDomain)) {
+            return MultitenantConstants.SUPER_TENANT_DOMAIN_NAME;
+        }
+        return tenantDomain;
+    }
+
     private void startTenantFlowWithUser(String subject, String subjectTenantDomain) {
 
         startTenantFlow(subjectTenantDomain);
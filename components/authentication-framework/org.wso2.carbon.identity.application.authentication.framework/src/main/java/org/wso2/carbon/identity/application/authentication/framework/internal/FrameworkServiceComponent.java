@@ -39,6 +39,7 @@ import org.wso2.carbon.identity.application.authentication.framework.FederatedAp
 import org.wso2.carbon.identity.application.authentication.framework.JsFunctionRegistry;
 import org.wso2.carbon.identity.application.authentication.framework.LocalApplicationAuthenticator;
 import org.wso2.carbon.identity.application.authentication.framework.RequestPathApplicationAuthenticator;
+import org.wso2.carbon.identity.application.authentication.framework.cache.SequenceConfigTemplateCache;
 import org.wso2.carbon.identity.application.authentication.framework.config.ConfigurationFacade;
 import org.wso2.carbon.identity.application.authentication.framework.config.loader.UIBasedConfigurationLoader;
 import org.wso2.carbon.identity.application.authentication.framework.config.model.graph.JsFunctionRegistryImpl;
@@ -57,6 +58,9 @@ import org.wso2.carbon.identity.application.authentication.framework.inbound.Ide
 import org.wso2.carbon.identity.application.authentication.framework.inbound.IdentityServlet;
 import org.wso2.carbon.identity.application.authentication.framework.internal.impl.AuthenticationMethodNameTranslatorImpl;
 import org.wso2.carbon.identity.application.authentication.framework.listener.AuthenticationEndpointTenantActivityListener;
+import org.wso2.carbon.identity.application.authentication.framework.listener.ClaimHandlerApplicationMgtListener;
+import org.wso2.carbon.identity.application.authentication.framework.listener.SequenceTemplateApplicationMgtListener;
+import org.wso2.carbon.identity.application.authentication.framework.listener.SequenceTemplateIdPMgtListener;
 import org.wso2.carbon.identity.application.authentication.framework.services.PostAuthenticationMgtService;
 import org.wso2.carbon.identity.application.authentication.framework.servlet.CommonAuthenticationServlet;
 import org.wso2.carbon.identity.application.authentication.framework.servlet.LoginContextServlet;
@@ -67,9 +71,11 @@ import org.wso2.carbon.identity.application.common.model.FederatedAuthenticatorC
 import org.wso2.carbon.identity.application.common.model.LocalAuthenticatorConfig;
 import org.wso2.carbon.identity.application.common.model.Property;
 import org.wso2.carbon.identity.application.common.model.RequestPathAuthenticatorConfig;
+import org.wso2.carbon.identity.application.mgt.listener.ApplicationMgtListener;
 import org.wso2.carbon.identity.claim.metadata.mgt.ClaimMetadataManagementService;
 import org.wso2.carbon.identity.core.handler.HandlerComparator;
 import org.wso2.carbon.identity.core.util.IdentityCoreInitializedEvent;
+import org.wso2.carbon.idp.mgt.listener.IdentityProviderMgtListener;
 import org.wso2.carbon.registry.core.service.RegistryService;
 import org.wso2.carbon.stratos.common.listeners.TenantMgtListener;
 import org.wso2.carbon.user.core.service.RealmService;
@@ -227,6 +233,12 @@ public class FrameworkServiceComponent {
         bundleContext.registerService(SSOConsentService.class.getName(), ssoConsentService, null);
         dataHolder.setSSOConsentService(ssoConsentService);
         bundleContext.registerService(PostAuthenticationHandler.class.getName(), consentMgtPostAuthnHandler, null);
+        bundleContext.registerService(ApplicationMgtListener.class.getName(), new ClaimHandlerApplicationMgtListener(),
+                null);
+        bundleContext.registerService(ApplicationMgtListener.class.getName(),
+                new SequenceTemplateApplicationMgtListener(), null);
+        bundleContext.registerService(IdentityProviderMgtListener.class.getName(), new SequenceTemplateIdPMgtListener(),
+                null);
         //this is done to load SessionDataStore class and start the cleanup tasks.
         SessionDataStore.getInstance();
 
@@ -291,6 +303,8 @@ public class FrameworkServiceComponent {
     protected void setAuthenticator(ApplicationAuthenticator authenticator) {
 
         FrameworkServiceDataHolder.getInstance().getAuthenticators().add(authenticator);
+        // Sequence templates keep the authenticators resolved by name.
+        SequenceConfigTemplateCache.getInstance().clear();
 
         Property[] configProperties = null;
 
@@ -327,6 +341,7 @@ public class FrameworkServiceComponent {
     protected void unsetAuthenticator(ApplicationAuthenticator authenticator) {
 
         FrameworkServiceDataHolder.getInstance().getAuthenticators().remove(authenticator);
+        SequenceConfigTemplateCache.getInstance().clear();
         String authenticatorName = authenticator.getName();
         ApplicationAuthenticatorService appAuthenticatorService = ApplicationAuthenticatorService.getInstance();
 
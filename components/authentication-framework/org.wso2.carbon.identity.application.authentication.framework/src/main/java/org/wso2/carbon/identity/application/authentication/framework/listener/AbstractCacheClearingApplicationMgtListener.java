@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.application.authentication.framework.listener;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.identity.application.authentication.framework.util.FrameworkUtils;
+import org.wso2.carbon.identity.application.common.IdentityApplicationManagementException;
+import org.wso2.carbon.identity.application.common.model.ServiceProvider;
+import org.wso2.carbon.identity.application.mgt.ApplicationMgtSystemConfig;
+import org.wso2.carbon.identity.application.mgt.listener.AbstractApplicationMgtListener;
+
+/**
+ * Clears the entry of a service provider from a cache of the framework which is keyed by the name of the service
+ * provider, when the service provider is updated or deleted. The entry of the stored name is cleared before an update
+ * as well, in case the service provider is renamed.
+ */
+public abstract class AbstractCacheClearingApplicationMgtListener extends AbstractApplicationMgtListener {
+
+    private static final Log log = LogFactory.getLog(AbstractCacheClearingApplicationMgtListener.class);
+
+    @Override
+    public boolean doPreUpdateApplication(ServiceProvider serviceProvider, String tenantDomain, String userName)
+            throws IdentityApplicationManagementException {
+
+        if (isEnable()) {
+            clearCacheEntryOf(getStoredApplicationName(serviceProvider.getApplicationID(), tenantDomain),
+                    tenantDomain);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean doPostUpdateApplication(ServiceProvider serviceProvider, String tenantDomain, String userName)
+            throws IdentityApplicationManagementException {
+
+        if (isEnable()) {
+            clearCacheEntryOf(serviceProvider.getApplicationName(), tenantDomain);
+        }
+        return true;
+    }
+
+    @Override
+    public boolean doPostDeleteApplication(String applicationName, String tenantDomain, String userName)
+            throws IdentityApplicationManagementException {
+
+        if (isEnable()) {
+            clearCacheEntryOf(applicationName, tenantDomain);
+        }
+        return true;
+    }
+
+    /**
+     * Clears the cache entry of a service provider.
+     *
+     * @param applicationName name of the service provider
+     * @param tenantDomain    tenant domain of the service provider
+     */
+    protected abstract void clearCacheEntry(String applicationName, String tenantDomain);
+
+    private void clearCacheEntryOf(String applicationName, String tenantDomain) {
+
+        if (applicationName == null || tenantDomain == null) {
+            return;
+        }
+        if (log.isDebugEnabled()) {
+            log.debug(getClass().getSimpleName() + " clearing the cache entry of service provider: " +
+                    applicationName + " in tenant: " + tenantDomain);
+        }
+        clearCacheEntry(applicationName, tenantDomain);
+    }
+
+    /**
+     * Returns the stored name of a service provider, which differs from the name of the service provider given to
+     * the update listeners when the service provider is renamed.
+     *
+     * @param applicationId id of the service provider
+     * @param tenantDomain  tenant domain of the service provider
+     * @return stored name of the service provider, or null if it could not be read
+     */
+    private String getStoredApplicationName(int applicationId, String tenantDomain) {
+
+        if (tenantDomain == null) {
+            return null;
+        }
+        try {
+            FrameworkUtils.startTenantFlow(tenantDomain);
+            return ApplicationMgtSystemConfig.getInstance().getApplicationDAO().getApplicationName(applicationId);
+        } catch (IdentityApplicationManagementException e) {
+            log.error("Error while reading the name of the service provider with id: " + applicationId +
+                    " in tenant: " + tenantDomain + ". Cached entries of the service provider are not cleared " +
+                    "for its previous name.", e);
+            return null;
+        } finally {
+            FrameworkUtils.endTenantFlow();
+        }
+    }
+}
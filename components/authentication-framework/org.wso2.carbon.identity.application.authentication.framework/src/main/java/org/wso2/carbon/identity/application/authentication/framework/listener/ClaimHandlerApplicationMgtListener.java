@@ -0,0 +1,42 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.application.authentication.framework.listener;
+
+import org.wso2.carbon.identity.application.authentication.framework.cache.ServiceProviderLocalClaimsCache;
+import org.wso2.carbon.identity.application.authentication.framework.cache.ServiceProviderLocalClaimsCacheKey;
+
+/**
+ * Clears the local claim URIs cached for a service provider by the claim handler, when the service provider is
+ * updated or deleted.
+ */
+public class ClaimHandlerApplicationMgtListener extends AbstractCacheClearingApplicationMgtListener {
+
+    @Override
+    public int getDefaultOrderId() {
+
+        return 30;
+    }
+
+    @Override
+    protected void clearCacheEntry(String applicationName, String tenantDomain) {
+
+        ServiceProviderLocalClaimsCache.getInstance().clearCacheEntry(
+                new ServiceProviderLocalClaimsCacheKey(applicationName, tenantDomain));
+    }
+}
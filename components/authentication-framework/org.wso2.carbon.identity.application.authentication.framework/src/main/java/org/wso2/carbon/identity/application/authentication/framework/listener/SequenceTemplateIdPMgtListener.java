@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.application.authentication.framework.listener;
+
+import org.wso2.carbon.identity.application.authentication.framework.cache.SequenceConfigTemplateCache;
+import org.wso2.carbon.identity.application.common.model.IdentityProvider;
+import org.wso2.carbon.idp.mgt.IdentityProviderManagementException;
+import org.wso2.carbon.idp.mgt.listener.AbstractIdentityProviderMgtListener;
+
+/**
+ * Clears the sequence configuration templates of the service providers, when an identity provider is updated or
+ * deleted, since a template keeps the authenticators of the identity providers used in its steps.
+ */
+public class SequenceTemplateIdPMgtListener extends AbstractIdentityProviderMgtListener {
+
+    @Override
+    public boolean doPostUpdateIdP(String oldIdPName, IdentityProvider identityProvider, String tenantDomain)
+            throws IdentityProviderManagementException {
+
+        if (isEnable()) {
+            SequenceConfigTemplateCache.getInstance().clear();
+        }
+        return true;
+    }
+
+    @Override
+    public boolean doPostDeleteIdP(String idPName, String tenantDomain) throws IdentityProviderManagementException {
+
+        if (isEnable()) {
+            SequenceConfigTemplateCache.getInstance().clear();
+        }
+        return true;
+    }
+
+    @Override
+    public int getDefaultOrderId() {
+
+        return 31;
+    }
+}
@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.application.authentication.framework.store;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Session serializer which deflate compresses the plain Java serialization of a session object. The class
+ * descriptors written by Java serialization repeat across the sessions, so they compress well, while the objects are
+ * still read with the compatibility checks of Java serialization.
+ * <p>
+ * Payload layout: format id (1 byte), deflate compressed Java serialization stream.
+ */
+public class CompressedJavaSessionSerializer implements SessionSerializer {
+
+    public static final byte FORMAT_ID = 0x02;
+
+    @Override
+    public byte getFormatId() {
+
+        return FORMAT_ID;
+    }
+
+    @Override
+    public byte[] serialize(Object object) throws IOException {
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        baos.write(FORMAT_ID);
+        // The deflater is given to the stream, so it is not released by closing the stream.
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try (ObjectOutputStream oos = new ObjectOutputStream(new DeflaterOutputStream(baos, deflater))) {
+            oos.writeObject(object);
+        } finally {
+            deflater.end();
+        }
+        return baos.toByteArray();
+    }
+
+    @Override
+    public Object deserialize(InputStream inputStream) throws IOException, ClassNotFoundException {
+
+        if (inputStream.read() != FORMAT_ID) {
+            throw new IOException("Invalid compressed session payload header.");
+        }
+        Inflater inflater = new Inflater();
+        try (ObjectInputStream ois = new ObjectInputStream(new InflaterInputStream(inputStream, inflater))) {
+            return ois.readObject();
+        } finally {
+            inflater.end();
+        }
+    }
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.application.authentication.framework.store;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.ObjectStreamConstants;
+
+/**
+ * Session serializer based on plain Java serialization. Payloads start with the Java serialization stream magic,
+ * so this serializer reads the rows persisted before session serializers were introduced.
+ */
+public class JavaSessionSerializer implements SessionSerializer {
+
+    public static final byte FORMAT_ID = (byte) (ObjectStreamConstants.STREAM_MAGIC >>> 8);
+
+    @Override
+    public byte getFormatId() {
+
+        return FORMAT_ID;
+    }
+
+    @Override
+    public byte[] serialize(Object object) throws IOException {
+
+        ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (ObjectOutputStream oos = new ObjectOutputStream(baos)) {
+            oos.writeObject(object);
+        }
+        return baos.toByteArray();
+    }
+
+    @Override
+    public Object deserialize(InputStream inputStream) throws IOException, ClassNotFoundException {
+
+        try (ObjectInputStream ois = new ObjectInputStream(inputStream)) {
+            return ois.readObject();
+        }
+    }
+}
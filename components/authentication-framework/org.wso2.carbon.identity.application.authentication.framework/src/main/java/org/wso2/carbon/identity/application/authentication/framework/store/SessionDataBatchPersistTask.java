@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.application.authentication.framework.store;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Task to persist and remove session data in batches, flushing either when a batch is full or when the flush
+ * interval has elapsed.
+ */
+public class SessionDataBatchPersistTask implements Runnable {
+
+    private static final Log log = LogFactory.getLog(SessionDataBatchPersistTask.class);
+    private SessionDataBatchQueue sessionDataBatchQueue;
+    private long flushInterval;
+
+    public SessionDataBatchPersistTask(SessionDataBatchQueue sessionDataBatchQueue, long flushInterval) {
+
+        this.sessionDataBatchQueue = sessionDataBatchQueue;
+        this.flushInterval = flushInterval;
+    }
+
+    @Override
+    public void run() {
+
+        log.debug("Session Context batch persist consumer is started");
+
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                List<SessionContextDO> batch = sessionDataBatchQueue.takeBatch(flushInterval, TimeUnit.MILLISECONDS);
+                flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        // Write whatever is left in the queue before the consumer goes away.
+        flush(sessionDataBatchQueue.drainAll());
+        log.debug("Session Context batch persist consumer is stopped");
+    }
+
+    private void flush(List<SessionContextDO> batch) {
+
+        if (batch.isEmpty()) {
+            return;
+        }
+        long startTime = System.nanoTime();
+        SessionDataStore.getInstance().persistSessionDataBatch(batch);
+        long flushTime = System.nanoTime() - startTime;
+        sessionDataBatchQueue.recordFlush(batch.size(), flushTime);
+
+        if (log.isDebugEnabled()) {
+            log.debug(String.format("Flushed %d session data operations in %d ms. Queue depth: %d, average batch " +
+                            "size: %d, average flush latency: %d ms, coalesced operations: %d", batch.size(),
+                    TimeUnit.NANOSECONDS.toMillis(flushTime), sessionDataBatchQueue.getQueueDepth(),
+                    sessionDataBatchQueue.getAverageBatchSize(), sessionDataBatchQueue.getAverageFlushLatencyMillis(),
+                    sessionDataBatchQueue.getCoalescedCount()));
+        }
+    }
+}
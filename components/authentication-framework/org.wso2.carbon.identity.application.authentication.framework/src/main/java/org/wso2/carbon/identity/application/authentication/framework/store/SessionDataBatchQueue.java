@@ -0,0 +1,233 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.application.authentication.framework.store;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded, coalescing queue of pending session data operations used by the batched write-behind persistence mode.
+ * Only the latest operation for a given session key and type is kept while it waits to be flushed, since only the
+ * latest row of a session is ever read back from the store. Producers are blocked when the queue is full.
+ */
+public class SessionDataBatchQueue {
+
+    private final Map<String, SessionContextDO> pendingOperations = new LinkedHashMap<>();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notFull = lock.newCondition();
+    private final Condition batchReady = lock.newCondition();
+    private final int capacity;
+    private final int batchSize;
+
+    private final AtomicLong enqueuedCount = new AtomicLong();
+    private final AtomicLong coalescedCount = new AtomicLong();
+    private final AtomicLong flushedBatchCount = new AtomicLong();
+    private final AtomicLong flushedOperationCount = new AtomicLong();
+    private final AtomicLong totalFlushTimeNanos = new AtomicLong();
+    private final AtomicLong maxFlushTimeNanos = new AtomicLong();
+    private final AtomicLong maxBatchSize = new AtomicLong();
+
+    public SessionDataBatchQueue(int capacity, int batchSize) {
+
+        if (capacity <= 0 || batchSize <= 0) {
+            throw new IllegalArgumentException("Queue capacity and batch size should be positive values.");
+        }
+        this.capacity = capacity;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Adds an operation to the queue. A pending operation for the same session key and type is replaced, otherwise
+     * the caller waits until there is free capacity in the queue.
+     *
+     * @param sessionContextDO operation to be persisted
+     * @throws InterruptedException if interrupted while waiting for capacity
+     */
+    public void put(SessionContextDO sessionContextDO) throws InterruptedException {
+
+        String operationKey = getOperationKey(sessionContextDO);
+        lock.lockInterruptibly();
+        try {
+            if (pendingOperations.containsKey(operationKey)) {
+                pendingOperations.put(operationKey, sessionContextDO);
+                coalescedCount.incrementAndGet();
+            } else {
+                while (pendingOperations.size() >= capacity) {
+                    notFull.await();
+                }
+                pendingOperations.put(operationKey, sessionContextDO);
+                if (pendingOperations.size() >= batchSize) {
+                    batchReady.signal();
+                }
+            }
+            enqueuedCount.incrementAndGet();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes and returns the next batch of operations. Returns as soon as a full batch is available, or with the
+     * operations that are pending (possibly none) once the flush interval has elapsed.
+     *
+     * @param flushInterval maximum time to wait for a full batch
+     * @param unit          time unit of the flush interval
+     * @return batch of operations in the order they were first queued
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public List<SessionContextDO> takeBatch(long flushInterval, TimeUnit unit) throws InterruptedException {
+
+        long remainingNanos = unit.toNanos(flushInterval);
+        lock.lockInterruptibly();
+        try {
+            while (pendingOperations.size() < batchSize && remainingNanos > 0) {
+                remainingNanos = batchReady.awaitNanos(remainingNanos);
+            }
+            return drain(batchSize);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Removes and returns all the pending operations.
+     *
+     * @return pending operations in the order they were first queued
+     */
+    public List<SessionContextDO> drainAll() {
+
+        lock.lock();
+        try {
+            return drain(Integer.MAX_VALUE);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Records the outcome of a flush so that it is reflected in the exposed metrics.
+     *
+     * @param operationCount number of operations written in the batch
+     * @param flushTimeNanos time taken to write the batch
+     */
+    public void recordFlush(int operationCount, long flushTimeNanos) {
+
+        flushedBatchCount.incrementAndGet();
+        flushedOperationCount.addAndGet(operationCount);
+        totalFlushTimeNanos.addAndGet(flushTimeNanos);
+        updateMax(maxFlushTimeNanos, flushTimeNanos);
+        updateMax(maxBatchSize, operationCount);
+    }
+
+    public int getQueueDepth() {
+
+        lock.lock();
+        try {
+            return pendingOperations.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getCapacity() {
+
+        return capacity;
+    }
+
+    public int getBatchSize() {
+
+        return batchSize;
+    }
+
+    public long getEnqueuedCount() {
+
+        return enqueuedCount.get();
+    }
+
+    public long getCoalescedCount() {
+
+        return coalescedCount.get();
+    }
+
+    public long getFlushedBatchCount() {
+
+        return flushedBatchCount.get();
+    }
+
+    public long getFlushedOperationCount() {
+
+        return flushedOperationCount.get();
+    }
+
+    public long getMaxBatchSize() {
+
+        return maxBatchSize.get();
+    }
+
+    public long getAverageBatchSize() {
+
+        long batches = flushedBatchCount.get();
+        return batches == 0 ? 0 : flushedOperationCount.get() / batches;
+    }
+
+    public long getMaxFlushLatencyMillis() {
+
+        return TimeUnit.NANOSECONDS.toMillis(maxFlushTimeNanos.get());
+    }
+
+    public long getAverageFlushLatencyMillis() {
+
+        long batches = flushedBatchCount.get();
+        return batches == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalFlushTimeNanos.get() / batches);
+    }
+
+    private List<SessionContextDO> drain(int maxElements) {
+
+        List<SessionContextDO> batch = new ArrayList<>(Math.min(maxElements, pendingOperations.size()));
+        Iterator<SessionContextDO> iterator = pendingOperations.values().iterator();
+        while (iterator.hasNext() && batch.size() < maxElements) {
+            batch.add(iterator.next());
+            iterator.remove();
+        }
+        if (!batch.isEmpty()) {
+            notFull.signalAll();
+        }
+        return batch;
+    }
+
+    private static String getOperationKey(SessionContextDO sessionContextDO) {
+
+        return sessionContextDO.getType() + ":" + sessionContextDO.getKey();
+    }
+
+    private static void updateMax(AtomicLong max, long value) {
+
+        long current = max.get();
+        while (value > current && !max.compareAndSet(current, value)) {
+            current = max.get();
+        }
+    }
+}
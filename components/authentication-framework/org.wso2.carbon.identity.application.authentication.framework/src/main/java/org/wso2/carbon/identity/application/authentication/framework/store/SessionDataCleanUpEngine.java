@@ -0,0 +1,361 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.application.authentication.framework.store;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.base.MultitenantConstants;
+import org.wso2.carbon.identity.application.authentication.framework.util.FrameworkUtils;
+import org.wso2.carbon.identity.base.IdentityRuntimeException;
+import org.wso2.carbon.identity.core.util.IdentityDatabaseUtil;
+import org.wso2.carbon.identity.core.util.IdentityTenantUtil;
+import org.wso2.carbon.identity.core.util.IdentityUtil;
+import org.wso2.carbon.idp.mgt.util.IdPManagementUtil;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Removes the expired records of IDN_AUTH_SESSION_STORE.
+ * <p>
+ * A record of a tenant expires once its TIME_CREATED is older than the remember me timeout of the tenant, so the
+ * expired records of a tenant are a range of the (TENANT_ID, TIME_CREATED) index. They are deleted in chunks of at
+ * most the configured delete chunk size, each bounded by the TIME_CREATED of the last record of the chunk and
+ * committed on its own, so that live session writes are not blocked by a long running delete. The tenants are
+ * cleaned up in parallel by a bounded number of threads. The expired DELETE operations, which are not kept per
+ * tenant, are a range of the (OPERATION, TIME_CREATED) index.
+ */
+public class SessionDataCleanUpEngine {
+
+    private static final Log log = LogFactory.getLog(SessionDataCleanUpEngine.class);
+
+    private static final String OPERATION_DELETE = "DELETE";
+    private static final String OPERATION_STORE = "STORE";
+
+    private static final String SQL_SELECT_EXPIRED_DATA_CHUNK =
+            "SELECT TIME_CREATED FROM IDN_AUTH_SESSION_STORE WHERE TENANT_ID = ? AND TIME_CREATED < ? " +
+                    "ORDER BY TIME_CREATED";
+    private static final String SQL_DELETE_EXPIRED_DATA_CHUNK =
+            "DELETE FROM IDN_AUTH_SESSION_STORE WHERE TENANT_ID = ? AND TIME_CREATED <= ?";
+    private static final String SQL_SELECT_EXPIRED_DELETE_OPERATIONS_CHUNK =
+            "SELECT SESSION_ID, TIME_CREATED FROM IDN_AUTH_SESSION_STORE WHERE OPERATION = '" + OPERATION_DELETE +
+                    "' AND TIME_CREATED < ? ORDER BY TIME_CREATED";
+    private static final String SQL_DELETE_STORE_OPERATIONS_OF_SESSION =
+            "DELETE FROM IDN_AUTH_SESSION_STORE WHERE SESSION_ID = ? AND OPERATION = '" + OPERATION_STORE + "'";
+    private static final String SQL_DELETE_DELETE_OPERATIONS_OF_SESSION =
+            "DELETE FROM IDN_AUTH_SESSION_STORE WHERE SESSION_ID = ? AND OPERATION = '" + OPERATION_DELETE +
+                    "' AND TIME_CREATED <= ?";
+
+    private final int deleteChunkSize;
+    private final int threadPoolSize;
+    private final String sqlDeleteExpiredDataTask;
+
+    /**
+     * @param deleteChunkSize          maximum number of expired records selected for a single delete
+     * @param threadPoolSize           maximum number of tenants cleaned up in parallel
+     * @param sqlDeleteExpiredDataTask configured query deleting a chunk of the expired records of a tenant, which is
+     *                                 run until it deletes less than a chunk, or null to delete by key ranges
+     */
+    public SessionDataCleanUpEngine(int deleteChunkSize, int threadPoolSize, String sqlDeleteExpiredDataTask) {
+
+        this.deleteChunkSize = deleteChunkSize;
+        this.threadPoolSize = threadPoolSize;
+        this.sqlDeleteExpiredDataTask = sqlDeleteExpiredDataTask;
+    }
+
+    /**
+     * Removes the expired session data of the given tenants.
+     *
+     * @param tenantIds ids of the tenants
+     * @return number of records deleted
+     */
+    public long removeExpiredSessionData(Set<Integer> tenantIds) {
+
+        long startTime = System.currentTimeMillis();
+        int poolSize = Math.max(1, Math.min(threadPoolSize, tenantIds.size()));
+        final AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService executor = Executors.newFixedThreadPool(poolSize, new ThreadFactory() {
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+
+                Thread thread = new Thread(runnable, "SessionDataCleanUp-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+
+        long deletedCount = 0;
+        try {
+            List<Future<Long>> results = new ArrayList<>();
+            for (final Integer tenantId : tenantIds) {
+                results.add(executor.submit(new Callable<Long>() {
+
+                    @Override
+                    public Long call() {
+                        return removeExpiredSessionData(tenantId);
+                    }
+                }));
+            }
+            for (Future<Long> result : results) {
+                try {
+                    deletedCount += result.get();
+                } catch (ExecutionException e) {
+                    log.error("Error while removing expired session data", e.getCause());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Interrupted while removing expired session data.");
+        } finally {
+            executor.shutdownNow();
+        }
+
+        log.info(String.format("Removed %d expired session data records of %d tenants in %d ms", deletedCount,
+                tenantIds.size(), System.currentTimeMillis() - startTime));
+        return deletedCount;
+    }
+
+    /**
+     * Removes the STORE operations of the sessions having a DELETE operation created before the given time, and
+     * those DELETE operations.
+     *
+     * @param cleanupLimitNano time before which the DELETE operations are expired
+     * @return number of records deleted
+     */
+    public long removeExpiredOperationData(long cleanupLimitNano) {
+
+        long startTime = System.currentTimeMillis();
+        Connection connection;
+        try {
+            connection = IdentityDatabaseUtil.getDBConnection();
+        } catch (IdentityRuntimeException e) {
+            log.error(e.getMessage(), e);
+            return 0;
+        }
+
+        PreparedStatement selectStatement = null;
+        PreparedStatement deleteStoreStatement = null;
+        PreparedStatement deleteDeleteStatement = null;
+        long deletedCount = 0;
+        try {
+            selectStatement = connection.prepareStatement(SQL_SELECT_EXPIRED_DELETE_OPERATIONS_CHUNK);
+            selectStatement.setMaxRows(deleteChunkSize);
+            deleteStoreStatement = connection.prepareStatement(SQL_DELETE_STORE_OPERATIONS_OF_SESSION);
+            deleteDeleteStatement = connection.prepareStatement(SQL_DELETE_DELETE_OPERATIONS_OF_SESSION);
+
+            boolean deleteCompleted = false;
+            while (!deleteCompleted) {
+                Set<String> sessionIds = new LinkedHashSet<>();
+                long chunkLimitNano = 0;
+                int selectedCount = 0;
+                selectStatement.setLong(1, cleanupLimitNano);
+                try (ResultSet resultSet = selectStatement.executeQuery()) {
+                    while (resultSet.next()) {
+                        sessionIds.add(resultSet.getString(1));
+                        chunkLimitNano = resultSet.getLong(2);
+                        selectedCount++;
+                    }
+                }
+                if (selectedCount == 0) {
+                    break;
+                }
+                deleteCompleted = selectedCount < deleteChunkSize;
+
+                // Deleted by the session id, which is the leading column of the primary key.
+                for (String sessionId : sessionIds) {
+                    deleteStoreStatement.setString(1, sessionId);
+                    deleteStoreStatement.addBatch();
+                    deleteDeleteStatement.setString(1, sessionId);
+                    deleteDeleteStatement.setLong(2, chunkLimitNano);
+                    deleteDeleteStatement.addBatch();
+                }
+                deletedCount += sum(deleteStoreStatement.executeBatch());
+                deletedCount += sum(deleteDeleteStatement.executeBatch());
+                if (!connection.getAutoCommit()) {
+                    connection.commit();
+                }
+            }
+        } catch (SQLException e) {
+            IdentityDatabaseUtil.rollBack(connection);
+            log.error("Error while removing operation data from the database for nano time " + cleanupLimitNano, e);
+        } finally {
+            IdentityDatabaseUtil.closeStatement(selectStatement);
+            IdentityDatabaseUtil.closeStatement(deleteStoreStatement);
+            IdentityDatabaseUtil.closeAllConnections(connection, null, deleteDeleteStatement);
+        }
+
+        log.info(String.format("Removed %d expired session operation records in %d ms", deletedCount,
+                System.currentTimeMillis() - startTime));
+        return deletedCount;
+    }
+
+    /**
+     * Removes the expired session data of a tenant.
+     *
+     * @param tenantId id of the tenant
+     * @return number of records deleted
+     */
+    private long removeExpiredSessionData(int tenantId) {
+
+        Connection connection;
+        try {
+            connection = IdentityDatabaseUtil.getDBConnection();
+        } catch (IdentityRuntimeException e) {
+            log.error(e.getMessage(), e);
+            return 0;
+        }
+
+        long cleanupLimitNano = getCleanupLimitNano(tenantId);
+        long deletedCount = 0;
+        try {
+            if (StringUtils.isNotBlank(sqlDeleteExpiredDataTask)) {
+                deletedCount = removeExpiredSessionData(connection, tenantId, cleanupLimitNano);
+            } else {
+                deletedCount = removeExpiredSessionDataByKeyRange(connection, tenantId, cleanupLimitNano);
+            }
+            if (log.isDebugEnabled()) {
+                log.debug(String.format("Deleted total of %d entries for the tenant id: %d", deletedCount,
+                        tenantId));
+            }
+        } catch (SQLException e) {
+            IdentityDatabaseUtil.rollBack(connection);
+            log.error("Error while removing session data of the tenant id: " + tenantId + " from the database for " +
+                    "nano time " + cleanupLimitNano, e);
+        } finally {
+            IdentityDatabaseUtil.closeConnection(connection);
+        }
+        return deletedCount;
+    }
+
+    private long removeExpiredSessionDataByKeyRange(Connection connection, int tenantId, long cleanupLimitNano)
+            throws SQLException {
+
+        PreparedStatement selectStatement = null;
+        PreparedStatement deleteStatement = null;
+        long deletedCount = 0;
+        try {
+            selectStatement = connection.prepareStatement(SQL_SELECT_EXPIRED_DATA_CHUNK);
+            selectStatement.setMaxRows(deleteChunkSize);
+            deleteStatement = connection.prepareStatement(SQL_DELETE_EXPIRED_DATA_CHUNK);
+
+            boolean deleteCompleted = false;
+            while (!deleteCompleted) {
+                long chunkLimitNano = 0;
+                int selectedCount = 0;
+                selectStatement.setInt(1, tenantId);
+                selectStatement.setLong(2, cleanupLimitNano);
+                try (ResultSet resultSet = selectStatement.executeQuery()) {
+                    while (resultSet.next()) {
+                        chunkLimitNano = resultSet.getLong(1);
+                        selectedCount++;
+                    }
+                }
+                if (selectedCount == 0) {
+                    break;
+                }
+                deleteCompleted = selectedCount < deleteChunkSize;
+
+                deleteStatement.setInt(1, tenantId);
+                deleteStatement.setLong(2, chunkLimitNano);
+                int noOfDeletedRecords = deleteStatement.executeUpdate();
+                deletedCount += noOfDeletedRecords;
+                if (log.isDebugEnabled()) {
+                    log.debug(String.format("Removed %d expired session records for tenant id: %d.",
+                            noOfDeletedRecords, tenantId));
+                }
+                if (!connection.getAutoCommit()) {
+                    connection.commit();
+                }
+            }
+        } finally {
+            IdentityDatabaseUtil.closeStatement(selectStatement);
+            IdentityDatabaseUtil.closeStatement(deleteStatement);
+        }
+        return deletedCount;
+    }
+
+    private long removeExpiredSessionData(Connection connection, int tenantId, long cleanupLimitNano)
+            throws SQLException {
+
+        PreparedStatement statement = null;
+        long deletedCount = 0;
+        try {
+            statement = connection.prepareStatement(sqlDeleteExpiredDataTask);
+            boolean deleteCompleted = false;
+            while (!deleteCompleted) {
+                statement.setLong(1, cleanupLimitNano);
+                statement.setInt(2, tenantId);
+                int noOfDeletedRecords = statement.executeUpdate();
+                deleteCompleted = noOfDeletedRecords < deleteChunkSize;
+                deletedCount += noOfDeletedRecords;
+                if (log.isDebugEnabled()) {
+                    log.debug(String.format("Removed %d expired session records for tenant id: %d.",
+                            noOfDeletedRecords, tenantId));
+                }
+                if (!connection.getAutoCommit()) {
+                    connection.commit();
+                }
+            }
+        } finally {
+            IdentityDatabaseUtil.closeStatement(statement);
+        }
+        return deletedCount;
+    }
+
+    private static long getCleanupLimitNano(int tenantId) {
+
+        //If the entries are tenant independent, we are using the value from the configuration, If not the tenant's
+        // remember me timeout is used
+        if (tenantId == MultitenantConstants.INVALID_TENANT_ID) {
+            return FrameworkUtils.getCurrentStandardNano() -
+                    TimeUnit.MINUTES.toNanos(IdentityUtil.getCleanUpTimeout());
+        }
+        String tenantDomain = IdentityTenantUtil.getTenantDomain(tenantId);
+        return FrameworkUtils.getCurrentStandardNano() -
+                TimeUnit.SECONDS.toNanos(IdPManagementUtil.getRememberMeTimeout(tenantDomain));
+    }
+
+    private static long sum(int[] updateCounts) {
+
+        long sum = 0;
+        for (int updateCount : updateCounts) {
+            // Drivers may report a successful statement without its update count.
+            if (updateCount > 0) {
+                sum += updateCount;
+            }
+        }
+        return sum;
+    }
+}
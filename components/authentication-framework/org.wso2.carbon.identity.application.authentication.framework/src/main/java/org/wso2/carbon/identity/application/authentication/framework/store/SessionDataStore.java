@@ -28,23 +28,24 @@ import org.wso2.carbon.identity.application.authentication.framework.util.Framew
 import org.wso2.carbon.identity.application.common.IdentityApplicationManagementException;
 import org.wso2.carbon.identity.base.IdentityRuntimeException;
 import org.wso2.carbon.identity.core.util.IdentityDatabaseUtil;
-import org.wso2.carbon.identity.core.util.IdentityTenantUtil;
 import org.wso2.carbon.identity.core.util.IdentityUtil;
-import org.wso2.carbon.idp.mgt.util.IdPManagementUtil;
 import org.wso2.carbon.user.api.Tenant;
 import org.wso2.carbon.user.api.UserStoreException;
 
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.ObjectInput;
-import java.io.ObjectInputStream;
-import java.io.ObjectOutputStream;
+import java.io.PushbackInputStream;
 import java.sql.Connection;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.BlockingDeque;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
@@ -98,21 +99,6 @@ public class SessionDataStore {
             "SELECT * FROM (SELECT OPERATION, SESSION_OBJECT, TIME_CREATED FROM IDN_AUTH_SESSION_STORE WHERE SESSION_ID =? AND" +
                     " SESSION_TYPE=? ORDER BY TIME_CREATED DESC) WHERE ROWNUM < 2";
 
-    private static final String SQL_DELETE_EXPIRED_DATA_TASK_MYSQL =
-            "DELETE FROM IDN_AUTH_SESSION_STORE WHERE TIME_CREATED < ? AND TENANT_ID=? LIMIT %d";
-    private static final String SQL_DELETE_EXPIRED_DATA_TASK_MSSQL =
-            "DELETE TOP (%d) FROM IDN_AUTH_SESSION_STORE WHERE TIME_CREATED < ? AND TENANT_ID = ?";
-    private static final String SQL_DELETE_EXPIRED_DATA_TASK_POSTGRESQL = "DELETE FROM IDN_AUTH_SESSION_STORE WHERE " +
-            "CTID IN (SELECT CTID FROM IDN_AUTH_SESSION_STORE WHERE TIME_CREATED < ? AND TENANT_ID=? LIMIT %d)";
-    private static final String SQL_DELETE_EXPIRED_DATA_TASK_ORACLE = "DELETE FROM IDN_AUTH_SESSION_STORE WHERE ROWID" +
-            " IN (SELECT ROWID FROM IDN_AUTH_SESSION_STORE WHERE TIME_CREATED < ? AND TENANT_ID=? AND ROWNUM <= %d)";
-    private static final String SQL_DELETE_EXPIRED_DATA_TASK_INFOMIXSQL = "DELETE FROM (SELECT SESSION_ID, " +
-            "SESSION_TYPE, OPERATION, TIME_CREATED FROM IDN_AUTH_SESSION_STORE WHERE TIME_CREATED < ? AND TENANT_ID =" +
-            " ? LIMIT %d) ";
-    private static final String SQL_DELETE_EXPIRED_DATA_TASK_DB2SQL =
-            "DELETE FROM IDN_AUTH_SESSION_STORE WHERE (SESSION_ID, SESSION_TYPE, OPERATION, TIME_CREATED) IN " +
-                    "(SELECT SESSION_ID, SESSION_TYPE, OPERATION, TIME_CREATED FROM IDN_AUTH_SESSION_STORE WHERE " +
-                    "TIME_CREATED < ? AND TENANT_ID = ? FETCH FIRST %d ROWS ONLY)";
     private static final String MYSQL_DATABASE = "MySQL";
     private static final String H2_DATABASE = "H2";
     private static final String DB2_DATABASE = "DB2";
@@ -121,9 +107,17 @@ public class SessionDataStore {
     private static final String POSTGRESQL_DATABASE = "PostgreSQL";
     private static final String INFORMIX_DATABASE = "Informix";
 
+    private static final String SERIALIZER_TYPE_JAVA = "Java";
+
     private static final int DEFAULT_DELETE_LIMIT = 50000;
+    private static final int DEFAULT_CLEANUP_THREAD_POOL_SIZE = 4;
+    private static final int DEFAULT_BATCH_QUEUE_CAPACITY = 10000;
+    private static final int DEFAULT_BATCH_SIZE = 100;
+    private static final int DEFAULT_BATCH_WRITER_COUNT = 4;
+    private static final int DEFAULT_BATCH_FLUSH_INTERVAL = 100;
     private static int maxPoolSize = 100;
     private static BlockingDeque<SessionContextDO> sessionContextQueue = new LinkedBlockingDeque();
+    private static SessionDataBatchQueue sessionDataBatchQueue;
     private static volatile SessionDataStore instance;
     private boolean enablePersist;
     private String sqlInsertSTORE;
@@ -135,8 +129,20 @@ public class SessionDataStore {
     private int deleteChunkSize = DEFAULT_DELETE_LIMIT;
     private boolean sessionDataCleanupEnabled = true;
     private boolean operationDataCleanupEnabled = false;
+    private SessionDataCleanUpEngine cleanUpEngine;
+    private SessionSerializer sessionSerializer;
+    private final Map<Byte, SessionSerializer> sessionSerializers = new HashMap<>();
 
     static {
+        if (Boolean.parseBoolean(IdentityUtil.getProperty("JDBCPersistenceManager.SessionDataPersist.Batch.Enable"))) {
+            initBatchPersistence();
+        } else {
+            initPersistencePool();
+        }
+    }
+
+    private static void initPersistencePool() {
+
         try {
             String maxPoolSizeConfigValue = IdentityUtil.getProperty("JDBCPersistenceManager.SessionDataPersist.PoolSize");
             if (StringUtils.isNotBlank(maxPoolSizeConfigValue)) {
@@ -157,6 +163,51 @@ public class SessionDataStore {
         }
     }
 
+    /**
+     * Initializes the batched write-behind persistence mode, where operations are coalesced in a bounded queue and
+     * written to the DB in JDBC batches by a small number of writer threads.
+     */
+    private static void initBatchPersistence() {
+
+        int queueCapacity = getIntProperty("JDBCPersistenceManager.SessionDataPersist.Batch.QueueCapacity",
+                DEFAULT_BATCH_QUEUE_CAPACITY);
+        int batchSize = getIntProperty("JDBCPersistenceManager.SessionDataPersist.Batch.BatchSize",
+                DEFAULT_BATCH_SIZE);
+        int writerCount = getIntProperty("JDBCPersistenceManager.SessionDataPersist.Batch.WriterCount",
+                DEFAULT_BATCH_WRITER_COUNT);
+        long flushInterval = getIntProperty("JDBCPersistenceManager.SessionDataPersist.Batch.FlushInterval",
+                DEFAULT_BATCH_FLUSH_INTERVAL);
+        if (queueCapacity <= 0 || batchSize <= 0 || writerCount <= 0 || flushInterval <= 0) {
+            log.warn("Invalid session data batch persistence configuration. Using default values.");
+            queueCapacity = DEFAULT_BATCH_QUEUE_CAPACITY;
+            batchSize = DEFAULT_BATCH_SIZE;
+            writerCount = DEFAULT_BATCH_WRITER_COUNT;
+            flushInterval = DEFAULT_BATCH_FLUSH_INTERVAL;
+        }
+
+        log.info(String.format("Session data batch persistence is enabled with %d writer threads, batch size: %d, " +
+                "queue capacity: %d and flush interval: %d ms", writerCount, batchSize, queueCapacity, flushInterval));
+        sessionDataBatchQueue = new SessionDataBatchQueue(queueCapacity, batchSize);
+        ExecutorService threadPool = Executors.newFixedThreadPool(writerCount);
+        for (int i = 0; i < writerCount; i++) {
+            threadPool.execute(new SessionDataBatchPersistTask(sessionDataBatchQueue, flushInterval));
+        }
+    }
+
+    private static int getIntProperty(String propertyName, int defaultValue) {
+
+        String value = IdentityUtil.getProperty(propertyName);
+        if (StringUtils.isNotBlank(value)) {
+            try {
+                return Integer.parseInt(value.trim());
+            } catch (NumberFormatException e) {
+                log.warn("Invalid value: " + value + " configured for " + propertyName + ". Using default value: "
+                        + defaultValue);
+            }
+        }
+        return defaultValue;
+    }
+
     private SessionDataStore() {
         String enablePersistVal = IdentityUtil.getProperty("JDBCPersistenceManager.SessionDataPersist.Enable");
         enablePersist = true;
@@ -191,8 +242,6 @@ public class SessionDataStore {
 
         if (!StringUtils.isBlank(deleteDELETETaskSQL)) {
             sqlDeleteDELETETask = deleteDELETETaskSQL;
-        } else {
-            sqlDeleteDELETETask = SQL_DELETE_DELETE_OPERATIONS_TASK;
         }
         if (!StringUtils.isBlank(selectSQL)) {
             sqlSelect = selectSQL;
@@ -207,10 +256,19 @@ public class SessionDataStore {
         if (StringUtils.isNotBlank(deleteExpiredDataTaskSQL)) {
             sqlDeleteExpiredDataTask = String.format(deleteExpiredDataTaskSQL, deleteChunkSize);
         }
+        int cleanUpThreadPoolSize = getIntProperty("JDBCPersistenceManager.SessionDataPersist.SessionDataCleanUp" +
+                ".ThreadPoolSize", DEFAULT_CLEANUP_THREAD_POOL_SIZE);
+        if (cleanUpThreadPoolSize <= 0) {
+            log.warn("Invalid session data clean up thread pool size. Using default value.");
+            cleanUpThreadPoolSize = DEFAULT_CLEANUP_THREAD_POOL_SIZE;
+        }
+        cleanUpEngine = new SessionDataCleanUpEngine(deleteChunkSize, cleanUpThreadPoolSize,
+                sqlDeleteExpiredDataTask);
 
         if (!enablePersist) {
             log.info("Session Data Persistence of Authentication framework is not enabled.");
         }
+        initSessionSerializers();
         String isCleanUpEnabledVal = IdentityUtil.getProperty("JDBCPersistenceManager.SessionDataPersist.SessionDataCleanUp.Enable");
 
         String isOperationCleanUpEnabledVal = IdentityUtil.getProperty("JDBCPersistenceManager.SessionDataPersist.OperationDataCleanUp.Enable");
@@ -314,7 +372,9 @@ public class SessionDataStore {
             return;
         }
         long nanoTime = FrameworkUtils.getCurrentStandardNano();
-        if (maxPoolSize > 0) {
+        if (sessionDataBatchQueue != null) {
+            enqueueBatchOperation(new SessionContextDO(key, type, entry, nanoTime, tenantId));
+        } else if (maxPoolSize > 0) {
             sessionContextQueue.push(new SessionContextDO(key, type, entry, nanoTime, tenantId));
         } else {
             persistSessionData(key, type, entry, nanoTime, tenantId);
@@ -326,7 +386,9 @@ public class SessionDataStore {
             return;
         }
         long nanoTime = FrameworkUtils.getCurrentStandardNano();
-        if (maxPoolSize > 0) {
+        if (sessionDataBatchQueue != null) {
+            enqueueBatchOperation(new SessionContextDO(key, type, null, nanoTime));
+        } else if (maxPoolSize > 0) {
             sessionContextQueue.push(new SessionContextDO(key, type, null, nanoTime));
         } else {
             removeSessionData(key, type, nanoTime);
@@ -334,38 +396,24 @@ public class SessionDataStore {
     }
 
     /**
-     * Gets the DB specific query for the session data removal, this may be overridden by the configuration
-     * "JDBCPersistenceManager.SessionDataPersist.SQL.DeleteExpiredDataTask"
+     * Returns the queue used by the batched persistence mode, which exposes queue depth, batch size and flush
+     * latency metrics.
      *
-     * @return
-     * @throws IdentityApplicationManagementException
+     * @return the batch queue, or null if batched persistence is not enabled
      */
-    private String getDBSpecificSessionDataRemovalQuery() throws IdentityApplicationManagementException {
+    public SessionDataBatchQueue getSessionDataBatchQueue() {
+
+        return sessionDataBatchQueue;
+    }
+
+    private void enqueueBatchOperation(SessionContextDO sessionContextDO) {
 
-        Connection connection = null;
         try {
-            connection = IdentityDatabaseUtil.getDBConnection();
-            String nonFormattedQuery;
-            if (connection.getMetaData().getDriverName().contains(MYSQL_DATABASE)
-                    || connection.getMetaData().getDriverName().contains(H2_DATABASE)) {
-                nonFormattedQuery = SQL_DELETE_EXPIRED_DATA_TASK_MYSQL;
-            } else if (connection.getMetaData().getDatabaseProductName().contains(DB2_DATABASE)) {
-                nonFormattedQuery = SQL_DELETE_EXPIRED_DATA_TASK_DB2SQL;
-            } else if (connection.getMetaData().getDriverName().contains(MS_SQL_DATABASE)
-                    || connection.getMetaData().getDriverName().contains(MICROSOFT_DATABASE)) {
-                nonFormattedQuery = SQL_DELETE_EXPIRED_DATA_TASK_MSSQL;
-            } else if (connection.getMetaData().getDriverName().contains(POSTGRESQL_DATABASE)) {
-                nonFormattedQuery = SQL_DELETE_EXPIRED_DATA_TASK_POSTGRESQL;
-            } else if (connection.getMetaData().getDriverName().contains(INFORMIX_DATABASE)) {
-                nonFormattedQuery = SQL_DELETE_EXPIRED_DATA_TASK_INFOMIXSQL;
-            } else {
-                nonFormattedQuery = SQL_DELETE_EXPIRED_DATA_TASK_ORACLE;
-            }
-            return String.format(nonFormattedQuery, deleteChunkSize);
-        } catch (SQLException e) {
-            throw new IdentityApplicationManagementException("Error while retrieving DB connection meta-data", e);
-        } finally {
-            IdentityDatabaseUtil.closeAllConnections(connection, null, null);
+            sessionDataBatchQueue.put(sessionContextDO);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            log.warn("Interrupted while waiting to queue session data operation. Persisting it synchronously.");
+            persistSessionDataBatch(Collections.singletonList(sessionContextDO));
         }
     }
 
@@ -374,19 +422,12 @@ public class SessionDataStore {
      */
     private void removeExpiredRememberMeSessions() {
 
-        if (StringUtils.isBlank(sqlDeleteExpiredDataTask)) {
-            try {
-                sqlDeleteExpiredDataTask = getDBSpecificSessionDataRemovalQuery();
-            } catch (IdentityApplicationManagementException e) {
-                log.error("Error when initializing the db specific cleanup query.", e);
-            }
-        }
-
+        Set<Integer> tenantIds = new LinkedHashSet<>();
         try {
             Tenant[] tenants =
                     FrameworkServiceDataHolder.getInstance().getRealmService().getTenantManager().getAllTenants();
             for (Tenant tenant : tenants) {
-                removeExpiredRememberMeSessions(tenant.getId());
+                tenantIds.add(tenant.getId());
             }
         } catch (UserStoreException e) {
             log.error("Error while listing tenants for session clean up task", e);
@@ -394,65 +435,10 @@ public class SessionDataStore {
 
         //The above method doesn't return the super tenant, hence we have to specifically do the clean up for
         // super tenant
-        removeExpiredRememberMeSessions(MultitenantConstants.SUPER_TENANT_ID);
+        tenantIds.add(MultitenantConstants.SUPER_TENANT_ID);
         //remove the entries for invalid tenant.
-        removeExpiredRememberMeSessions(MultitenantConstants.INVALID_TENANT_ID);
-    }
-
-    /**
-     * Removes the records of a given tenant related to expired sessions from DB
-     * @param tenantId The tenant Id of whose data needs to be removed
-     */
-    private void removeExpiredRememberMeSessions(int tenantId) {
-
-        Connection connection = null;
-        PreparedStatement statement = null;
-
-        try {
-            connection = IdentityDatabaseUtil.getDBConnection();
-        } catch (IdentityRuntimeException e) {
-            log.error(e.getMessage(), e);
-            return;
-        }
-
-        //If the entries are tenant independent, we are using the value from the configuration, If not the tenant's
-        // remember me timeout is used
-        long cleanupLimitNano = FrameworkUtils.getCurrentStandardNano() -
-                TimeUnit.MINUTES.toNanos(IdentityUtil.getCleanUpTimeout());
-
-        if (tenantId != MultitenantConstants.INVALID_TENANT_ID) {
-            String tenantDomain = IdentityTenantUtil.getTenantDomain(tenantId);
-            cleanupLimitNano = FrameworkUtils.getCurrentStandardNano() -
-                    TimeUnit.SECONDS.toNanos(IdPManagementUtil.getRememberMeTimeout(tenantDomain));
-        }
-        try {
-            boolean deleteCompleted = false;
-            int totalDeletedEntries = 0;
-            while (!deleteCompleted) {
-                statement = connection.prepareStatement(sqlDeleteExpiredDataTask);
-                statement.setLong(1, cleanupLimitNano);
-                statement.setInt(2, tenantId);
-
-                int noOfDeletedRecords = statement.executeUpdate();
-                deleteCompleted = noOfDeletedRecords < deleteChunkSize;
-                totalDeletedEntries += noOfDeletedRecords;
-                if (log.isDebugEnabled()) {
-                    log.debug(String.format("Removed %d expired session records for tenant id: %d.",
-                            noOfDeletedRecords, tenantId));
-                }
-                if (!connection.getAutoCommit()) {
-                    connection.commit();
-                }
-            }
-            if (log.isDebugEnabled()) {
-                log.debug(String.format("Deleted total of %d entries for the tenant id: %d", totalDeletedEntries,
-                        tenantId));
-            }
-        } catch (SQLException e) {
-            log.error("Error while removing session data from the database for nano time " + cleanupLimitNano, e);
-        } finally {
-            IdentityDatabaseUtil.closeAllConnections(connection, null, statement);
-        }
+        tenantIds.add(MultitenantConstants.INVALID_TENANT_ID);
+        cleanUpEngine.removeExpiredSessionData(tenantIds);
     }
 
     /**
@@ -464,8 +450,13 @@ public class SessionDataStore {
             removeExpiredRememberMeSessions();
         }
         if (operationDataCleanupEnabled) {
-            deleteSTOREOperationsTask();
-            deleteDELETEOperationsTask();
+            if (StringUtils.isBlank(sqlDeleteSTORETask) && StringUtils.isBlank(sqlDeleteDELETETask)) {
+                cleanUpEngine.removeExpiredOperationData(FrameworkUtils.getCurrentStandardNano() -
+                        TimeUnit.MINUTES.toNanos(IdentityUtil.getOperationCleanUpTimeout()));
+            } else {
+                deleteSTOREOperationsTask();
+                deleteDELETEOperationsTask();
+            }
         }
     }
 
@@ -509,6 +500,88 @@ public class SessionDataStore {
         }
     }
 
+    /**
+     * Persists a batch of STORE and DELETE operations using JDBC batch updates within a single transaction. If the
+     * batch fails, it is rolled back and each operation is persisted on its own, so that a single failing operation
+     * does not lose the rest of the batch.
+     *
+     * @param sessionContextDOs operations to be persisted
+     */
+    public void persistSessionDataBatch(List<SessionContextDO> sessionContextDOs) {
+
+        if (!enablePersist || sessionContextDOs.isEmpty()) {
+            return;
+        }
+        Connection connection = null;
+        try {
+            connection = IdentityDatabaseUtil.getDBConnection();
+        } catch (IdentityRuntimeException e) {
+            log.error(e.getMessage(), e);
+            return;
+        }
+        PreparedStatement storeStatement = null;
+        PreparedStatement deleteStatement = null;
+        boolean batchFailed = false;
+        try {
+            boolean hasStoreOperations = false;
+            boolean hasDeleteOperations = false;
+            for (SessionContextDO sessionContextDO : sessionContextDOs) {
+                if (sessionContextDO.getEntry() != null) {
+                    if (storeStatement == null) {
+                        storeStatement = connection.prepareStatement(sqlInsertSTORE);
+                    }
+                    storeStatement.setString(1, sessionContextDO.getKey());
+                    storeStatement.setString(2, sessionContextDO.getType());
+                    storeStatement.setString(3, OPERATION_STORE);
+                    setBlobObject(storeStatement, sessionContextDO.getEntry(), 4);
+                    storeStatement.setLong(5, sessionContextDO.getNanoTime());
+                    storeStatement.setInt(6, sessionContextDO.getTenantId());
+                    storeStatement.addBatch();
+                    hasStoreOperations = true;
+                } else {
+                    if (deleteStatement == null) {
+                        deleteStatement = connection.prepareStatement(sqlInsertDELETE);
+                    }
+                    deleteStatement.setString(1, sessionContextDO.getKey());
+                    deleteStatement.setString(2, sessionContextDO.getType());
+                    deleteStatement.setString(3, OPERATION_DELETE);
+                    deleteStatement.setLong(4, sessionContextDO.getNanoTime());
+                    deleteStatement.addBatch();
+                    hasDeleteOperations = true;
+                }
+            }
+            if (hasStoreOperations) {
+                storeStatement.executeBatch();
+            }
+            if (hasDeleteOperations) {
+                deleteStatement.executeBatch();
+            }
+            if (!connection.getAutoCommit()) {
+                connection.commit();
+            }
+        } catch (SQLException | IOException e) {
+            log.warn("Error while storing a batch of " + sessionContextDOs.size() + " session data operations. " +
+                    "Storing the operations one by one.", e);
+            IdentityDatabaseUtil.rollBack(connection);
+            batchFailed = true;
+        } finally {
+            IdentityDatabaseUtil.closeStatement(deleteStatement);
+            IdentityDatabaseUtil.closeAllConnections(connection, null, storeStatement);
+        }
+        if (batchFailed) {
+            for (SessionContextDO sessionContextDO : sessionContextDOs) {
+                if (sessionContextDO.getEntry() != null) {
+                    persistSessionData(sessionContextDO.getKey(), sessionContextDO.getType(),
+                            sessionContextDO.getEntry(), sessionContextDO.getNanoTime(),
+                            sessionContextDO.getTenantId());
+                } else {
+                    removeSessionData(sessionContextDO.getKey(), sessionContextDO.getType(),
+                            sessionContextDO.getNanoTime());
+                }
+            }
+        }
+    }
+
     public void removeSessionData(String key, String type, long nanoTime) {
         if (!enablePersist) {
             return;
@@ -541,12 +614,7 @@ public class SessionDataStore {
     private void setBlobObject(PreparedStatement prepStmt, Object value, int index)
             throws SQLException, IOException {
         if (value != null) {
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            ObjectOutputStream oos = new ObjectOutputStream(baos);
-            oos.writeObject(value);
-            oos.flush();
-            oos.close();
-            InputStream inputStream = new ByteArrayInputStream(baos.toByteArray());
+            InputStream inputStream = new ByteArrayInputStream(sessionSerializer.serialize(value));
             prepStmt.setBinaryStream(index, inputStream, inputStream.available());
         } else {
             prepStmt.setBinaryStream(index, null, 0);
@@ -556,23 +624,75 @@ public class SessionDataStore {
     private Object getBlobObject(InputStream is)
             throws IdentityApplicationManagementException, IOException, ClassNotFoundException {
         if (is != null) {
-            ObjectInput ois = null;
+            PushbackInputStream pushbackInputStream = new PushbackInputStream(is);
             try {
-                ois = new ObjectInputStream(is);
-                return ois.readObject();
+                int formatId = pushbackInputStream.read();
+                if (formatId == -1) {
+                    return null;
+                }
+                pushbackInputStream.unread(formatId);
+                SessionSerializer serializer = sessionSerializers.get((byte) formatId);
+                if (serializer == null) {
+                    throw new IOException("No session serializer found for the format id: " + formatId);
+                }
+                return serializer.deserialize(pushbackInputStream);
             } finally {
-                if (ois != null) {
-                    try {
-                        ois.close();
-                    } catch (IOException e) {
-                        log.error("IOException while trying to close ObjectInputStream.", e);
-                    }
+                try {
+                    pushbackInputStream.close();
+                } catch (IOException e) {
+                    log.error("IOException while trying to close the session data stream.", e);
                 }
             }
         }
         return null;
     }
 
+    /**
+     * Resolves the serializer used to write session objects, which may be configured with
+     * "JDBCPersistenceManager.SessionDataPersist.SessionSerializer.Type" as "Java" or the fully qualified name of a
+     * {@link SessionSerializer} implementation. Java serialized objects are compressed if
+     * "JDBCPersistenceManager.SessionDataPersist.SessionSerializer.EnableCompression" is true. Rows written by any
+     * known serializer can still be read.
+     */
+    private void initSessionSerializers() {
+
+        registerSessionSerializer(new JavaSessionSerializer());
+        registerSessionSerializer(new CompressedJavaSessionSerializer());
+
+        String serializerType = StringUtils.trimToEmpty(
+                IdentityUtil.getProperty("JDBCPersistenceManager.SessionDataPersist.SessionSerializer.Type"));
+        if (StringUtils.isBlank(serializerType) || SERIALIZER_TYPE_JAVA.equalsIgnoreCase(serializerType)) {
+            if (Boolean.parseBoolean(IdentityUtil.getProperty(
+                    "JDBCPersistenceManager.SessionDataPersist.SessionSerializer.EnableCompression"))) {
+                sessionSerializer = sessionSerializers.get(CompressedJavaSessionSerializer.FORMAT_ID);
+            } else {
+                sessionSerializer = sessionSerializers.get(JavaSessionSerializer.FORMAT_ID);
+            }
+        } else {
+            try {
+                sessionSerializer = (SessionSerializer) Class.forName(serializerType).newInstance();
+                registerSessionSerializer(sessionSerializer);
+            } catch (ClassNotFoundException | InstantiationException | IllegalAccessException | ClassCastException e) {
+                log.error("Error while instantiating the session serializer: " + serializerType + ". Using Java " +
+                        "serialization.", e);
+                sessionSerializer = sessionSerializers.get(JavaSessionSerializer.FORMAT_ID);
+            }
+        }
+        if (log.isDebugEnabled()) {
+            log.debug("Session objects are serialized using " + sessionSerializer.getClass().getName());
+        }
+    }
+
+    private void registerSessionSerializer(SessionSerializer serializer) {
+
+        SessionSerializer existingSerializer = sessionSerializers.get(serializer.getFormatId());
+        if (existingSerializer != null && !existingSerializer.getClass().equals(serializer.getClass())) {
+            log.warn("Session serializer " + serializer.getClass().getName() + " overrides " +
+                    existingSerializer.getClass().getName() + " for the format id: " + serializer.getFormatId());
+        }
+        sessionSerializers.put(serializer.getFormatId(), serializer);
+    }
+
     private void deleteSTOREOperationsTask() {
         Connection connection = null;
         PreparedStatement statement = null;
@@ -620,6 +740,9 @@ public class SessionDataStore {
         long cleanupLimitNano = FrameworkUtils.getCurrentStandardNano() -
                 TimeUnit.MINUTES.toNanos(IdentityUtil.getOperationCleanUpTimeout());
         try {
+            if (StringUtils.isBlank(sqlDeleteDELETETask)) {
+                sqlDeleteDELETETask = SQL_DELETE_DELETE_OPERATIONS_TASK;
+            }
             statement = connection.prepareStatement(sqlDeleteDELETETask);
             statement.setLong(1, cleanupLimitNano);
             statement.execute();
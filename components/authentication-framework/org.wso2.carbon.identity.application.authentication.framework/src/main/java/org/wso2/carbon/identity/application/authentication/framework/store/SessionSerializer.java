@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.application.authentication.framework.store;
+
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Serializes the session objects persisted by the {@link SessionDataStore}. Every payload produced by a serializer
+ * starts with the serializer's format id, which is used to pick the serializer when the payload is read back. This
+ * allows rows written with different serializers (including the rows written with plain Java serialization before
+ * serializers were configurable) to be read by the same store.
+ */
+public interface SessionSerializer {
+
+    /**
+     * Returns the header byte which identifies payloads written by this serializer.
+     *
+     * @return format id of the serializer
+     */
+    byte getFormatId();
+
+    /**
+     * Serializes the given object. The returned payload must start with the format id of the serializer.
+     *
+     * @param object object to be serialized
+     * @return serialized payload
+     * @throws IOException if the object cannot be serialized
+     */
+    byte[] serialize(Object object) throws IOException;
+
+    /**
+     * Deserializes an object from a payload written by this serializer, including the leading format id.
+     *
+     * @param inputStream stream of the serialized payload
+     * @return deserialized object
+     * @throws IOException            if the payload cannot be read
+     * @throws ClassNotFoundException if a class of the serialized object cannot be found
+     */
+    Object deserialize(InputStream inputStream) throws IOException, ClassNotFoundException;
+}
@@ -18,20 +18,79 @@
 
 package org.wso2.carbon.identity.application.authentication.framework.config.loader;
 
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.testng.IObjectFactory;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.ObjectFactory;
 import org.testng.annotations.Test;
 import org.wso2.carbon.identity.application.authentication.framework.AbstractFrameworkTest;
+import org.wso2.carbon.identity.application.authentication.framework.cache.SequenceConfigTemplateCache;
+import org.wso2.carbon.identity.application.authentication.framework.cache.SequenceConfigTemplateCacheEntry;
+import org.wso2.carbon.identity.application.authentication.framework.cache.SequenceConfigTemplateCacheKey;
 import org.wso2.carbon.identity.application.authentication.framework.config.model.SequenceConfig;
+import org.wso2.carbon.identity.application.authentication.framework.config.model.StepConfig;
+import org.wso2.carbon.identity.application.authentication.framework.context.AuthenticationContext;
 import org.wso2.carbon.identity.application.common.model.AuthenticationStep;
 import org.wso2.carbon.identity.application.common.model.LocalAndOutboundAuthenticationConfig;
+import org.wso2.carbon.identity.application.common.model.LocalAuthenticatorConfig;
 import org.wso2.carbon.identity.application.common.model.ServiceProvider;
 
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.powermock.api.mockito.PowerMockito.mockStatic;
+import static org.testng.Assert.assertEquals;
 import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertTrue;
 
 
 @Test
+@PrepareForTest(SequenceConfigTemplateCache.class)
 public class UIBasedConfigurationLoaderTest extends AbstractFrameworkTest {
 
     private UIBasedConfigurationLoader loader = new UIBasedConfigurationLoader();
+    private Map<SequenceConfigTemplateCacheKey, SequenceConfigTemplateCacheEntry> cachedTemplates;
+
+    @BeforeMethod
+    public void setUp() {
+
+        cachedTemplates = new HashMap<>();
+        SequenceConfigTemplateCache templateCache = mock(SequenceConfigTemplateCache.class);
+        when(templateCache.getValueFromCache(any(SequenceConfigTemplateCacheKey.class)))
+                .thenAnswer(new Answer<SequenceConfigTemplateCacheEntry>() {
+                    @Override
+                    public SequenceConfigTemplateCacheEntry answer(InvocationOnMock invocation) {
+
+                        return cachedTemplates.get(invocation.getArguments()[0]);
+                    }
+                });
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+
+                cachedTemplates.put((SequenceConfigTemplateCacheKey) invocation.getArguments()[0],
+                        (SequenceConfigTemplateCacheEntry) invocation.getArguments()[1]);
+                return null;
+            }
+        }).when(templateCache).addToCache(any(SequenceConfigTemplateCacheKey.class),
+                any(SequenceConfigTemplateCacheEntry.class));
+        mockStatic(SequenceConfigTemplateCache.class);
+        when(SequenceConfigTemplateCache.getInstance()).thenReturn(templateCache);
+    }
+
+    @ObjectFactory
+    public IObjectFactory getObjectFactory() {
+
+        return new org.powermock.modules.testng.PowerMockObjectFactory();
+    }
 
     public void testGetSequence_Deprecated() throws Exception {
         ServiceProvider testSp1 = new ServiceProvider();
@@ -56,4 +115,72 @@ public class UIBasedConfigurationLoaderTest extends AbstractFrameworkTest {
         assertNotNull(sequenceConfig.getStepMap().get(2));
     }
 
+    public void testGetSequenceConfigCopiesTemplate() throws Exception {
+
+        ServiceProvider serviceProvider = createServiceProvider("templateSp");
+        AuthenticationContext context = getAuthenticationContext(serviceProvider);
+
+        SequenceConfig first = loader.getSequenceConfig(context, Collections.<String, String[]>emptyMap(),
+                serviceProvider);
+        StepConfig firstStep = first.getStepMap().get(1);
+        firstStep.setCompleted(true);
+        firstStep.getAuthenticatorList().get(0).getIdpNames().add("mutated");
+
+        SequenceConfig second = loader.getSequenceConfig(context, Collections.<String, String[]>emptyMap(),
+                serviceProvider);
+        StepConfig secondStep = second.getStepMap().get(1);
+        assertEquals(cachedTemplates.size(), 1);
+        assertNotSame(second, first);
+        assertNotSame(secondStep, firstStep);
+        assertEquals(second.getApplicationId(), "templateSp");
+        assertTrue(!secondStep.isCompleted());
+        assertEquals(secondStep.getAuthenticatorList().size(), 1);
+        assertEquals(secondStep.getAuthenticatorList().get(0).getName(), "BasicAuthenticator");
+        assertEquals(secondStep.getAuthenticatorList().get(0).getIdpNames(), Collections.singletonList("LOCAL"));
+    }
+
+    public void testGetSequenceConfigRebuildsTemplateOfChangedServiceProvider() throws Exception {
+
+        ServiceProvider serviceProvider = createServiceProvider("changedSp");
+        AuthenticationContext context = getAuthenticationContext(serviceProvider);
+        loader.getSequenceConfig(context, Collections.<String, String[]>emptyMap(), serviceProvider);
+
+        // The service provider cache holds a new instance once the service provider is updated.
+        ServiceProvider updatedServiceProvider = createServiceProvider("changedSp");
+        AuthenticationStep step2 = new AuthenticationStep();
+        step2.setStepOrder(2);
+        step2.setLocalAuthenticatorConfigs(new LocalAuthenticatorConfig[]{createLocalAuthenticator("TOTP")});
+        updatedServiceProvider.getLocalAndOutBoundAuthenticationConfig().setAuthenticationSteps(
+                new AuthenticationStep[]{updatedServiceProvider.getLocalAndOutBoundAuthenticationConfig()
+                        .getAuthenticationSteps()[0], step2});
+
+        SequenceConfig sequenceConfig = loader.getSequenceConfig(context, Collections.<String, String[]>emptyMap(),
+                updatedServiceProvider);
+        assertEquals(sequenceConfig.getStepMap().size(), 2);
+        assertEquals(sequenceConfig.getStepMap().get(2).getAuthenticatorList().get(0).getName(), "TOTP");
+    }
+
+    private ServiceProvider createServiceProvider(String applicationName) {
+
+        ServiceProvider serviceProvider = new ServiceProvider();
+        serviceProvider.setApplicationName(applicationName);
+        LocalAndOutboundAuthenticationConfig localAndOutboundAuthenticationConfig =
+                new LocalAndOutboundAuthenticationConfig();
+        serviceProvider.setLocalAndOutBoundAuthenticationConfig(localAndOutboundAuthenticationConfig);
+
+        AuthenticationStep step1 = new AuthenticationStep();
+        step1.setStepOrder(1);
+        step1.setLocalAuthenticatorConfigs(new LocalAuthenticatorConfig[]{createLocalAuthenticator(
+                "BasicAuthenticator")});
+        localAndOutboundAuthenticationConfig.setAuthenticationSteps(new AuthenticationStep[]{step1});
+        return serviceProvider;
+    }
+
+    private LocalAuthenticatorConfig createLocalAuthenticator(String name) {
+
+        LocalAuthenticatorConfig localAuthenticatorConfig = new LocalAuthenticatorConfig();
+        localAuthenticatorConfig.setName(name);
+        return localAuthenticatorConfig;
+    }
+
 }
\ No newline at end of file
@@ -21,15 +21,27 @@ package org.wso2.carbon.identity.application.authentication.framework.config.mod
 import org.testng.annotations.BeforeTest;
 import org.testng.annotations.Test;
 import org.wso2.carbon.identity.application.authentication.framework.AbstractFrameworkTest;
+import org.wso2.carbon.identity.application.authentication.framework.JsFunctionRegistry;
 import org.wso2.carbon.identity.application.authentication.framework.config.model.StepConfig;
 import org.wso2.carbon.identity.application.authentication.framework.context.AuthenticationContext;
+import org.wso2.carbon.identity.application.authentication.framework.internal.FrameworkServiceDataHolder;
 import org.wso2.carbon.identity.application.common.model.ServiceProvider;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.function.Function;
+import javax.script.CompiledScript;
+import javax.script.ScriptContext;
+import javax.script.ScriptEngine;
 
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
 import static org.testng.Assert.assertNotNull;
+import static org.testng.Assert.assertNotSame;
 import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
 import static org.testng.Assert.assertTrue;
 
 /**
@@ -45,6 +57,8 @@ public class JsGraphBuilderTest extends AbstractFrameworkTest {
     public void setUp() {
         jsGraphBuilderFactory = new JsGraphBuilderFactory();
         jsGraphBuilderFactory.init();
+        // Engines are given back to the factory of the data holder after the script evaluation.
+        FrameworkServiceDataHolder.getInstance().setJsGraphBuilderFactory(jsGraphBuilderFactory);
     }
 
     public void testCreate_DirectJava_InvalidStepId() throws Exception {
@@ -109,4 +123,138 @@ public class JsGraphBuilderTest extends AbstractFrameworkTest {
         assertTrue(firstStep.getNext() instanceof DynamicDecisionNode);
     }
 
-}
\ No newline at end of file
+    public void testEngineReleasedAfterCreateWith() throws Exception {
+
+        String script = "function(context) { executeStep({id :'1'});};";
+        int pooledEngineCount = jsGraphBuilderFactory.getPooledEngineCount();
+        assertTrue(pooledEngineCount > 0);
+
+        JsGraphBuilder jsGraphBuilder = jsGraphBuilderFactory.createBuilder(getTestAuthenticationContext(),
+                getTestStepConfigMap());
+        assertEquals(jsGraphBuilderFactory.getPooledEngineCount(), pooledEngineCount - 1);
+        jsGraphBuilder.createWith(script);
+
+        assertTrue(jsGraphBuilder.build().isBuildSuccessful());
+        assertEquals(jsGraphBuilderFactory.getPooledEngineCount(), pooledEngineCount);
+    }
+
+    public void testEngineReleasedAfterScriptError() throws Exception {
+
+        int pooledEngineCount = jsGraphBuilderFactory.getPooledEngineCount();
+
+        JsGraphBuilder jsGraphBuilder = jsGraphBuilderFactory.createBuilder(getTestAuthenticationContext(),
+                getTestStepConfigMap());
+        jsGraphBuilder.createWith("function(context) { executeStep({id :'1'});");
+        assertFalse(jsGraphBuilder.build().isBuildSuccessful());
+        assertEquals(jsGraphBuilderFactory.getPooledEngineCount(), pooledEngineCount);
+
+        jsGraphBuilder = jsGraphBuilderFactory.createBuilder(getTestAuthenticationContext(), getTestStepConfigMap());
+        try {
+            jsGraphBuilder.createWith("function(context) { throw 'Error in the script'; };");
+        } catch (RuntimeException e) {
+            // Errors thrown by the script are not handled by the builder.
+        }
+        assertEquals(jsGraphBuilderFactory.getPooledEngineCount(), pooledEngineCount);
+    }
+
+    public void testEngineReleasedAfterEvaluate() throws Exception {
+
+        int pooledEngineCount = jsGraphBuilderFactory.getPooledEngineCount();
+        AuthenticationContext context = getTestAuthenticationContext();
+
+        new JsGraphBuilder.JsBasedEvaluator(new SerializableJsFunction("onSuccess",
+                "function(context) { var step = 1; };", true)).evaluate(context);
+        assertEquals(jsGraphBuilderFactory.getPooledEngineCount(), pooledEngineCount);
+
+        new JsGraphBuilder.JsBasedEvaluator(new SerializableJsFunction("onSuccess",
+                "function(context) { throw 'Error in the script'; };", true)).evaluate(context);
+        assertEquals(jsGraphBuilderFactory.getPooledEngineCount(), pooledEngineCount);
+    }
+
+    public void testCompiledScriptReuse() throws Exception {
+
+        String script = "function(context) { executeStep({id :'1'});};";
+        ScriptEngine engine = jsGraphBuilderFactory.createEngine(getTestAuthenticationContext());
+        try {
+            CompiledScript compiledScript = JsGraphBuilderFactory.getCompiledScript(engine, "carbon.super:sp",
+                    script);
+            assertSame(JsGraphBuilderFactory.getCompiledScript(engine, "carbon.super:sp", script), compiledScript);
+            assertNotSame(JsGraphBuilderFactory.getCompiledScript(engine, "carbon.super:sp2", script),
+                    compiledScript);
+            assertNotSame(JsGraphBuilderFactory.getCompiledScript(engine, "carbon.super:sp", script + " "),
+                    compiledScript);
+        } finally {
+            jsGraphBuilderFactory.releaseEngine(engine);
+        }
+    }
+
+    public void testRegistryFunctionsBoundToPooledEngines() throws Exception {
+
+        JsFunctionRegistryImpl jsFunctionRegistry = new JsFunctionRegistryImpl();
+        jsFunctionRegistry.register(JsFunctionRegistry.Subsystem.SEQUENCE_HANDLER, "firstFunction",
+                (Function<String, String>) value -> value);
+        JsGraphBuilderFactory factory = new JsGraphBuilderFactory();
+        factory.setJsFunctionRegistry(jsFunctionRegistry);
+        factory.init();
+
+        ScriptEngine engine = factory.createEngine(getTestAuthenticationContext());
+        assertNotNull(engine.getBindings(ScriptContext.GLOBAL_SCOPE).get("firstFunction"));
+        factory.releaseEngine(engine);
+
+        // A function registered after the engines are created is bound when an engine is taken from the pool.
+        jsFunctionRegistry.register(JsFunctionRegistry.Subsystem.SEQUENCE_HANDLER, "secondFunction",
+                (Function<String, String>) value -> value);
+        for (int i = 0; i < factory.getPooledEngineCount(); i++) {
+            engine = factory.createEngine(getTestAuthenticationContext());
+            assertNotNull(engine.getBindings(ScriptContext.GLOBAL_SCOPE).get("firstFunction"));
+            assertNotNull(engine.getBindings(ScriptContext.GLOBAL_SCOPE).get("secondFunction"));
+            factory.releaseEngine(engine);
+        }
+    }
+
+    public void testGlobalsNotSharedBetweenEngineUses() throws Exception {
+
+        JsGraphBuilderFactory factory = new JsGraphBuilderFactory();
+        factory.init();
+        ScriptEngine engine = factory.createEngine(getTestAuthenticationContext());
+        CompiledScript setGlobals = JsGraphBuilderFactory.getCompiledScript(engine, "carbon.super:sp",
+                "var declaredGlobal = 'declared'; assignedGlobal = 'assigned';");
+        setGlobals.eval(engine.getBindings(ScriptContext.GLOBAL_SCOPE));
+        factory.releaseEngine(engine);
+
+        // Take engines from the pool until the released engine is given back.
+        List<ScriptEngine> takenEngines = new ArrayList<>();
+        ScriptEngine reusedEngine = null;
+        while (reusedEngine == null) {
+            ScriptEngine takenEngine = factory.createEngine(getTestAuthenticationContext());
+            takenEngines.add(takenEngine);
+            if (takenEngine == engine) {
+                reusedEngine = takenEngine;
+            }
+        }
+        try {
+            Object globals = JsGraphBuilderFactory.getCompiledScript(reusedEngine, "carbon.super:sp",
+                    "typeof declaredGlobal + ',' + typeof assignedGlobal;")
+                    .eval(reusedEngine.getBindings(ScriptContext.GLOBAL_SCOPE));
+            assertEquals(globals, "undefined,undefined");
+            // The compiled scripts of the engine are kept.
+            assertSame(JsGraphBuilderFactory.getCompiledScript(reusedEngine, "carbon.super:sp",
+                    "var declaredGlobal = 'declared'; assignedGlobal = 'assigned';"), setGlobals);
+        } finally {
+            takenEngines.forEach(factory::releaseEngine);
+        }
+    }
+
+    private AuthenticationContext getTestAuthenticationContext() throws Exception {
+
+        return getAuthenticationContext(getTestServiceProvider("js-sp-1.xml"));
+    }
+
+    private Map<Integer, StepConfig> getTestStepConfigMap() {
+
+        Map<Integer, StepConfig> stepConfigMap = new HashMap<>();
+        stepConfigMap.put(1, new StepConfig());
+        stepConfigMap.put(2, new StepConfig());
+        return stepConfigMap;
+    }
+}
@@ -0,0 +1,225 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.identity.application.authentication.framework.handler.claims.impl;
+
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.testng.PowerMockTestCase;
+import org.powermock.reflect.Whitebox;
+import org.testng.IObjectFactory;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.ObjectFactory;
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.application.authentication.framework.cache.ServiceProviderLocalClaimsCache;
+import org.wso2.carbon.identity.application.authentication.framework.cache.ServiceProviderLocalClaimsCacheEntry;
+import org.wso2.carbon.identity.application.authentication.framework.cache.ServiceProviderLocalClaimsCacheKey;
+import org.wso2.carbon.identity.application.authentication.framework.config.model.ApplicationConfig;
+import org.wso2.carbon.identity.application.authentication.framework.context.AuthenticationContext;
+import org.wso2.carbon.identity.application.authentication.framework.util.FrameworkConstants;
+import org.wso2.carbon.identity.application.common.model.ClaimConfig;
+import org.wso2.carbon.identity.application.common.model.ClaimMapping;
+import org.wso2.carbon.identity.application.common.model.LocalAndOutboundAuthenticationConfig;
+import org.wso2.carbon.identity.application.common.model.LocalRole;
+import org.wso2.carbon.identity.application.common.model.PermissionsAndRoleConfig;
+import org.wso2.carbon.identity.application.common.model.RoleMapping;
+import org.wso2.carbon.identity.application.common.model.ServiceProvider;
+import org.wso2.carbon.identity.core.util.IdentityUtil;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.powermock.api.mockito.PowerMockito.mockStatic;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNull;
+
+@PrepareForTest({IdentityUtil.class, ServiceProviderLocalClaimsCache.class})
+public class DefaultClaimHandlerTest extends PowerMockTestCase {
+
+    private static final String FETCH_REQUESTED_CLAIMS_ONLY = "ClaimHandler.FetchRequestedClaimsOnly";
+    private static final String TENANT_DOMAIN = "carbon.super";
+    private static final String APPLICATION_NAME = "app";
+
+    private static final String LOCAL_EMAIL = "http://wso2.org/claims/emailaddress";
+    private static final String LOCAL_MOBILE = "http://wso2.org/claims/mobile";
+    private static final String LOCAL_COUNTRY = "http://wso2.org/claims/country";
+    private static final String LOCAL_USERNAME = "http://wso2.org/claims/username";
+    private static final String LOCAL_GROUPS = "http://wso2.org/claims/groups";
+    private static final String SP_EMAIL = "email";
+    private static final String SP_MOBILE = "mobile";
+    private static final String SP_COUNTRY = "country";
+    private static final String SP_SUBJECT = "uid";
+    private static final String SP_ROLES = "groups";
+
+    private ServiceProviderLocalClaimsCache localClaimsCache;
+
+    @BeforeMethod
+    public void setUp() {
+
+        mockStatic(IdentityUtil.class);
+        when(IdentityUtil.getProperty(FETCH_REQUESTED_CLAIMS_ONLY)).thenReturn("true");
+
+        localClaimsCache = mock(ServiceProviderLocalClaimsCache.class);
+        mockStatic(ServiceProviderLocalClaimsCache.class);
+        when(ServiceProviderLocalClaimsCache.getInstance()).thenReturn(localClaimsCache);
+    }
+
+    @ObjectFactory
+    public IObjectFactory getObjectFactory() {
+
+        return new org.powermock.modules.testng.PowerMockObjectFactory();
+    }
+
+    @Test
+    public void testRequestedAndMandatoryClaims() throws Exception {
+
+        ServiceProvider serviceProvider = createServiceProvider(
+                ClaimMapping.build(LOCAL_EMAIL, SP_EMAIL, null, true),
+                ClaimMapping.build(LOCAL_MOBILE, SP_MOBILE, null, false, true),
+                ClaimMapping.build(LOCAL_COUNTRY, SP_COUNTRY, null, false));
+
+        assertEquals(getRequiredLocalClaimURIs(new ApplicationConfig(serviceProvider), createContext(null)),
+                asSet(LOCAL_EMAIL, LOCAL_MOBILE));
+    }
+
+    @Test
+    public void testSubjectClaim() throws Exception {
+
+        ServiceProvider serviceProvider = createServiceProvider(
+                ClaimMapping.build(LOCAL_EMAIL, SP_EMAIL, null, true),
+                ClaimMapping.build(LOCAL_USERNAME, SP_SUBJECT, null, false));
+        LocalAndOutboundAuthenticationConfig authenticationConfig = new LocalAndOutboundAuthenticationConfig();
+        authenticationConfig.setSubjectClaimUri(SP_SUBJECT);
+        serviceProvider.setLocalAndOutBoundAuthenticationConfig(authenticationConfig);
+
+        // The subject claim URI may be a local or a service provider claim URI, so both are fetched.
+        assertEquals(getRequiredLocalClaimURIs(new ApplicationConfig(serviceProvider), createContext(null)),
+                asSet(LOCAL_EMAIL, SP_SUBJECT, LOCAL_USERNAME));
+    }
+
+    @Test
+    public void testRoleClaim() throws Exception {
+
+        ServiceProvider serviceProvider = createServiceProvider(
+                ClaimMapping.build(LOCAL_EMAIL, SP_EMAIL, null, true),
+                ClaimMapping.build(LOCAL_GROUPS, SP_ROLES, null, false));
+        serviceProvider.getClaimConfig().setRoleClaimURI(SP_ROLES);
+
+        assertEquals(getRequiredLocalClaimURIs(new ApplicationConfig(serviceProvider), createContext(null)),
+                asSet(LOCAL_EMAIL, FrameworkConstants.LOCAL_ROLE_CLAIM_URI, SP_ROLES, LOCAL_GROUPS));
+    }
+
+    @Test
+    public void testRoleMappings() throws Exception {
+
+        ServiceProvider serviceProvider = createServiceProvider(
+                ClaimMapping.build(LOCAL_EMAIL, SP_EMAIL, null, true));
+        PermissionsAndRoleConfig permissionsAndRoleConfig = new PermissionsAndRoleConfig();
+        permissionsAndRoleConfig.setRoleMappings(new RoleMapping[]{
+                new RoleMapping(new LocalRole("PRIMARY", "admin"), "administrator")});
+        serviceProvider.setPermissionAndRoleConfig(permissionsAndRoleConfig);
+
+        // The local roles are fetched to be mapped to the roles of the service provider.
+        assertEquals(getRequiredLocalClaimURIs(new ApplicationConfig(serviceProvider), createContext(null)),
+                asSet(LOCAL_EMAIL, FrameworkConstants.LOCAL_ROLE_CLAIM_URI));
+    }
+
+    @Test
+    public void testOpenIDRequestSkipped() throws Exception {
+
+        ServiceProvider serviceProvider = createServiceProvider(
+                ClaimMapping.build(LOCAL_EMAIL, SP_EMAIL, null, true));
+
+        assertNull(getRequiredLocalClaimURIs(new ApplicationConfig(serviceProvider),
+                createContext(FrameworkConstants.RequestType.CLAIM_TYPE_OPENID)));
+        verify(localClaimsCache, never()).addToCache(any(ServiceProviderLocalClaimsCacheKey.class),
+                any(ServiceProviderLocalClaimsCacheEntry.class));
+    }
+
+    @Test
+    public void testNoRequestedClaims() throws Exception {
+
+        ServiceProvider serviceProvider = createServiceProvider(
+                ClaimMapping.build(LOCAL_EMAIL, SP_EMAIL, null, false));
+
+        assertNull(getRequiredLocalClaimURIs(new ApplicationConfig(serviceProvider), createContext(null)));
+        assertNull(getRequiredLocalClaimURIs(new ApplicationConfig(createServiceProvider()), createContext(null)));
+    }
+
+    @Test
+    public void testFetchRequestedClaimsOnlyDisabled() throws Exception {
+
+        when(IdentityUtil.getProperty(FETCH_REQUESTED_CLAIMS_ONLY)).thenReturn(null);
+        ServiceProvider serviceProvider = createServiceProvider(
+                ClaimMapping.build(LOCAL_EMAIL, SP_EMAIL, null, true));
+
+        assertNull(getRequiredLocalClaimURIs(new ApplicationConfig(serviceProvider), createContext(null)));
+    }
+
+    @Test
+    public void testRequiredClaimsCached() throws Exception {
+
+        ServiceProvider serviceProvider = createServiceProvider(
+                ClaimMapping.build(LOCAL_EMAIL, SP_EMAIL, null, true));
+        ServiceProviderLocalClaimsCacheKey cacheKey =
+                new ServiceProviderLocalClaimsCacheKey(APPLICATION_NAME, TENANT_DOMAIN);
+
+        getRequiredLocalClaimURIs(new ApplicationConfig(serviceProvider), createContext(null));
+        verify(localClaimsCache).addToCache(any(ServiceProviderLocalClaimsCacheKey.class),
+                any(ServiceProviderLocalClaimsCacheEntry.class));
+
+        Set<String> cachedClaimURIs = asSet(LOCAL_COUNTRY);
+        when(localClaimsCache.getValueFromCache(cacheKey))
+                .thenReturn(new ServiceProviderLocalClaimsCacheEntry(cachedClaimURIs));
+        assertEquals(getRequiredLocalClaimURIs(new ApplicationConfig(serviceProvider), createContext(null)),
+                cachedClaimURIs);
+    }
+
+    private static Set<String> getRequiredLocalClaimURIs(ApplicationConfig appConfig, AuthenticationContext context)
+            throws Exception {
+
+        return Whitebox.invokeMethod(DefaultClaimHandler.getInstance(), "getRequiredLocalClaimURIs", appConfig,
+                context);
+    }
+
+    private static ServiceProvider createServiceProvider(ClaimMapping... claimMappings) {
+
+        ServiceProvider serviceProvider = new ServiceProvider();
+        serviceProvider.setApplicationName(APPLICATION_NAME);
+        ClaimConfig claimConfig = new ClaimConfig();
+        claimConfig.setClaimMappings(claimMappings);
+        serviceProvider.setClaimConfig(claimConfig);
+        return serviceProvider;
+    }
+
+    private static AuthenticationContext createContext(String requestType) {
+
+        AuthenticationContext context = new AuthenticationContext();
+        context.setTenantDomain(TENANT_DOMAIN);
+        context.setRequestType(requestType);
+        return context;
+    }
+
+    private static Set<String> asSet(String... values) {
+
+        return new HashSet<>(Arrays.asList(values));
+    }
+}
@@ -0,0 +1,194 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.identity.application.authentication.framework.handler.request.impl.consent;
+
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.testng.PowerMockTestCase;
+import org.testng.IObjectFactory;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.ObjectFactory;
+import org.testng.annotations.Test;
+import org.wso2.carbon.consent.mgt.core.ConsentManager;
+import org.wso2.carbon.consent.mgt.core.model.ConsentPurpose;
+import org.wso2.carbon.consent.mgt.core.model.PIICategoryValidity;
+import org.wso2.carbon.consent.mgt.core.model.Receipt;
+import org.wso2.carbon.consent.mgt.core.model.ReceiptListResponse;
+import org.wso2.carbon.consent.mgt.core.model.ReceiptService;
+import org.wso2.carbon.context.PrivilegedCarbonContext;
+import org.wso2.carbon.identity.application.authentication.framework.cache.SSOConsentReceiptCache;
+import org.wso2.carbon.identity.application.authentication.framework.cache.SSOConsentReceiptCacheEntry;
+import org.wso2.carbon.identity.application.authentication.framework.cache.SSOConsentReceiptCacheKey;
+import org.wso2.carbon.identity.application.authentication.framework.internal.FrameworkServiceDataHolder;
+import org.wso2.carbon.identity.application.authentication.framework.model.AuthenticatedUser;
+import org.wso2.carbon.identity.application.common.model.ClaimMetaData;
+import org.wso2.carbon.identity.application.common.model.ServiceProvider;
+import org.wso2.carbon.identity.core.util.IdentityConfigParser;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.powermock.api.mockito.PowerMockito.mockStatic;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+@PrepareForTest({PrivilegedCarbonContext.class, IdentityConfigParser.class, SSOConsentReceiptCache.class})
+public class SSOConsentServiceImplTest extends PowerMockTestCase {
+
+    private static final String TENANT_DOMAIN = "carbon.super";
+    private static final String RECEIPT_ID = "receipt-1";
+    private static final String CLAIM_URI = "http://wso2.org/claims/emailaddress";
+
+    private SSOConsentServiceImpl ssoConsentService;
+    private ConsentManager consentManager;
+    private Map<SSOConsentReceiptCacheKey, SSOConsentReceiptCacheEntry> cachedReceipts;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+
+        mockStatic(PrivilegedCarbonContext.class);
+        when(PrivilegedCarbonContext.getThreadLocalCarbonContext()).thenReturn(mock(PrivilegedCarbonContext.class));
+
+        mockStatic(IdentityConfigParser.class);
+        when(IdentityConfigParser.getInstance()).thenReturn(mock(IdentityConfigParser.class));
+
+        cachedReceipts = new HashMap<>();
+        SSOConsentReceiptCache receiptCache = mock(SSOConsentReceiptCache.class);
+        when(receiptCache.getValueFromCache(any(SSOConsentReceiptCacheKey.class)))
+                .thenAnswer(new Answer<SSOConsentReceiptCacheEntry>() {
+                    @Override
+                    public SSOConsentReceiptCacheEntry answer(InvocationOnMock invocation) {
+
+                        return cachedReceipts.get(invocation.getArguments()[0]);
+                    }
+                });
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+
+                cachedReceipts.put((SSOConsentReceiptCacheKey) invocation.getArguments()[0],
+                        (SSOConsentReceiptCacheEntry) invocation.getArguments()[1]);
+                return null;
+            }
+        }).when(receiptCache).addToCache(any(SSOConsentReceiptCacheKey.class), any(SSOConsentReceiptCacheEntry.class));
+        mockStatic(SSOConsentReceiptCache.class);
+        when(SSOConsentReceiptCache.getInstance()).thenReturn(receiptCache);
+
+        consentManager = mock(ConsentManager.class);
+        FrameworkServiceDataHolder.getInstance().setConsentManager(consentManager);
+
+        ssoConsentService = new SSOConsentServiceImpl();
+    }
+
+    @AfterMethod
+    public void tearDown() {
+
+        FrameworkServiceDataHolder.getInstance().setConsentManager(null);
+    }
+
+    @ObjectFactory
+    public IObjectFactory getObjectFactory() {
+
+        return new org.powermock.modules.testng.PowerMockObjectFactory();
+    }
+
+    @Test
+    public void testActiveReceiptIsRetrievedOnce() throws Exception {
+
+        List<ReceiptListResponse> activeReceipts = getReceiptList();
+        when(consentManager.searchReceipts(anyInt(), anyInt(), anyString(), anyString(), anyString(), anyString()))
+                .thenReturn(activeReceipts);
+        Receipt receipt = getReceipt();
+        when(consentManager.getReceipt(RECEIPT_ID)).thenReturn(receipt);
+
+        for (int i = 0; i < 2; i++) {
+            List<ClaimMetaData> claims = ssoConsentService.getClaimsWithConsents(getServiceProvider(),
+                    getAuthenticatedUser());
+            assertEquals(claims.size(), 1);
+            assertEquals(claims.get(0).getClaimUri(), CLAIM_URI);
+        }
+        verify(consentManager, times(1)).getReceipt(RECEIPT_ID);
+    }
+
+    @Test
+    public void testRevokedReceiptIsNotServedFromCache() throws Exception {
+
+        List<ReceiptListResponse> activeReceipts = getReceiptList();
+        when(consentManager.searchReceipts(anyInt(), anyInt(), anyString(), anyString(), anyString(), anyString()))
+                .thenReturn(activeReceipts)
+                .thenReturn(Collections.<ReceiptListResponse>emptyList());
+        Receipt receipt = getReceipt();
+        when(consentManager.getReceipt(RECEIPT_ID)).thenReturn(receipt);
+
+        assertEquals(ssoConsentService.getClaimsWithConsents(getServiceProvider(), getAuthenticatedUser()).size(), 1);
+        assertTrue(cachedReceipts.containsKey(new SSOConsentReceiptCacheKey(RECEIPT_ID, TENANT_DOMAIN)));
+
+        // The receipt is revoked through the consent management API, which does not go through this service.
+        assertTrue(ssoConsentService.getClaimsWithConsents(getServiceProvider(), getAuthenticatedUser()).isEmpty());
+        verify(consentManager, times(2)).searchReceipts(anyInt(), anyInt(), anyString(), anyString(), anyString(),
+                anyString());
+    }
+
+    private List<ReceiptListResponse> getReceiptList() {
+
+        ReceiptListResponse receiptListResponse = mock(ReceiptListResponse.class);
+        when(receiptListResponse.getConsentReceiptId()).thenReturn(RECEIPT_ID);
+        return Collections.singletonList(receiptListResponse);
+    }
+
+    private Receipt getReceipt() {
+
+        PIICategoryValidity piiCategoryValidity = mock(PIICategoryValidity.class);
+        when(piiCategoryValidity.getName()).thenReturn(CLAIM_URI);
+        ConsentPurpose purpose = mock(ConsentPurpose.class);
+        when(purpose.getPiiCategory()).thenReturn(Collections.singletonList(piiCategoryValidity));
+        ReceiptService receiptService = mock(ReceiptService.class);
+        when(receiptService.getPurposes()).thenReturn(Collections.singletonList(purpose));
+        Receipt receipt = mock(Receipt.class);
+        when(receipt.getConsentReceiptId()).thenReturn(RECEIPT_ID);
+        when(receipt.getServices()).thenReturn(Collections.singletonList(receiptService));
+        return receipt;
+    }
+
+    private ServiceProvider getServiceProvider() {
+
+        ServiceProvider serviceProvider = new ServiceProvider();
+        serviceProvider.setApplicationName("app");
+        return serviceProvider;
+    }
+
+    private AuthenticatedUser getAuthenticatedUser() {
+
+        AuthenticatedUser authenticatedUser = new AuthenticatedUser();
+        authenticatedUser.setUserName("user");
+        authenticatedUser.setUserStoreDomain("PRIMARY");
+        authenticatedUser.setTenantDomain(TENANT_DOMAIN);
+        return authenticatedUser;
+    }
+}
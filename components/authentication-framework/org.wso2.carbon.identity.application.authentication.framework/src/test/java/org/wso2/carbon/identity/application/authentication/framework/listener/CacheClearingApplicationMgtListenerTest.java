@@ -0,0 +1,140 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.identity.application.authentication.framework.listener;
+
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.testng.PowerMockTestCase;
+import org.testng.IObjectFactory;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.ObjectFactory;
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.application.authentication.framework.cache.SequenceConfigTemplateCache;
+import org.wso2.carbon.identity.application.authentication.framework.cache.SequenceConfigTemplateCacheKey;
+import org.wso2.carbon.identity.application.authentication.framework.cache.ServiceProviderLocalClaimsCache;
+import org.wso2.carbon.identity.application.authentication.framework.cache.ServiceProviderLocalClaimsCacheKey;
+import org.wso2.carbon.identity.application.authentication.framework.util.FrameworkUtils;
+import org.wso2.carbon.identity.application.common.IdentityApplicationManagementException;
+import org.wso2.carbon.identity.application.common.model.ServiceProvider;
+import org.wso2.carbon.identity.application.mgt.ApplicationMgtSystemConfig;
+import org.wso2.carbon.identity.application.mgt.dao.ApplicationDAO;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.powermock.api.mockito.PowerMockito.mockStatic;
+import static org.testng.Assert.assertTrue;
+
+@PrepareForTest({ApplicationMgtSystemConfig.class, FrameworkUtils.class, ServiceProviderLocalClaimsCache.class,
+        SequenceConfigTemplateCache.class})
+public class CacheClearingApplicationMgtListenerTest extends PowerMockTestCase {
+
+    private static final String TENANT_DOMAIN = "carbon.super";
+    private static final int APPLICATION_ID = 1;
+
+    private ApplicationDAO applicationDAO;
+    private ServiceProviderLocalClaimsCache localClaimsCache;
+    private SequenceConfigTemplateCache templateCache;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+
+        mockStatic(FrameworkUtils.class);
+        applicationDAO = mock(ApplicationDAO.class);
+        ApplicationMgtSystemConfig applicationMgtSystemConfig = mock(ApplicationMgtSystemConfig.class);
+        when(applicationMgtSystemConfig.getApplicationDAO()).thenReturn(applicationDAO);
+        mockStatic(ApplicationMgtSystemConfig.class);
+        when(ApplicationMgtSystemConfig.getInstance()).thenReturn(applicationMgtSystemConfig);
+
+        localClaimsCache = mock(ServiceProviderLocalClaimsCache.class);
+        mockStatic(ServiceProviderLocalClaimsCache.class);
+        when(ServiceProviderLocalClaimsCache.getInstance()).thenReturn(localClaimsCache);
+
+        templateCache = mock(SequenceConfigTemplateCache.class);
+        mockStatic(SequenceConfigTemplateCache.class);
+        when(SequenceConfigTemplateCache.getInstance()).thenReturn(templateCache);
+    }
+
+    @ObjectFactory
+    public IObjectFactory getObjectFactory() {
+
+        return new org.powermock.modules.testng.PowerMockObjectFactory();
+    }
+
+    @DataProvider(name = "listeners")
+    public Object[][] getListeners() {
+
+        return new Object[][]{
+                {new ClaimHandlerApplicationMgtListener()},
+                {new SequenceTemplateApplicationMgtListener()}
+        };
+    }
+
+    @Test(dataProvider = "listeners")
+    public void testRenameClearsPreviousName(AbstractCacheClearingApplicationMgtListener listener) throws Exception {
+
+        when(applicationDAO.getApplicationName(APPLICATION_ID)).thenReturn("oldName");
+        ServiceProvider serviceProvider = getServiceProvider("newName");
+
+        assertTrue(listener.doPreUpdateApplication(serviceProvider, TENANT_DOMAIN, "admin"));
+        verifyCleared(listener, "oldName");
+
+        assertTrue(listener.doPostUpdateApplication(serviceProvider, TENANT_DOMAIN, "admin"));
+        verifyCleared(listener, "newName");
+    }
+
+    @Test(dataProvider = "listeners")
+    public void testDeleteClearsName(AbstractCacheClearingApplicationMgtListener listener) throws Exception {
+
+        assertTrue(listener.doPostDeleteApplication("app", TENANT_DOMAIN, "admin"));
+        verifyCleared(listener, "app");
+    }
+
+    @Test(dataProvider = "listeners")
+    public void testUpdateProceedsIfStoredNameCannotBeRead(AbstractCacheClearingApplicationMgtListener listener)
+            throws Exception {
+
+        when(applicationDAO.getApplicationName(APPLICATION_ID))
+                .thenThrow(new IdentityApplicationManagementException("Error"));
+
+        assertTrue(listener.doPreUpdateApplication(getServiceProvider("app"), TENANT_DOMAIN, "admin"));
+        verify(localClaimsCache, never()).clearCacheEntry(any(ServiceProviderLocalClaimsCacheKey.class));
+        verify(templateCache, never()).clearCacheEntry(any(SequenceConfigTemplateCacheKey.class));
+    }
+
+    private void verifyCleared(AbstractCacheClearingApplicationMgtListener listener, String applicationName) {
+
+        if (listener instanceof ClaimHandlerApplicationMgtListener) {
+            verify(localClaimsCache).clearCacheEntry(
+                    new ServiceProviderLocalClaimsCacheKey(applicationName, TENANT_DOMAIN));
+            verify(templateCache, never()).clearCacheEntry(any(SequenceConfigTemplateCacheKey.class));
+        } else {
+            verify(templateCache).clearCacheEntry(new SequenceConfigTemplateCacheKey(applicationName, TENANT_DOMAIN));
+            verify(localClaimsCache, never()).clearCacheEntry(any(ServiceProviderLocalClaimsCacheKey.class));
+        }
+    }
+
+    private ServiceProvider getServiceProvider(String applicationName) {
+
+        ServiceProvider serviceProvider = new ServiceProvider();
+        serviceProvider.setApplicationID(APPLICATION_ID);
+        serviceProvider.setApplicationName(applicationName);
+        return serviceProvider;
+    }
+}
@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.application.authentication.framework.store;
+
+import org.wso2.carbon.identity.application.authentication.framework.config.model.AuthenticatorConfig;
+import org.wso2.carbon.identity.application.authentication.framework.config.model.SequenceConfig;
+import org.wso2.carbon.identity.application.authentication.framework.config.model.StepConfig;
+import org.wso2.carbon.identity.application.authentication.framework.context.AuthenticationContext;
+import org.wso2.carbon.identity.application.authentication.framework.context.SessionContext;
+import org.wso2.carbon.identity.application.authentication.framework.model.AuthenticatedIdPData;
+import org.wso2.carbon.identity.application.authentication.framework.model.AuthenticatedUser;
+import org.wso2.carbon.identity.application.common.model.ClaimMapping;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Builds the session and authentication contexts of a two step login of a local user with the claims of the user,
+ * as they are persisted by the session data store.
+ */
+final class SessionContextTestData {
+
+    private static final String TENANT_DOMAIN = "carbon.super";
+    private static final String[] AUTHENTICATORS = {"BasicAuthenticator", "totp"};
+
+    private SessionContextTestData() {
+
+    }
+
+    static SessionContext createSessionContext() {
+
+        SessionContext sessionContext = new SessionContext();
+        AuthenticatedUser user = createAuthenticatedUser();
+        sessionContext.getAuthenticatedSequences().put("travelocity.com", createSequenceConfig(user));
+
+        AuthenticatedIdPData idPData = new AuthenticatedIdPData();
+        idPData.setIdpName("LOCAL");
+        idPData.setUser(user);
+        for (String authenticator : AUTHENTICATORS) {
+            idPData.addAuthenticator(createAuthenticatorConfig(authenticator));
+        }
+        sessionContext.getAuthenticatedIdPs().put("LOCAL", idPData);
+        sessionContext.setRememberMe(true);
+        sessionContext.addProperty("CreatedTimestamp", System.currentTimeMillis());
+        sessionContext.addProperty("UpdatedTimestamp", System.currentTimeMillis());
+        return sessionContext;
+    }
+
+    static AuthenticationContext createAuthenticationContext() {
+
+        AuthenticationContext context = new AuthenticationContext();
+        AuthenticatedUser user = createAuthenticatedUser();
+        context.setContextIdentifier("c7f5a5b4-8c5e-4c1b-9d6a-0f1e2d3c4b5a");
+        context.setSessionIdentifier("4e2f3a6b-7c8d-4e9f-a0b1-c2d3e4f5a6b7");
+        context.setTenantDomain(TENANT_DOMAIN);
+        context.setServiceProviderName("travelocity.com");
+        context.setRequestType("samlsso");
+        context.setRelyingParty("travelocity.com");
+        context.setCallerPath("/samlsso");
+        context.setCallerSessionKey("a1b2c3d4-e5f6-4a7b-8c9d-0e1f2a3b4c5d");
+        context.setQueryParams("sessionDataKey=c7f5a5b4-8c5e-4c1b-9d6a-0f1e2d3c4b5a&type=samlsso");
+        context.setSequenceConfig(createSequenceConfig(user));
+        context.setCurrentStep(2);
+        context.setSubject(user);
+        context.setCurrentAuthenticator(AUTHENTICATORS[1]);
+        context.setProperty("ServiceProviderName", "travelocity.com");
+        return context;
+    }
+
+    private static SequenceConfig createSequenceConfig(AuthenticatedUser user) {
+
+        SequenceConfig sequenceConfig = new SequenceConfig();
+        sequenceConfig.setName("travelocity.com");
+        sequenceConfig.setApplicationId("travelocity.com");
+        Map<Integer, StepConfig> stepMap = new HashMap<>();
+        for (int i = 0; i < AUTHENTICATORS.length; i++) {
+            StepConfig stepConfig = new StepConfig();
+            stepConfig.setOrder(i + 1);
+            List<AuthenticatorConfig> authenticators = new ArrayList<>();
+            authenticators.add(createAuthenticatorConfig(AUTHENTICATORS[i]));
+            stepConfig.setAuthenticatorList(authenticators);
+            stepConfig.setAuthenticatedUser(user);
+            stepConfig.setAuthenticatedIdP("LOCAL");
+            stepConfig.setSubjectIdentifierStep(i == 0);
+            stepConfig.setSubjectAttributeStep(i == 0);
+            stepMap.put(i + 1, stepConfig);
+        }
+        sequenceConfig.setStepMap(stepMap);
+        sequenceConfig.setAuthenticatedUser(user);
+        sequenceConfig.setAuthenticatedIdPs("LOCAL");
+        sequenceConfig.setCompleted(true);
+        return sequenceConfig;
+    }
+
+    private static AuthenticatorConfig createAuthenticatorConfig(String name) {
+
+        Map<String, String> parameters = new HashMap<>();
+        parameters.put("showAuthFailureReason", "true");
+        return new AuthenticatorConfig(name, true, parameters);
+    }
+
+    private static AuthenticatedUser createAuthenticatedUser() {
+
+        AuthenticatedUser user = new AuthenticatedUser();
+        user.setUserName("alice");
+        user.setUserStoreDomain("PRIMARY");
+        user.setTenantDomain(TENANT_DOMAIN);
+        user.setAuthenticatedSubjectIdentifier("alice@" + TENANT_DOMAIN);
+        Map<ClaimMapping, String> attributes = new LinkedHashMap<>();
+        String[] claims = {"emailaddress", "givenname", "lastname", "telephone", "country", "role", "organization",
+                "streetaddress", "locality", "postalcode"};
+        for (String claim : claims) {
+            String claimUri = "http://wso2.org/claims/" + claim;
+            attributes.put(ClaimMapping.build(claimUri, claimUri, null, true), "alice " + claim);
+        }
+        user.setUserAttributes(attributes);
+        return user;
+    }
+}
@@ -0,0 +1,114 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.application.authentication.framework.store;
+
+import org.testng.annotations.Test;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+public class SessionDataBatchQueueTest {
+
+    @Test
+    public void testCoalescePendingOperations() throws Exception {
+
+        SessionDataBatchQueue queue = new SessionDataBatchQueue(10, 10);
+        queue.put(new SessionContextDO("session1", "AppAuthFrameworkSessionContextCache", "first", 1L));
+        queue.put(new SessionContextDO("session2", "AppAuthFrameworkSessionContextCache", "second", 2L));
+        queue.put(new SessionContextDO("session1", "AppAuthFrameworkSessionContextCache", null, 3L));
+        queue.put(new SessionContextDO("session1", "AuthenticationContextCache", "other type", 4L));
+
+        assertEquals(queue.getQueueDepth(), 3);
+        assertEquals(queue.getEnqueuedCount(), 4);
+        assertEquals(queue.getCoalescedCount(), 1);
+
+        List<SessionContextDO> batch = queue.drainAll();
+        assertEquals(batch.size(), 3);
+        assertEquals(batch.get(0).getKey(), "session1");
+        assertNull(batch.get(0).getEntry());
+        assertEquals(batch.get(0).getNanoTime(), 3L);
+        assertEquals(batch.get(1).getKey(), "session2");
+        assertEquals(batch.get(2).getEntry(), "other type");
+        assertEquals(queue.getQueueDepth(), 0);
+    }
+
+    @Test
+    public void testTakeBatchBySizeAndTime() throws Exception {
+
+        SessionDataBatchQueue queue = new SessionDataBatchQueue(10, 2);
+        for (int i = 0; i < 3; i++) {
+            queue.put(new SessionContextDO("session" + i, "type", "entry", i));
+        }
+
+        assertEquals(queue.takeBatch(1, TimeUnit.MINUTES).size(), 2);
+        // Only one operation is pending, so it should be returned once the flush interval elapses.
+        assertEquals(queue.takeBatch(10, TimeUnit.MILLISECONDS).size(), 1);
+        assertTrue(queue.takeBatch(10, TimeUnit.MILLISECONDS).isEmpty());
+    }
+
+    @Test
+    public void testBlockWhenQueueIsFull() throws Exception {
+
+        final SessionDataBatchQueue queue = new SessionDataBatchQueue(1, 1);
+        queue.put(new SessionContextDO("session1", "type", "entry", 1L));
+        // Replacing a pending operation does not need any free capacity.
+        queue.put(new SessionContextDO("session1", "type", "entry", 2L));
+
+        final CountDownLatch added = new CountDownLatch(1);
+        Thread producer = new Thread(new Runnable() {
+            @Override
+            public void run() {
+
+                try {
+                    queue.put(new SessionContextDO("session2", "type", "entry", 3L));
+                    added.countDown();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        producer.start();
+
+        assertFalse(added.await(100, TimeUnit.MILLISECONDS));
+        assertEquals(queue.takeBatch(1, TimeUnit.SECONDS).get(0).getNanoTime(), 2L);
+        assertTrue(added.await(1, TimeUnit.SECONDS));
+        assertEquals(queue.getQueueDepth(), 1);
+    }
+
+    @Test
+    public void testFlushMetrics() {
+
+        SessionDataBatchQueue queue = new SessionDataBatchQueue(10, 10);
+        queue.recordFlush(10, TimeUnit.MILLISECONDS.toNanos(20));
+        queue.recordFlush(4, TimeUnit.MILLISECONDS.toNanos(10));
+
+        assertEquals(queue.getFlushedBatchCount(), 2);
+        assertEquals(queue.getFlushedOperationCount(), 14);
+        assertEquals(queue.getMaxBatchSize(), 10);
+        assertEquals(queue.getAverageBatchSize(), 7);
+        assertEquals(queue.getMaxFlushLatencyMillis(), 20);
+        assertEquals(queue.getAverageFlushLatencyMillis(), 15);
+    }
+}
@@ -0,0 +1,203 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.application.authentication.framework.store;
+
+import org.apache.commons.dbcp.BasicDataSource;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.testng.PowerMockTestCase;
+import org.testng.IObjectFactory;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.ObjectFactory;
+import org.testng.annotations.Test;
+import org.wso2.carbon.base.MultitenantConstants;
+import org.wso2.carbon.identity.application.authentication.framework.util.FrameworkUtils;
+import org.wso2.carbon.identity.common.testng.MockInitialContextFactory;
+import org.wso2.carbon.identity.core.util.IdentityDatabaseUtil;
+import org.wso2.carbon.identity.core.util.IdentityTenantUtil;
+import org.wso2.carbon.idp.mgt.util.IdPManagementUtil;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.concurrent.TimeUnit;
+
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Matchers.eq;
+import static org.powermock.api.mockito.PowerMockito.doAnswer;
+import static org.powermock.api.mockito.PowerMockito.mockStatic;
+import static org.powermock.api.mockito.PowerMockito.spy;
+import static org.powermock.api.mockito.PowerMockito.when;
+import static org.testng.Assert.assertEquals;
+
+@PrepareForTest({IdentityDatabaseUtil.class, IdentityTenantUtil.class, IdPManagementUtil.class})
+public class SessionDataCleanUpEngineTest extends PowerMockTestCase {
+
+    private static final String DB_NAME = "jdbc/WSO2IdentityDB";
+    private static final String SESSION_TYPE = "AppAuthFrameworkSessionContextCache";
+    private static final int SUPER_TENANT_ID = MultitenantConstants.SUPER_TENANT_ID;
+    private static final int TENANT_ID = 1;
+    private static final int TIMEOUT_SECONDS = 60;
+    private static final int DELETE_CHUNK_SIZE = 3;
+
+    private BasicDataSource dataSource;
+    private long expiredNano;
+    private long liveNano;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+
+        dataSource = MockInitialContextFactory.initializeDatasource(DB_NAME, getClass(),
+                new String[]{"dbScripts/h2.sql"});
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.executeUpdate("DELETE FROM IDN_AUTH_SESSION_STORE");
+        }
+
+        spy(IdentityDatabaseUtil.class);
+        doAnswer(new Answer<Connection>() {
+            @Override
+            public Connection answer(InvocationOnMock invocation) throws Throwable {
+
+                Connection connection = dataSource.getConnection();
+                connection.setAutoCommit(false);
+                return connection;
+            }
+        }).when(IdentityDatabaseUtil.class, "getDBConnection");
+
+        mockStatic(IdentityTenantUtil.class);
+        when(IdentityTenantUtil.getTenantDomain(anyInt())).thenReturn("tenant.com");
+        when(IdentityTenantUtil.getTenantDomain(eq(SUPER_TENANT_ID)))
+                .thenReturn(MultitenantConstants.SUPER_TENANT_DOMAIN_NAME);
+        mockStatic(IdPManagementUtil.class);
+        when(IdPManagementUtil.getRememberMeTimeout(anyString())).thenReturn(TIMEOUT_SECONDS);
+
+        long now = FrameworkUtils.getCurrentStandardNano();
+        expiredNano = now - TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS * 10);
+        liveNano = now + TimeUnit.SECONDS.toNanos(TIMEOUT_SECONDS * 10);
+    }
+
+    @AfterClass
+    public void tearDown() {
+
+        MockInitialContextFactory.closeDatasource(DB_NAME);
+    }
+
+    @ObjectFactory
+    public IObjectFactory getObjectFactory() {
+
+        return new org.powermock.modules.testng.PowerMockObjectFactory();
+    }
+
+    @Test
+    public void testRemoveExpiredSessionDataInChunks() throws Exception {
+
+        for (int tenantId : new int[]{SUPER_TENANT_ID, TENANT_ID}) {
+            // Seven expired records in three chunks. The last record of the first chunk shares its time with the
+            // first two records of the second chunk.
+            long[] expiredTimes = {expiredNano, expiredNano + 1, expiredNano + 2, expiredNano + 2, expiredNano + 2,
+                    expiredNano + 3, expiredNano + 4};
+            for (int i = 0; i < expiredTimes.length; i++) {
+                insert("expired-" + tenantId + "-" + i, "STORE", expiredTimes[i], tenantId);
+            }
+            insert("live-" + tenantId + "-1", "STORE", liveNano, tenantId);
+            insert("live-" + tenantId + "-2", "STORE", liveNano, tenantId);
+        }
+
+        SessionDataCleanUpEngine cleanUpEngine = new SessionDataCleanUpEngine(DELETE_CHUNK_SIZE, 2, null);
+        long deletedCount = cleanUpEngine.removeExpiredSessionData(new HashSet<>(Arrays.asList(SUPER_TENANT_ID,
+                TENANT_ID)));
+
+        assertEquals(deletedCount, 14);
+        assertEquals(count("TIME_CREATED < " + liveNano), 0);
+        assertEquals(count("TENANT_ID = " + SUPER_TENANT_ID), 2);
+        assertEquals(count("TENANT_ID = " + TENANT_ID), 2);
+    }
+
+    @Test
+    public void testRemoveExpiredSessionDataOfChunkSize() throws Exception {
+
+        // As many expired records as a chunk, all created at the same time.
+        for (int i = 0; i < DELETE_CHUNK_SIZE; i++) {
+            insert("expired-" + i, "STORE", expiredNano, TENANT_ID);
+        }
+        insert("live", "STORE", liveNano, TENANT_ID);
+
+        SessionDataCleanUpEngine cleanUpEngine = new SessionDataCleanUpEngine(DELETE_CHUNK_SIZE, 2, null);
+        long deletedCount = cleanUpEngine.removeExpiredSessionData(new HashSet<>(Arrays.asList(TENANT_ID)));
+
+        assertEquals(deletedCount, DELETE_CHUNK_SIZE);
+        assertEquals(count("TENANT_ID = " + TENANT_ID), 1);
+    }
+
+    @Test
+    public void testRemoveExpiredOperationData() throws Exception {
+
+        // Four sessions deleted before the limit, over two chunks, with the chunk boundary shared by two sessions.
+        long[] deleteTimes = {expiredNano, expiredNano + 1, expiredNano + 2, expiredNano + 2};
+        for (int i = 0; i < deleteTimes.length; i++) {
+            insert("deleted-" + i, "STORE", deleteTimes[i] - 10, TENANT_ID);
+            insert("deleted-" + i, "STORE", deleteTimes[i] - 5, TENANT_ID);
+            insert("deleted-" + i, "DELETE", deleteTimes[i], TENANT_ID);
+        }
+        // A session deleted after the limit, and a session not deleted.
+        insert("recent", "STORE", expiredNano, TENANT_ID);
+        insert("recent", "DELETE", liveNano, TENANT_ID);
+        insert("active", "STORE", expiredNano, TENANT_ID);
+
+        SessionDataCleanUpEngine cleanUpEngine = new SessionDataCleanUpEngine(DELETE_CHUNK_SIZE, 2, null);
+        long deletedCount = cleanUpEngine.removeExpiredOperationData(expiredNano + 3);
+
+        assertEquals(deletedCount, 12);
+        assertEquals(count("SESSION_ID LIKE 'deleted-%'"), 0);
+        assertEquals(count("SESSION_ID = 'recent'"), 2);
+        assertEquals(count("SESSION_ID = 'active'"), 1);
+    }
+
+    private void insert(String sessionId, String operation, long timeCreated, int tenantId) throws Exception {
+
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement("INSERT INTO IDN_AUTH_SESSION_STORE " +
+                     "(SESSION_ID, SESSION_TYPE, OPERATION, TIME_CREATED, TENANT_ID) VALUES (?, ?, ?, ?, ?)")) {
+            statement.setString(1, sessionId);
+            statement.setString(2, SESSION_TYPE);
+            statement.setString(3, operation);
+            statement.setLong(4, timeCreated);
+            statement.setInt(5, tenantId);
+            statement.executeUpdate();
+        }
+    }
+
+    private int count(String condition) throws Exception {
+
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM IDN_AUTH_SESSION_STORE WHERE " +
+                     condition)) {
+            resultSet.next();
+            return resultSet.getInt(1);
+        }
+    }
+}
@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.application.authentication.framework.store;
+
+import org.apache.commons.dbcp.BasicDataSource;
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.core.classloader.annotations.SuppressStaticInitializationFor;
+import org.powermock.modules.testng.PowerMockTestCase;
+import org.powermock.reflect.Whitebox;
+import org.testng.IObjectFactory;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.ObjectFactory;
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.common.testng.MockInitialContextFactory;
+import org.wso2.carbon.identity.core.util.IdentityDatabaseUtil;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.Statement;
+import java.util.Arrays;
+
+import static org.powermock.api.mockito.PowerMockito.doAnswer;
+import static org.powermock.api.mockito.PowerMockito.spy;
+import static org.testng.Assert.assertEquals;
+
+/**
+ * Tests of persisting batches of session data operations. The static initializer of {@link SessionDataStore}, which
+ * starts the persistence threads, is not run.
+ */
+@PrepareForTest({IdentityDatabaseUtil.class})
+@SuppressStaticInitializationFor("org.wso2.carbon.identity.application.authentication.framework.store.SessionDataStore")
+public class SessionDataStoreTest extends PowerMockTestCase {
+
+    private static final String DB_NAME = "jdbc/WSO2IdentityDB";
+    private static final String SESSION_TYPE = "AppAuthFrameworkSessionContextCache";
+    private static final int TENANT_ID = 1;
+
+    private BasicDataSource dataSource;
+    private SessionDataStore sessionDataStore;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+
+        dataSource = MockInitialContextFactory.initializeDatasource(DB_NAME, getClass(),
+                new String[]{"dbScripts/h2.sql"});
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement()) {
+            statement.executeUpdate("DELETE FROM IDN_AUTH_SESSION_STORE");
+        }
+
+        spy(IdentityDatabaseUtil.class);
+        doAnswer(new Answer<Connection>() {
+            @Override
+            public Connection answer(InvocationOnMock invocation) throws Throwable {
+
+                Connection connection = dataSource.getConnection();
+                connection.setAutoCommit(false);
+                return connection;
+            }
+        }).when(IdentityDatabaseUtil.class, "getDBConnection");
+
+        sessionDataStore = Whitebox.newInstance(SessionDataStore.class);
+        Whitebox.setInternalState(sessionDataStore, "enablePersist", true);
+        Whitebox.setInternalState(sessionDataStore, "sqlInsertSTORE", "INSERT INTO IDN_AUTH_SESSION_STORE(" +
+                "SESSION_ID, SESSION_TYPE, OPERATION, SESSION_OBJECT, TIME_CREATED, TENANT_ID) VALUES (?,?,?,?,?,?)");
+        Whitebox.setInternalState(sessionDataStore, "sqlInsertDELETE", "INSERT INTO IDN_AUTH_SESSION_STORE(" +
+                "SESSION_ID, SESSION_TYPE,OPERATION, TIME_CREATED) VALUES (?,?,?,?)");
+        Whitebox.setInternalState(sessionDataStore, "sessionSerializer", new JavaSessionSerializer());
+    }
+
+    @AfterClass
+    public void tearDown() {
+
+        MockInitialContextFactory.closeDatasource(DB_NAME);
+    }
+
+    @ObjectFactory
+    public IObjectFactory getObjectFactory() {
+
+        return new org.powermock.modules.testng.PowerMockObjectFactory();
+    }
+
+    @Test
+    public void testPersistBatch() throws Exception {
+
+        sessionDataStore.persistSessionDataBatch(Arrays.asList(
+                new SessionContextDO("session1", SESSION_TYPE, "entry", 1L, TENANT_ID),
+                new SessionContextDO("session2", SESSION_TYPE, "entry", 2L, TENANT_ID),
+                new SessionContextDO("session1", SESSION_TYPE, null, 3L, TENANT_ID)));
+
+        assertEquals(count("OPERATION = 'STORE'"), 2);
+        assertEquals(count("OPERATION = 'DELETE' AND SESSION_ID = 'session1'"), 1);
+    }
+
+    @Test
+    public void testFailedOperationDoesNotLoseBatch() throws Exception {
+
+        // A STORE operation of the batch is already stored, so inserting it again violates the primary key.
+        try (Connection connection = dataSource.getConnection();
+             PreparedStatement statement = connection.prepareStatement("INSERT INTO IDN_AUTH_SESSION_STORE " +
+                     "(SESSION_ID, SESSION_TYPE, OPERATION, TIME_CREATED, TENANT_ID) VALUES (?, ?, ?, ?, ?)")) {
+            statement.setString(1, "duplicate");
+            statement.setString(2, SESSION_TYPE);
+            statement.setString(3, "STORE");
+            statement.setLong(4, 2L);
+            statement.setInt(5, TENANT_ID);
+            statement.executeUpdate();
+        }
+
+        sessionDataStore.persistSessionDataBatch(Arrays.asList(
+                new SessionContextDO("session1", SESSION_TYPE, "entry", 1L, TENANT_ID),
+                new SessionContextDO("duplicate", SESSION_TYPE, "entry", 2L, TENANT_ID),
+                new SessionContextDO("session2", SESSION_TYPE, "entry", 3L, TENANT_ID),
+                new SessionContextDO("session3", SESSION_TYPE, null, 4L, TENANT_ID)));
+
+        assertEquals(count("SESSION_ID = 'session1' AND OPERATION = 'STORE'"), 1);
+        assertEquals(count("SESSION_ID = 'session2' AND OPERATION = 'STORE'"), 1);
+        assertEquals(count("SESSION_ID = 'session3' AND OPERATION = 'DELETE'"), 1);
+        assertEquals(count("SESSION_ID = 'duplicate'"), 1);
+    }
+
+    private int count(String condition) throws Exception {
+
+        try (Connection connection = dataSource.getConnection();
+             Statement statement = connection.createStatement();
+             ResultSet resultSet = statement.executeQuery("SELECT COUNT(*) FROM IDN_AUTH_SESSION_STORE WHERE " +
+                     condition)) {
+            resultSet.next();
+            return resultSet.getInt(1);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.application.authentication.framework.store;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the encode and decode time of the session serializers, for the session and authentication contexts of a
+ * two step login. This is not a unit test and is not run by the build. Run it with the main method from the test
+ * class path, which also prints the payload size of each serializer.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SessionSerializerBenchmark {
+
+    private static final String[] SERIALIZER_TYPES = {"Java", "CompressedJava"};
+    private static final String[] CONTEXT_TYPES = {"SessionContext", "AuthenticationContext"};
+
+    @Param({"Java", "CompressedJava"})
+    private String serializerType;
+
+    @Param({"SessionContext", "AuthenticationContext"})
+    private String contextType;
+
+    private SessionSerializer serializer;
+    private Object context;
+    private byte[] payload;
+
+    @Setup
+    public void setUp() throws IOException {
+
+        serializer = createSerializer(serializerType);
+        context = createContext(contextType);
+        payload = serializer.serialize(context);
+    }
+
+    @Benchmark
+    public byte[] serialize() throws IOException {
+
+        return serializer.serialize(context);
+    }
+
+    @Benchmark
+    public Object deserialize() throws IOException, ClassNotFoundException {
+
+        return serializer.deserialize(new ByteArrayInputStream(payload));
+    }
+
+    public static void main(String[] args) throws IOException, RunnerException {
+
+        for (String contextType : CONTEXT_TYPES) {
+            for (String serializerType : SERIALIZER_TYPES) {
+                System.out.println(contextType + " " + serializerType + " payload size: " +
+                        createSerializer(serializerType).serialize(createContext(contextType)).length + " bytes");
+            }
+        }
+        new Runner(new OptionsBuilder().include(SessionSerializerBenchmark.class.getSimpleName()).build()).run();
+    }
+
+    private static SessionSerializer createSerializer(String serializerType) {
+
+        if ("Java".equals(serializerType)) {
+            return new JavaSessionSerializer();
+        }
+        return new CompressedJavaSessionSerializer();
+    }
+
+    private static Object createContext(String contextType) {
+
+        if ("SessionContext".equals(contextType)) {
+            return SessionContextTestData.createSessionContext();
+        }
+        return SessionContextTestData.createAuthenticationContext();
+    }
+}
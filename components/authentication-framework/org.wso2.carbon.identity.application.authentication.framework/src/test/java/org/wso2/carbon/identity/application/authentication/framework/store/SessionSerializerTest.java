@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.application.authentication.framework.store;
+
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.application.authentication.framework.context.AuthenticationContext;
+import org.wso2.carbon.identity.application.authentication.framework.context.SessionContext;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class SessionSerializerTest {
+
+    @DataProvider(name = "serializerProvider")
+    public Object[][] serializerProvider() {
+
+        return new Object[][]{
+                {new JavaSessionSerializer()},
+                {new CompressedJavaSessionSerializer()}
+        };
+    }
+
+    @Test(dataProvider = "serializerProvider")
+    public void testSessionContextRoundTrip(SessionSerializer serializer) throws Exception {
+
+        SessionContext sessionContext = SessionContextTestData.createSessionContext();
+        byte[] payload = serializer.serialize(sessionContext);
+        assertEquals(payload[0], serializer.getFormatId());
+
+        SessionContext readContext = (SessionContext) serializer.deserialize(new ByteArrayInputStream(payload));
+        assertEquals(readContext.getAuthenticatedSequences().keySet(),
+                sessionContext.getAuthenticatedSequences().keySet());
+        assertEquals(readContext.getAuthenticatedSequences().get("travelocity.com").getAuthenticatedUser()
+                .getUserAttributes().size(), 10);
+        assertEquals(readContext.getAuthenticatedIdPs().get("LOCAL").getAuthenticators().size(), 2);
+        assertEquals(readContext.isRememberMe(), sessionContext.isRememberMe());
+    }
+
+    @Test(dataProvider = "serializerProvider")
+    public void testAuthenticationContextRoundTrip(SessionSerializer serializer) throws Exception {
+
+        AuthenticationContext context = SessionContextTestData.createAuthenticationContext();
+        byte[] payload = serializer.serialize(context);
+        assertEquals(payload[0], serializer.getFormatId());
+
+        AuthenticationContext readContext = (AuthenticationContext) serializer.deserialize(
+                new ByteArrayInputStream(payload));
+        assertEquals(readContext.getContextIdentifier(), context.getContextIdentifier());
+        assertEquals(readContext.getCurrentStep(), context.getCurrentStep());
+        assertEquals(readContext.getSubject(), context.getSubject());
+        assertEquals(readContext.getSequenceConfig().getStepMap().size(), 2);
+    }
+
+    @Test
+    public void testCompressedPayloadIsSmaller() throws Exception {
+
+        SessionContext sessionContext = SessionContextTestData.createSessionContext();
+        int javaSize = new JavaSessionSerializer().serialize(sessionContext).length;
+        int compressedSize = new CompressedJavaSessionSerializer().serialize(sessionContext).length;
+
+        assertTrue(compressedSize < javaSize, "Compressed payload: " + compressedSize + " Java payload: " + javaSize);
+    }
+
+    @Test
+    public void testFormatIdsAreDistinct() {
+
+        assertEquals(JavaSessionSerializer.FORMAT_ID, (byte) 0xAC);
+        assertTrue(CompressedJavaSessionSerializer.FORMAT_ID != JavaSessionSerializer.FORMAT_ID);
+    }
+
+    @Test(expectedExceptions = IOException.class)
+    public void testInvalidCompressedPayloadHeader() throws Exception {
+
+        byte[] payload = new JavaSessionSerializer().serialize("value");
+        new CompressedJavaSessionSerializer().deserialize(new ByteArrayInputStream(payload));
+    }
+}
@@ -29,6 +29,7 @@ import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 
 /**
  * Class to manipulate thrift session info in database.
@@ -222,6 +223,44 @@ public class DBThriftSessionDAO implements ThriftSessionDAO {
         }
     }
 
+    @Override
+    public void updateLastAccessTimes(Map<String, Long> lastAccessTimes) throws IdentityException {
+        Connection connection = null;
+        PreparedStatement prepStmt = null;
+
+        if (lastAccessTimes.isEmpty()) {
+            return;
+        }
+        try {
+            connection = ThriftAuthenticationDatabaseUtil.getDBConnection();
+            prepStmt = connection.prepareStatement(ThriftAuthenticationConstants.UPDATE_LAST_MODIFIED_TIME_SQL);
+
+            for (Map.Entry<String, Long> lastAccessTime : lastAccessTimes.entrySet()) {
+                prepStmt.setLong(1, lastAccessTime.getValue());
+                prepStmt.setString(2, lastAccessTime.getKey());
+                prepStmt.addBatch();
+            }
+
+            prepStmt.executeBatch();
+            if (log.isDebugEnabled()) {
+                log.debug("Updated last access time of " + lastAccessTimes.size() + " Thrift Sessions");
+            }
+            connection.commit();
+
+        } catch (AuthenticationException e) {
+            String errorMsg = ERROR_WHEN_GETTING_AN_IDENTITY_PERSISTENCE_STORE_INSTANCE;
+            log.error(errorMsg, e);
+            throw IdentityException.error(errorMsg, e);
+        } catch (SQLException e) {
+            ThriftAuthenticationDatabaseUtil.rollBack(connection);
+            log.error(ERROR_WHEN_EXECUTING_THE_SQL + " " + ThriftAuthenticationConstants.UPDATE_LAST_MODIFIED_TIME_SQL);
+            log.error(e.getMessage(), e);
+            throw IdentityException.error("Error updating the Thrift Sessions.");
+        } finally {
+            ThriftAuthenticationDatabaseUtil.closeAllConnections(connection, null, prepStmt);
+        }
+    }
+
     @Override
     public ThriftSession getSession(String sessionId) throws IdentityException {
         Connection connection = null;
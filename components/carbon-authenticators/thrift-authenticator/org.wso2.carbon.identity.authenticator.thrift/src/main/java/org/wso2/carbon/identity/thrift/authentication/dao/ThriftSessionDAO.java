@@ -19,6 +19,7 @@ import org.wso2.carbon.identity.base.IdentityException;
 import org.wso2.carbon.utils.ThriftSession;
 
 import java.util.List;
+import java.util.Map;
 
 /**
  * Interface to manipulate thrift session info in database.
@@ -36,6 +37,21 @@ public interface ThriftSessionDAO {
     void updateLastAccessTime(String sessionId, long lastAccessTime)
             throws IdentityException;
 
+    /**
+     * Updates the last access times of a set of sessions. Sessions which no longer exist are ignored.
+     *
+     * @param lastAccessTimes last access times keyed by the session id
+     * @throws IdentityException if the update fails
+     */
+    default void updateLastAccessTimes(Map<String, Long> lastAccessTimes) throws IdentityException {
+
+        for (Map.Entry<String, Long> lastAccessTime : lastAccessTimes.entrySet()) {
+            if (isSessionExisting(lastAccessTime.getKey())) {
+                updateLastAccessTime(lastAccessTime.getKey(), lastAccessTime.getValue());
+            }
+        }
+    }
+
     ThriftSession getSession(String sessionId) throws IdentityException;
 
     ThriftSessionDAO getInstance();
@@ -66,6 +66,8 @@ public class ThriftAuthenticationServiceComponent {
 
     private TCPThriftAuthenticationService TCPThriftAuthenticationService;
 
+    private ThriftAuthenticatorServiceImpl thriftAuthenticatorServiceImpl;
+
     public static int readPortOffset() {
         return CarbonUtils.getPortFromServerConfig(ThriftAuthenticationConstants.CARBON_CONFIG_PORT_OFFSET_NODE) + 1;
     }
@@ -91,8 +93,20 @@ public class ThriftAuthenticationServiceComponent {
                 log.error("Error in loading ThriftSessionTimeout hence using the default: 30min, ", throwable);
                 thriftSessionTimeout = 60000L * 30;
             }
+            // configure the interval of writing session last access times to the session store in ms
+            long lastAccessTimeFlushInterval = 60000L;
+            OMElement lastAccessTimeFlushIntervalElement = ThriftAuthenticationConfigParser.getInstance()
+                    .getConfigElement("LastAccessTimeFlushInterval");
+            if (lastAccessTimeFlushIntervalElement != null) {
+                try {
+                    lastAccessTimeFlushInterval = Long.parseLong(lastAccessTimeFlushIntervalElement.getText().trim());
+                } catch (NumberFormatException e) {
+                    log.error("Error in loading LastAccessTimeFlushInterval hence using the default: 1min, ", e);
+                }
+            }
             // get an instance of this to register as an osgi service
-            ThriftAuthenticatorServiceImpl thriftAuthenticatorServiceImpl = new ThriftAuthenticatorServiceImpl(getRealmServiceInstance(), thriftSessionDAO, thriftSessionTimeout);
+            thriftAuthenticatorServiceImpl = new ThriftAuthenticatorServiceImpl(getRealmServiceInstance(),
+                    thriftSessionDAO, thriftSessionTimeout, lastAccessTimeFlushInterval);
             // register as an osgi service
             thriftAuthenticationService = compCtx.getBundleContext().registerService(ThriftAuthenticatorService.class.getName(), thriftAuthenticatorServiceImpl, null);
             // register AuthenticatorServiceImpl as a thrift service.
@@ -110,6 +124,9 @@ public class ThriftAuthenticationServiceComponent {
         if (TCPThriftAuthenticationService != null) {
             TCPThriftAuthenticationService.stop();
         }
+        if (thriftAuthenticatorServiceImpl != null) {
+            thriftAuthenticatorServiceImpl.shutdown();
+        }
         compCtx.getBundleContext().ungetService(thriftAuthenticationService.getReference());
     }
 
@@ -34,10 +34,15 @@ import org.wso2.carbon.utils.ServerConstants;
 import org.wso2.carbon.utils.ThriftSession;
 import org.wso2.carbon.utils.multitenancy.MultitenantUtils;
 
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 
 /**
  * This is a utility class that performs authentication related functionality
@@ -52,11 +57,54 @@ public class ThriftAuthenticatorServiceImpl implements ThriftAuthenticatorServic
     private Map<String, ThriftSession> authenticatedSessions =
             new ConcurrentHashMap<String, ThriftSession>();
     private ThriftSessionDAO thriftSessionDAO;
+    // last access times which are not yet written to the session store, keyed by the session id
+    private Map<String, Long> pendingLastAccessTimes = new ConcurrentHashMap<String, Long>();
+    private ScheduledExecutorService lastAccessTimeFlusher;
+    private volatile boolean sessionsPopulated;
 
     public ThriftAuthenticatorServiceImpl(RealmService realmService, ThriftSessionDAO thriftSessionDAO, long thriftSessionTimeOut) {
+        this(realmService, thriftSessionDAO, thriftSessionTimeOut, 0);
+    }
+
+    /**
+     * @param realmService                realm service
+     * @param thriftSessionDAO            session store
+     * @param thriftSessionTimeOut        session timeout in milli seconds
+     * @param lastAccessTimeFlushInterval interval in milli seconds at which the last access times of the sessions are
+     *                                    written to the session store. If not positive, the last access time is
+     *                                    written on each access.
+     */
+    public ThriftAuthenticatorServiceImpl(RealmService realmService, ThriftSessionDAO thriftSessionDAO,
+                                          long thriftSessionTimeOut, long lastAccessTimeFlushInterval) {
         this.realmService = realmService;
         setThriftSessionTimeOut(thriftSessionTimeOut);
         this.thriftSessionDAO = thriftSessionDAO.getInstance();
+        if (lastAccessTimeFlushInterval > 0) {
+            lastAccessTimeFlusher = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(Runnable runnable) {
+                    Thread thread = new Thread(runnable, "ThriftSessionLastAccessTimeFlusher");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+            lastAccessTimeFlusher.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    flushLastAccessTimes();
+                }
+            }, lastAccessTimeFlushInterval, lastAccessTimeFlushInterval, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Writes the pending last access times to the session store and stops the periodic writes.
+     */
+    public void shutdown() {
+        if (lastAccessTimeFlusher != null) {
+            lastAccessTimeFlusher.shutdown();
+        }
+        flushLastAccessTimes();
     }
 
     private void addThriftSession(ThriftSession thriftSession) throws IdentityException {
@@ -70,6 +118,7 @@ public class ThriftAuthenticatorServiceImpl implements ThriftAuthenticatorServic
     private void removeThriftSession(String thriftSessionId) throws IdentityException {
         //remove from cache
         authenticatedSessions.remove(thriftSessionId);
+        pendingLastAccessTimes.remove(thriftSessionId);
         //remove from db
         ThriftSessionDAO sessionDAO = this.thriftSessionDAO.getInstance();
         sessionDAO.removeSession(thriftSessionId);
@@ -167,8 +216,8 @@ public class ThriftAuthenticatorServiceImpl implements ThriftAuthenticatorServic
         if (sessionId == null) {
             return false;
         }
-        //if cache empty, try to populate from db
-        if (authenticatedSessions.isEmpty()) {
+        //populate the cache from db once, so that the sessions created before a restart are served from the cache
+        if (!sessionsPopulated) {
             try {
                 populateSessionsFromDB();
             } catch (IdentityException e) {
@@ -179,77 +228,73 @@ public class ThriftAuthenticatorServiceImpl implements ThriftAuthenticatorServic
                 log.error(error, e);
             }
         }
-        //if cache not empty, check if session id existing and valid, if so, update last access time and return it.
-        if (!authenticatedSessions.isEmpty()) {
-            ThriftSessionDAO sessionDAO = this.thriftSessionDAO.getInstance();
-            if (authenticatedSessions.containsKey(sessionId)) {
-                ThriftSession thriftSessionInCache = authenticatedSessions.get(sessionId);
-                if (isSessionValid(thriftSessionInCache)) {
-                    //update the last access time in cache and d
-                    long lastAccessTime = System.currentTimeMillis();
-                    (authenticatedSessions.get(sessionId)).setLastAccess(lastAccessTime);
-                    try {
-                        //if carbon context in the thrift session is not initialized, should do that now.
-                        onSuccessLogin(thriftSessionInCache);
-                        //put the thrift session filled with carbon context info
-                        authenticatedSessions.put(sessionId, thriftSessionInCache);
-                        sessionDAO.updateLastAccessTime(sessionId, lastAccessTime);
-                    } catch (IdentityException e) {
-                        String error = "Error while updating last access time in DB";
-                        log.error(error, e);
-                    } catch (Exception e) {
-                        String error = "Error in calling on success admin login for the thrift session.";
-                        log.error(error, e);
-                    }
-                    return true;
-                } else {
-                    //if not valid in cache, check if valid in db
-                    try {
-                        ThriftSession thriftSession = sessionDAO.getSession(sessionId);
-                        if (isSessionValid(thriftSession)) {
-                            //update cache and return true
-                            thriftSession.setLastAccess(System.currentTimeMillis());
-                            onSuccessLogin(thriftSession);
-                            authenticatedSessions.put(thriftSession.getSessionId(), thriftSession);
-                            sessionDAO.updateLastAccessTime(sessionId, thriftSession.getLastAccess());
-                            return true;
-                        } else {
-                            //remove from cache and db and return false
-                            removeThriftSession(sessionId);
-                            return false;
-                        }
-                    } catch (IdentityException e) {
-                        String error = "Error while obtaining thrift session from database.";
-                        log.error(error, e);
-                    } catch (Exception e) {
-                        String error = "Error in calling on success admin login for the thrift session.";
-                        log.error(error, e);
-                    }
+        //check if session id existing and valid in cache, if so, update last access time and return it.
+        ThriftSessionDAO sessionDAO = this.thriftSessionDAO.getInstance();
+        ThriftSession thriftSessionInCache = authenticatedSessions.get(sessionId);
+        if (thriftSessionInCache != null) {
+            if (isSessionValid(thriftSessionInCache)) {
+                //update the last access time in cache, it is written to db later
+                long lastAccessTime = System.currentTimeMillis();
+                thriftSessionInCache.setLastAccess(lastAccessTime);
+                try {
+                    //if carbon context in the thrift session is not initialized, should do that now.
+                    onSuccessLogin(thriftSessionInCache);
+                    updateLastAccessTime(sessionDAO, sessionId, lastAccessTime);
+                } catch (IdentityException e) {
+                    String error = "Error while updating last access time in DB";
+                    log.error(error, e);
+                } catch (Exception e) {
+                    String error = "Error in calling on success admin login for the thrift session.";
+                    log.error(error, e);
                 }
+                return true;
             } else {
-                //if session id not found, check in db as well, if exist in db, populate cache
+                //if not valid in cache, check if valid in db
                 try {
-                    if (sessionDAO.isSessionExisting(sessionId)) {
-                        ThriftSession thriftSession = sessionDAO.getSession(sessionId);
-                        if (isSessionValid(thriftSession)) {
-                            thriftSession.setLastAccess(System.currentTimeMillis());
-                            onSuccessLogin(thriftSession);
-                            authenticatedSessions.put(thriftSession.getSessionId(), thriftSession);
-                            sessionDAO.updateLastAccessTime(sessionId, thriftSession.getLastAccess());
-                            return true;
-                        } else {
-                            sessionDAO.removeSession(sessionId);
-                            return false;
-                        }
+                    ThriftSession thriftSession = sessionDAO.getSession(sessionId);
+                    if (isSessionValid(thriftSession)) {
+                        //update cache and return true
+                        thriftSession.setLastAccess(System.currentTimeMillis());
+                        onSuccessLogin(thriftSession);
+                        authenticatedSessions.put(thriftSession.getSessionId(), thriftSession);
+                        updateLastAccessTime(sessionDAO, sessionId, thriftSession.getLastAccess());
+                        return true;
+                    } else {
+                        //remove from cache and db and return false
+                        removeThriftSession(sessionId);
+                        return false;
                     }
                 } catch (IdentityException e) {
                     String error = "Error while obtaining thrift session from database.";
                     log.error(error, e);
                 } catch (Exception e) {
-                    String error = "Error in calling on success admin login for the thrift session obtained from DB.";
+                    String error = "Error in calling on success admin login for the thrift session.";
                     log.error(error, e);
                 }
             }
+        } else {
+            //if session id not found, check in db as well, if exist in db, populate cache
+            try {
+                if (sessionDAO.isSessionExisting(sessionId)) {
+                    ThriftSession thriftSession = sessionDAO.getSession(sessionId);
+                    if (isSessionValid(thriftSession)) {
+                        thriftSession.setLastAccess(System.currentTimeMillis());
+                        onSuccessLogin(thriftSession);
+                        authenticatedSessions.put(thriftSession.getSessionId(), thriftSession);
+                        updateLastAccessTime(sessionDAO, sessionId, thriftSession.getLastAccess());
+                        return true;
+                    } else {
+                        sessionDAO.removeSession(sessionId);
+                        return false;
+                    }
+                }
+            } catch (IdentityException e) {
+                String error = "Error while obtaining thrift session from database.";
+                log.error(error, e);
+            } catch (Exception e) {
+                String error = "Error in calling on success admin login for the thrift session obtained from DB.";
+                log.error(error, e);
+            }
         }
 
         return false;
@@ -269,20 +314,64 @@ public class ThriftAuthenticatorServiceImpl implements ThriftAuthenticatorServic
         return (System.currentTimeMillis() - thriftSession.getLastAccess()) < getThriftSessionTimeOut();
     }
 
-    private void populateSessionsFromDB() throws Exception {
-        //first clear the cache
-        if (!authenticatedSessions.isEmpty()) {
-            authenticatedSessions.clear();
+    private synchronized void populateSessionsFromDB() throws Exception {
+        if (sessionsPopulated) {
+            return;
         }
         //get all sessions from db
         ThriftSessionDAO sessionDAO = this.thriftSessionDAO.getInstance();
         List<ThriftSession> thriftSessions = sessionDAO.getAllSessions();
-        //add to cache
+        //add to cache, without replacing the sessions added to the cache meanwhile
         if (CollectionUtils.isNotEmpty(thriftSessions)) {
             for (ThriftSession thriftSession : thriftSessions) {
-                authenticatedSessions.put(thriftSession.getSessionId(), thriftSession);
+                if (!authenticatedSessions.containsKey(thriftSession.getSessionId())) {
+                    authenticatedSessions.put(thriftSession.getSessionId(), thriftSession);
+                }
             }
         }
+        sessionsPopulated = true;
+    }
+
+    private void updateLastAccessTime(ThriftSessionDAO sessionDAO, String sessionId, long lastAccessTime)
+            throws IdentityException {
+        if (lastAccessTimeFlusher == null) {
+            sessionDAO.updateLastAccessTime(sessionId, lastAccessTime);
+        } else {
+            pendingLastAccessTimes.put(sessionId, lastAccessTime);
+        }
+    }
+
+    private void flushLastAccessTimes() {
+        if (pendingLastAccessTimes.isEmpty()) {
+            return;
+        }
+        Map<String, Long> lastAccessTimes = new HashMap<String, Long>();
+        for (String sessionId : pendingLastAccessTimes.keySet()) {
+            Long lastAccessTime = pendingLastAccessTimes.remove(sessionId);
+            if (lastAccessTime != null) {
+                lastAccessTimes.put(sessionId, lastAccessTime);
+            }
+        }
+        try {
+            this.thriftSessionDAO.getInstance().updateLastAccessTimes(lastAccessTimes);
+        } catch (Throwable e) {
+            log.error("Error while updating last access time of " + lastAccessTimes.size() + " thrift sessions in " +
+                    "DB", e);
+            //keep the failed updates for the next attempt, unless the session is accessed again meanwhile
+            for (Map.Entry<String, Long> lastAccessTime : lastAccessTimes.entrySet()) {
+                if (authenticatedSessions.containsKey(lastAccessTime.getKey())) {
+                    putIfNewer(lastAccessTime.getKey(), lastAccessTime.getValue());
+                }
+            }
+        }
+    }
+
+    private void putIfNewer(String sessionId, long lastAccessTime) {
+        Long current = pendingLastAccessTimes.putIfAbsent(sessionId, lastAccessTime);
+        while (current != null && current < lastAccessTime &&
+                !pendingLastAccessTimes.replace(sessionId, current, lastAccessTime)) {
+            current = pendingLastAccessTimes.putIfAbsent(sessionId, lastAccessTime);
+        }
     }
 
     private void callOnSuccessAdminLogin(ThriftSession session) throws Exception {
@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.thrift.authentication.internal;
+
+import org.mockito.ArgumentCaptor;
+import org.powermock.reflect.Whitebox;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.wso2.carbon.base.MultitenantConstants;
+import org.wso2.carbon.context.PrivilegedCarbonContext;
+import org.wso2.carbon.identity.thrift.authentication.dao.ThriftSessionDAO;
+import org.wso2.carbon.utils.ServerConstants;
+import org.wso2.carbon.utils.ThriftSession;
+
+import java.nio.file.Paths;
+import java.util.Map;
+
+import static org.mockito.Matchers.anyLong;
+import static org.mockito.Matchers.anyMapOf;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class ThriftAuthenticatorServiceImplTest {
+
+    private static final String SESSION_ID = "session1";
+    private static final String OTHER_SESSION_ID = "session2";
+    private static final long SESSION_TIMEOUT = 3600000L;
+    // Long enough for the periodic flush not to run during a test.
+    private static final long FLUSH_INTERVAL = 3600000L;
+
+    private ThriftSessionDAO sessionDAO;
+    private ThriftAuthenticatorServiceImpl authenticatorService;
+
+    @BeforeClass
+    public void setUpClass() {
+
+        System.setProperty("carbon.home", Paths.get(System.getProperty("user.dir"), "target").toString());
+    }
+
+    @BeforeMethod
+    public void setUp() {
+
+        PrivilegedCarbonContext.startTenantFlow();
+        sessionDAO = mock(ThriftSessionDAO.class);
+        when(sessionDAO.getInstance()).thenReturn(sessionDAO);
+    }
+
+    @AfterMethod
+    public void tearDown() {
+
+        if (authenticatorService != null) {
+            authenticatorService.shutdown();
+            authenticatorService = null;
+        }
+        PrivilegedCarbonContext.endTenantFlow();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testRepeatedAccessesCoalesced() throws Exception {
+
+        authenticatorService = createAuthenticatorService(FLUSH_INTERVAL, SESSION_ID, OTHER_SESSION_ID);
+
+        for (int i = 0; i < 3; i++) {
+            assertTrue(authenticatorService.isAuthenticated(SESSION_ID));
+        }
+        assertTrue(authenticatorService.isAuthenticated(OTHER_SESSION_ID));
+        verify(sessionDAO, never()).updateLastAccessTime(anyString(), anyLong());
+        verify(sessionDAO, never()).updateLastAccessTimes(anyMapOf(String.class, Long.class));
+
+        Whitebox.invokeMethod(authenticatorService, "flushLastAccessTimes");
+
+        ArgumentCaptor<Map> lastAccessTimes = ArgumentCaptor.forClass(Map.class);
+        verify(sessionDAO, times(1)).updateLastAccessTimes(lastAccessTimes.capture());
+        assertEquals(lastAccessTimes.getValue().size(), 2);
+        assertEquals(lastAccessTimes.getValue().get(SESSION_ID),
+                authenticatorService.getSessionInfo(SESSION_ID).getLastAccess());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testPendingAccessesFlushedOnShutdown() throws Exception {
+
+        authenticatorService = createAuthenticatorService(FLUSH_INTERVAL, SESSION_ID);
+        assertTrue(authenticatorService.isAuthenticated(SESSION_ID));
+
+        authenticatorService.shutdown();
+
+        ArgumentCaptor<Map> lastAccessTimes = ArgumentCaptor.forClass(Map.class);
+        verify(sessionDAO, times(1)).updateLastAccessTimes(lastAccessTimes.capture());
+        assertTrue(lastAccessTimes.getValue().containsKey(SESSION_ID));
+
+        // Nothing is pending after the shutdown, so a later flush does not write again.
+        authenticatorService.shutdown();
+        verify(sessionDAO, times(1)).updateLastAccessTimes(anyMapOf(String.class, Long.class));
+        authenticatorService = null;
+    }
+
+    @Test
+    public void testWriteThroughWithoutFlushInterval() throws Exception {
+
+        authenticatorService = createAuthenticatorService(0, SESSION_ID);
+
+        assertTrue(authenticatorService.isAuthenticated(SESSION_ID));
+        assertTrue(authenticatorService.isAuthenticated(SESSION_ID));
+
+        verify(sessionDAO, times(2)).updateLastAccessTime(anyString(), anyLong());
+    }
+
+    private ThriftAuthenticatorServiceImpl createAuthenticatorService(long flushInterval, String... sessionIds)
+            throws Exception {
+
+        ThriftAuthenticatorServiceImpl service = new ThriftAuthenticatorServiceImpl(null, sessionDAO,
+                SESSION_TIMEOUT, flushInterval);
+        // The sessions are only kept in memory, as if they were created by this node.
+        Whitebox.setInternalState(service, "sessionsPopulated", true);
+        Map<String, ThriftSession> authenticatedSessions = Whitebox.getInternalState(service,
+                "authenticatedSessions");
+        for (String sessionId : sessionIds) {
+            authenticatedSessions.put(sessionId, createSession(sessionId));
+        }
+        return service;
+    }
+
+    private static ThriftSession createSession(String sessionId) {
+
+        ThriftSession session = new ThriftSession();
+        session.setSessionId(sessionId);
+        session.setUserName("admin");
+        session.setCreatedAt(System.currentTimeMillis());
+        session.setLastAccess(System.currentTimeMillis());
+        session.setAttribute(ServerConstants.AUTHENTICATION_SERVICE_USERNAME, "admin");
+        session.setAttribute(MultitenantConstants.TENANT_DOMAIN, MultitenantConstants.SUPER_TENANT_DOMAIN_NAME);
+        session.setAttribute(MultitenantConstants.TENANT_ID, MultitenantConstants.SUPER_TENANT_ID);
+        return session;
+    }
+}
@@ -0,0 +1,175 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.identity.claim.metadata.mgt;
+
+import org.apache.commons.lang.StringUtils;
+import org.wso2.carbon.identity.claim.metadata.mgt.model.AttributeMapping;
+import org.wso2.carbon.identity.claim.metadata.mgt.model.ExternalClaim;
+import org.wso2.carbon.identity.claim.metadata.mgt.model.LocalClaim;
+import org.wso2.carbon.identity.claim.metadata.mgt.util.ClaimConstants;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Immutable, per tenant lookup index of the claim metadata used to resolve claim URIs without scanning the claim
+ * lists. Claim URIs are matched case insensitively and, as with a linear scan, the first matching claim wins when
+ * the same URI appears more than once.
+ */
+public class ClaimMetadataIndex {
+
+    private final List<LocalClaim> localClaims;
+    private final String externalClaimsVersion;
+
+    private final Map<String, LocalClaim> localClaimsByURI;
+    private final Map<String, LocalClaim> mappedLocalClaimsByExternalURI;
+    private final Map<String, String> attributeNamesByDomainAndURI;
+    private final Map<String, String> defaultAttributeNamesByURI;
+
+    /**
+     * Builds the index.
+     *
+     * @param localClaims           local claims of the tenant
+     * @param externalClaims        external claims of the tenant, in the order of their dialects
+     * @param externalClaimsVersion version of the external claims the index is built from
+     */
+    public ClaimMetadataIndex(List<LocalClaim> localClaims, List<ExternalClaim> externalClaims,
+                              String externalClaimsVersion) {
+
+        this.localClaims = localClaims;
+        this.externalClaimsVersion = externalClaimsVersion;
+
+        Map<String, LocalClaim> localClaimMap = new HashMap<>();
+        Map<String, String> attributeNameMap = new HashMap<>();
+        Map<String, String> defaultAttributeNameMap = new HashMap<>();
+        for (LocalClaim localClaim : localClaims) {
+            String claimURI = toKey(localClaim.getClaimURI());
+            if (localClaimMap.containsKey(claimURI)) {
+                continue;
+            }
+            localClaimMap.put(claimURI, localClaim);
+
+            for (AttributeMapping attributeMapping : localClaim.getMappedAttributes()) {
+                String attributeKey = getAttributeKey(attributeMapping.getUserStoreDomain(), claimURI);
+                if (StringUtils.isNotBlank(attributeMapping.getAttributeName()) &&
+                        !attributeNameMap.containsKey(attributeKey)) {
+                    attributeNameMap.put(attributeKey, attributeMapping.getAttributeName());
+                }
+            }
+            String defaultAttribute = localClaim.getClaimProperty(ClaimConstants.DEFAULT_ATTRIBUTE);
+            if (StringUtils.isNotBlank(defaultAttribute)) {
+                defaultAttributeNameMap.put(claimURI, defaultAttribute);
+            }
+        }
+
+        Map<String, LocalClaim> externalClaimMap = new HashMap<>();
+        for (ExternalClaim externalClaim : externalClaims) {
+            String claimURI = toKey(externalClaim.getClaimURI());
+            LocalClaim mappedLocalClaim = localClaimMap.get(toKey(externalClaim.getMappedLocalClaim()));
+            // External claims which are not mapped to an existing local claim can not be resolved.
+            if (mappedLocalClaim != null && !externalClaimMap.containsKey(claimURI)) {
+                externalClaimMap.put(claimURI, mappedLocalClaim);
+            }
+        }
+
+        this.localClaimsByURI = Collections.unmodifiableMap(localClaimMap);
+        this.mappedLocalClaimsByExternalURI = Collections.unmodifiableMap(externalClaimMap);
+        this.attributeNamesByDomainAndURI = Collections.unmodifiableMap(attributeNameMap);
+        this.defaultAttributeNamesByURI = Collections.unmodifiableMap(defaultAttributeNameMap);
+    }
+
+    /**
+     * Checks whether the index is built from the given local claim list and external claim version.
+     *
+     * @param localClaims           current local claim list of the tenant
+     * @param externalClaimsVersion current version of the external claims of the tenant
+     * @return true if the index is up to date
+     */
+    public boolean isCurrent(List<LocalClaim> localClaims, String externalClaimsVersion) {
+
+        return this.localClaims == localClaims && StringUtils.equals(this.externalClaimsVersion,
+                externalClaimsVersion);
+    }
+
+    /**
+     * Returns the local claim with the given URI.
+     *
+     * @param claimURI local claim URI
+     * @return local claim or null if there is no such local claim
+     */
+    public LocalClaim getLocalClaim(String claimURI) {
+
+        return localClaimsByURI.get(toKey(claimURI));
+    }
+
+    /**
+     * Returns the local claim the given external claim is mapped to.
+     *
+     * @param claimURI external claim URI
+     * @return mapped local claim or null if there is no such external claim
+     */
+    public LocalClaim getMappedLocalClaim(String claimURI) {
+
+        return mappedLocalClaimsByExternalURI.get(toKey(claimURI));
+    }
+
+    /**
+     * Resolves the given claim URI as a local claim URI first and then as an external claim URI.
+     *
+     * @param claimURI local or external claim URI
+     * @return resolved local claim or null if the claim URI can not be resolved
+     */
+    public LocalClaim resolveLocalClaim(String claimURI) {
+
+        LocalClaim localClaim = getLocalClaim(claimURI);
+        if (localClaim == null) {
+            localClaim = getMappedLocalClaim(claimURI);
+        }
+        return localClaim;
+    }
+
+    /**
+     * Returns the attribute name of a local claim for the given user store domain, falling back to the
+     * {@link ClaimConstants#DEFAULT_ATTRIBUTE} property of the claim.
+     *
+     * @param domainName    user store domain name
+     * @param localClaimURI local claim URI
+     * @return attribute name or null if the claim is neither mapped for the domain nor has a default attribute
+     */
+    public String getAttributeName(String domainName, String localClaimURI) {
+
+        String claimURI = toKey(localClaimURI);
+        String attributeName = attributeNamesByDomainAndURI.get(getAttributeKey(domainName.toUpperCase(), claimURI));
+        if (attributeName == null) {
+            attributeName = defaultAttributeNamesByURI.get(claimURI);
+        }
+        return attributeName;
+    }
+
+    private static String getAttributeKey(String domainName, String claimURIKey) {
+
+        return domainName + "\n" + claimURIKey;
+    }
+
+    private static String toKey(String claimURI) {
+
+        return claimURI == null ? null : claimURI.toLowerCase(Locale.ENGLISH);
+    }
+}
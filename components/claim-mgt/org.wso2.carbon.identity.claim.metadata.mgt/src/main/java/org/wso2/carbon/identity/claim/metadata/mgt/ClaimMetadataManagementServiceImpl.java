@@ -19,6 +19,7 @@ package org.wso2.carbon.identity.claim.metadata.mgt;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.identity.claim.metadata.mgt.cache.ExternalClaimInvalidationCache;
 import org.wso2.carbon.identity.claim.metadata.mgt.dao.CacheBackedExternalClaimDAO;
 import org.wso2.carbon.identity.claim.metadata.mgt.dao.CacheBackedLocalClaimDAO;
 import org.wso2.carbon.identity.claim.metadata.mgt.dao.ClaimDialectDAO;
@@ -76,6 +77,7 @@ public class ClaimMetadataManagementServiceImpl implements ClaimMetadataManageme
         // Add listener
 
         this.claimDialectDAO.addClaimDialect(claimDialect, tenantId);
+        ExternalClaimInvalidationCache.getInstance().invalidate(tenantId);
 
         // Add listener
 
@@ -98,6 +100,7 @@ public class ClaimMetadataManagementServiceImpl implements ClaimMetadataManageme
         // Add listener
 
         this.claimDialectDAO.renameClaimDialect(oldClaimDialect, newClaimDialect, tenantId);
+        ExternalClaimInvalidationCache.getInstance().invalidate(tenantId);
 
         // Add listener
 
@@ -118,6 +121,7 @@ public class ClaimMetadataManagementServiceImpl implements ClaimMetadataManageme
         // Add listener
 
         this.claimDialectDAO.removeClaimDialect(claimDialect, tenantId);
+        ExternalClaimInvalidationCache.getInstance().invalidate(tenantId);
 
         // Add listener
 
@@ -19,6 +19,7 @@ package org.wso2.carbon.identity.claim.metadata.mgt;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.identity.claim.metadata.mgt.cache.ExternalClaimInvalidationCache;
 import org.wso2.carbon.identity.claim.metadata.mgt.dao.CacheBackedExternalClaimDAO;
 import org.wso2.carbon.identity.claim.metadata.mgt.dao.CacheBackedLocalClaimDAO;
 import org.wso2.carbon.identity.claim.metadata.mgt.dao.ClaimDialectDAO;
@@ -46,6 +47,7 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * Default implementation of {@link org.wso2.carbon.identity.claim.metadata.mgt.ClaimMetadataStore} interface.
@@ -53,6 +55,7 @@ import java.util.Set;
 public class DefaultClaimMetadataStore implements ClaimMetadataStore {
 
     private static final Log log = LogFactory.getLog(DefaultClaimMetadataStore.class);
+    private static final Map<Integer, ClaimMetadataIndex> claimMetadataIndexes = new ConcurrentHashMap<>();
 
     private ClaimDialectDAO claimDialectDAO = new ClaimDialectDAO();
     private CacheBackedLocalClaimDAO localClaimDAO = new CacheBackedLocalClaimDAO(new LocalClaimDAO());
@@ -263,45 +266,15 @@ public class DefaultClaimMetadataStore implements ClaimMetadataStore {
         }
 
         try {
-            // Add listener
+            ClaimMetadataIndex claimMetadataIndex = getClaimMetadataIndex();
+            LocalClaim localClaim = claimMetadataIndex.resolveLocalClaim(claimURI);
 
-            List<LocalClaim> localClaimList = this.localClaimDAO.getLocalClaims(tenantId);
-
-            // Add listener
-
-            for (LocalClaim localClaim : localClaimList) {
-                if (localClaim.getClaimURI().equalsIgnoreCase(claimURI)) {
-                    return getMappedAttribute(domainName, localClaim, tenantId);
-                }
-            }
-
-
-            // For backward compatibility
-            List<ClaimDialect> claimDialects = claimDialectDAO.getClaimDialects(tenantId);
-
-            for (ClaimDialect claimDialect : claimDialects) {
-                if (ClaimConstants.LOCAL_CLAIM_DIALECT_URI.equalsIgnoreCase(claimDialect.getClaimDialectURI())) {
-                    continue;
-                }
-
-                List<ExternalClaim> externalClaims = externalClaimDAO.getExternalClaims(claimDialect
-                        .getClaimDialectURI(), tenantId);
-
-                for (ExternalClaim externalClaim : externalClaims) {
-                    if (externalClaim.getClaimURI().equalsIgnoreCase(claimURI)) {
-
-                        for (LocalClaim localClaim : localClaimList) {
-                            if (localClaim.getClaimURI().equalsIgnoreCase(externalClaim.getMappedLocalClaim())) {
-                                if (log.isDebugEnabled()) {
-                                    log.debug("Picking mapped attribute for external claim : " + externalClaim
-                                            .getClaimURI() + " using mapped local claim : " + localClaim.getClaimURI());
-                                }
-                                return getMappedAttribute(domainName, localClaim, tenantId);
-                            }
-                        }
-
-                    }
+            if (localClaim != null) {
+                if (log.isDebugEnabled() && !localClaim.getClaimURI().equalsIgnoreCase(claimURI)) {
+                    log.debug("Picking mapped attribute for external claim : " + claimURI + " using mapped local " +
+                            "claim : " + localClaim.getClaimURI());
                 }
+                return getMappedAttribute(domainName, localClaim, claimMetadataIndex, tenantId);
             }
 
             if (log.isDebugEnabled()) {
@@ -316,27 +289,48 @@ public class DefaultClaimMetadataStore implements ClaimMetadataStore {
         }
     }
 
-    private String getMappedAttribute(String domainName, LocalClaim localClaim, int tenantId) throws
-            UserStoreException {
+    /**
+     * Returns the claim metadata index of the tenant. The index is rebuilt from the cached claim lists when the
+     * local claim list of the tenant is reloaded or when the external claims or claim dialects of the tenant change.
+     */
+    private ClaimMetadataIndex getClaimMetadataIndex() throws ClaimMetadataException {
 
-        String mappedAttribute = localClaim.getMappedAttribute(domainName);
+        // Read the version first so that a change made while the index is built triggers another rebuild.
+        String externalClaimsVersion = ExternalClaimInvalidationCache.getInstance().getVersion(tenantId);
+        List<LocalClaim> localClaims = localClaimDAO.getLocalClaims(tenantId);
 
-        if (StringUtils.isNotBlank(mappedAttribute)) {
-            if (log.isDebugEnabled()) {
-                log.debug("Assigned mapped attribute : " + mappedAttribute + " from user store domain : " + domainName +
-                        " for claim : " + localClaim.getClaimURI() + " in tenant : " + tenantId);
-            }
+        ClaimMetadataIndex claimMetadataIndex = claimMetadataIndexes.get(tenantId);
+        if (claimMetadataIndex != null && claimMetadataIndex.isCurrent(localClaims, externalClaimsVersion)) {
+            return claimMetadataIndex;
+        }
 
-            return mappedAttribute;
+        if (log.isDebugEnabled()) {
+            log.debug("Building claim metadata index for tenant : " + tenantId);
         }
 
-        mappedAttribute = localClaim.getClaimProperty(ClaimConstants.DEFAULT_ATTRIBUTE);
+        List<ExternalClaim> externalClaims = new ArrayList<>();
+        for (ClaimDialect claimDialect : claimDialectDAO.getClaimDialects(tenantId)) {
+            if (ClaimConstants.LOCAL_CLAIM_DIALECT_URI.equalsIgnoreCase(claimDialect.getClaimDialectURI())) {
+                continue;
+            }
+            externalClaims.addAll(externalClaimDAO.getExternalClaims(claimDialect.getClaimDialectURI(), tenantId));
+        }
 
-        if (StringUtils.isNotBlank(mappedAttribute)) {
+        claimMetadataIndex = new ClaimMetadataIndex(localClaims, externalClaims, externalClaimsVersion);
+        claimMetadataIndexes.put(tenantId, claimMetadataIndex);
+        return claimMetadataIndex;
+    }
 
+    private String getMappedAttribute(String domainName, LocalClaim localClaim, ClaimMetadataIndex claimMetadataIndex,
+                                      int tenantId) throws UserStoreException {
+
+        // Resolves the attribute mapped for the domain, or else the default attribute of the claim.
+        String mappedAttribute = claimMetadataIndex.getAttributeName(domainName, localClaim.getClaimURI());
+
+        if (StringUtils.isNotBlank(mappedAttribute)) {
             if (log.isDebugEnabled()) {
-                log.debug("Assigned mapped attribute : " + mappedAttribute + " from " + ClaimConstants.DEFAULT_ATTRIBUTE +
-                        " property for claim : " + localClaim.getClaimURI() + " in tenant : " + tenantId);
+                log.debug("Assigned mapped attribute : " + mappedAttribute + " for user store domain : " + domainName +
+                        " for claim : " + localClaim.getClaimURI() + " in tenant : " + tenantId);
             }
 
             return mappedAttribute;
@@ -376,38 +370,12 @@ public class DefaultClaimMetadataStore implements ClaimMetadataStore {
     @Deprecated
     public Claim getClaim(String claimURI) throws UserStoreException {
         try {
-            List<LocalClaim> localClaims = localClaimDAO.getLocalClaims(this.tenantId);
-
-            for (LocalClaim localClaim : localClaims) {
-                if (localClaim.getClaimURI().equalsIgnoreCase(claimURI)) {
-                    ClaimMapping claimMapping = ClaimMetadataUtils.convertLocalClaimToClaimMapping(localClaim, this
-                            .tenantId);
-                    return claimMapping.getClaim();
-                }
-            }
-
-            // For backward compatibility
-            List<ClaimDialect> claimDialects = claimDialectDAO.getClaimDialects(tenantId);
-
-            for (ClaimDialect claimDialect : claimDialects) {
-                if (ClaimConstants.LOCAL_CLAIM_DIALECT_URI.equalsIgnoreCase(claimDialect.getClaimDialectURI())) {
-                    continue;
-                }
-
-                List<ExternalClaim> externalClaims = externalClaimDAO.getExternalClaims(claimDialect
-                        .getClaimDialectURI(), tenantId);
-
-                for (ExternalClaim externalClaim : externalClaims) {
-                    if (externalClaim.getClaimURI().equalsIgnoreCase(claimURI)) {
-
-                        for (LocalClaim localClaim : localClaims) {
-                            ClaimMapping claimMapping = ClaimMetadataUtils.convertLocalClaimToClaimMapping
-                                    (localClaim, this.tenantId);
-                            return claimMapping.getClaim();
-                        }
+            LocalClaim localClaim = getClaimMetadataIndex().resolveLocalClaim(claimURI);
 
-                    }
-                }
+            if (localClaim != null) {
+                ClaimMapping claimMapping = ClaimMetadataUtils.convertLocalClaimToClaimMapping(localClaim, this
+                        .tenantId);
+                return claimMapping.getClaim();
             }
 
             log.error("Returning NULL for getClaim() for claim URI : " + claimURI);
@@ -421,40 +389,12 @@ public class DefaultClaimMetadataStore implements ClaimMetadataStore {
     @Deprecated
     public ClaimMapping getClaimMapping(String claimURI) throws UserStoreException {
         try {
-            List<LocalClaim> localClaims = localClaimDAO.getLocalClaims(this.tenantId);
+            LocalClaim localClaim = getClaimMetadataIndex().resolveLocalClaim(claimURI);
 
-            for (LocalClaim localClaim : localClaims) {
-                if (localClaim.getClaimURI().equalsIgnoreCase(claimURI)) {
-                    ClaimMapping claimMapping = ClaimMetadataUtils.convertLocalClaimToClaimMapping(localClaim, this
-                            .tenantId);
-                    return claimMapping;
-                }
-            }
-
-            // For backward compatibility
-            List<ClaimDialect> claimDialects = claimDialectDAO.getClaimDialects(tenantId);
-
-            for (ClaimDialect claimDialect : claimDialects) {
-                if (ClaimConstants.LOCAL_CLAIM_DIALECT_URI.equalsIgnoreCase(claimDialect.getClaimDialectURI())) {
-                    continue;
-                }
-
-                List<ExternalClaim> externalClaims = externalClaimDAO.getExternalClaims(claimDialect
-                        .getClaimDialectURI(), tenantId);
-
-                for (ExternalClaim externalClaim : externalClaims) {
-                    if (externalClaim.getClaimURI().equalsIgnoreCase(claimURI)) {
-
-                        for (LocalClaim localClaim : localClaims) {
-                            if (localClaim.getClaimURI().equalsIgnoreCase(externalClaim.getMappedLocalClaim())) {
-                                ClaimMapping claimMapping = ClaimMetadataUtils.convertLocalClaimToClaimMapping
-                                        (localClaim, this.tenantId);
-                                return claimMapping;
-                            }
-                        }
-
-                    }
-                }
+            if (localClaim != null) {
+                ClaimMapping claimMapping = ClaimMetadataUtils.convertLocalClaimToClaimMapping(localClaim, this
+                        .tenantId);
+                return claimMapping;
             }
 
             if (log.isDebugEnabled()) {
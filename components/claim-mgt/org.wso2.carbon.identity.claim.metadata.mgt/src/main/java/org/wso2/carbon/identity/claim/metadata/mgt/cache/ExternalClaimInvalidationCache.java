@@ -35,6 +35,8 @@ public class ExternalClaimInvalidationCache {
     private static final String CACHE_NAME = "ExternalClaimInvalidationCache";
     private static final BaseCache<ExternalClaimCacheKey, String> invalidationCache = new
             BaseCache<>(CACHE_NAME);
+    private static final String TENANT_CACHE_NAME = "ExternalClaimTenantInvalidationCache";
+    private static final BaseCache<Integer, String> tenantInvalidationCache = new BaseCache<>(TENANT_CACHE_NAME);
 
     private static final ExternalClaimInvalidationCache instance = new ExternalClaimInvalidationCache();
     private Map<ExternalClaimCacheKey, List<ExternalClaim>> externalClaims = new HashMap<>();
@@ -73,6 +75,36 @@ public class ExternalClaimInvalidationCache {
 
         localUUID = newUUID;
         invalidationCache.addToCache(new ExternalClaimCacheKey(externalDialectURI, tenantId), localUUID);
+        invalidate(tenantId);
+    }
+
+    /**
+     * Changes the version of the external claims of a tenant, without invalidating the external claim list of any
+     * dialect. Used when the set of claim dialects of the tenant changes.
+     *
+     * @param tenantId tenant id
+     */
+    public void invalidate(int tenantId) {
+
+        String newVersion = UUID.randomUUID().toString();
+
+        if (log.isDebugEnabled()) {
+            log.debug("Changing external claim version to: " + newVersion + " in tenant: " + tenantId);
+        }
+
+        tenantInvalidationCache.addToCache(tenantId, newVersion);
+    }
+
+    /**
+     * Returns the version of the external claims of a tenant, which changes whenever an external claim or a claim
+     * dialect of the tenant is changed in any node.
+     *
+     * @param tenantId tenant id
+     * @return current version or null if no change has been recorded
+     */
+    public String getVersion(int tenantId) {
+
+        return tenantInvalidationCache.getValueFromCache(tenantId);
     }
 
     public List<ExternalClaim> getExternalClaims(ExternalClaimCacheKey key) {
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.wso2.carbon.identity.claim.metadata.mgt;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.claim.metadata.mgt.model.AttributeMapping;
+import org.wso2.carbon.identity.claim.metadata.mgt.model.ExternalClaim;
+import org.wso2.carbon.identity.claim.metadata.mgt.model.LocalClaim;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Covers unit tests for ClaimMetadataIndex class
+ */
+public class ClaimMetadataIndexTest {
+
+    private static final String EMAIL_CLAIM = "http://wso2.org/claims/emailaddress";
+    private static final String USERNAME_CLAIM = "http://wso2.org/claims/username";
+
+    List<LocalClaim> localClaims;
+    List<ExternalClaim> externalClaims;
+    ClaimMetadataIndex claimMetadataIndex;
+
+    @BeforeClass
+    public void setUp() {
+
+        List<AttributeMapping> emailMappings = new ArrayList<>();
+        emailMappings.add(new AttributeMapping("PRIMARY", "mail"));
+        emailMappings.add(new AttributeMapping("SECONDARY", "email"));
+        LocalClaim emailClaim = new LocalClaim(EMAIL_CLAIM, emailMappings, new HashMap<String, String>());
+
+        LocalClaim usernameClaim = new LocalClaim(USERNAME_CLAIM);
+
+        localClaims = Arrays.asList(emailClaim, usernameClaim);
+        externalClaims = Arrays.asList(
+                new ExternalClaim("urn:scim:schemas:core:1.0", "urn:scim:schemas:core:1.0:emails", EMAIL_CLAIM),
+                new ExternalClaim("http://schema.openid.net/2007/05/claims",
+                        "http://schema.openid.net/2007/05/claims/unmapped", "http://wso2.org/claims/unknown"),
+                new ExternalClaim("http://axschema.org", "urn:scim:schemas:core:1.0:emails", USERNAME_CLAIM));
+        claimMetadataIndex = new ClaimMetadataIndex(localClaims, externalClaims, "version1");
+    }
+
+    @Test
+    public void testResolveLocalClaim() {
+
+        Assert.assertSame(claimMetadataIndex.getLocalClaim(EMAIL_CLAIM.toUpperCase()), localClaims.get(0));
+        Assert.assertSame(claimMetadataIndex.resolveLocalClaim(USERNAME_CLAIM), localClaims.get(1));
+        Assert.assertNull(claimMetadataIndex.getLocalClaim("urn:scim:schemas:core:1.0:emails"));
+    }
+
+    @Test
+    public void testResolveExternalClaim() {
+
+        // The first external claim with a given URI wins, as with a scan through the dialects.
+        Assert.assertSame(claimMetadataIndex.resolveLocalClaim("urn:scim:schemas:core:1.0:emails"),
+                localClaims.get(0));
+        Assert.assertNull(claimMetadataIndex.resolveLocalClaim("http://schema.openid.net/2007/05/claims/unmapped"));
+        Assert.assertNull(claimMetadataIndex.resolveLocalClaim("http://wso2.org/claims/unknown"));
+    }
+
+    @Test
+    public void testGetAttributeName() {
+
+        Assert.assertEquals(claimMetadataIndex.getAttributeName("primary", EMAIL_CLAIM), "mail");
+        Assert.assertEquals(claimMetadataIndex.getAttributeName("SECONDARY", EMAIL_CLAIM), "email");
+        Assert.assertNull(claimMetadataIndex.getAttributeName("OTHER", EMAIL_CLAIM));
+    }
+
+    @Test
+    public void testIsCurrent() {
+
+        Assert.assertTrue(claimMetadataIndex.isCurrent(localClaims, "version1"));
+        Assert.assertFalse(claimMetadataIndex.isCurrent(localClaims, "version2"));
+        Assert.assertFalse(claimMetadataIndex.isCurrent(new ArrayList<>(localClaims), "version1"));
+    }
+}
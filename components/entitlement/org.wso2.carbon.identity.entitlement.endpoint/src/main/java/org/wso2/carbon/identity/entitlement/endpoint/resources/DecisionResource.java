@@ -19,6 +19,8 @@
 package org.wso2.carbon.identity.entitlement.endpoint.resources;
 
 import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.stream.JsonWriter;
 import io.swagger.annotations.Api;
 import io.swagger.annotations.ApiOperation;
 import io.swagger.annotations.ApiParam;
@@ -50,6 +52,13 @@ import javax.ws.rs.POST;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
 import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.StreamingOutput;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
 
 /**
  * Entry point class for the REST API end points
@@ -133,6 +142,77 @@ public class DecisionResource extends AbstractResource {
 
     }
 
+    /**
+     * API endpoint for evaluating a batch of XACML JSON requests
+     *
+     * @return JSON array of the results, in the order of the requests
+     */
+    @POST
+    @Path("pdp-batch")
+    @Produces(MediaType.APPLICATION_JSON)
+    @Consumes(MediaType.APPLICATION_JSON)
+    @ApiOperation(value = "Get responses by evaluating a JSON array of JSON XACML requests", response = String.class)
+    @ApiResponses(value = {
+            @ApiResponse(code = 200, message = "JSON array of XACML JSON Responses"),
+            @ApiResponse(code = 40010, message = EntitlementEndpointConstants.ERROR_UNAUTHORIZED_MESSAGE,
+                    response = ExceptionBean.class),
+            @ApiResponse(code = 40020, message = EntitlementEndpointConstants.ERROR_REQUEST_PARSE_MESSAGE,
+                    response = ExceptionBean.class),
+            @ApiResponse(code = 40010, message = EntitlementEndpointConstants.ERROR_RESPONSE_READ_MESSAGE,
+                    response = ExceptionBean.class)
+    })
+    public StreamingOutput getBatchDecision(@ApiParam(value = "Request Media Type", required = true)
+                                            @HeaderParam(EntitlementEndpointConstants.ACCEPT_HEADER) String format,
+                                            @ApiParam(value = "Authentication Type", required = true)
+                                            @HeaderParam(EntitlementEndpointConstants.AUTHENTICATION_TYPE_HEADER)
+                                                    String authMechanism,
+                                            @ApiParam(value = "Add HTTP Basic Authorization", required = true)
+                                            @HeaderParam(EntitlementEndpointConstants.AUTHORIZATION_HEADER)
+                                                    String authorization,
+                                            @ApiParam(value = "Response Media Type", required = true)
+                                            @HeaderParam(EntitlementEndpointConstants.CONTENT_TYPE_HEADER)
+                                                    String contentType,
+                                            @ApiParam(value = "JSON array of XACML JSON Requests", required = true)
+                                                    String xacmlRequests) throws Exception {
+
+        if (log.isDebugEnabled()) {
+            log.debug("recieved :" + xacmlRequests);
+        }
+        EntitlementEngine entitlementEngine = EntitlementEngine.getInstance();
+
+        List<String> requests = JSONRequestParser.splitBatch(xacmlRequests);
+        if (requests.size() > entitlementEngine.getMaxBatchDecisionRequests()) {
+            throw new RequestParseException("Batch request exceeds the limit of " +
+                    entitlementEngine.getMaxBatchDecisionRequests() + " requests");
+        }
+        List<RequestCtx> requestCtxs = new ArrayList<>(requests.size());
+        for (String request : requests) {
+            requestCtxs.add(JSONRequestParser.parse(request));
+        }
+
+        List<ResponseCtx> responseCtxs = entitlementEngine.evaluate(requestCtxs, requests);
+        final List<JsonObject> responses = new ArrayList<>(responseCtxs.size());
+        for (ResponseCtx responseCtx : responseCtxs) {
+            responses.add(JSONResponseWriter.write(responseCtx));
+        }
+
+        // The responses are written to the output stream one by one, instead of being built into a single string.
+        return new StreamingOutput() {
+
+            @Override
+            public void write(OutputStream outputStream) throws IOException {
+
+                JsonWriter writer = new JsonWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+                writer.beginArray();
+                for (JsonObject response : responses) {
+                    gson.toJson(response, writer);
+                }
+                writer.endArray();
+                writer.flush();
+            }
+        };
+    }
+
     /**
      * API endpoint for evaluating policy by attributes as queries
      *
@@ -137,6 +137,35 @@ public class JSONRequestParser {
 
     }
 
+    /**
+     * Static method that will split a batch of XACML JSON Requests, given as a JSON array, into the requests
+     *
+     * @param jsonRequests <code>String</code> with the JSON array of the requests
+     * @return <code>List</code> of the JSON requests, in the order of the array
+     * @throws RequestParseException <code>{@link RequestParseException}</code>
+     */
+    public static List<String> splitBatch(String jsonRequests) throws RequestParseException {
+
+        JsonElement requestsElement;
+        try {
+            requestsElement = gson.fromJson(jsonRequests, JsonElement.class);
+        } catch (JsonParseException e) {
+            throw new RequestParseException("Error in JSON batch request String", e);
+        }
+        if (requestsElement == null || !requestsElement.isJsonArray()) {
+            throw new RequestParseException("Batch request should be a JSON array of requests");
+        }
+
+        List<String> requests = new ArrayList<>();
+        for (JsonElement requestElement : requestsElement.getAsJsonArray()) {
+            if (!requestElement.isJsonObject() || !requestElement.getAsJsonObject().has("Request")) {
+                throw new RequestParseException("Batch request should only contain JSON requests");
+            }
+            requests.add(requestElement.toString());
+        }
+        return requests;
+    }
+
     /**
      * This is to seperate JSON to attributes
      * @param jsonAttribute - the map of category string and the JSON Element
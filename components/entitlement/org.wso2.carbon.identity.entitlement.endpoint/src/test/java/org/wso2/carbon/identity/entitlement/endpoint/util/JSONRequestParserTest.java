@@ -22,8 +22,12 @@ import com.google.gson.JsonParseException;
 import org.testng.Assert;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
+import org.wso2.carbon.identity.entitlement.endpoint.exception.RequestParseException;
 import org.wso2.carbon.identity.testutil.IdentityBaseTest;
 
+import java.util.Arrays;
+import java.util.List;
+
 public class JSONRequestParserTest extends IdentityBaseTest {
 
     @DataProvider(name = "BuildRequest")
@@ -84,6 +88,17 @@ public class JSONRequestParserTest extends IdentityBaseTest {
         };
     }
 
+    @DataProvider(name = "BuildInvalidBatchRequest")
+    public Object[][] buildInvalidBatchRequest() {
+
+        return new Object[][] {
+                {null},
+                {"{\"Request\": {}}"},
+                {"[{\"Request\": {}}, \"Request\"]"},
+                {"[{\"Request\": {}"}
+        };
+    }
+
     @Test(dataProvider = "BuildRequest")
     public void testParseNonEmptyRequests(String request) throws Exception {
 
@@ -99,4 +114,23 @@ public class JSONRequestParserTest extends IdentityBaseTest {
                 " The passed request is :" + request );
     }
 
+    @Test
+    public void testSplitBatch() throws Exception {
+
+        String firstRequest = "{\"Request\":{\"AccessSubject\":{\"Attribute\":[{\"AttributeId\":\"subject-id\"," +
+                "\"Value\":\"sampleName\"}]}}}";
+        String secondRequest = "{\"Request\":{\"Resource\":{\"Attribute\":[{\"AttributeId\":\"resource-id\"," +
+                "\"Value\":\"index.jsp\"}]}}}";
+
+        List<String> requests = JSONRequestParser.splitBatch("[" + firstRequest + ",\n " + secondRequest + "]");
+        Assert.assertEquals(requests, Arrays.asList(firstRequest, secondRequest),
+                "The requests of the batch are not split in order.");
+        Assert.assertNotNull(JSONRequestParser.parse(requests.get(0)), "The split request could not be parsed.");
+    }
+
+    @Test(dataProvider = "BuildInvalidBatchRequest", expectedExceptions = RequestParseException.class)
+    public void testSplitInvalidBatch(String request) throws Exception {
+
+        JSONRequestParser.splitBatch(request);
+    }
 }
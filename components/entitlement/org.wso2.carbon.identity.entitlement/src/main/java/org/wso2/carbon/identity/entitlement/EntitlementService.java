@@ -19,8 +19,10 @@ package org.wso2.carbon.identity.entitlement;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.wso2.balana.ctx.AbstractRequestCtx;
 import org.wso2.carbon.identity.entitlement.dto.AttributeDTO;
 import org.wso2.carbon.identity.entitlement.dto.EntitledResultSetDTO;
+import org.wso2.carbon.identity.entitlement.pdp.EntitlementDecision;
 import org.wso2.carbon.identity.entitlement.pdp.EntitlementEngine;
 import org.wso2.carbon.identity.entitlement.policy.search.PolicySearch;
 import org.wso2.carbon.identity.entitlement.wsxacml.XACMLHandler;
@@ -54,6 +56,27 @@ public class EntitlementService implements XACMLHandler {
         }
     }
 
+    /**
+     * Evaluates the given XACML request context in process and returns the decision. Unlike
+     * {@link #getDecision(String)}, the request and the response are neither encoded nor parsed. This is not
+     * exposed as a web service operation.
+     *
+     * @param requestCtx XACML request context, e.g. created with
+     *                   {@link EntitlementUtil#createRequestContextByCategory(java.util.List)}
+     * @return decision of the PDP
+     * @throws EntitlementException throws
+     */
+    public EntitlementDecision getDecisionByRequestContext(AbstractRequestCtx requestCtx) throws EntitlementException {
+
+        try {
+            EntitlementEngine entitlementEngine = EntitlementEngine.getInstance();
+            return new EntitlementDecision(entitlementEngine.evaluateRequestContext(requestCtx));
+        } catch (Exception e) {
+            log.error("Error occurred while evaluating XACML request", e);
+            throw new EntitlementException("Error occurred while evaluating XACML request");
+        }
+    }
+
     /**
      * Evaluates the given XACML request and returns the Response that the EntitlementEngine will
      * hand back to the PEP. Here PEP does not need construct the XACML request before sending it to the
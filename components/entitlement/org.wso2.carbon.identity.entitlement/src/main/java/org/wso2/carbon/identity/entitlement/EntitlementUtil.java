@@ -89,6 +89,7 @@ import java.net.URISyntaxException;
 import java.text.DateFormat;
 import java.text.ParseException;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
@@ -200,6 +201,36 @@ public class EntitlementUtil {
         return new org.wso2.balana.ctx.xacml3.RequestCtx(attributesSet, null);
     }
 
+    /**
+     * This creates the XACML 3.0 Request context from AttributeDTO object model, with a single Attributes element
+     * per category as in a XACML request built from the same attributes. Attribute values with the same category
+     * and attribute id are evaluated as a bag.
+     *
+     * @param attributeDTOs AttributeDTO objects as List
+     * @return XACML 3.0 Request context
+     */
+    public static AbstractRequestCtx createRequestContextByCategory(List<AttributeDTO> attributeDTOs) {
+
+        Map<URI, Set<Attribute>> attributesByCategory = new LinkedHashMap<URI, Set<Attribute>>();
+        for (AttributeDTO DTO : attributeDTOs) {
+            Attributes attributes = getAttributes(DTO);
+            if (attributes != null) {
+                Set<Attribute> categoryAttributes = attributesByCategory.get(attributes.getCategory());
+                if (categoryAttributes == null) {
+                    categoryAttributes = new HashSet<Attribute>();
+                    attributesByCategory.put(attributes.getCategory(), categoryAttributes);
+                }
+                categoryAttributes.addAll(attributes.getAttributes());
+            }
+        }
+
+        Set<Attributes> attributesSet = new HashSet<Attributes>();
+        for (Map.Entry<URI, Set<Attribute>> entry : attributesByCategory.entrySet()) {
+            attributesSet.add(new Attributes(entry.getKey(), entry.getValue()));
+        }
+        return new org.wso2.balana.ctx.xacml3.RequestCtx(attributesSet, null);
+    }
+
     /**
      * Validates the given policy XML files against the standard XACML policies.
      *
@@ -239,6 +239,14 @@ public class PDPConstants {
 
     public static final int MAX_NO_OF_IN_MEMORY_POLICIES = 10;
 
+    public static final String POLICY_LOADER_THREAD_POOL_SIZE = "PDP.PolicyLoader.ThreadPoolSize";
+
+    public static final String BATCH_DECISION_THREAD_POOL_SIZE = "PDP.BatchDecision.ThreadPoolSize";
+
+    public static final String BATCH_DECISION_MAX_REQUESTS = "PDP.BatchDecision.MaxRequests";
+
+    public static final int DEFAULT_BATCH_DECISION_MAX_REQUESTS = 100;
+
     public static final String DECISION_CACHING = "PDP.DecisionCaching.Enable";
 
     public static final String DECISION_CACHING_INTERVAL = "PDP.DecisionCaching.CachingInterval";
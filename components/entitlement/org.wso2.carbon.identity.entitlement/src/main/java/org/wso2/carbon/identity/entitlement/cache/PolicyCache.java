@@ -31,6 +31,7 @@ import org.wso2.carbon.identity.entitlement.internal.EntitlementConfigHolder;
 import java.util.Collection;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * PolicyCache is to manage cluster level distributed cache for the status of the policy file. This is not distribute
@@ -42,7 +43,7 @@ public class PolicyCache extends EntitlementBaseCache<IdentityCacheKey, PolicySt
     private static final Object lock = new Object();
     private int myHashCode;
     private static final int INVALID_STATE = 1;
-    private static Map<Integer,Integer> cacheInvalidationState = new HashMap<Integer, Integer>();
+    private static Map<Integer,Integer> cacheInvalidationState = new ConcurrentHashMap<Integer, Integer>();
     private static Map<Integer,Map<String,PolicyStatus>> localPolicyCacheMap = new HashMap<Integer,Map<String,PolicyStatus>>();
 
     /**
@@ -142,17 +143,11 @@ public class PolicyCache extends EntitlementBaseCache<IdentityCacheKey, PolicySt
     public boolean isInvalidate() {
 
         int tenantId = CarbonContext.getThreadLocalCarbonContext().getTenantId();
-        int state = 0;
+        // A missing invalidation state means the cache is valid. The state is read without a lock, as it is checked
+        // on every decision.
+        Integer state = cacheInvalidationState.get(tenantId);
 
-        synchronized (cacheInvalidationState) {
-            if (cacheInvalidationState.get(tenantId) != null) {
-                state = cacheInvalidationState.get(tenantId);
-            } else {
-                // we ignore the case where the cache invalidation state is not present.This means the cache is valid.
-            }
-        }
-
-        boolean isInvalid = (state == INVALID_STATE);
+        boolean isInvalid = (state != null && state == INVALID_STATE);
         if (log.isDebugEnabled()) {
             log.debug("Check the invalidation state of all cache, isCacheInvalid: " + isInvalid);
         }
@@ -45,7 +45,7 @@ public class SimpleDecisionCache extends EntitlementBaseCache<IdentityCacheKey,
         IdentityCacheKey cacheKey = new IdentityCacheKey(tenantId, key);
         Object entry = getValueFromCache(cacheKey);
         if (entry != null) {
-            return (String) entry;
+            return entry;
         }
         return null;
     }
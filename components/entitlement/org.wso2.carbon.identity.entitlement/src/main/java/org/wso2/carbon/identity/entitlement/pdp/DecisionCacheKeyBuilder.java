@@ -0,0 +1,262 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.entitlement.pdp;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.w3c.dom.Attr;
+import org.w3c.dom.Element;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.wso2.carbon.identity.core.util.IdentityUtil;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.helpers.DefaultHandler;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+/**
+ * Builds the decision cache keys of XACML requests. The key of an XML request is the SHA-256 hash of the canonical
+ * form of its parsed attribute set, so that requests which only differ in formatting, namespace prefixes, or the
+ * order of their attributes and attribute values share a cached decision.
+ * <p>
+ * Only the children of the XACML category and attribute elements are ordered. The order of the categories and of
+ * the multiple decision references is kept, as it decides the order of the results, and the content of a category
+ * is kept as it is, as it is evaluated by XPath. A request which is not XML, such as a JSON request, is used as the
+ * key as it is.
+ */
+final class DecisionCacheKeyBuilder {
+
+    private static final Log log = LogFactory.getLog(DecisionCacheKeyBuilder.class);
+
+    private static final String XACML_NAMESPACE_PREFIX = "urn:oasis:names:tc:xacml:";
+    private static final String DIGEST_ALGORITHM = "SHA-256";
+    private static final String CANONICAL_KEY_PREFIX = "C:";
+    private static final String RAW_KEY_PREFIX = "R:";
+    private static final int MAX_RECENT_KEYS = 1000;
+    private static final int MAX_RECENT_REQUEST_LENGTH = 8192;
+
+    /**
+     * Keys of the recent requests, so that a repeated request is not parsed and hashed again.
+     */
+    private static final Map<String, String> recentKeys = Collections.synchronizedMap(
+            new LinkedHashMap<String, String>(16, 0.75f, true) {
+
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+
+                    return size() > MAX_RECENT_KEYS;
+                }
+            });
+
+    /**
+     * Local names of the XACML 2.0 and 3.0 elements whose children are unordered.
+     */
+    private static final Set<String> UNORDERED_ELEMENTS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            "Attributes", "Attribute", "Subject", "Resource", "Action", "Environment")));
+
+    /**
+     * Local names of the XACML elements which hold the content of a category.
+     */
+    private static final Set<String> CONTENT_ELEMENTS = Collections.unmodifiableSet(new HashSet<>(Arrays.asList(
+            "Content", "ResourceContent")));
+
+    private static final ThreadLocal<DocumentBuilder> builders = new ThreadLocal<DocumentBuilder>() {
+
+        @Override
+        protected DocumentBuilder initialValue() {
+
+            DocumentBuilderFactory factory = IdentityUtil.getSecuredDocumentBuilderFactory();
+            factory.setIgnoringComments(true);
+            try {
+                DocumentBuilder builder = factory.newDocumentBuilder();
+                // Reports the parse errors by the exception only, instead of printing them to the console.
+                builder.setErrorHandler(new DefaultHandler());
+                return builder;
+            } catch (ParserConfigurationException e) {
+                throw new IllegalStateException("Error while creating the document builder of the decision cache", e);
+            }
+        }
+    };
+
+    private DecisionCacheKeyBuilder() {
+
+    }
+
+    /**
+     * Returns the decision cache key of a XACML request.
+     *
+     * @param xacmlRequest XACML request as String
+     * @return hash of the canonical form of the request, or the request itself if it could not be parsed as XML
+     */
+    static String getKey(String xacmlRequest) {
+
+        if (!isXml(xacmlRequest)) {
+            return RAW_KEY_PREFIX + xacmlRequest;
+        }
+        boolean isRecentRequest = xacmlRequest.length() <= MAX_RECENT_REQUEST_LENGTH;
+        if (isRecentRequest) {
+            String key = recentKeys.get(xacmlRequest);
+            if (key != null) {
+                return key;
+            }
+        }
+        String key = buildKey(xacmlRequest);
+        if (isRecentRequest) {
+            recentKeys.put(xacmlRequest, key);
+        }
+        return key;
+    }
+
+    private static String buildKey(String xacmlRequest) {
+
+        Element request;
+        try {
+            DocumentBuilder builder = builders.get();
+            try {
+                request = builder.parse(new InputSource(new StringReader(xacmlRequest))).getDocumentElement();
+            } finally {
+                builder.reset();
+            }
+        } catch (SAXException | IOException e) {
+            if (log.isDebugEnabled()) {
+                log.debug("XACML request could not be parsed to build the decision cache key. The request is used " +
+                        "as the key as it is.", e);
+            }
+            return RAW_KEY_PREFIX + xacmlRequest;
+        }
+
+        StringBuilder canonicalForm = new StringBuilder(xacmlRequest.length());
+        appendCanonicalForm(request, false, canonicalForm);
+        return CANONICAL_KEY_PREFIX + hash(canonicalForm.toString());
+    }
+
+    /**
+     * Checks whether the request starts as a XML document, without copying the request.
+     */
+    private static boolean isXml(String xacmlRequest) {
+
+        if (xacmlRequest == null) {
+            return false;
+        }
+        for (int i = 0; i < xacmlRequest.length(); i++) {
+            char c = xacmlRequest.charAt(i);
+            if (!Character.isWhitespace(c)) {
+                return c == '<';
+            }
+        }
+        return false;
+    }
+
+    private static void appendCanonicalForm(Element element, boolean isContent, StringBuilder canonicalForm) {
+
+        String localName = element.getLocalName() != null ? element.getLocalName() : element.getNodeName();
+        String namespace = element.getNamespaceURI() != null ? element.getNamespaceURI() : "";
+        boolean isXacmlElement = !isContent && namespace.startsWith(XACML_NAMESPACE_PREFIX);
+
+        canonicalForm.append('<');
+        appendQualifiedName(namespace, localName, canonicalForm);
+
+        // Attributes are unordered, and the namespace declarations are dropped as the names are qualified.
+        List<String> attributes = new ArrayList<>();
+        NamedNodeMap attributeNodes = element.getAttributes();
+        for (int i = 0; i < attributeNodes.getLength(); i++) {
+            Attr attribute = (Attr) attributeNodes.item(i);
+            if (XMLConstants.XMLNS_ATTRIBUTE_NS_URI.equals(attribute.getNamespaceURI())) {
+                continue;
+            }
+            StringBuilder canonicalAttribute = new StringBuilder();
+            String attributeName = attribute.getLocalName() != null ? attribute.getLocalName() : attribute.getName();
+            appendQualifiedName(attribute.getNamespaceURI() != null ? attribute.getNamespaceURI() : "",
+                    attributeName, canonicalAttribute);
+            appendText(attribute.getValue(), canonicalAttribute);
+            attributes.add(canonicalAttribute.toString());
+        }
+        Collections.sort(attributes);
+        for (String attribute : attributes) {
+            canonicalForm.append(' ').append(attribute);
+        }
+        canonicalForm.append('>');
+
+        boolean isChildContent = isContent || (isXacmlElement && CONTENT_ELEMENTS.contains(localName));
+        List<String> children = new ArrayList<>();
+        for (Node child = element.getFirstChild(); child != null; child = child.getNextSibling()) {
+            StringBuilder canonicalChild = new StringBuilder();
+            if (child.getNodeType() == Node.ELEMENT_NODE) {
+                appendCanonicalForm((Element) child, isChildContent, canonicalChild);
+            } else if (child.getNodeType() == Node.TEXT_NODE || child.getNodeType() == Node.CDATA_SECTION_NODE) {
+                String text = child.getNodeValue();
+                if (text.trim().isEmpty()) {
+                    continue;
+                }
+                appendText(text, canonicalChild);
+            } else {
+                continue;
+            }
+            children.add(canonicalChild.toString());
+        }
+        if (isXacmlElement && UNORDERED_ELEMENTS.contains(localName)) {
+            Collections.sort(children);
+        }
+        for (String child : children) {
+            canonicalForm.append(child);
+        }
+        canonicalForm.append("</>");
+    }
+
+    private static void appendQualifiedName(String namespace, String localName, StringBuilder canonicalForm) {
+
+        canonicalForm.append('{').append(namespace).append('}').append(localName);
+    }
+
+    /**
+     * Appends a text prefixed by its length, so that a text cannot be mistaken for markup.
+     */
+    private static void appendText(String text, StringBuilder canonicalForm) {
+
+        canonicalForm.append('"').append(text.length()).append(':').append(text);
+    }
+
+    private static String hash(String canonicalForm) {
+
+        try {
+            MessageDigest digest = MessageDigest.getInstance(DIGEST_ALGORITHM);
+            return Base64.getEncoder().encodeToString(digest.digest(canonicalForm.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(DIGEST_ALGORITHM + " is not supported by the JVM", e);
+        }
+    }
+}
@@ -0,0 +1,89 @@
+/*
+ *  Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+package org.wso2.carbon.identity.entitlement.pdp;
+
+import org.wso2.balana.ctx.AbstractResult;
+import org.wso2.balana.ctx.ResponseCtx;
+
+/**
+ * Decision of the PDP for a single XACML request, evaluated in process. If the response has more than one result
+ * and they do not agree, the decision is indeterminate.
+ */
+public class EntitlementDecision {
+
+    private final ResponseCtx responseCtx;
+    private final int decision;
+
+    public EntitlementDecision(ResponseCtx responseCtx) {
+
+        this.responseCtx = responseCtx;
+        this.decision = resolveDecision(responseCtx);
+    }
+
+    /**
+     * @return decision as one of the decision constants of {@link AbstractResult}
+     */
+    public int getDecision() {
+
+        return decision;
+    }
+
+    public boolean isPermit() {
+
+        return decision == AbstractResult.DECISION_PERMIT;
+    }
+
+    public boolean isDeny() {
+
+        return decision == AbstractResult.DECISION_DENY;
+    }
+
+    public boolean isNotApplicable() {
+
+        return decision == AbstractResult.DECISION_NOT_APPLICABLE;
+    }
+
+    public boolean isIndeterminate() {
+
+        return !isPermit() && !isDeny() && !isNotApplicable();
+    }
+
+    /**
+     * @return response of the PDP, including the obligations and advices of the results
+     */
+    public ResponseCtx getResponseCtx() {
+
+        return responseCtx;
+    }
+
+    private static int resolveDecision(ResponseCtx responseCtx) {
+
+        if (responseCtx == null || responseCtx.getResults() == null || responseCtx.getResults().isEmpty()) {
+            return AbstractResult.DECISION_INDETERMINATE;
+        }
+        int decision = -1;
+        for (AbstractResult result : responseCtx.getResults()) {
+            if (decision == -1) {
+                decision = result.getDecision();
+            } else if (decision != result.getDecision()) {
+                return AbstractResult.DECISION_INDETERMINATE;
+            }
+        }
+        return decision == -1 ? AbstractResult.DECISION_INDETERMINATE : decision;
+    }
+}
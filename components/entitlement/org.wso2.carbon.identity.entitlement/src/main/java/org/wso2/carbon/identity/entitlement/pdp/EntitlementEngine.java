@@ -36,6 +36,7 @@ import org.wso2.balana.finder.ResourceFinderModule;
 import org.wso2.balana.finder.impl.CurrentEnvModule;
 import org.wso2.balana.finder.impl.SelectorModule;
 import org.wso2.carbon.context.CarbonContext;
+import org.wso2.carbon.context.PrivilegedCarbonContext;
 import org.wso2.carbon.identity.base.IdentityConstants;
 import org.wso2.carbon.identity.core.util.IdentityUtil;
 import org.wso2.carbon.identity.entitlement.EntitlementException;
@@ -63,11 +64,23 @@ import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 
@@ -94,15 +107,35 @@ public class EntitlementEngine {
 
     private SimpleDecisionCache simpleDecisionCache = null;
 
+    /**
+     * Number of times the decision caches are cleared by this node. A decision evaluated while the caches are cleared
+     * is not cached, as it may be decided by the old policies. The cached decisions are not stamped with it, as it is
+     * local to this node while the decision caches are shared by the cluster.
+     */
+    private final AtomicLong policyGeneration = new AtomicLong();
+
     private static Log log = LogFactory.getLog(EntitlementEngine.class);
 
+    /**
+     * Evaluates the requests of the batch decisions of all the tenants.
+     */
+    private static volatile ExecutorService batchDecisionExecutor;
+
+    private int maxBatchDecisionRequests = PDPConstants.DEFAULT_BATCH_DECISION_MAX_REQUESTS;
+
 
     public PolicyCache getPolicyCache() {
         return policyCache;
     }
 
     public void clearDecisionCache() {
-        this.decisionCache.clear();
+
+        policyGeneration.incrementAndGet();
+        if (log.isDebugEnabled()) {
+            log.debug("Clearing the decision cache of tenant: " + tenantId);
+        }
+        decisionCache.clear();
+        simpleDecisionCache.clear();
     }
 
     /**
@@ -186,6 +219,16 @@ public class EntitlementEngine {
         }
 
 
+        String maxBatchRequests = properties.getProperty(PDPConstants.BATCH_DECISION_MAX_REQUESTS);
+        if (maxBatchRequests != null) {
+            try {
+                maxBatchDecisionRequests = Integer.parseInt(maxBatchRequests.trim());
+            } catch (NumberFormatException e) {
+                log.warn("Invalid value: " + maxBatchRequests + " for " + PDPConstants.BATCH_DECISION_MAX_REQUESTS +
+                        ". Using the default value: " + maxBatchDecisionRequests);
+            }
+        }
+
         //init caches
         decisionCache = new DecisionCache(pdpDecisionCachingInterval);
         simpleDecisionCache = new SimpleDecisionCache(pdpDecisionCachingInterval);
@@ -269,8 +312,10 @@ public class EntitlementEngine {
         }
 
         String xacmlResponse;
+        String cacheKey = getDecisionCacheKey(xacmlRequest);
+        long generation = policyGeneration.get();
 
-        if ((xacmlResponse = (String) getFromCache(xacmlRequest, false)) != null) {
+        if ((xacmlResponse = (String) getFromCache(cacheKey, false)) != null) {
             if (log.isDebugEnabled() && IdentityUtil.isTokenLoggable(IdentityConstants.IdentityTokens.XACML_RESPONSE)) {
                 log.debug("XACML Response : " + xacmlResponse);
             }
@@ -295,7 +340,7 @@ public class EntitlementEngine {
             xacmlResponse = pdp.evaluate(xacmlRequest);
         }
 
-        addToCache(xacmlRequest, xacmlResponse, false);
+        addToCache(cacheKey, generation, xacmlResponse, false);
 
         if (log.isDebugEnabled() && IdentityUtil.isTokenLoggable(IdentityConstants.IdentityTokens.XACML_RESPONSE)) {
             log.debug("XACML Response : " + xacmlResponse);
@@ -328,8 +373,10 @@ public class EntitlementEngine {
 
         String xacmlResponse;
         ResponseCtx responseCtx;
+        String cacheKey = getDecisionCacheKey(xacmlRequest);
+        long generation = policyGeneration.get();
 
-        if ((xacmlResponse = (String) getFromCache(xacmlRequest, false)) != null) {
+        if ((xacmlResponse = (String) getFromCache(cacheKey, false)) != null) {
             if (log.isDebugEnabled() && IdentityUtil.isTokenLoggable(IdentityConstants.IdentityTokens.XACML_RESPONSE)) {
                 log.debug("XACML Response : " + xacmlResponse);
             }
@@ -362,7 +409,7 @@ public class EntitlementEngine {
 
         xacmlResponse = responseCtx.encode();
 
-        addToCache(xacmlRequest, xacmlResponse, false);
+        addToCache(cacheKey, generation, xacmlResponse, false);
 
         if (log.isDebugEnabled() && IdentityUtil.isTokenLoggable(IdentityConstants.IdentityTokens.XACML_RESPONSE)) {
             log.debug("XACML Response : " + xacmlResponse);
@@ -383,6 +430,32 @@ public class EntitlementEngine {
         return pdp.evaluate(requestCtx);
     }
 
+    /**
+     * Evaluates XACML request directly, after updating it with the PIP extensions. Unlike
+     * {@link #evaluate(String)}, the request is neither encoded nor parsed. Decisions are not cached, as there is
+     * no XACML request string to be used as the cache key.
+     *
+     * @param requestCtx Balana Object model for request
+     * @return ResponseCtx  Balana Object model for response
+     */
+    public ResponseCtx evaluateRequestContext(AbstractRequestCtx requestCtx) {
+
+        Map<PIPExtension, Properties> extensions = EntitlementServiceComponent.getEntitlementConfig()
+                .getExtensions();
+        if (extensions != null && !extensions.isEmpty()) {
+            for (PIPExtension pipExtension : extensions.keySet()) {
+                pipExtension.update(requestCtx);
+            }
+        }
+
+        ResponseCtx responseCtx = evaluateByContext(requestCtx);
+
+        if (log.isDebugEnabled() && IdentityUtil.isTokenLoggable(IdentityConstants.IdentityTokens.XACML_RESPONSE)) {
+            log.debug("XACML Response : " + responseCtx.encode());
+        }
+        return responseCtx;
+    }
+
     /**
      * Evaluates the given XACML request and returns the Response
      *
@@ -397,8 +470,10 @@ public class EntitlementEngine {
         }
 
         ResponseCtx xacmlResponse;
+        String cacheKey = getDecisionCacheKey(xacmlRequest);
+        long generation = policyGeneration.get();
 
-        if ((xacmlResponse = (ResponseCtx) getFromCache(xacmlRequest, false)) != null) {
+        if ((xacmlResponse = (ResponseCtx) getFromCache(cacheKey, false)) != null) {
             if (log.isDebugEnabled() && IdentityUtil.isTokenLoggable(IdentityConstants.IdentityTokens.XACML_RESPONSE)) {
                 log.debug("XACML Response : " + xacmlResponse);
             }
@@ -407,7 +482,7 @@ public class EntitlementEngine {
 
         xacmlResponse = pdp.evaluate(requestCtx);
 
-        addToCache(xacmlRequest, xacmlResponse, false);
+        addToCache(cacheKey, generation, xacmlResponse, false);
 
         if (log.isDebugEnabled() && IdentityUtil.isTokenLoggable(IdentityConstants.IdentityTokens.XACML_RESPONSE)) {
             log.debug("XACML Response : " + xacmlResponse);
@@ -415,6 +490,118 @@ public class EntitlementEngine {
         return xacmlResponse;
     }
 
+    /**
+     * Evaluates a batch of XACML requests and returns their responses in the order of the requests. The decision
+     * cache is looked up for all the requests first, and the remaining requests are evaluated in parallel. Identical
+     * requests of the batch are evaluated once.
+     *
+     * @param requestCtxs   Balana Object models for the requests
+     * @param xacmlRequests XACML requests as String, in the order of the request contexts
+     * @return ResponseCtx responses, in the order of the requests
+     * @throws EntitlementException if the batch has more requests than allowed, or a request could not be evaluated
+     */
+    public List<ResponseCtx> evaluate(List<? extends AbstractRequestCtx> requestCtxs, List<String> xacmlRequests)
+            throws EntitlementException {
+
+        if (requestCtxs.size() != xacmlRequests.size()) {
+            throw new IllegalArgumentException("Number of request contexts: " + requestCtxs.size() +
+                    " does not match the number of XACML requests: " + xacmlRequests.size());
+        }
+        if (requestCtxs.size() > maxBatchDecisionRequests) {
+            throw new EntitlementException("Batch of " + requestCtxs.size() + " requests exceeds the limit of " +
+                    maxBatchDecisionRequests + " requests");
+        }
+
+        ResponseCtx[] responses = new ResponseCtx[requestCtxs.size()];
+        long generation = policyGeneration.get();
+
+        // Indexes of the requests to be evaluated, by their cache keys.
+        Map<String, List<Integer>> pendingRequests = new LinkedHashMap<String, List<Integer>>();
+        for (int i = 0; i < requestCtxs.size(); i++) {
+            String cacheKey = getDecisionCacheKey(xacmlRequests.get(i));
+            if (cacheKey == null) {
+                // Decision caching is disabled, so the identical requests are found by the requests themselves.
+                cacheKey = xacmlRequests.get(i);
+            }
+            List<Integer> indexes = pendingRequests.get(cacheKey);
+            if (indexes == null) {
+                Object response = getFromCache(cacheKey, false);
+                if (response instanceof ResponseCtx) {
+                    responses[i] = (ResponseCtx) response;
+                    continue;
+                }
+                indexes = new ArrayList<Integer>();
+                pendingRequests.put(cacheKey, indexes);
+            }
+            indexes.add(i);
+        }
+
+        if (log.isDebugEnabled()) {
+            log.debug("Evaluating " + pendingRequests.size() + " of the " + requestCtxs.size() +
+                    " requests of the batch in tenant: " + tenantId);
+        }
+
+        final int currentTenantId = CarbonContext.getThreadLocalCarbonContext().getTenantId();
+        final String currentTenantDomain = CarbonContext.getThreadLocalCarbonContext().getTenantDomain();
+        ExecutorService executor = getBatchDecisionExecutor(maxBatchDecisionRequests);
+        Map<String, Future<ResponseCtx>> results = new LinkedHashMap<String, Future<ResponseCtx>>();
+        for (Map.Entry<String, List<Integer>> pendingRequest : pendingRequests.entrySet()) {
+            final AbstractRequestCtx requestCtx = requestCtxs.get(pendingRequest.getValue().get(0));
+            results.put(pendingRequest.getKey(), executor.submit(new Callable<ResponseCtx>() {
+
+                @Override
+                public ResponseCtx call() {
+
+                    try {
+                        PrivilegedCarbonContext.startTenantFlow();
+                        PrivilegedCarbonContext carbonContext = PrivilegedCarbonContext.getThreadLocalCarbonContext();
+                        carbonContext.setTenantId(currentTenantId);
+                        carbonContext.setTenantDomain(currentTenantDomain);
+                        return pdp.evaluate(requestCtx);
+                    } finally {
+                        PrivilegedCarbonContext.endTenantFlow();
+                    }
+                }
+            }));
+        }
+
+        try {
+            for (Map.Entry<String, Future<ResponseCtx>> result : results.entrySet()) {
+                ResponseCtx response = result.getValue().get();
+                addToCache(result.getKey(), generation, response, false);
+                for (int index : pendingRequests.get(result.getKey())) {
+                    responses[index] = response;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new EntitlementException("Interrupted while evaluating the batch of XACML requests", e);
+        } catch (ExecutionException e) {
+            throw new EntitlementException("Error while evaluating the batch of XACML requests", e.getCause());
+        } finally {
+            for (Future<ResponseCtx> result : results.values()) {
+                result.cancel(true);
+            }
+        }
+
+        if (log.isDebugEnabled() && IdentityUtil.isTokenLoggable(IdentityConstants.IdentityTokens.XACML_RESPONSE)) {
+            for (ResponseCtx response : responses) {
+                log.debug("XACML Response : " + response);
+            }
+        }
+        return Arrays.asList(responses);
+    }
+
+    /**
+     * Returns the maximum number of requests of a batch decision.
+     *
+     * @return maximum number of requests
+     */
+    public int getMaxBatchDecisionRequests() {
+
+        return maxBatchDecisionRequests;
+    }
+
     /**
      * Evaluates the given XACML request and returns the Response that the EntitlementEngine will
      * hand back to the PEP. Here PEP does not need construct the XACML request before sending it to the
@@ -438,8 +625,10 @@ public class EntitlementEngine {
         String response;
         String request = (subject != null ? subject : "") + (resource != null ? resource : "") +
                 (action != null ? action : "") + (environmentValue != null ? environmentValue : "");
+        String cacheKey = tenantId + "+" + request;
+        long generation = policyGeneration.get();
 
-        if ((response = (String) getFromCache(request, true)) != null) {
+        if ((response = (String) getFromCache(cacheKey, true)) != null) {
             if (log.isDebugEnabled() && IdentityUtil.isTokenLoggable(IdentityConstants.IdentityTokens.XACML_REQUEST)) {
                 log.debug("XACML Request : " + EntitlementUtil.
                         createSimpleXACMLRequest(subject, resource, action, environmentValue));
@@ -458,7 +647,7 @@ public class EntitlementEngine {
 
         response = pdp.evaluate(requestAsString);
 
-        addToCache(request, response, true);
+        addToCache(cacheKey, generation, response, true);
 
         if (log.isDebugEnabled() && IdentityUtil.isTokenLoggable(IdentityConstants.IdentityTokens.XACML_RESPONSE)) {
             log.debug("XACML Response : " + response);
@@ -506,41 +695,93 @@ public class EntitlementEngine {
     }
 
     /**
-     * get entry from decision caching
+     * Returns the executor evaluating the requests of the batch decisions, creating it on the first batch. A batch
+     * is evaluated by the calling thread as well, once all the threads are busy and the queue is full.
      *
-     * @param request     XACML request as String
-     * @param simpleCache whether using simple cache or not
-     * @return XACML response as String
+     * @param maxBatchRequests maximum number of requests of a batch, which the queue holds for each thread
+     * @return executor of the batch decisions
      */
-    private Object getFromCache(String request, boolean simpleCache) {
+    private static ExecutorService getBatchDecisionExecutor(int maxBatchRequests) {
 
-        if (pdpDecisionCacheEnable) {
+        if (batchDecisionExecutor == null) {
+            synchronized (lock) {
+                if (batchDecisionExecutor == null) {
+                    int threadPoolSize = Runtime.getRuntime().availableProcessors();
+                    String poolSize = EntitlementServiceComponent.getEntitlementConfig().getEngineProperties().
+                            getProperty(PDPConstants.BATCH_DECISION_THREAD_POOL_SIZE);
+                    if (poolSize != null) {
+                        try {
+                            threadPoolSize = Integer.parseInt(poolSize.trim());
+                        } catch (NumberFormatException e) {
+                            log.warn("Invalid value: " + poolSize + " for " +
+                                    PDPConstants.BATCH_DECISION_THREAD_POOL_SIZE + ". Using the default value: " +
+                                    threadPoolSize);
+                        }
+                    }
+                    if (threadPoolSize < 1) {
+                        threadPoolSize = 1;
+                    }
+
+                    int queueSize = (int) Math.min(Integer.MAX_VALUE,
+                            (long) Math.max(maxBatchRequests, 1) * threadPoolSize);
+
+                    final AtomicInteger threadCount = new AtomicInteger();
+                    batchDecisionExecutor = new ThreadPoolExecutor(threadPoolSize, threadPoolSize, 0L,
+                            TimeUnit.MILLISECONDS, new LinkedBlockingQueue<Runnable>(queueSize), new ThreadFactory() {
+
+                        @Override
+                        public Thread newThread(Runnable runnable) {
+
+                            Thread thread = new Thread(runnable, "BatchDecision-" + threadCount.incrementAndGet());
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    }, new ThreadPoolExecutor.CallerRunsPolicy());
+                }
+            }
+        }
+        return batchDecisionExecutor;
+    }
+
+    /**
+     * Builds the decision cache key of a XACML request, from the canonical form of the request.
+     *
+     * @param xacmlRequest XACML request as String
+     * @return decision cache key, or null if decision caching is disabled
+     */
+    private String getDecisionCacheKey(String xacmlRequest) {
 
-            String tenantRequest = tenantId + "+" + request;
-            Object decision;
+        if (!pdpDecisionCacheEnable) {
+            return null;
+        }
+        return tenantId + "+" + DecisionCacheKeyBuilder.getKey(xacmlRequest);
+    }
 
+    /**
+     * get entry from decision caching
+     *
+     * @param cacheKey    decision cache key of the request
+     * @param simpleCache whether using simple cache or not
+     * @return XACML response, or null if there is no cached decision
+     */
+    private Object getFromCache(String cacheKey, boolean simpleCache) {
 
-            //There is no any local cache hereafter and always get from distribute cache if there.
-            /*if (DecisionInvalidationCache.getInstance().isInvalidate()) {
-                decisionCache.clearCache();
-                simpleDecisionCache.clearCache();
-            }*/
+        if (pdpDecisionCacheEnable) {
 
-            // Check whether the policy cache is invalidated, if so clear the decision cache.
-            if (EntitlementEngine.getInstance().getPolicyCache().isInvalidate()) {
+            // Check whether the policy cache is invalidated, if so drop the cached decisions.
+            if (policyCache.isInvalidate()) {
                 if (log.isDebugEnabled()) {
                     log.debug("Policy Cache is invalidated. Clearing the decision cache.");
                 }
-                decisionCache.clear();
+                clearDecisionCache();
                 return null;
             }
 
             if (simpleCache) {
-                decision = simpleDecisionCache.getFromCache(tenantRequest);
+                return simpleDecisionCache.getFromCache(cacheKey);
             } else {
-                decision = decisionCache.getFromCache(tenantRequest);
+                return decisionCache.getFromCache(cacheKey);
             }
-            return decision;
         }
 
         if (log.isDebugEnabled()) {
@@ -552,17 +793,21 @@ public class EntitlementEngine {
     /**
      * put entry in to cache
      *
-     * @param request     XACML request as String
-     * @param response    XACML response as String
+     * @param cacheKey    decision cache key of the request
+     * @param generation  number of decision cache clears read before the request is evaluated
+     * @param response    XACML response
      * @param simpleCache whether using simple cache or not
      */
-    private void addToCache(String request, Object response, boolean simpleCache) {
+    private void addToCache(String cacheKey, long generation, Object response, boolean simpleCache) {
         if (pdpDecisionCacheEnable) {
-            String tenantRequest = tenantId + "+" + request;
+            if (generation != policyGeneration.get()) {
+                // The policies changed while the request was evaluated.
+                return;
+            }
             if (simpleCache) {
-                simpleDecisionCache.addToCache(tenantRequest, response);
+                simpleDecisionCache.addToCache(cacheKey, response);
             } else {
-                decisionCache.addToCache(tenantRequest, response);
+                decisionCache.addToCache(cacheKey, response);
             }
         } else {
             if (log.isDebugEnabled()) {
@@ -656,4 +901,4 @@ public class EntitlementEngine {
         }
     }
 
-}
\ No newline at end of file
+}
@@ -32,6 +32,7 @@ import org.wso2.carbon.identity.entitlement.cache.PIPAbstractAttributeCache;
 import org.wso2.carbon.identity.entitlement.internal.EntitlementServiceComponent;
 
 import java.net.URI;
+import java.net.URISyntaxException;
 import java.util.Properties;
 import java.util.Set;
 
@@ -70,8 +71,7 @@ public abstract class AbstractPIPAttributeFinder implements PIPAttributeFinder {
     public Set<String> getAttributeValues(URI attributeType, URI attributeId, URI category,
                                           String issuer, EvaluationCtx evaluationCtx) throws Exception {
 
-        EvaluationResult subject;
-        String subjectId = null;
+        String subjectId;
         EvaluationResult resource;
         String resourceId = null;
         EvaluationResult action;
@@ -82,19 +82,7 @@ public abstract class AbstractPIPAttributeFinder implements PIPAttributeFinder {
 
         tenantId = CarbonContext.getThreadLocalCarbonContext().getTenantId();
 
-        subject = evaluationCtx.getAttribute(new URI(StringAttribute.identifier), new URI(
-                PDPConstants.SUBJECT_ID_DEFAULT), issuer, new URI(XACMLConstants.SUBJECT_CATEGORY));
-        if (subject != null && subject.getAttributeValue() != null &&
-            subject.getAttributeValue().isBag()) {
-            BagAttribute bagAttribute = (BagAttribute) subject.getAttributeValue();
-            if (bagAttribute.size() > 0) {
-                subjectId = ((AttributeValue) bagAttribute.iterator().next()).encode();
-                if (log.isDebugEnabled()) {
-                    log.debug(String.format("Finding attributes for the subject %1$s",
-                                            subjectId));
-                }
-            }
-        }
+        subjectId = getSubjectId(issuer, evaluationCtx);
 
         resource = evaluationCtx.getAttribute(new URI(StringAttribute.identifier), new URI(
                 PDPConstants.RESOURCE_ID_DEFAULT), issuer, new URI(XACMLConstants.RESOURCE_CATEGORY));
@@ -170,6 +158,33 @@ public abstract class AbstractPIPAttributeFinder implements PIPAttributeFinder {
 
     }
 
+    /**
+     * Reads the subject id of the XACML request.
+     *
+     * @param issuer        The attribute issuer.
+     * @param evaluationCtx EvaluationCtx which encapsulates the XACML request.
+     * @return subject id, or null if the request has no subject id
+     * @throws URISyntaxException throws if fails
+     */
+    protected String getSubjectId(String issuer, EvaluationCtx evaluationCtx) throws URISyntaxException {
+
+        String subjectId = null;
+        EvaluationResult subject = evaluationCtx.getAttribute(new URI(StringAttribute.identifier), new URI(
+                PDPConstants.SUBJECT_ID_DEFAULT), issuer, new URI(XACMLConstants.SUBJECT_CATEGORY));
+        if (subject != null && subject.getAttributeValue() != null &&
+            subject.getAttributeValue().isBag()) {
+            BagAttribute bagAttribute = (BagAttribute) subject.getAttributeValue();
+            if (bagAttribute.size() > 0) {
+                subjectId = ((AttributeValue) bagAttribute.iterator().next()).encode();
+                if (log.isDebugEnabled()) {
+                    log.debug(String.format("Finding attributes for the subject %1$s",
+                                            subjectId));
+                }
+            }
+        }
+        return subjectId;
+    }
+
     @Override
     public boolean overrideDefaultCache() {
 
@@ -0,0 +1,48 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.entitlement.pip;
+
+import org.wso2.balana.ctx.EvaluationCtx;
+
+import java.net.URI;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * PIP attribute handler which can read several attributes of a XACML request at once. CarbonAttributeFinder reads
+ * all the attributes of this module which are used by the policies with one call, when it finds the first of them
+ * during an evaluation, and keeps them for the rest of the evaluation.
+ */
+public interface BulkPIPAttributeFinder extends PIPAttributeFinder {
+
+    /**
+     * Will be fired by CarbonAttributeFinder whenever it finds an attribute supported by this module, which is not
+     * read for the evaluation yet.
+     *
+     * @param attributeIds The unique ids of the required attributes.
+     * @param category     Category of the subject
+     * @param issuer       The attribute issuer.
+     * @param context      EvaluationCtx which encapsulates the XACML request.
+     * @return Returns a <code>Map</code> of the attribute ids to the <code>Set</code>s of <code>String</code>s that
+     * represent the attribute values. An attribute without values may be left out of the map.
+     * @throws Exception throws, if fails
+     */
+    public Map<String, Set<String>> getAttributeValues(Set<String> attributeIds, URI category, String issuer,
+                                                       EvaluationCtx context) throws Exception;
+}
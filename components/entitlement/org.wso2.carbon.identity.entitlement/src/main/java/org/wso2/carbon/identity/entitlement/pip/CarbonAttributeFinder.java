@@ -40,16 +40,22 @@ import org.wso2.carbon.identity.entitlement.pdp.EntitlementEngine;
 import javax.xml.transform.TransformerException;
 import java.io.ByteArrayOutputStream;
 import java.io.OutputStream;
+import java.lang.ref.WeakReference;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.text.ParseException;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 
 /**
  * CarbonAttributeFinder registers with sun-xacml engine as an AttributeFinderModule and delegate
@@ -65,6 +71,24 @@ public class CarbonAttributeFinder extends AttributeFinderModule {
     private PIPAttributeCache attributeFinderCache = null;
     protected int tenantId;
 
+    /**
+     * Maximum number of request scopes for which the ids of the attributes of the bulk attribute finders are kept.
+     */
+    private static final int MAX_BULK_ATTRIBUTE_SCOPES = 1000;
+
+    /**
+     * Ids of the attributes found by each bulk attribute finder, by the resource and the action of the requests they
+     * are found for, which are read together during an evaluation. The policies matched by a request mostly depend
+     * on its resource and action, so that only the attributes used by those policies are read.
+     */
+    private ConcurrentMap<List<Object>, Set<String>> bulkAttributeIds =
+            new ConcurrentHashMap<List<Object>, Set<String>>();
+
+    /**
+     * Attributes read by the bulk attribute finders for the evaluation in progress on the thread.
+     */
+    private ThreadLocal<EvaluationAttributes> evaluationAttributes = new ThreadLocal<EvaluationAttributes>();
+
     public CarbonAttributeFinder(int tenantId) {
         this.tenantId = tenantId;
     }
@@ -172,8 +196,9 @@ public class CarbonAttributeFinder extends AttributeFinderModule {
 
                 Set<String> attrs = null;
                 String key = null;
+                boolean overrideDefaultCache = pipAttributeFinder.overrideDefaultCache();
 
-                if (attributeFinderCache != null && !pipAttributeFinder.overrideDefaultCache()) {
+                if (attributeFinderCache != null && !overrideDefaultCache) {
 
                     key = "[" + attributeType.toString() + "][" + attributeId.toString() + "][" + category.toString() +
                             "][" + encodeContext(context) + "]";
@@ -188,10 +213,16 @@ public class CarbonAttributeFinder extends AttributeFinderModule {
                 }
 
                 if (attrs == null) {
-                    attrs = pipAttributeFinder.getAttributeValues(attributeType, attributeId, category,
-                                                                  issuer, context);
-                    if (attributeFinderCache != null && key != null
-                        && !pipAttributeFinder.overrideDefaultCache()) {
+                    if (pipAttributeFinder instanceof BulkPIPAttributeFinder && !overrideDefaultCache) {
+                        // Attributes which are not cached are read together, once per evaluation, so that the
+                        // attributes found next during the evaluation are cached without being read again.
+                        attrs = getBulkAttributeValues((BulkPIPAttributeFinder) pipAttributeFinder,
+                                                       attributeId.toString(), category, issuer, context);
+                    } else {
+                        attrs = pipAttributeFinder.getAttributeValues(attributeType, attributeId, category,
+                                                                      issuer, context);
+                    }
+                    if (attributeFinderCache != null && key != null && !overrideDefaultCache) {
                         attributeFinderCache.addToCache(tenantId, key, attrs);
                     }
                 }
@@ -282,6 +313,7 @@ public class CarbonAttributeFinder extends AttributeFinderModule {
      * Clears attribute cache
      */
     public void clearAttributeCache() {
+        bulkAttributeIds.clear();
         if (attributeFinderCache != null) {
             attributeFinderCache.clearCache();
             // clear decision cache
@@ -289,6 +321,92 @@ public class CarbonAttributeFinder extends AttributeFinderModule {
         }
     }
 
+    /**
+     * Returns the values of an attribute read by a bulk attribute finder for the evaluation. The first attribute of
+     * the finder found during an evaluation is read together with all the other attributes found by the finder
+     * before, for requests of the same resource and action, and the values are kept for the rest of the evaluation.
+     *
+     * @param finder      bulk attribute finder
+     * @param attributeId id of the attribute
+     * @param category    category of the attribute
+     * @param issuer      issuer of the attribute
+     * @param context     EvaluationCtx of the evaluation
+     * @return values of the attribute
+     * @throws Exception throws if the attributes could not be read
+     */
+    private Set<String> getBulkAttributeValues(BulkPIPAttributeFinder finder, String attributeId, URI category,
+                                               String issuer, EvaluationCtx context) throws Exception {
+
+        EvaluationAttributes attributes = evaluationAttributes.get();
+        if (attributes == null || attributes.context.get() != context) {
+            attributes = new EvaluationAttributes(context, getRequestScope(context));
+            evaluationAttributes.set(attributes);
+        }
+
+        List<Object> scope = Arrays.<Object>asList(finder, category.toString(), attributes.requestScope);
+        Set<String> attributeIds = bulkAttributeIds.get(scope);
+        if (attributeIds == null) {
+            attributeIds = Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+            if (bulkAttributeIds.size() < MAX_BULK_ATTRIBUTE_SCOPES) {
+                Set<String> existingAttributeIds = bulkAttributeIds.putIfAbsent(scope, attributeIds);
+                if (existingAttributeIds != null) {
+                    attributeIds = existingAttributeIds;
+                }
+            }
+        }
+        attributeIds.add(attributeId);
+
+        Map<String, Set<String>> values = attributes.getValues(finder, category, issuer);
+        if (!values.containsKey(attributeId)) {
+            Set<String> missingAttributeIds = new HashSet<String>(attributeIds);
+            missingAttributeIds.removeAll(values.keySet());
+            if (log.isDebugEnabled()) {
+                log.debug(String.format("Reading the attributes %1$s with the PIP attribute handler %2$s",
+                                        missingAttributeIds, finder.getClass()));
+            }
+            Map<String, Set<String>> missingValues = finder.getAttributeValues(missingAttributeIds, category,
+                                                                               issuer, context);
+            for (String missingAttributeId : missingAttributeIds) {
+                Set<String> missingValue = missingValues != null ? missingValues.get(missingAttributeId) : null;
+                values.put(missingAttributeId, missingValue != null ? missingValue : Collections.<String>emptySet());
+            }
+        }
+        return values.get(attributeId);
+    }
+
+    /**
+     * Reads the resource ids and the action ids of the XACML request, which the attributes of the bulk attribute
+     * finders are kept by.
+     *
+     * @param context EvaluationCtx of the evaluation
+     * @return sorted resource and action ids of the request
+     */
+    private List<String> getRequestScope(EvaluationCtx context) {
+
+        List<String> requestScope = new ArrayList<String>();
+        if (context.getRequestCtx() == null || context.getRequestCtx().getAttributesSet() == null) {
+            return requestScope;
+        }
+        for (Attributes attributes : context.getRequestCtx().getAttributesSet()) {
+            if (attributes.getAttributes() == null) {
+                continue;
+            }
+            for (Attribute attribute : attributes.getAttributes()) {
+                String id = attribute.getId() != null ? attribute.getId().toString() : null;
+                if (!PDPConstants.RESOURCE_ID_DEFAULT.equals(id) && !PDPConstants.ACTION_ID_DEFAULT.equals(id)) {
+                    continue;
+                }
+                if (attribute.getValues() != null) {
+                    for (AttributeValue value : attribute.getValues()) {
+                        requestScope.add(id + "=" + value.encode());
+                    }
+                }
+            }
+        }
+        Collections.sort(requestScope);
+        return requestScope;
+    }
+
     /**
      * Converts DOM object to String. This is a helper method for creating cache key
      *
@@ -314,4 +432,32 @@ public class CarbonAttributeFinder extends AttributeFinderModule {
 
         return contextWithAttributeValues;
     }
+
+    /**
+     * Attributes read by the bulk attribute finders for an evaluation.
+     */
+    private static class EvaluationAttributes {
+
+        private final WeakReference<EvaluationCtx> context;
+        private final List<String> requestScope;
+        private final Map<List<Object>, Map<String, Set<String>>> values =
+                new HashMap<List<Object>, Map<String, Set<String>>>();
+
+        EvaluationAttributes(EvaluationCtx context, List<String> requestScope) {
+
+            this.context = new WeakReference<EvaluationCtx>(context);
+            this.requestScope = requestScope;
+        }
+
+        Map<String, Set<String>> getValues(BulkPIPAttributeFinder finder, URI category, String issuer) {
+
+            List<Object> key = Arrays.<Object>asList(finder, category.toString(), issuer);
+            Map<String, Set<String>> finderValues = values.get(key);
+            if (finderValues == null) {
+                finderValues = new HashMap<String, Set<String>>();
+                values.put(key, finderValues);
+            }
+            return finderValues;
+        }
+    }
 }
@@ -21,6 +21,7 @@ package org.wso2.carbon.identity.entitlement.pip;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.wso2.balana.ctx.EvaluationCtx;
 import org.wso2.carbon.context.CarbonContext;
 import org.wso2.carbon.identity.core.util.IdentityCoreConstants;
 import org.wso2.carbon.user.api.ClaimManager;
@@ -29,7 +30,12 @@ import org.wso2.carbon.user.api.UserStoreException;
 import org.wso2.carbon.user.core.UserCoreConstants;
 import org.wso2.carbon.utils.multitenancy.MultitenantUtils;
 
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 import java.util.StringTokenizer;
@@ -39,7 +45,7 @@ import java.util.StringTokenizer;
  * DefaultAttributeFinder is by default registered for all the claims defined under
  * http://wso2.org/claims dialect.
  */
-public class DefaultAttributeFinder extends AbstractPIPAttributeFinder {
+public class DefaultAttributeFinder extends AbstractPIPAttributeFinder implements BulkPIPAttributeFinder {
 
     private static Log log = LogFactory.getLog(DefaultAttributeFinder.class);
     private Set<String> supportedAttrs = new HashSet<String>();
@@ -82,17 +88,7 @@ public class DefaultAttributeFinder extends AbstractPIPAttributeFinder {
             if (log.isDebugEnabled()) {
                 log.debug("Looking for roles via DefaultAttributeFinder");
             }
-            String[] roles = CarbonContext.getThreadLocalCarbonContext().getUserRealm().getUserStoreManager()
-                    .getRoleListOfUser(subjectId);
-            if (roles != null && roles.length > 0) {
-                for (String role : roles) {
-                    if (log.isDebugEnabled()) {
-                        log.debug(String.format("User %1$s belongs to the Role %2$s", subjectId,
-                                role));
-                    }
-                    values.add(role);
-                }
-            }
+            values.addAll(getRoles(subjectId));
         } else {
             String claimValue = null;
             try {
@@ -110,29 +106,126 @@ public class DefaultAttributeFinder extends AbstractPIPAttributeFinder {
             if (claimValue == null && log.isDebugEnabled()) {
                 log.debug(String.format("Request attribute %1$s not found", attributeId));
             }
-            // Fix for multiple claim values
             if (claimValue != null) {
-                String claimSeparator = CarbonContext.getThreadLocalCarbonContext().getUserRealm().
-                        getRealmConfiguration().getUserStoreProperty(IdentityCoreConstants.MULTI_ATTRIBUTE_SEPARATOR);
-                if (StringUtils.isBlank(claimSeparator)) {
-                    claimSeparator = IdentityCoreConstants.MULTI_ATTRIBUTE_SEPARATOR_DEFAULT;
+                addClaimValues(claimValue, getClaimSeparator(), values);
+            }
+        }
+        return values;
+    }
+
+    /**
+     * Reads the roles and the claims of the subject of the XACML request, with one user store call for the roles
+     * and one for the claims.
+     *
+     * @see BulkPIPAttributeFinder#getAttributeValues(Set, URI, String, EvaluationCtx)
+     */
+    @Override
+    public Map<String, Set<String>> getAttributeValues(Set<String> attributeIds, URI category, String issuer,
+                                                       EvaluationCtx context) throws Exception {
+
+        Map<String, Set<String>> attributeValues = new HashMap<String, Set<String>>();
+        String subjectId = getSubjectId(issuer, context);
+        if (StringUtils.isEmpty(subjectId)) {
+            if (log.isDebugEnabled()) {
+                log.debug("subjectId value is null or empty. Returning empty attribute set");
+            }
+            return attributeValues;
+        }
+        subjectId = MultitenantUtils.getTenantAwareUsername(subjectId);
+
+        List<String> claims = new ArrayList<String>();
+        for (String attributeId : attributeIds) {
+            if (UserCoreConstants.ClaimTypeURIs.ROLE.equals(attributeId)) {
+                if (log.isDebugEnabled()) {
+                    log.debug("Looking for roles via DefaultAttributeFinder");
                 }
-                if (claimValue.contains(claimSeparator)) {
-                    StringTokenizer st = new StringTokenizer(claimValue, claimSeparator);
-                    while (st.hasMoreElements()) {
-                        String attributeValue = st.nextElement().toString();
-                        if (StringUtils.isNotBlank(attributeValue)) {
-                            values.add(attributeValue);
-                        }
-                    }
-                } else {
-                    values.add(claimValue);
+                attributeValues.put(attributeId, getRoles(subjectId));
+            } else {
+                claims.add(attributeId);
+            }
+        }
+        if (claims.isEmpty()) {
+            return attributeValues;
+        }
+
+        Map<String, String> claimValues = null;
+        try {
+            claimValues = CarbonContext.getThreadLocalCarbonContext().getUserRealm().getUserStoreManager()
+                    .getUserClaimValues(subjectId, claims.toArray(new String[claims.size()]), null);
+        } catch (UserStoreException e) {
+            if (e.getMessage().startsWith(IdentityCoreConstants.USER_NOT_FOUND)) {
+                if (log.isDebugEnabled()) {
+                    log.debug("User: " + subjectId + " not found in user store");
+                }
+            } else {
+                throw e;
+            }
+        }
+        if (claimValues == null || claimValues.isEmpty()) {
+            return attributeValues;
+        }
+
+        String claimSeparator = getClaimSeparator();
+        for (String claim : claims) {
+            String claimValue = claimValues.get(claim);
+            if (claimValue == null) {
+                if (log.isDebugEnabled()) {
+                    log.debug(String.format("Request attribute %1$s not found", claim));
+                }
+                continue;
+            }
+            Set<String> values = new HashSet<String>();
+            addClaimValues(claimValue, claimSeparator, values);
+            attributeValues.put(claim, values);
+        }
+        return attributeValues;
+    }
+
+    private Set<String> getRoles(String subjectId) throws UserStoreException {
+
+        Set<String> values = new HashSet<String>();
+        String[] roles = CarbonContext.getThreadLocalCarbonContext().getUserRealm().getUserStoreManager()
+                .getRoleListOfUser(subjectId);
+        if (roles != null && roles.length > 0) {
+            for (String role : roles) {
+                if (log.isDebugEnabled()) {
+                    log.debug(String.format("User %1$s belongs to the Role %2$s", subjectId,
+                            role));
                 }
+                values.add(role);
             }
         }
         return values;
     }
 
+    private String getClaimSeparator() throws UserStoreException {
+
+        String claimSeparator = CarbonContext.getThreadLocalCarbonContext().getUserRealm().
+                getRealmConfiguration().getUserStoreProperty(IdentityCoreConstants.MULTI_ATTRIBUTE_SEPARATOR);
+        if (StringUtils.isBlank(claimSeparator)) {
+            claimSeparator = IdentityCoreConstants.MULTI_ATTRIBUTE_SEPARATOR_DEFAULT;
+        }
+        return claimSeparator;
+    }
+
+    /**
+     * Adds the values of a claim, which holds multiple values separated by the claim separator.
+     */
+    private void addClaimValues(String claimValue, String claimSeparator, Set<String> values) {
+
+        if (claimValue.contains(claimSeparator)) {
+            StringTokenizer st = new StringTokenizer(claimValue, claimSeparator);
+            while (st.hasMoreElements()) {
+                String attributeValue = st.nextElement().toString();
+                if (StringUtils.isNotBlank(attributeValue)) {
+                    values.add(attributeValue);
+                }
+            }
+        } else {
+            values.add(claimValue);
+        }
+    }
+
     /*
      * (non-Javadoc)
      *
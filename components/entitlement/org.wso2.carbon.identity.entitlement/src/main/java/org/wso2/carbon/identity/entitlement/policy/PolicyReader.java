@@ -51,8 +51,15 @@ public class PolicyReader implements ErrorHandler {
     private static final Object lock = new Object();
     private static Log log = LogFactory.getLog(PolicyReader.class);
     private static volatile PolicyReader reader;
-    // the builder used to create DOM documents
-    private DocumentBuilder builder;
+    // the builders used to create DOM documents. DocumentBuilder is not thread safe, hence one is kept per thread
+    // so that the policies can be parsed concurrently
+    private final ThreadLocal<DocumentBuilder> builders = new ThreadLocal<DocumentBuilder>() {
+
+        @Override
+        protected DocumentBuilder initialValue() {
+            return createDocumentBuilder();
+        }
+    };
 
     // policy finder module to find  policies
     private PolicyFinder policyFinder;
@@ -60,16 +67,8 @@ public class PolicyReader implements ErrorHandler {
     private PolicyReader(PolicyFinder policyFinder) {
 
         this.policyFinder = policyFinder;
-        // create the factory
-        DocumentBuilderFactory factory = IdentityUtil.getSecuredDocumentBuilderFactory();
-        factory.setIgnoringComments(true);
-        // now use the factory to create the document builder
-        try {
-            builder = factory.newDocumentBuilder();
-            builder.setErrorHandler(this);
-        } catch (ParserConfigurationException pce) {
-            throw new IllegalArgumentException("Filed to setup repository: ");
-        }
+        // create the builder of the current thread, so that a configuration error is reported here
+        builders.get();
     }
 
     /**
@@ -95,7 +94,7 @@ public class PolicyReader implements ErrorHandler {
         InputStream stream = null;
         try {
             stream = new ByteArrayInputStream(policy.getBytes("UTF-8"));
-            handleDocument(builder.parse(stream));
+            handleDocument(builders.get().parse(stream));
         } catch (Exception e) {
             return false;
         }
@@ -106,11 +105,11 @@ public class PolicyReader implements ErrorHandler {
      * @param policy
      * @return
      */
-    public synchronized AbstractPolicy getPolicy(String policy) {
+    public AbstractPolicy getPolicy(String policy) {
         InputStream stream = null;
         try {
             stream = new ByteArrayInputStream(policy.getBytes("UTF-8"));
-            return handleDocument(builder.parse(stream));
+            return handleDocument(builders.get().parse(stream));
         } catch (Exception e) {
             log.error("Error while parsing the policy", e);
             return null;
@@ -128,7 +127,7 @@ public class PolicyReader implements ErrorHandler {
         PolicyTarget policyTarget = new PolicyTarget();
         try {
             stream = new ByteArrayInputStream(policy.getBytes("UTF-8"));
-            AbstractPolicy abstractPolicy = handleDocument(builder.parse(stream));
+            AbstractPolicy abstractPolicy = handleDocument(builders.get().parse(stream));
             policyTarget.setTarget(abstractPolicy.getTarget());
             policyTarget.setPolicyId(abstractPolicy.getId().toString());
             return policyTarget;
@@ -138,6 +137,20 @@ public class PolicyReader implements ErrorHandler {
         }
     }
 
+    private DocumentBuilder createDocumentBuilder() {
+        // create the factory
+        DocumentBuilderFactory factory = IdentityUtil.getSecuredDocumentBuilderFactory();
+        factory.setIgnoringComments(true);
+        // now use the factory to create the document builder
+        try {
+            DocumentBuilder builder = factory.newDocumentBuilder();
+            builder.setErrorHandler(this);
+            return builder;
+        } catch (ParserConfigurationException pce) {
+            throw new IllegalArgumentException("Filed to setup repository: ");
+        }
+    }
+
     /**
      * @param doc
      * @return
@@ -0,0 +1,474 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.entitlement.policy.collection;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.balana.AbstractPolicy;
+import org.wso2.balana.AbstractTarget;
+import org.wso2.balana.MatchResult;
+import org.wso2.balana.Policy;
+import org.wso2.balana.PolicyReference;
+import org.wso2.balana.PolicySet;
+import org.wso2.balana.TargetMatch;
+import org.wso2.balana.VersionConstraints;
+import org.wso2.balana.attr.AttributeValue;
+import org.wso2.balana.attr.xacml3.AttributeDesignator;
+import org.wso2.balana.combine.PolicyCombiningAlgorithm;
+import org.wso2.balana.cond.Evaluatable;
+import org.wso2.balana.ctx.AbstractRequestCtx;
+import org.wso2.balana.ctx.Attribute;
+import org.wso2.balana.ctx.EvaluationCtx;
+import org.wso2.balana.xacml3.AllOfSelection;
+import org.wso2.balana.xacml3.AnyOfSelection;
+import org.wso2.balana.xacml3.Attributes;
+import org.wso2.balana.xacml3.Target;
+import org.wso2.carbon.identity.entitlement.EntitlementException;
+
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+/**
+ * Policy collection which indexes the policies by the attribute values of their targets, so that
+ * <code>AbstractPolicy.match</code> is only evaluated on the policies which can match a request.
+ * <p>
+ * A policy is indexed by the equality matches of one <code>AnyOf</code> element of its target, in which every
+ * <code>AllOf</code> element has at least one equality match on a designated attribute. Such a policy can only match
+ * a request which carries one of the indexed attribute values. Policies whose targets can not be indexed this way
+ * (empty targets, XACML 2.0 targets or non equality functions) are kept in a wildcard bucket and are always
+ * evaluated. Since attributes which are not in the request may still be resolved by the attribute finders, a policy
+ * indexed on an attribute which the request does not carry is always evaluated too.
+ * <p>
+ * The index is immutable. Adding or removing a policy publishes a new index, so that a request evaluated at the same
+ * time sees either the index before the change or the one after it, never a policy which is half way replaced.
+ */
+public class IndexedPolicyCollection implements PolicyCollection {
+
+    private static final Log log = LogFactory.getLog(IndexedPolicyCollection.class);
+
+    private static final Set<String> INDEXABLE_FUNCTIONS = new HashSet<String>(Arrays.asList(
+            "urn:oasis:names:tc:xacml:1.0:function:string-equal",
+            "urn:oasis:names:tc:xacml:1.0:function:anyURI-equal"));
+
+    private static final Comparator<IndexedPolicy> POLICY_ORDER_COMPARATOR = new Comparator<IndexedPolicy>() {
+        @Override
+        public int compare(IndexedPolicy o1, IndexedPolicy o2) {
+            return o1.order < o2.order ? -1 : (o1.order == o2.order ? 0 : 1);
+        }
+    };
+
+    /**
+     * Index of the policies, replaced as a whole whenever a policy is added or removed
+     */
+    private volatile PolicyIndex policyIndex = new PolicyIndex(Collections.<URI, IndexedPolicy>emptyMap());
+    /**
+     * the optional combining algorithm used when wrapping multiple policies
+     * if no algorithm is defined, only one applicable algorithm is used
+     */
+    private PolicyCombiningAlgorithm combiningAlg;
+    /**
+     * the optional policy id used when wrapping multiple policies
+     */
+    private URI parentId;
+    private long nextOrder;
+
+    @Override
+    public void init(Properties properties) throws Exception {
+        String parentIdProperty = properties.getProperty("parentId");
+        if (parentIdProperty != null) {
+            parentId = new URI(parentIdProperty);
+        }
+    }
+
+    @Override
+    public synchronized boolean addPolicy(AbstractPolicy policy) {
+
+        Map<URI, IndexedPolicy> policies = new HashMap<URI, IndexedPolicy>(policyIndex.policies);
+        boolean replaced = putPolicy(policies, policy);
+        policyIndex = new PolicyIndex(policies);
+        return replaced;
+    }
+
+    @Override
+    public AbstractPolicy getEffectivePolicy(EvaluationCtx context) throws EntitlementException {
+
+        // setup a list of matching policies
+        ArrayList<AbstractPolicy> list = new ArrayList<AbstractPolicy>();
+
+        for (IndexedPolicy indexedPolicy : getCandidatePolicies(context)) {
+
+            AbstractPolicy policy = indexedPolicy.policy;
+
+            // see if we match
+            MatchResult match = policy.match(context);
+            int result = match.getResult();
+
+            // if there was an error, we stop right away
+            if (result == MatchResult.INDETERMINATE) {
+                log.error(match.getStatus().getMessage());
+                throw new EntitlementException(match.getStatus().getMessage());
+            }
+
+            // if we matched, we keep track of the matching policy...
+            if (result == MatchResult.MATCH) {
+                // ...first checking if this is the first match and if
+                // we automatically nest policies
+
+                if (log.isDebugEnabled()) {
+                    log.debug("Matching XACML policy found " + policy.getId().toString());
+                }
+
+                if ((combiningAlg == null) && (list.size() > 0)) {
+                    log.error("Too many applicable top-level policies");
+                    throw new EntitlementException("Too many applicable top-level policies");
+                }
+
+                list.add(policy);
+            }
+        }
+
+        // no errors happened during the search, so now take the right
+        // action based on how many policies we found
+        switch (list.size()) {
+            case 0:
+                if (log.isDebugEnabled()) {
+                    log.debug("No matching XACML policy found");
+                }
+                return null;
+            case 1:
+                return list.get(0);
+            default:
+                return new PolicySet(parentId, combiningAlg, null, list);
+        }
+    }
+
+    @Override
+    public AbstractPolicy getPolicy(URI policyId) {
+        IndexedPolicy indexedPolicy = policyIndex.policies.get(policyId);
+        return indexedPolicy != null ? indexedPolicy.policy : null;
+    }
+
+    @Override
+    public AbstractPolicy getPolicy(URI identifier, int type, VersionConstraints constraints) {
+
+        AbstractPolicy policy = getPolicy(identifier);
+
+        if (policy != null) {
+            // we found a valid version, so see if it's the right kind,
+            // and if it is then we return it
+            if (type == PolicyReference.POLICY_REFERENCE) {
+                if (policy instanceof Policy) {
+                    return policy;
+                }
+            } else {
+                if (policy instanceof PolicySet) {
+                    return policy;
+                }
+            }
+        }
+
+        return null;
+    }
+
+    @Override
+    public void setPolicyCombiningAlgorithm(PolicyCombiningAlgorithm algorithm) {
+        this.combiningAlg = algorithm;
+    }
+
+    @Override
+    public synchronized boolean deletePolicy(String policyId) {
+        URI policyUri;
+        try {
+            policyUri = new URI(policyId);
+        } catch (URISyntaxException ex) {
+            return false;
+        }
+        if (!policyIndex.policies.containsKey(policyUri)) {
+            return false;
+        }
+        Map<URI, IndexedPolicy> policies = new HashMap<URI, IndexedPolicy>(policyIndex.policies);
+        policies.remove(policyUri);
+        policyIndex = new PolicyIndex(policies);
+        return true;
+    }
+
+    @Override
+    public LinkedHashMap getPolicyMap() {
+        List<IndexedPolicy> orderedPolicies = new ArrayList<IndexedPolicy>(policyIndex.policies.values());
+        Collections.sort(orderedPolicies, POLICY_ORDER_COMPARATOR);
+        LinkedHashMap<URI, AbstractPolicy> policyMap = new LinkedHashMap<URI, AbstractPolicy>();
+        for (IndexedPolicy indexedPolicy : orderedPolicies) {
+            policyMap.put(indexedPolicy.policy.getId(), indexedPolicy.policy);
+        }
+        return policyMap;
+    }
+
+    @Override
+    public synchronized void setPolicyMap(LinkedHashMap policyMap) {
+        Map<URI, IndexedPolicy> policies = new HashMap<URI, IndexedPolicy>();
+        nextOrder = 0;
+        for (Object policy : policyMap.values()) {
+            putPolicy(policies, (AbstractPolicy) policy);
+        }
+        policyIndex = new PolicyIndex(policies);
+    }
+
+    /**
+     * Puts a policy to the given policies, keeping the position of the policy it replaces, as done by a
+     * LinkedHashMap.
+     *
+     * @param policies policies by policy identifier
+     * @param policy   policy to put
+     * @return whether a policy with the same identifier was replaced
+     */
+    private boolean putPolicy(Map<URI, IndexedPolicy> policies, AbstractPolicy policy) {
+
+        IndexedPolicy existingPolicy = policies.get(policy.getId());
+        long order = existingPolicy != null ? existingPolicy.order : nextOrder++;
+        policies.put(policy.getId(), new IndexedPolicy(policy, order, getIndexKeys(policy.getTarget())));
+        return existingPolicy != null;
+    }
+
+    /**
+     * Finds the policies which may match the given request, in the order of the collection.
+     *
+     * @param context XACML request ctx
+     * @return candidate policies
+     */
+    private List<IndexedPolicy> getCandidatePolicies(EvaluationCtx context) {
+
+        PolicyIndex index = policyIndex;
+        Map<String, Set<String>> requestAttributes = getRequestAttributes(context);
+        List<IndexedPolicy> candidates;
+        if (requestAttributes == null) {
+            candidates = new ArrayList<IndexedPolicy>(index.policies.values());
+        } else {
+            Set<IndexedPolicy> candidateSet = new HashSet<IndexedPolicy>(index.wildcardPolicies);
+            for (Map.Entry<String, AttributeIndex> entry : index.attributeIndexes.entrySet()) {
+                Set<String> values = requestAttributes.get(entry.getKey());
+                if (values == null) {
+                    // the attribute may still be resolved by an attribute finder
+                    candidateSet.addAll(entry.getValue().allPolicies);
+                    continue;
+                }
+                for (String value : values) {
+                    Set<IndexedPolicy> valuePolicies = entry.getValue().policiesByValue.get(value);
+                    if (valuePolicies != null) {
+                        candidateSet.addAll(valuePolicies);
+                    }
+                }
+            }
+            candidates = new ArrayList<IndexedPolicy>(candidateSet);
+        }
+        Collections.sort(candidates, POLICY_ORDER_COMPARATOR);
+
+        if (log.isDebugEnabled()) {
+            log.debug(candidates.size() + " out of " + index.policies.size() + " XACML policies are evaluated for " +
+                    "the request");
+        }
+        return candidates;
+    }
+
+    /**
+     * Collects the attribute values of the request by designated attribute.
+     *
+     * @param context XACML request ctx
+     * @return attribute values by designated attribute or null if the request attributes are not available
+     */
+    private Map<String, Set<String>> getRequestAttributes(EvaluationCtx context) {
+
+        AbstractRequestCtx requestCtx = context.getRequestCtx();
+        if (requestCtx == null || requestCtx.getAttributesSet() == null) {
+            return null;
+        }
+
+        Map<String, Set<String>> requestAttributes = new HashMap<String, Set<String>>();
+        for (Attributes attributes : requestCtx.getAttributesSet()) {
+            if (attributes.getCategory() == null || attributes.getAttributes() == null) {
+                continue;
+            }
+            for (Attribute attribute : attributes.getAttributes()) {
+                String attributeKey = getAttributeKey(attributes.getCategory(), attribute.getId());
+                Set<String> values = requestAttributes.get(attributeKey);
+                if (values == null) {
+                    values = new HashSet<String>();
+                    requestAttributes.put(attributeKey, values);
+                }
+                if (attribute.getValues() != null) {
+                    for (AttributeValue value : attribute.getValues()) {
+                        values.add(value.encode());
+                    }
+                }
+            }
+        }
+        return requestAttributes;
+    }
+
+    /**
+     * Finds the index keys of a policy target. Returns null if the target can not be indexed.
+     *
+     * @param target policy target
+     * @return index keys by designated attribute or null
+     */
+    private Map<String, Set<String>> getIndexKeys(AbstractTarget target) {
+
+        if (!(target instanceof Target) || ((Target) target).getAnyOfSelects() == null) {
+            return null;
+        }
+
+        for (AnyOfSelection anyOf : ((Target) target).getAnyOfSelects()) {
+            Map<String, Set<String>> indexKeys = getIndexKeys(anyOf);
+            if (indexKeys != null) {
+                return indexKeys;
+            }
+        }
+        return null;
+    }
+
+    private Map<String, Set<String>> getIndexKeys(AnyOfSelection anyOf) {
+
+        if (anyOf.getAllOfSelections() == null || anyOf.getAllOfSelections().isEmpty()) {
+            return null;
+        }
+
+        Map<String, Set<String>> indexKeys = new HashMap<String, Set<String>>();
+        for (AllOfSelection allOf : anyOf.getAllOfSelections()) {
+            boolean indexed = false;
+            if (allOf.getMatches() != null) {
+                for (TargetMatch targetMatch : allOf.getMatches()) {
+                    if (addIndexKey(targetMatch, indexKeys)) {
+                        indexed = true;
+                        break;
+                    }
+                }
+            }
+            if (!indexed) {
+                // this AllOf can match any request, so does this AnyOf
+                return null;
+            }
+        }
+        return indexKeys;
+    }
+
+    private boolean addIndexKey(TargetMatch targetMatch, Map<String, Set<String>> indexKeys) {
+
+        if (targetMatch.getMatchFunction() == null || targetMatch.getMatchValue() == null ||
+                !INDEXABLE_FUNCTIONS.contains(targetMatch.getMatchFunction().getIdentifier().toString())) {
+            return false;
+        }
+        Evaluatable evaluatable = targetMatch.getMatchEvaluatable();
+        if (!(evaluatable instanceof AttributeDesignator)) {
+            return false;
+        }
+        AttributeDesignator designator = (AttributeDesignator) evaluatable;
+        if (designator.getCategory() == null || designator.getId() == null) {
+            return false;
+        }
+
+        String attributeKey = getAttributeKey(designator.getCategory(), designator.getId());
+        Set<String> values = indexKeys.get(attributeKey);
+        if (values == null) {
+            values = new HashSet<String>();
+            indexKeys.put(attributeKey, values);
+        }
+        values.add(targetMatch.getMatchValue().encode());
+        return true;
+    }
+
+    private static String getAttributeKey(URI category, URI attributeId) {
+        return category.toString() + "\n" + attributeId.toString();
+    }
+
+    /**
+     * Policy with its position in the collection and the attribute values it is indexed by
+     */
+    private static class IndexedPolicy {
+
+        private final AbstractPolicy policy;
+        private final long order;
+        private final Map<String, Set<String>> indexKeys;
+
+        IndexedPolicy(AbstractPolicy policy, long order, Map<String, Set<String>> indexKeys) {
+            this.policy = policy;
+            this.order = order;
+            this.indexKeys = indexKeys;
+        }
+    }
+
+    /**
+     * Policies by policy identifier, by designated attribute (category and attribute id) and then by attribute value,
+     * and the policies which could not be indexed. It is not changed once it is built.
+     */
+    private static class PolicyIndex {
+
+        private final Map<URI, IndexedPolicy> policies;
+        private final Map<String, AttributeIndex> attributeIndexes = new HashMap<String, AttributeIndex>();
+        private final Set<IndexedPolicy> wildcardPolicies = new HashSet<IndexedPolicy>();
+
+        PolicyIndex(Map<URI, IndexedPolicy> policies) {
+            this.policies = policies;
+            for (IndexedPolicy indexedPolicy : policies.values()) {
+                if (indexedPolicy.indexKeys == null) {
+                    wildcardPolicies.add(indexedPolicy);
+                    continue;
+                }
+                for (Map.Entry<String, Set<String>> entry : indexedPolicy.indexKeys.entrySet()) {
+                    AttributeIndex attributeIndex = attributeIndexes.get(entry.getKey());
+                    if (attributeIndex == null) {
+                        attributeIndex = new AttributeIndex();
+                        attributeIndexes.put(entry.getKey(), attributeIndex);
+                    }
+                    attributeIndex.add(entry.getValue(), indexedPolicy);
+                }
+            }
+        }
+    }
+
+    /**
+     * Policies indexed on a single designated attribute
+     */
+    private static class AttributeIndex {
+
+        private final Map<String, Set<IndexedPolicy>> policiesByValue = new HashMap<String, Set<IndexedPolicy>>();
+        private final Set<IndexedPolicy> allPolicies = new HashSet<IndexedPolicy>();
+
+        void add(Set<String> values, IndexedPolicy indexedPolicy) {
+            for (String value : values) {
+                Set<IndexedPolicy> valuePolicies = policiesByValue.get(value);
+                if (valuePolicies == null) {
+                    valuePolicies = new HashSet<IndexedPolicy>();
+                    policiesByValue.put(value, valuePolicies);
+                }
+                valuePolicies.add(indexedPolicy);
+            }
+            allPolicies.add(indexedPolicy);
+        }
+    }
+}
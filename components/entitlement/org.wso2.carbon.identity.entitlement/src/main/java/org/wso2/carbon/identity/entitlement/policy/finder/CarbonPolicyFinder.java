@@ -32,6 +32,7 @@ import org.wso2.balana.ctx.Status;
 import org.wso2.balana.finder.PolicyFinder;
 import org.wso2.balana.finder.PolicyFinderResult;
 import org.wso2.carbon.context.CarbonContext;
+import org.wso2.carbon.context.PrivilegedCarbonContext;
 import org.wso2.carbon.identity.entitlement.EntitlementException;
 import org.wso2.carbon.identity.entitlement.PDPConstants;
 import org.wso2.carbon.identity.entitlement.PolicyOrderComparator;
@@ -57,6 +58,13 @@ import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Policy finder of the WSO2 entitlement engine.  This an implementation of <code>PolicyFinderModule</code>
@@ -65,6 +73,7 @@ import java.util.Properties;
 public class CarbonPolicyFinder extends org.wso2.balana.finder.PolicyFinderModule {
 
     private static Log log = LogFactory.getLog(CarbonPolicyFinder.class);
+    private static final int POLICY_LOAD_PROGRESS_INTERVAL = 1000;
     public PolicyReader policyReader;
     private List<PolicyFinderModule> finderModules = null;
     private PolicyCollection policyCollection;
@@ -78,6 +87,7 @@ public class CarbonPolicyFinder extends org.wso2.balana.finder.PolicyFinderModul
     private volatile boolean initFinish;
     private LinkedHashMap<URI, AbstractPolicy> policyReferenceCache = null;
     private int maxReferenceCacheEntries = PDPConstants.MAX_NO_OF_IN_MEMORY_POLICIES;
+    private volatile long policyLoadTime;
 
 
     @Override
@@ -157,30 +167,142 @@ public class CarbonPolicyFinder extends org.wso2.balana.finder.PolicyFinderModul
 
             tempPolicyCollection.setPolicyCombiningAlgorithm(policyCombiningAlgorithm);
 
-            for (PolicyFinderModule finderModule : this.finderModules) {
+            loadPolicies(tempPolicyCollection);
+        } else {
+            log.warn("No Carbon policy finder modules are registered");
+
+        }
+
+        policyCollection = tempPolicyCollection;
+        initFinish = true;
+        log.info("Initializing of policy store is finished at :  " + new Date());
+    }
+
+    /**
+     * Retrieves the active policies of the finder modules in parallel, parses them on a bounded pool of policy
+     * loader threads and adds them to the policy collection in the order of the finder modules and of their
+     * policies, as they were added when the policies were loaded one at a time.
+     *
+     * @param tempPolicyCollection policy collection to add the policies to
+     */
+    private void loadPolicies(PolicyCollection tempPolicyCollection) {
+
+        long startTime = System.currentTimeMillis();
+        ExecutorService executor = createPolicyLoaderExecutor();
+        try {
+            List<Future<String[]>> activePolicies = new ArrayList<Future<String[]>>();
+            for (final PolicyFinderModule finderModule : finderModules) {
                 log.info("Start retrieving policies from " + finderModule + " at : " + new Date());
-                String[] policies = finderModule.getActivePolicies();
-                for (int a = 0; a < policies.length; a++) {
-                    String policy = policies[a];
-                    AbstractPolicy abstractPolicy = policyReader.getPolicy(policy);
+                activePolicies.add(executor.submit(new TenantAwareCallable<String[]>() {
+
+                    @Override
+                    protected String[] execute() {
+                        return finderModule.getActivePolicies();
+                    }
+                }));
+            }
+
+            int policyCount = 0;
+            List<List<Future<AbstractPolicy>>> parsedPolicies = new ArrayList<List<Future<AbstractPolicy>>>();
+            for (int i = 0; i < finderModules.size(); i++) {
+                String[] policies = getResult(activePolicies.get(i));
+                log.info("Finish retrieving " + policies.length + " policies from " + finderModules.get(i) +
+                        " at : " + new Date());
+                List<Future<AbstractPolicy>> modulePolicies = new ArrayList<Future<AbstractPolicy>>(policies.length);
+                for (final String policy : policies) {
+                    modulePolicies.add(executor.submit(new TenantAwareCallable<AbstractPolicy>() {
+
+                        @Override
+                        protected AbstractPolicy execute() {
+                            return policyReader.getPolicy(policy);
+                        }
+                    }));
+                }
+                parsedPolicies.add(modulePolicies);
+                policyCount += policies.length;
+            }
+
+            int processedCount = 0;
+            int loadedCount = 0;
+            for (List<Future<AbstractPolicy>> modulePolicies : parsedPolicies) {
+                for (int a = 0; a < modulePolicies.size(); a++) {
+                    AbstractPolicy abstractPolicy = getResult(modulePolicies.get(a));
                     if (abstractPolicy != null) {
                         PolicyDTO policyDTO = new PolicyDTO();
                         policyDTO.setPolicyId(abstractPolicy.getId().toString());
                         policyDTO.setPolicyOrder(a);
                         policyCollectionOrder.add(policyDTO);
                         tempPolicyCollection.addPolicy(abstractPolicy);
+                        loadedCount++;
+                    }
+                    processedCount++;
+                    if (processedCount % POLICY_LOAD_PROGRESS_INTERVAL == 0) {
+                        log.info("Loaded " + processedCount + " of " + policyCount + " policies");
                     }
                 }
-                log.info("Finish retrieving policies from " + finderModule + " at : " + new Date());
             }
-        } else {
-            log.warn("No Carbon policy finder modules are registered");
 
+            policyLoadTime = System.currentTimeMillis() - startTime;
+            log.info("Loaded " + loadedCount + " of " + policyCount + " policies from " + finderModules.size() +
+                    " policy finder modules in " + policyLoadTime + " ms");
+        } finally {
+            executor.shutdownNow();
         }
+    }
 
-        policyCollection = tempPolicyCollection;
-        initFinish = true;
-        log.info("Initializing of policy store is finished at :  " + new Date());
+    private ExecutorService createPolicyLoaderExecutor() {
+
+        int threadPoolSize = Runtime.getRuntime().availableProcessors();
+        String poolSize = EntitlementServiceComponent.getEntitlementConfig().getEngineProperties().
+                getProperty(PDPConstants.POLICY_LOADER_THREAD_POOL_SIZE);
+        if (poolSize != null) {
+            try {
+                threadPoolSize = Integer.parseInt(poolSize.trim());
+            } catch (NumberFormatException e) {
+                log.warn("Invalid value: " + poolSize + " for " + PDPConstants.POLICY_LOADER_THREAD_POOL_SIZE +
+                        ". Using the default value: " + threadPoolSize);
+            }
+        }
+        if (threadPoolSize < 1) {
+            threadPoolSize = 1;
+        }
+
+        final AtomicInteger threadCount = new AtomicInteger();
+        return Executors.newFixedThreadPool(threadPoolSize, new ThreadFactory() {
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+
+                Thread thread = new Thread(runnable, "PolicyLoader-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    private static <T> T getResult(Future<T> future) {
+
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while loading the policies", e);
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            } else if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException("Error while loading the policies", cause);
+        }
+    }
+
+    /**
+     * @return time taken in milliseconds by the last loading of the policies of the finder modules
+     */
+    public long getPolicyLoadTime() {
+        return policyLoadTime;
     }
 
     @Override
@@ -364,4 +486,30 @@ public class CarbonPolicyFinder extends org.wso2.balana.finder.PolicyFinderModul
     public void clearPolicyCache() {
         EntitlementEngine.getInstance().getPolicyCache().clear();
     }
+
+    /**
+     * Task of the policy loader threads, which runs in the tenant flow of the thread that created it, as the finder
+     * modules read the policies of the tenant of the carbon context.
+     */
+    private abstract static class TenantAwareCallable<T> implements Callable<T> {
+
+        private final int tenantId = CarbonContext.getThreadLocalCarbonContext().getTenantId();
+        private final String tenantDomain = CarbonContext.getThreadLocalCarbonContext().getTenantDomain();
+
+        @Override
+        public T call() throws Exception {
+
+            try {
+                PrivilegedCarbonContext.startTenantFlow();
+                PrivilegedCarbonContext carbonContext = PrivilegedCarbonContext.getThreadLocalCarbonContext();
+                carbonContext.setTenantId(tenantId);
+                carbonContext.setTenantDomain(tenantDomain);
+                return execute();
+            } finally {
+                PrivilegedCarbonContext.endTenantFlow();
+            }
+        }
+
+        protected abstract T execute();
+    }
 }
@@ -0,0 +1,118 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.entitlement.pdp;
+
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
+
+public class DecisionCacheKeyBuilderTest {
+
+    private static final String REQUEST =
+            "<Request xmlns=\"urn:oasis:names:tc:xacml:3.0:core:schema:wd-17\" CombinedDecision=\"false\" " +
+                    "ReturnPolicyIdList=\"false\">" +
+                    "<Attributes Category=\"urn:oasis:names:tc:xacml:3.0:attribute-category:resource\">" +
+                    "<Attribute AttributeId=\"urn:oasis:names:tc:xacml:1.0:resource:resource-id\" " +
+                    "IncludeInResult=\"false\">" +
+                    "<AttributeValue DataType=\"http://www.w3.org/2001/XMLSchema#string\">orders</AttributeValue>" +
+                    "</Attribute>" +
+                    "<Attribute AttributeId=\"http://wso2.org/claims/country\" IncludeInResult=\"false\">" +
+                    "<AttributeValue DataType=\"http://www.w3.org/2001/XMLSchema#string\">Sri Lanka</AttributeValue>" +
+                    "</Attribute>" +
+                    "</Attributes>" +
+                    "<Attributes Category=\"urn:oasis:names:tc:xacml:3.0:attribute-category:action\">" +
+                    "<Attribute AttributeId=\"urn:oasis:names:tc:xacml:1.0:action:action-id\" " +
+                    "IncludeInResult=\"false\">" +
+                    "<AttributeValue DataType=\"http://www.w3.org/2001/XMLSchema#string\">read</AttributeValue>" +
+                    "</Attribute>" +
+                    "</Attributes>" +
+                    "</Request>";
+
+    @DataProvider(name = "equivalentRequests")
+    public Object[][] getEquivalentRequests() {
+
+        return new Object[][]{
+                // Whitespace between the elements.
+                {"\n  " + REQUEST.replace("><", ">\n    <")},
+                // Order of the XML attributes.
+                {REQUEST.replace("CombinedDecision=\"false\" ReturnPolicyIdList=\"false\"",
+                        "ReturnPolicyIdList=\"false\" CombinedDecision=\"false\"")},
+                // Order of the XACML attributes of a category.
+                {REQUEST.replace(
+                        "<Attribute AttributeId=\"urn:oasis:names:tc:xacml:1.0:resource:resource-id\" " +
+                                "IncludeInResult=\"false\">" +
+                                "<AttributeValue DataType=\"http://www.w3.org/2001/XMLSchema#string\">orders" +
+                                "</AttributeValue></Attribute>" +
+                                "<Attribute AttributeId=\"http://wso2.org/claims/country\" IncludeInResult=\"false\">" +
+                                "<AttributeValue DataType=\"http://www.w3.org/2001/XMLSchema#string\">Sri Lanka" +
+                                "</AttributeValue></Attribute>",
+                        "<Attribute AttributeId=\"http://wso2.org/claims/country\" IncludeInResult=\"false\">" +
+                                "<AttributeValue DataType=\"http://www.w3.org/2001/XMLSchema#string\">Sri Lanka" +
+                                "</AttributeValue></Attribute>" +
+                                "<Attribute AttributeId=\"urn:oasis:names:tc:xacml:1.0:resource:resource-id\" " +
+                                "IncludeInResult=\"false\">" +
+                                "<AttributeValue DataType=\"http://www.w3.org/2001/XMLSchema#string\">orders" +
+                                "</AttributeValue></Attribute>")},
+                // Namespace prefix of the elements.
+                {REQUEST.replace("<Request xmlns=", "<xacml:Request xmlns:xacml=")
+                        .replace("</Request>", "</xacml:Request>")
+                        .replace("<Attributes ", "<xacml:Attributes ").replace("</Attributes>", "</xacml:Attributes>")
+                        .replace("<Attribute ", "<xacml:Attribute ").replace("</Attribute>", "</xacml:Attribute>")
+                        .replace("<AttributeValue ", "<xacml:AttributeValue ")
+                        .replace("</AttributeValue>", "</xacml:AttributeValue>")}
+        };
+    }
+
+    @Test(dataProvider = "equivalentRequests")
+    public void testEquivalentRequestsShareKey(String request) {
+
+        assertEquals(DecisionCacheKeyBuilder.getKey(request), DecisionCacheKeyBuilder.getKey(REQUEST));
+    }
+
+    @Test
+    public void testDifferentRequestsHaveDifferentKeys() {
+
+        assertNotEquals(DecisionCacheKeyBuilder.getKey(REQUEST.replace(">orders<", ">invoices<")),
+                DecisionCacheKeyBuilder.getKey(REQUEST));
+        // The order of the categories decides the order of the results, so it is kept.
+        String resourceCategory = REQUEST.substring(REQUEST.indexOf("<Attributes "),
+                REQUEST.indexOf("<Attributes ", REQUEST.indexOf("<Attributes ") + 1));
+        String reorderedRequest = REQUEST.replace(resourceCategory, "")
+                .replace("</Request>", resourceCategory + "</Request>");
+        assertNotEquals(DecisionCacheKeyBuilder.getKey(reorderedRequest), DecisionCacheKeyBuilder.getKey(REQUEST));
+    }
+
+    @Test
+    public void testRepeatedRequestHasSameKey() {
+
+        String key = DecisionCacheKeyBuilder.getKey(REQUEST);
+        assertEquals(DecisionCacheKeyBuilder.getKey(new String(REQUEST)), key);
+    }
+
+    @Test
+    public void testNonXmlRequestIsKeyedAsItIs() {
+
+        String jsonRequest = "{\"Request\":{\"Resource\":{\"Attribute\":[]}}}";
+        assertEquals(DecisionCacheKeyBuilder.getKey(jsonRequest), DecisionCacheKeyBuilder.getKey(jsonRequest));
+        assertNotEquals(DecisionCacheKeyBuilder.getKey(" " + jsonRequest), DecisionCacheKeyBuilder.getKey(jsonRequest));
+        assertNotEquals(DecisionCacheKeyBuilder.getKey("<Request"), DecisionCacheKeyBuilder.getKey("<Request "));
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.entitlement.pdp;
+
+import org.powermock.reflect.Whitebox;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.wso2.balana.PDP;
+import org.wso2.balana.ctx.AbstractRequestCtx;
+import org.wso2.balana.ctx.ResponseCtx;
+import org.wso2.carbon.identity.entitlement.EntitlementException;
+import org.wso2.carbon.identity.entitlement.PDPConstants;
+import org.wso2.carbon.identity.entitlement.internal.EntitlementConfigHolder;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.fail;
+
+public class EntitlementEngineTest {
+
+    private static final int MAX_BATCH_REQUESTS = 5;
+    private static final String BATCH_DECISION_EXECUTOR = "batchDecisionExecutor";
+
+    private EntitlementEngine entitlementEngine;
+    private PDP pdp;
+    private Properties engineProperties;
+
+    @BeforeClass
+    public void setUpClass() {
+        System.setProperty("carbon.home", Paths.get(System.getProperty("user.dir"), "target").toString());
+        engineProperties = EntitlementConfigHolder.getInstance().getEngineProperties();
+        EntitlementConfigHolder.getInstance().setEngineProperties(new Properties());
+    }
+
+    @BeforeMethod
+    public void setUp() {
+        pdp = mock(PDP.class);
+        // The engine is created without its constructor, which sets up the finders of the deployment.
+        entitlementEngine = Whitebox.newInstance(EntitlementEngine.class);
+        Whitebox.setInternalState(entitlementEngine, "pdp", pdp);
+        Whitebox.setInternalState(entitlementEngine, "policyGeneration", new AtomicLong());
+        Whitebox.setInternalState(entitlementEngine, "maxBatchDecisionRequests", MAX_BATCH_REQUESTS);
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        resetBatchDecisionExecutor();
+    }
+
+    @AfterClass
+    public void tearDownClass() {
+        EntitlementConfigHolder.getInstance().setEngineProperties(engineProperties);
+    }
+
+    @Test
+    public void testResponsesInRequestOrder() throws Exception {
+
+        List<AbstractRequestCtx> requestCtxs = new ArrayList<>();
+        List<ResponseCtx> expectedResponses = new ArrayList<>();
+        for (int i = 0; i < MAX_BATCH_REQUESTS; i++) {
+            AbstractRequestCtx requestCtx = mock(AbstractRequestCtx.class);
+            ResponseCtx responseCtx = mock(ResponseCtx.class);
+            when(pdp.evaluate(requestCtx)).thenReturn(responseCtx);
+            requestCtxs.add(requestCtx);
+            expectedResponses.add(responseCtx);
+        }
+
+        List<ResponseCtx> responses = entitlementEngine.evaluate(requestCtxs,
+                Arrays.asList("request0", "request1", "request2", "request3", "request4"));
+
+        assertEquals(responses, expectedResponses);
+    }
+
+    @Test
+    public void testIdenticalRequestsEvaluatedOnce() throws Exception {
+
+        AbstractRequestCtx firstRequestCtx = mock(AbstractRequestCtx.class);
+        AbstractRequestCtx secondRequestCtx = mock(AbstractRequestCtx.class);
+        AbstractRequestCtx repeatedRequestCtx = mock(AbstractRequestCtx.class);
+        ResponseCtx firstResponseCtx = mock(ResponseCtx.class);
+        ResponseCtx secondResponseCtx = mock(ResponseCtx.class);
+        when(pdp.evaluate(firstRequestCtx)).thenReturn(firstResponseCtx);
+        when(pdp.evaluate(secondRequestCtx)).thenReturn(secondResponseCtx);
+
+        List<ResponseCtx> responses = entitlementEngine.evaluate(
+                Arrays.asList(firstRequestCtx, secondRequestCtx, repeatedRequestCtx),
+                Arrays.asList("first", "second", "first"));
+
+        assertEquals(responses.size(), 3);
+        assertSame(responses.get(0), firstResponseCtx);
+        assertSame(responses.get(1), secondResponseCtx);
+        assertSame(responses.get(2), firstResponseCtx);
+        verify(pdp, times(2)).evaluate(any(AbstractRequestCtx.class));
+        verify(pdp, never()).evaluate(repeatedRequestCtx);
+    }
+
+    @Test
+    public void testBatchLimit() throws Exception {
+
+        List<AbstractRequestCtx> requestCtxs = new ArrayList<>();
+        List<String> requests = new ArrayList<>();
+        for (int i = 0; i <= MAX_BATCH_REQUESTS; i++) {
+            requestCtxs.add(mock(AbstractRequestCtx.class));
+            requests.add("request" + i);
+        }
+
+        try {
+            entitlementEngine.evaluate(requestCtxs, requests);
+            fail("A batch over the limit is evaluated.");
+        } catch (EntitlementException e) {
+            assertEquals(e.getMessage(), "Batch of " + (MAX_BATCH_REQUESTS + 1) + " requests exceeds the limit of " +
+                    MAX_BATCH_REQUESTS + " requests");
+        }
+        verify(pdp, never()).evaluate(any(AbstractRequestCtx.class));
+    }
+
+    @Test
+    public void testBatchDecisionQueueSizedByMaxRequests() throws Exception {
+
+        Properties properties = new Properties();
+        properties.setProperty(PDPConstants.BATCH_DECISION_THREAD_POOL_SIZE, "2");
+        EntitlementConfigHolder.getInstance().setEngineProperties(properties);
+        resetBatchDecisionExecutor();
+
+        ExecutorService executor = Whitebox.invokeMethod(EntitlementEngine.class, "getBatchDecisionExecutor",
+                MAX_BATCH_REQUESTS);
+
+        ThreadPoolExecutor threadPoolExecutor = (ThreadPoolExecutor) executor;
+        assertEquals(threadPoolExecutor.getMaximumPoolSize(), 2);
+        assertEquals(threadPoolExecutor.getQueue().remainingCapacity(), MAX_BATCH_REQUESTS * 2);
+    }
+
+    private static void resetBatchDecisionExecutor() {
+        ExecutorService executor = Whitebox.getInternalState(EntitlementEngine.class, BATCH_DECISION_EXECUTOR);
+        if (executor != null) {
+            executor.shutdownNow();
+            Whitebox.setInternalState(EntitlementEngine.class, BATCH_DECISION_EXECUTOR, (ExecutorService) null);
+        }
+    }
+}
@@ -0,0 +1,270 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.entitlement.pip;
+
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.testng.PowerMockTestCase;
+import org.powermock.reflect.Whitebox;
+import org.testng.IObjectFactory;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.ObjectFactory;
+import org.testng.annotations.Test;
+import org.wso2.balana.attr.AttributeValue;
+import org.wso2.balana.attr.BagAttribute;
+import org.wso2.balana.attr.StringAttribute;
+import org.wso2.balana.cond.EvaluationResult;
+import org.wso2.balana.ctx.AbstractRequestCtx;
+import org.wso2.balana.ctx.Attribute;
+import org.wso2.balana.ctx.EvaluationCtx;
+import org.wso2.balana.xacml3.Attributes;
+import org.wso2.carbon.context.CarbonContext;
+import org.wso2.carbon.identity.entitlement.PDPConstants;
+import org.wso2.carbon.identity.entitlement.cache.PIPAttributeCache;
+import org.wso2.carbon.identity.entitlement.internal.EntitlementConfigHolder;
+import org.wso2.carbon.user.api.RealmConfiguration;
+import org.wso2.carbon.user.api.UserRealm;
+import org.wso2.carbon.user.api.UserStoreManager;
+
+import java.net.URI;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Set;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyInt;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.powermock.api.mockito.PowerMockito.mockStatic;
+import static org.testng.Assert.assertEquals;
+
+@PrepareForTest(CarbonContext.class)
+public class CarbonAttributeFinderTest extends PowerMockTestCase {
+
+    private static final String SUBJECT_ID = "alice";
+    private static final String EMAIL_CLAIM = "http://wso2.org/claims/emailaddress";
+    private static final String COUNTRY_CLAIM = "http://wso2.org/claims/country";
+    private static final String SUBJECT_CATEGORY = "urn:oasis:names:tc:xacml:1.0:subject-category:access-subject";
+
+    private static final Map<String, String> CLAIM_VALUES = new HashMap<>();
+
+    static {
+        CLAIM_VALUES.put(EMAIL_CLAIM, "alice@wso2.com");
+        CLAIM_VALUES.put(COUNTRY_CLAIM, "Sri Lanka");
+    }
+
+    private UserStoreManager userStoreManager;
+    private DefaultAttributeFinder defaultAttributeFinder;
+    private Properties engineProperties;
+    private List<List<String>> claimReads;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+
+        claimReads = new ArrayList<>();
+        userStoreManager = mock(UserStoreManager.class);
+        when(userStoreManager.getUserClaimValues(anyString(), any(String[].class), anyString()))
+                .thenAnswer(new Answer<Map<String, String>>() {
+                    @Override
+                    public Map<String, String> answer(InvocationOnMock invocation) {
+
+                        List<String> claims = Arrays.asList((String[]) invocation.getArguments()[1]);
+                        claimReads.add(claims);
+                        Map<String, String> values = new HashMap<>();
+                        for (String claim : claims) {
+                            values.put(claim, CLAIM_VALUES.get(claim));
+                        }
+                        return values;
+                    }
+                });
+
+        UserRealm userRealm = mock(UserRealm.class);
+        when(userRealm.getUserStoreManager()).thenReturn(userStoreManager);
+        when(userRealm.getRealmConfiguration()).thenReturn(mock(RealmConfiguration.class));
+        CarbonContext carbonContext = mock(CarbonContext.class);
+        when(carbonContext.getUserRealm()).thenReturn(userRealm);
+        mockStatic(CarbonContext.class);
+        when(CarbonContext.getThreadLocalCarbonContext()).thenReturn(carbonContext);
+
+        defaultAttributeFinder = new DefaultAttributeFinder() {
+
+            @Override
+            public Set<String> getSupportedAttributes() {
+
+                return new HashSet<>(Arrays.asList(EMAIL_CLAIM, COUNTRY_CLAIM));
+            }
+        };
+        EntitlementConfigHolder configHolder = EntitlementConfigHolder.getInstance();
+        configHolder.addDesignators(defaultAttributeFinder, new Properties());
+        engineProperties = configHolder.getEngineProperties();
+        configHolder.setEngineProperties(new Properties());
+    }
+
+    @AfterMethod
+    public void tearDown() {
+
+        EntitlementConfigHolder configHolder = EntitlementConfigHolder.getInstance();
+        configHolder.getDesignators().remove(defaultAttributeFinder);
+        configHolder.setEngineProperties(engineProperties);
+    }
+
+    @ObjectFactory
+    public IObjectFactory getObjectFactory() {
+
+        return new org.powermock.modules.testng.PowerMockObjectFactory();
+    }
+
+    @Test
+    public void testClaimsAreReadTogether() throws Exception {
+
+        CarbonAttributeFinder attributeFinder = new CarbonAttributeFinder(-1234);
+        attributeFinder.init();
+
+        // The first evaluation finds which claims are used for the resource and the action.
+        EvaluationCtx firstEvaluation = getEvaluationCtx("orders", "read");
+        assertEquals(findClaim(attributeFinder, EMAIL_CLAIM, firstEvaluation), "alice@wso2.com");
+        assertEquals(findClaim(attributeFinder, COUNTRY_CLAIM, firstEvaluation), "Sri Lanka");
+        assertEquals(claimReads.size(), 2);
+
+        // The next evaluation reads both the claims with one user store call.
+        EvaluationCtx secondEvaluation = getEvaluationCtx("orders", "read");
+        assertEquals(findClaim(attributeFinder, EMAIL_CLAIM, secondEvaluation), "alice@wso2.com");
+        assertEquals(findClaim(attributeFinder, COUNTRY_CLAIM, secondEvaluation), "Sri Lanka");
+        assertEquals(claimReads.size(), 3);
+        assertEquals(new HashSet<>(claimReads.get(2)), new HashSet<>(Arrays.asList(EMAIL_CLAIM, COUNTRY_CLAIM)));
+        verify(userStoreManager, never()).getUserClaimValue(anyString(), anyString(), anyString());
+    }
+
+    @Test
+    public void testClaimsAreReadForTheRequestScope() throws Exception {
+
+        CarbonAttributeFinder attributeFinder = new CarbonAttributeFinder(-1234);
+        attributeFinder.init();
+
+        EvaluationCtx ordersEvaluation = getEvaluationCtx("orders", "read");
+        findClaim(attributeFinder, EMAIL_CLAIM, ordersEvaluation);
+        findClaim(attributeFinder, COUNTRY_CLAIM, ordersEvaluation);
+
+        // The policies of another resource use the email only, so the country is not read.
+        EvaluationCtx invoicesEvaluation = getEvaluationCtx("invoices", "read");
+        assertEquals(findClaim(attributeFinder, EMAIL_CLAIM, invoicesEvaluation), "alice@wso2.com");
+        assertEquals(claimReads.size(), 3);
+        assertEquals(claimReads.get(2), Collections.singletonList(EMAIL_CLAIM));
+    }
+
+    @Test
+    public void testClaimsReadTogetherAreCached() throws Exception {
+
+        CarbonAttributeFinder attributeFinder = new CarbonAttributeFinder(-1234);
+        attributeFinder.init();
+        final Map<String, Set<String>> cachedAttributes = new HashMap<>();
+        Whitebox.setInternalState(attributeFinder, "attributeFinderCache", getAttributeCache(cachedAttributes));
+
+        EvaluationCtx firstEvaluation = getEvaluationCtx("orders", "read");
+        findClaim(attributeFinder, EMAIL_CLAIM, firstEvaluation);
+        findClaim(attributeFinder, COUNTRY_CLAIM, firstEvaluation);
+        assertEquals(claimReads.size(), 2);
+        assertEquals(cachedAttributes.size(), 2);
+
+        // The cached claims are not read again.
+        EvaluationCtx secondEvaluation = getEvaluationCtx("orders", "read");
+        assertEquals(findClaim(attributeFinder, EMAIL_CLAIM, secondEvaluation), "alice@wso2.com");
+        assertEquals(findClaim(attributeFinder, COUNTRY_CLAIM, secondEvaluation), "Sri Lanka");
+        assertEquals(claimReads.size(), 2);
+
+        // Once the cached claims expire, the first miss reads both the claims, and the second is cached by it.
+        cachedAttributes.clear();
+        EvaluationCtx thirdEvaluation = getEvaluationCtx("orders", "read");
+        assertEquals(findClaim(attributeFinder, EMAIL_CLAIM, thirdEvaluation), "alice@wso2.com");
+        assertEquals(findClaim(attributeFinder, COUNTRY_CLAIM, thirdEvaluation), "Sri Lanka");
+        assertEquals(claimReads.size(), 3);
+        assertEquals(new HashSet<>(claimReads.get(2)), new HashSet<>(Arrays.asList(EMAIL_CLAIM, COUNTRY_CLAIM)));
+        assertEquals(cachedAttributes.size(), 2);
+        verify(userStoreManager, never()).getUserClaimValue(anyString(), anyString(), anyString());
+    }
+
+    private PIPAttributeCache getAttributeCache(final Map<String, Set<String>> cachedAttributes) {
+
+        PIPAttributeCache attributeCache = mock(PIPAttributeCache.class);
+        when(attributeCache.getFromCache(anyInt(), anyString())).thenAnswer(new Answer<Set<String>>() {
+            @Override
+            public Set<String> answer(InvocationOnMock invocation) {
+
+                return cachedAttributes.get((String) invocation.getArguments()[1]);
+            }
+        });
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+
+                cachedAttributes.put((String) invocation.getArguments()[1],
+                        (Set<String>) invocation.getArguments()[2]);
+                return null;
+            }
+        }).when(attributeCache).addToCache(anyInt(), anyString(), any(Set.class));
+        return attributeCache;
+    }
+
+    private String findClaim(CarbonAttributeFinder attributeFinder, String claim, EvaluationCtx context)
+            throws Exception {
+
+        EvaluationResult result = attributeFinder.findAttribute(new URI(StringAttribute.identifier), new URI(claim),
+                null, new URI(SUBJECT_CATEGORY), context);
+        BagAttribute values = (BagAttribute) result.getAttributeValue();
+        assertEquals(values.size(), 1);
+        return ((AttributeValue) values.iterator().next()).encode();
+    }
+
+    private EvaluationCtx getEvaluationCtx(String resourceId, String actionId) throws Exception {
+
+        Attributes attributes = mock(Attributes.class);
+        when(attributes.getAttributes()).thenReturn(new HashSet<>(Arrays.asList(
+                getAttribute(PDPConstants.RESOURCE_ID_DEFAULT, resourceId),
+                getAttribute(PDPConstants.ACTION_ID_DEFAULT, actionId))));
+        AbstractRequestCtx requestCtx = mock(AbstractRequestCtx.class);
+        when(requestCtx.getAttributesSet()).thenReturn(Collections.singleton(attributes));
+
+        EvaluationResult subject = new EvaluationResult(new BagAttribute(new URI(StringAttribute.identifier),
+                Collections.<AttributeValue>singletonList(new StringAttribute(SUBJECT_ID))));
+        EvaluationCtx context = mock(EvaluationCtx.class);
+        when(context.getAttribute(any(URI.class), any(URI.class), anyString(), any(URI.class))).thenReturn(subject);
+        when(context.getRequestCtx()).thenReturn(requestCtx);
+        return context;
+    }
+
+    private Attribute getAttribute(String id, String value) throws Exception {
+
+        Attribute attribute = mock(Attribute.class);
+        when(attribute.getId()).thenReturn(new URI(id));
+        when(attribute.getValues()).thenReturn(Collections.<AttributeValue>singletonList(new StringAttribute(value)));
+        return attribute;
+    }
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.entitlement.policy.collection;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.w3c.dom.Document;
+import org.wso2.balana.AbstractPolicy;
+import org.wso2.balana.Balana;
+import org.wso2.balana.Policy;
+import org.wso2.balana.ctx.EvaluationCtx;
+import org.wso2.balana.ctx.EvaluationCtxFactory;
+import org.wso2.balana.ctx.RequestCtxFactory;
+
+import java.io.ByteArrayInputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Properties;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.xml.parsers.DocumentBuilderFactory;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+public class IndexedPolicyCollectionTest {
+
+    private static final String STRING_EQUAL = "urn:oasis:names:tc:xacml:1.0:function:string-equal";
+    private static final String STRING_REGEXP_MATCH = "urn:oasis:names:tc:xacml:1.0:function:string-regexp-match";
+
+    private static final String POLICY =
+            "<Policy xmlns=\"urn:oasis:names:tc:xacml:3.0:core:schema:wd-17\" PolicyId=\"%s\" " +
+                    "RuleCombiningAlgId=\"urn:oasis:names:tc:xacml:3.0:rule-combining-algorithm:deny-overrides\" " +
+                    "Version=\"1.0\">" +
+                    "<Target><AnyOf><AllOf>" +
+                    "<Match MatchId=\"%s\">" +
+                    "<AttributeValue DataType=\"http://www.w3.org/2001/XMLSchema#string\">%s</AttributeValue>" +
+                    "<AttributeDesignator AttributeId=\"urn:oasis:names:tc:xacml:1.0:resource:resource-id\" " +
+                    "Category=\"urn:oasis:names:tc:xacml:3.0:attribute-category:resource\" " +
+                    "DataType=\"http://www.w3.org/2001/XMLSchema#string\" MustBePresent=\"false\"/>" +
+                    "</Match>" +
+                    "</AllOf></AnyOf></Target>" +
+                    "<Rule Effect=\"Permit\" RuleId=\"permit\"/>" +
+                    "</Policy>";
+
+    private static final String REQUEST =
+            "<Request xmlns=\"urn:oasis:names:tc:xacml:3.0:core:schema:wd-17\" CombinedDecision=\"false\" " +
+                    "ReturnPolicyIdList=\"false\">" +
+                    "<Attributes Category=\"urn:oasis:names:tc:xacml:3.0:attribute-category:resource\">" +
+                    "<Attribute AttributeId=\"urn:oasis:names:tc:xacml:1.0:resource:resource-id\" " +
+                    "IncludeInResult=\"false\">" +
+                    "<AttributeValue DataType=\"http://www.w3.org/2001/XMLSchema#string\">%s</AttributeValue>" +
+                    "</Attribute>" +
+                    "</Attributes>" +
+                    "</Request>";
+
+    private IndexedPolicyCollection policyCollection;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+        policyCollection = new IndexedPolicyCollection();
+        policyCollection.init(new Properties());
+    }
+
+    @Test
+    public void testTargetMatching() throws Exception {
+
+        policyCollection.addPolicy(createPolicy("orders", STRING_EQUAL, "orders"));
+        policyCollection.addPolicy(createPolicy("customers", STRING_EQUAL, "customers"));
+
+        assertEquals(getEffectivePolicyId("orders"), "orders");
+        assertEquals(getEffectivePolicyId("customers"), "customers");
+        assertNull(getEffectivePolicyId("products"));
+    }
+
+    @Test
+    public void testPolicyNotIndexedIsEvaluated() throws Exception {
+
+        policyCollection.addPolicy(createPolicy("orders", STRING_EQUAL, "orders"));
+        // A regular expression match can not be indexed, so the policy is evaluated for every request.
+        policyCollection.addPolicy(createPolicy("products", STRING_REGEXP_MATCH, "^prod.*"));
+
+        assertEquals(getEffectivePolicyId("orders"), "orders");
+        assertEquals(getEffectivePolicyId("products"), "products");
+        assertNull(getEffectivePolicyId("customers"));
+    }
+
+    @Test
+    public void testPolicyReplaced() throws Exception {
+
+        assertFalse(policyCollection.addPolicy(createPolicy("first", STRING_EQUAL, "orders")));
+        assertFalse(policyCollection.addPolicy(createPolicy("second", STRING_EQUAL, "customers")));
+        assertTrue(policyCollection.addPolicy(createPolicy("first", STRING_EQUAL, "products")));
+
+        assertNull(getEffectivePolicyId("orders"));
+        assertEquals(getEffectivePolicyId("products"), "first");
+        assertEquals(getEffectivePolicyId("customers"), "second");
+        // The replaced policy keeps its position in the collection.
+        assertEquals(new ArrayList<Object>(policyCollection.getPolicyMap().keySet()),
+                toURIs("first", "second"));
+    }
+
+    @Test
+    public void testPolicyRemoved() throws Exception {
+
+        policyCollection.addPolicy(createPolicy("orders", STRING_EQUAL, "orders"));
+        policyCollection.addPolicy(createPolicy("products", STRING_REGEXP_MATCH, "^prod.*"));
+
+        assertTrue(policyCollection.deletePolicy("orders"));
+        assertTrue(policyCollection.deletePolicy("products"));
+        assertFalse(policyCollection.deletePolicy("orders"));
+
+        assertNull(getEffectivePolicyId("orders"));
+        assertNull(getEffectivePolicyId("products"));
+        assertNull(policyCollection.getPolicy(new URI("orders")));
+        assertTrue(policyCollection.getPolicyMap().isEmpty());
+    }
+
+    @Test
+    public void testPolicyMapReplaced() throws Exception {
+
+        policyCollection.addPolicy(createPolicy("orders", STRING_EQUAL, "orders"));
+
+        LinkedHashMap<URI, AbstractPolicy> policyMap = new LinkedHashMap<URI, AbstractPolicy>();
+        policyMap.put(new URI("customers"), createPolicy("customers", STRING_EQUAL, "customers"));
+        policyMap.put(new URI("products"), createPolicy("products", STRING_EQUAL, "products"));
+        policyCollection.setPolicyMap(policyMap);
+
+        assertNull(getEffectivePolicyId("orders"));
+        assertEquals(getEffectivePolicyId("customers"), "customers");
+        assertEquals(getEffectivePolicyId("products"), "products");
+        assertEquals(new ArrayList<Object>(policyCollection.getPolicyMap().keySet()),
+                toURIs("customers", "products"));
+    }
+
+    @Test
+    public void testPolicyFoundWhileReplaced() throws Exception {
+
+        final AbstractPolicy policy = createPolicy("orders", STRING_EQUAL, "orders");
+        policyCollection.addPolicy(policy);
+        final EvaluationCtx context = createContext("orders");
+
+        final AtomicBoolean replacing = new AtomicBoolean(true);
+        final AtomicInteger missedCount = new AtomicInteger();
+        final AtomicInteger evaluatedCount = new AtomicInteger();
+        Thread reader = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    while (replacing.get()) {
+                        if (policyCollection.getEffectivePolicy(context) == null) {
+                            missedCount.incrementAndGet();
+                        }
+                        evaluatedCount.incrementAndGet();
+                    }
+                } catch (Exception e) {
+                    missedCount.incrementAndGet();
+                }
+            }
+        });
+        reader.start();
+        try {
+            for (int i = 0; missedCount.get() == 0 && (i < 20000 || evaluatedCount.get() < 1000); i++) {
+                policyCollection.addPolicy(policy);
+            }
+        } finally {
+            replacing.set(false);
+            reader.join();
+        }
+
+        assertEquals(missedCount.get(), 0, "The policy was not found while it was replaced.");
+    }
+
+    private String getEffectivePolicyId(String resource) throws Exception {
+        AbstractPolicy policy = policyCollection.getEffectivePolicy(createContext(resource));
+        return policy != null ? policy.getId().toString() : null;
+    }
+
+    private static AbstractPolicy createPolicy(String policyId, String matchId, String value) throws Exception {
+        DocumentBuilderFactory documentBuilderFactory = DocumentBuilderFactory.newInstance();
+        documentBuilderFactory.setNamespaceAware(true);
+        Document document = documentBuilderFactory.newDocumentBuilder().parse(new ByteArrayInputStream(
+                String.format(POLICY, policyId, matchId, value).getBytes(StandardCharsets.UTF_8)));
+        return Policy.getInstance(document.getDocumentElement());
+    }
+
+    private static EvaluationCtx createContext(String resource) throws Exception {
+        return EvaluationCtxFactory.getFactory().getEvaluationCtx(
+                RequestCtxFactory.getFactory().getRequestCtx(String.format(REQUEST, resource)),
+                Balana.getInstance().getPdpConfig());
+    }
+
+    private static List<Object> toURIs(String... policyIds) throws Exception {
+        List<Object> uris = new ArrayList<Object>();
+        for (String policyId : policyIds) {
+            uris.add(new URI(policyId));
+        }
+        return uris;
+    }
+}
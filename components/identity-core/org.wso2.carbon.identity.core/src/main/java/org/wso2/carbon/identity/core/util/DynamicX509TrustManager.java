@@ -20,45 +20,38 @@ package org.wso2.carbon.identity.core.util;
 
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
-import org.wso2.carbon.base.ServerConfiguration;
-import org.wso2.carbon.identity.base.IdentityException;
 
-import javax.net.ssl.TrustManager;
-import javax.net.ssl.TrustManagerFactory;
 import javax.net.ssl.X509TrustManager;
-import java.io.FileInputStream;
-import java.io.InputStream;
-import java.security.KeyStore;
 import java.security.cert.CertificateException;
 import java.security.cert.X509Certificate;
 
-import static org.wso2.carbon.identity.core.util.IdentityUtil.PROP_TRUST_STORE_UPDATE_REQUIRED;
-
 
 /**
  * Gives a singleton javax.net.ssl.X509TrustManager implementation that uses the default carbon trust store.
  * This will load any changes (addition/removal of certificates) done to the default trust store on the fly.
+ * The trust store snapshot is shared with {@link ClientAuthX509TrustManager} and is rebuilt only when the trust
+ * store changes.
  */
 public class DynamicX509TrustManager implements X509TrustManager {
 
     private static Log log = LogFactory.getLog(DynamicX509TrustManager.class);
-    private X509TrustManager trustManager;
-    private static DynamicX509TrustManager instance;
-
-    //Configuration Options
-    private static final ServerConfiguration config = ServerConfiguration.getInstance();
-    private static final String TRUST_STORE_LOCATION = config.getFirstProperty("Security.TrustStore.Location");
-    private static final String TRUST_STORE_TYPE = config.getFirstProperty("Security.TrustStore.Type");
+    private TrustStoreSnapshotManager snapshotManager;
+    private static volatile DynamicX509TrustManager instance;
 
     private DynamicX509TrustManager() throws Exception {
 
-        setupTrustManager();
+        snapshotManager = TrustStoreSnapshotManager.getInstance();
+        snapshotManager.getTrustManager();
     }
 
     public static DynamicX509TrustManager getInstance() throws Exception {
 
         if (instance == null) {
-            instance = new DynamicX509TrustManager();
+            synchronized (DynamicX509TrustManager.class) {
+                if (instance == null) {
+                    instance = new DynamicX509TrustManager();
+                }
+            }
         }
         return instance;
     }
@@ -66,7 +59,7 @@ public class DynamicX509TrustManager implements X509TrustManager {
     @Override
     public void checkClientTrusted(X509Certificate[] x509Certificates, String s) throws CertificateException {
 
-        trustManager.checkClientTrusted(x509Certificates, s);
+        getTrustManager().checkClientTrusted(x509Certificates, s);
     }
 
     /**
@@ -80,56 +73,35 @@ public class DynamicX509TrustManager implements X509TrustManager {
     public void checkServerTrusted(X509Certificate[] x509Certificates, String s) throws CertificateException {
 
         try {
-            //if changes were made to the trust store, reload the trust store and initialize the trustManager instance.
-            if (Boolean.parseBoolean(System.getProperty(PROP_TRUST_STORE_UPDATE_REQUIRED))) {
-                setupTrustManager();
-            }
-            trustManager.checkServerTrusted(x509Certificates, s);
+            //if changes were made to the trust store, the trust manager is rebuilt from the trust store.
+            getTrustManager().checkServerTrusted(x509Certificates, s);
         } catch (CertificateException e) {
-            // Reload the truststore once if SSL validation fails.
+            // Check the truststore for changes right away if SSL validation fails.
             try {
-                setupTrustManager();
-                trustManager.checkServerTrusted(x509Certificates, s);
+                snapshotManager.refreshTrustManager().checkServerTrusted(x509Certificates, s);
             } catch (Exception e1) {
                 throw new CertificateException("Certificate validation failed due to " + e1.getCause(), e1);
             }
-        } catch (Exception e) {
-            throw new CertificateException("Certificate validation failed due to " + e.getCause(), e);
         }
     }
 
     @Override
     public X509Certificate[] getAcceptedIssuers() {
 
-        return trustManager.getAcceptedIssuers();
+        try {
+            return getTrustManager().getAcceptedIssuers();
+        } catch (CertificateException e) {
+            log.error("Error occurred while reloading trust-store.", e);
+            return new X509Certificate[0];
+        }
     }
 
+    private X509TrustManager getTrustManager() throws CertificateException {
 
-    /**
-     * This method reloads the TrustManager by reading the carbon server's default trust store file
-     *
-     * @throws Exception
-     */
-    private void setupTrustManager() throws Exception {
-
-        TrustManagerFactory trustManagerFactory =
-                TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
-        KeyStore clientTrustStore = null;
-        try (InputStream trustStoreInputStream = new FileInputStream(TRUST_STORE_LOCATION)) {
-
-            clientTrustStore = KeyStore.getInstance(TRUST_STORE_TYPE);
-            clientTrustStore.load(trustStoreInputStream, null);
-            trustManagerFactory.init(clientTrustStore);
-            TrustManager[] trustManagers = trustManagerFactory.getTrustManagers();
-
-            for (TrustManager t : trustManagers) {
-                if (t instanceof X509TrustManager) {
-                    trustManager = (X509TrustManager) t;
-                    System.setProperty(IdentityUtil.PROP_TRUST_STORE_UPDATE_REQUIRED, Boolean.FALSE.toString());
-                    return;
-                }
-            }
-            throw new IdentityException("No X509TrustManager in TrustManagerFactory");
+        try {
+            return snapshotManager.getTrustManager();
+        } catch (Exception e) {
+            throw new CertificateException("Certificate validation failed due to " + e.getCause(), e);
         }
     }
 }
@@ -0,0 +1,229 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.core.util;
+
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.base.ServerConfiguration;
+import org.wso2.carbon.identity.base.IdentityException;
+
+import javax.net.ssl.TrustManager;
+import javax.net.ssl.TrustManagerFactory;
+import javax.net.ssl.X509TrustManager;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.security.KeyStore;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.wso2.carbon.identity.core.util.IdentityUtil.PROP_TRUST_STORE_UPDATE_REQUIRED;
+
+/**
+ * Keeps an immutable snapshot of the X509TrustManager built from a trust store, which is shared by the SSL sessions.
+ * The trust store file is checked at most once per check interval and the snapshot is rebuilt only if the
+ * modification time or the size of the file is changed and its content hash differs from that of the snapshot, or
+ * if a trust store update is flagged by {@link IdentityUtil#PROP_TRUST_STORE_UPDATE_REQUIRED}.
+ * <p>
+ * If the trust store cannot be loaded, the last successfully loaded snapshot is kept and the trust store is not
+ * read again, even if an update is flagged or a refresh is requested, until a retry interval has elapsed. The retry
+ * interval is doubled after each consecutive failure up to {@link #MAX_RETRY_INTERVAL}.
+ */
+public class TrustStoreSnapshotManager {
+
+    private static final Log log = LogFactory.getLog(TrustStoreSnapshotManager.class);
+
+    private static final long DEFAULT_CHECK_INTERVAL = 1000L;
+    private static final long MIN_RETRY_INTERVAL = 1000L;
+    private static final long MAX_RETRY_INTERVAL = 60000L;
+    private static final String HASH_ALGORITHM = "SHA-256";
+
+    private static volatile TrustStoreSnapshotManager instance;
+
+    private final String trustStoreLocation;
+    private final String trustStoreType;
+    private final long checkInterval;
+
+    private volatile Snapshot snapshot;
+    private volatile long nextCheckTime;
+    private volatile long nextRetryTime;
+    private int failedAttempts;
+    private final AtomicLong reloadCount = new AtomicLong();
+
+    TrustStoreSnapshotManager(String trustStoreLocation, String trustStoreType, long checkInterval) {
+
+        this.trustStoreLocation = trustStoreLocation;
+        this.trustStoreType = trustStoreType;
+        this.checkInterval = checkInterval;
+    }
+
+    /**
+     * @return snapshot manager of the carbon server's default trust store
+     */
+    public static TrustStoreSnapshotManager getInstance() {
+
+        if (instance == null) {
+            synchronized (TrustStoreSnapshotManager.class) {
+                if (instance == null) {
+                    ServerConfiguration config = ServerConfiguration.getInstance();
+                    instance = new TrustStoreSnapshotManager(config.getFirstProperty("Security.TrustStore.Location"),
+                            config.getFirstProperty("Security.TrustStore.Type"), DEFAULT_CHECK_INTERVAL);
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Returns the trust manager of the current snapshot, after checking the trust store for changes if the check
+     * interval has elapsed since the last check.
+     *
+     * @return trust manager of the trust store
+     * @throws Exception if the trust store could not be loaded even once
+     */
+    public X509TrustManager getTrustManager() throws Exception {
+
+        Snapshot current = snapshot;
+        long now = System.currentTimeMillis();
+        if (current == null || (now >= nextRetryTime && (isUpdateFlagged() || now >= nextCheckTime))) {
+            current = refresh(false);
+        }
+        return current.trustManager;
+    }
+
+    /**
+     * Checks the trust store for changes right away, regardless of the check interval, and returns the trust
+     * manager of the resulting snapshot.
+     *
+     * @return trust manager of the trust store
+     * @throws Exception if the trust store could not be loaded even once
+     */
+    public X509TrustManager refreshTrustManager() throws Exception {
+
+        return refresh(true).trustManager;
+    }
+
+    /**
+     * @return number of times the trust manager was built from the trust store
+     */
+    public long getReloadCount() {
+
+        return reloadCount.get();
+    }
+
+    private synchronized Snapshot refresh(boolean force) throws Exception {
+
+        Snapshot current = snapshot;
+        boolean updateFlagged = isUpdateFlagged();
+        long now = System.currentTimeMillis();
+        if (current != null && (now < nextRetryTime || (!force && !updateFlagged && now < nextCheckTime))) {
+            // Checked by another thread meanwhile, or waiting to retry after a failed reload.
+            return current;
+        }
+        nextCheckTime = now + checkInterval;
+
+        File trustStoreFile = new File(trustStoreLocation);
+        long lastModified = trustStoreFile.lastModified();
+        long length = trustStoreFile.length();
+        if (current != null && !updateFlagged && current.lastModified == lastModified && current.length == length) {
+            return current;
+        }
+
+        try {
+            byte[] content = FileUtils.readFileToByteArray(trustStoreFile);
+            byte[] hash = MessageDigest.getInstance(HASH_ALGORITHM).digest(content);
+            if (current != null && Arrays.equals(current.hash, hash)) {
+                // Only the file attributes are changed.
+                snapshot = new Snapshot(current.trustManager, lastModified, length, hash);
+            } else {
+                snapshot = new Snapshot(buildTrustManager(content), lastModified, length, hash);
+                long count = reloadCount.incrementAndGet();
+                if (log.isDebugEnabled()) {
+                    log.debug("Trust store: " + trustStoreLocation + " is loaded. Reload count: " + count);
+                }
+            }
+            if (updateFlagged) {
+                System.setProperty(PROP_TRUST_STORE_UPDATE_REQUIRED, Boolean.FALSE.toString());
+            }
+            if (failedAttempts > 0) {
+                log.info("Trust store: " + trustStoreLocation + " is reloaded after " + failedAttempts +
+                        " failed attempt(s).");
+                failedAttempts = 0;
+                nextRetryTime = 0;
+            }
+            return snapshot;
+        } catch (Exception e) {
+            if (current == null) {
+                throw e;
+            }
+            // Keep the previous snapshot. The file is checked again after the retry interval, as it may still be
+            // being written. An update flag is kept until the trust store is reloaded.
+            long retryInterval = Math.min(Math.max(checkInterval, MIN_RETRY_INTERVAL) << Math.min(failedAttempts, 16),
+                    MAX_RETRY_INTERVAL);
+            nextRetryTime = now + retryInterval;
+            nextCheckTime = nextRetryTime;
+            if (failedAttempts++ == 0) {
+                log.error("Error occurred while reloading trust store: " + trustStoreLocation + ". Using the " +
+                        "previously loaded trust store until it is reloaded.", e);
+            } else if (log.isDebugEnabled()) {
+                log.debug("Reloading trust store: " + trustStoreLocation + " failed again. Attempt: " +
+                        failedAttempts + ". Next retry in " + retryInterval + " ms.", e);
+            }
+            return current;
+        }
+    }
+
+    private X509TrustManager buildTrustManager(byte[] content) throws Exception {
+
+        KeyStore trustStore = KeyStore.getInstance(trustStoreType);
+        trustStore.load(new ByteArrayInputStream(content), null);
+
+        TrustManagerFactory trustManagerFactory =
+                TrustManagerFactory.getInstance(TrustManagerFactory.getDefaultAlgorithm());
+        trustManagerFactory.init(trustStore);
+        for (TrustManager trustManager : trustManagerFactory.getTrustManagers()) {
+            if (trustManager instanceof X509TrustManager) {
+                return (X509TrustManager) trustManager;
+            }
+        }
+        throw new IdentityException("No X509TrustManager in TrustManagerFactory");
+    }
+
+    private static boolean isUpdateFlagged() {
+
+        return Boolean.parseBoolean(System.getProperty(PROP_TRUST_STORE_UPDATE_REQUIRED));
+    }
+
+    private static class Snapshot {
+
+        private final X509TrustManager trustManager;
+        private final long lastModified;
+        private final long length;
+        private final byte[] hash;
+
+        Snapshot(X509TrustManager trustManager, long lastModified, long length, byte[] hash) {
+
+            this.trustManager = trustManager;
+            this.lastModified = lastModified;
+            this.length = length;
+            this.hash = hash;
+        }
+    }
+}
@@ -0,0 +1,174 @@
+/*
+ *  Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ *  WSO2 Inc. licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except
+ *  in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing,
+ *  software distributed under the License is distributed on an
+ *  "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ *  KIND, either express or implied.  See the License for the
+ *  specific language governing permissions and limitations
+ *  under the License.
+ */
+
+package org.wso2.carbon.identity.core.util;
+
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import javax.net.ssl.X509TrustManager;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.security.KeyStore;
+import java.security.cert.Certificate;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertSame;
+
+public class TrustStoreSnapshotManagerTest {
+
+    private static final char[] PASSWORD = "wso2carbon".toCharArray();
+
+    private File trustStoreFile;
+    private List<Certificate> certificates;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+
+        KeyStore cacerts = KeyStore.getInstance(KeyStore.getDefaultType());
+        try (InputStream inputStream = new FileInputStream(Paths.get(System.getProperty("java.home"), "lib",
+                "security", "cacerts").toFile())) {
+            cacerts.load(inputStream, null);
+        }
+        certificates = new ArrayList<>();
+        for (String alias : Collections.list(cacerts.aliases())) {
+            if (cacerts.isCertificateEntry(alias) && certificates.size() < 3) {
+                certificates.add(cacerts.getCertificate(alias));
+            }
+        }
+        trustStoreFile = File.createTempFile("client-truststore", ".jks");
+        writeTrustStore(certificates.size());
+    }
+
+    @AfterMethod
+    public void tearDown() {
+
+        trustStoreFile.delete();
+        System.clearProperty(IdentityUtil.PROP_TRUST_STORE_UPDATE_REQUIRED);
+    }
+
+    @Test
+    public void testSnapshotIsReusedUntilTrustStoreChanges() throws Exception {
+
+        TrustStoreSnapshotManager snapshotManager =
+                new TrustStoreSnapshotManager(trustStoreFile.getAbsolutePath(), "JKS", 0);
+
+        X509TrustManager trustManager = snapshotManager.getTrustManager();
+        assertEquals(trustManager.getAcceptedIssuers().length, certificates.size());
+        assertSame(snapshotManager.getTrustManager(), trustManager);
+        assertEquals(snapshotManager.getReloadCount(), 1);
+
+        // Same content with a new modification time.
+        byte[] content = Files.readAllBytes(trustStoreFile.toPath());
+        Files.write(trustStoreFile.toPath(), content);
+        trustStoreFile.setLastModified(trustStoreFile.lastModified() + 2000);
+        assertSame(snapshotManager.getTrustManager(), trustManager);
+        assertEquals(snapshotManager.getReloadCount(), 1);
+
+        writeTrustStore(certificates.size() - 1);
+        trustStoreFile.setLastModified(trustStoreFile.lastModified() + 4000);
+        assertEquals(snapshotManager.getTrustManager().getAcceptedIssuers().length, certificates.size() - 1);
+        assertEquals(snapshotManager.getReloadCount(), 2);
+    }
+
+    @Test
+    public void testTrustStoreIsCheckedOncePerInterval() throws Exception {
+
+        TrustStoreSnapshotManager snapshotManager =
+                new TrustStoreSnapshotManager(trustStoreFile.getAbsolutePath(), "JKS", 60000);
+        X509TrustManager trustManager = snapshotManager.getTrustManager();
+
+        writeTrustStore(certificates.size() - 1);
+        trustStoreFile.setLastModified(trustStoreFile.lastModified() + 2000);
+        assertSame(snapshotManager.getTrustManager(), trustManager);
+        assertEquals(snapshotManager.getReloadCount(), 1);
+
+        assertEquals(snapshotManager.refreshTrustManager().getAcceptedIssuers().length, certificates.size() - 1);
+        assertEquals(snapshotManager.getReloadCount(), 2);
+    }
+
+    @Test
+    public void testFlaggedUpdateReloadsTrustStore() throws Exception {
+
+        TrustStoreSnapshotManager snapshotManager =
+                new TrustStoreSnapshotManager(trustStoreFile.getAbsolutePath(), "JKS", 60000);
+        snapshotManager.getTrustManager();
+
+        writeTrustStore(certificates.size() - 1);
+        System.setProperty(IdentityUtil.PROP_TRUST_STORE_UPDATE_REQUIRED, Boolean.TRUE.toString());
+        assertEquals(snapshotManager.getTrustManager().getAcceptedIssuers().length, certificates.size() - 1);
+        assertEquals(System.getProperty(IdentityUtil.PROP_TRUST_STORE_UPDATE_REQUIRED), Boolean.FALSE.toString());
+    }
+
+    @Test
+    public void testPreviousSnapshotIsKeptIfTrustStoreIsInvalid() throws Exception {
+
+        TrustStoreSnapshotManager snapshotManager =
+                new TrustStoreSnapshotManager(trustStoreFile.getAbsolutePath(), "JKS", 0);
+        X509TrustManager trustManager = snapshotManager.getTrustManager();
+
+        try (OutputStream outputStream = new FileOutputStream(trustStoreFile)) {
+            outputStream.write(new byte[]{1, 2, 3});
+        }
+        assertSame(snapshotManager.getTrustManager(), trustManager);
+        assertEquals(snapshotManager.getReloadCount(), 1);
+    }
+
+    @Test
+    public void testFailedReloadIsNotRetriedBeforeRetryInterval() throws Exception {
+
+        TrustStoreSnapshotManager snapshotManager =
+                new TrustStoreSnapshotManager(trustStoreFile.getAbsolutePath(), "JKS", 0);
+        X509TrustManager trustManager = snapshotManager.getTrustManager();
+
+        try (OutputStream outputStream = new FileOutputStream(trustStoreFile)) {
+            outputStream.write(new byte[]{1, 2, 3});
+        }
+        System.setProperty(IdentityUtil.PROP_TRUST_STORE_UPDATE_REQUIRED, Boolean.TRUE.toString());
+        assertSame(snapshotManager.getTrustManager(), trustManager);
+
+        // A valid trust store is not read until the retry interval has elapsed, even though an update is flagged.
+        writeTrustStore(certificates.size() - 1);
+        trustStoreFile.setLastModified(trustStoreFile.lastModified() + 2000);
+        assertSame(snapshotManager.getTrustManager(), trustManager);
+        assertSame(snapshotManager.refreshTrustManager(), trustManager);
+        assertEquals(snapshotManager.getReloadCount(), 1);
+        assertEquals(System.getProperty(IdentityUtil.PROP_TRUST_STORE_UPDATE_REQUIRED), Boolean.TRUE.toString());
+    }
+
+    private void writeTrustStore(int certificateCount) throws Exception {
+
+        KeyStore trustStore = KeyStore.getInstance("JKS");
+        trustStore.load(null, PASSWORD);
+        for (int i = 0; i < certificateCount; i++) {
+            trustStore.setCertificateEntry("cert" + i, certificates.get(i));
+        }
+        try (OutputStream outputStream = new FileOutputStream(trustStoreFile)) {
+            trustStore.store(outputStream, PASSWORD);
+        }
+    }
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.event.services;
+
+import org.wso2.carbon.identity.core.bean.context.MessageContext;
+import org.wso2.carbon.identity.event.bean.ModuleConfiguration;
+import org.wso2.carbon.identity.event.bean.Subscription;
+import org.wso2.carbon.identity.event.handler.AbstractEventHandler;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Immutable table of the event handlers to be invoked for each event name, in the order of the registered handlers.
+ * Subscriptions of handlers which rely on the default {@link AbstractEventHandler#canHandle(MessageContext)} and
+ * {@link AbstractEventHandler#isAssociationAsync(String)} are resolved when the table is built. Handlers which
+ * override either of them are kept in every route and are asked for each event.
+ */
+class EventRoutingTable {
+
+    private final List<AbstractEventHandler> eventHandlers;
+    private final int eventHandlerCount;
+    private final Map<String, ModuleConfiguration> moduleConfigurations;
+
+    private final Map<String, List<EventRoute>> routes;
+    private final List<EventRoute> defaultRoute;
+
+    EventRoutingTable(List<AbstractEventHandler> eventHandlers, Map<String, ModuleConfiguration> moduleConfigurations) {
+
+        this.eventHandlers = eventHandlers;
+        this.eventHandlerCount = eventHandlers.size();
+        this.moduleConfigurations = moduleConfigurations;
+
+        List<AbstractEventHandler> handlers = new ArrayList<>(eventHandlers);
+        Set<String> eventNames = new LinkedHashSet<>();
+        for (AbstractEventHandler handler : handlers) {
+            ModuleConfiguration moduleConfiguration = moduleConfigurations.get(handler.getName());
+            if (moduleConfiguration != null) {
+                for (Subscription subscription : moduleConfiguration.getSubscriptions()) {
+                    eventNames.add(subscription.getSubscriptionName());
+                }
+            }
+        }
+
+        Map<String, List<EventRoute>> routeMap = new HashMap<>();
+        for (String eventName : eventNames) {
+            routeMap.put(eventName, buildRoute(eventName, handlers, moduleConfigurations));
+        }
+        this.routes = Collections.unmodifiableMap(routeMap);
+        this.defaultRoute = buildRoute(null, handlers, moduleConfigurations);
+    }
+
+    /**
+     * Checks whether the table is built from the given handler list and module configurations.
+     *
+     * @param eventHandlers        currently registered event handlers
+     * @param moduleConfigurations current module configurations
+     * @return true if the table is up to date
+     */
+    boolean isBuiltFrom(List<AbstractEventHandler> eventHandlers,
+                        Map<String, ModuleConfiguration> moduleConfigurations) {
+
+        return this.eventHandlers == eventHandlers && this.eventHandlerCount == eventHandlers.size() &&
+                this.moduleConfigurations == moduleConfigurations;
+    }
+
+    /**
+     * Returns the handlers which may handle the given event, in the order they should be invoked.
+     *
+     * @param eventName name of the event
+     * @return route of the event
+     */
+    List<EventRoute> getRoute(String eventName) {
+
+        List<EventRoute> route = routes.get(eventName);
+        return route != null ? route : defaultRoute;
+    }
+
+    private static List<EventRoute> buildRoute(String eventName, List<AbstractEventHandler> handlers,
+                                               Map<String, ModuleConfiguration> moduleConfigurations) {
+
+        List<EventRoute> route = new ArrayList<>();
+        for (AbstractEventHandler handler : handlers) {
+            if (overridesSubscriptionResolution(handler)) {
+                route.add(new EventRoute(handler, true, false));
+                continue;
+            }
+            if (eventName == null) {
+                continue;
+            }
+            ModuleConfiguration moduleConfiguration = moduleConfigurations.get(handler.getName());
+            if (moduleConfiguration == null) {
+                continue;
+            }
+            for (Subscription subscription : moduleConfiguration.getSubscriptions()) {
+                if (subscription.getSubscriptionName().equals(eventName)) {
+                    boolean async = Boolean.parseBoolean(subscription.getSubscriptionProperties().getProperty(
+                            handler.getName() + ".subscription." + eventName + ".operationAsync"));
+                    route.add(new EventRoute(handler, false, async));
+                    break;
+                }
+            }
+        }
+        return Collections.unmodifiableList(route);
+    }
+
+    private static boolean overridesSubscriptionResolution(AbstractEventHandler handler) {
+
+        try {
+            Class<?> handlerClass = handler.getClass();
+            return handlerClass.getMethod("canHandle", MessageContext.class).getDeclaringClass() !=
+                    AbstractEventHandler.class ||
+                    handlerClass.getMethod("isAssociationAsync", String.class).getDeclaringClass() !=
+                            AbstractEventHandler.class;
+        } catch (NoSuchMethodException e) {
+            return true;
+        }
+    }
+
+    /**
+     * An event handler in the route of an event.
+     */
+    static class EventRoute {
+
+        private final AbstractEventHandler handler;
+        private final boolean dynamic;
+        private final boolean async;
+
+        EventRoute(AbstractEventHandler handler, boolean dynamic, boolean async) {
+
+            this.handler = handler;
+            this.dynamic = dynamic;
+            this.async = async;
+        }
+
+        AbstractEventHandler getHandler() {
+
+            return handler;
+        }
+
+        /**
+         * @return true if the handler has to be asked whether it handles the event and whether it does so
+         * asynchronously
+         */
+        boolean isDynamic() {
+
+            return dynamic;
+        }
+
+        boolean isAsync() {
+
+            return async;
+        }
+    }
+}
@@ -22,18 +22,22 @@ import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 
 import org.wso2.carbon.identity.event.EventDistributionTask;
+import org.wso2.carbon.identity.event.IdentityEventConfigBuilder;
 import org.wso2.carbon.identity.event.IdentityEventException;
 import org.wso2.carbon.identity.event.bean.IdentityEventMessageContext;
+import org.wso2.carbon.identity.event.bean.ModuleConfiguration;
 import org.wso2.carbon.identity.event.event.Event;
 import org.wso2.carbon.identity.event.handler.AbstractEventHandler;
 import org.wso2.carbon.identity.event.internal.IdentityEventServiceComponent;
 
 import java.util.List;
+import java.util.Map;
 
 public class IdentityEventServiceImpl implements IdentityEventService {
 
     private static final Log log = LogFactory.getLog(IdentityEventServiceImpl.class);
     private EventDistributionTask eventDistributionTask;
+    private volatile EventRoutingTable eventRoutingTable;
 
     public IdentityEventServiceImpl(List<AbstractEventHandler> handlerList, int threadPoolSize) {
         this.eventDistributionTask = new EventDistributionTask(handlerList, threadPoolSize);
@@ -45,17 +49,45 @@ public class IdentityEventServiceImpl implements IdentityEventService {
     @Override
     public void handleEvent(Event event) throws IdentityEventException {
 
-        List<AbstractEventHandler> eventHandlerList = IdentityEventServiceComponent.eventHandlerList;
         IdentityEventMessageContext eventContext = new IdentityEventMessageContext(event);
-        for (final AbstractEventHandler handler : eventHandlerList) {
+        for (EventRoutingTable.EventRoute route : getEventRoutingTable().getRoute(event.getEventName())) {
 
-            if (handler.canHandle(eventContext)) {
+            AbstractEventHandler handler = route.getHandler();
+            if (route.isDynamic()) {
+                if (!handler.canHandle(eventContext)) {
+                    continue;
+                }
                 if (handler.isAssociationAsync(event.getEventName())) {
                     eventDistributionTask.addEventToQueue(event);
                 } else {
                     handler.handleEvent(event);
                 }
+            } else if (route.isAsync()) {
+                eventDistributionTask.addEventToQueue(event);
+            } else {
+                handler.handleEvent(event);
+            }
+        }
+    }
+
+    /**
+     * Returns the routing table of the registered event handlers, rebuilding it if a handler has been registered or
+     * the module configurations have changed since it was built.
+     */
+    private EventRoutingTable getEventRoutingTable() throws IdentityEventException {
+
+        List<AbstractEventHandler> eventHandlerList = IdentityEventServiceComponent.eventHandlerList;
+        Map<String, ModuleConfiguration> moduleConfigurations = IdentityEventConfigBuilder.getInstance()
+                .getModuleConfiguration();
+
+        EventRoutingTable routingTable = eventRoutingTable;
+        if (routingTable == null || !routingTable.isBuiltFrom(eventHandlerList, moduleConfigurations)) {
+            if (log.isDebugEnabled()) {
+                log.debug("Building event routing table for " + eventHandlerList.size() + " event handlers");
             }
+            routingTable = new EventRoutingTable(eventHandlerList, moduleConfigurations);
+            eventRoutingTable = routingTable;
         }
+        return routingTable;
     }
 }
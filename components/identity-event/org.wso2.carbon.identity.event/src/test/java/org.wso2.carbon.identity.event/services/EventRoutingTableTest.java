@@ -0,0 +1,137 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *  http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.event.services;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.core.bean.context.MessageContext;
+import org.wso2.carbon.identity.event.IdentityEventException;
+import org.wso2.carbon.identity.event.bean.ModuleConfiguration;
+import org.wso2.carbon.identity.event.bean.Subscription;
+import org.wso2.carbon.identity.event.event.Event;
+import org.wso2.carbon.identity.event.handler.AbstractEventHandler;
+import org.wso2.carbon.identity.testutil.IdentityBaseTest;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+
+public class EventRoutingTableTest extends IdentityBaseTest {
+
+    private static final String PRE_ADD_USER = "PRE_ADD_USER";
+    private static final String POST_ADD_USER = "POST_ADD_USER";
+
+    List<AbstractEventHandler> eventHandlers;
+    Map<String, ModuleConfiguration> moduleConfigurations;
+    SyncEventHandler syncEventHandler;
+    AsyncEventHandler asyncEventHandler;
+    CustomEventHandler customEventHandler;
+
+    @BeforeMethod
+    public void setUp() {
+
+        syncEventHandler = new SyncEventHandler();
+        asyncEventHandler = new AsyncEventHandler();
+        customEventHandler = new CustomEventHandler();
+        eventHandlers = new ArrayList<>();
+        eventHandlers.add(syncEventHandler);
+        eventHandlers.add(customEventHandler);
+        eventHandlers.add(asyncEventHandler);
+
+        moduleConfigurations = new HashMap<>();
+        moduleConfigurations.put("SyncEventHandler", new ModuleConfiguration(new Properties(),
+                Collections.singletonList(new Subscription(PRE_ADD_USER, new Properties()))));
+        Properties asyncProperties = new Properties();
+        asyncProperties.setProperty("AsyncEventHandler.subscription." + PRE_ADD_USER + ".operationAsync", "true");
+        List<Subscription> asyncSubscriptions = new ArrayList<>();
+        asyncSubscriptions.add(new Subscription(PRE_ADD_USER, asyncProperties));
+        asyncSubscriptions.add(new Subscription(POST_ADD_USER, new Properties()));
+        moduleConfigurations.put("AsyncEventHandler", new ModuleConfiguration(new Properties(), asyncSubscriptions));
+    }
+
+    @Test
+    public void testGetRoute() {
+
+        EventRoutingTable routingTable = new EventRoutingTable(eventHandlers, moduleConfigurations);
+
+        List<EventRoutingTable.EventRoute> route = routingTable.getRoute(PRE_ADD_USER);
+        Assert.assertEquals(route.size(), 3);
+        Assert.assertSame(route.get(0).getHandler(), syncEventHandler);
+        Assert.assertFalse(route.get(0).isDynamic());
+        Assert.assertFalse(route.get(0).isAsync());
+        Assert.assertSame(route.get(1).getHandler(), customEventHandler);
+        Assert.assertTrue(route.get(1).isDynamic());
+        Assert.assertSame(route.get(2).getHandler(), asyncEventHandler);
+        Assert.assertTrue(route.get(2).isAsync());
+
+        route = routingTable.getRoute(POST_ADD_USER);
+        Assert.assertEquals(route.size(), 2);
+        Assert.assertSame(route.get(1).getHandler(), asyncEventHandler);
+        Assert.assertFalse(route.get(1).isAsync());
+
+        // Handlers with their own subscription resolution are asked for every event.
+        route = routingTable.getRoute("UNSUBSCRIBED_EVENT");
+        Assert.assertEquals(route.size(), 1);
+        Assert.assertSame(route.get(0).getHandler(), customEventHandler);
+    }
+
+    @Test
+    public void testIsBuiltFrom() {
+
+        EventRoutingTable routingTable = new EventRoutingTable(eventHandlers, moduleConfigurations);
+        Assert.assertTrue(routingTable.isBuiltFrom(eventHandlers, moduleConfigurations));
+        Assert.assertFalse(routingTable.isBuiltFrom(eventHandlers, new HashMap<String, ModuleConfiguration>()));
+
+        eventHandlers.add(new SyncEventHandler());
+        Assert.assertFalse(routingTable.isBuiltFrom(eventHandlers, moduleConfigurations));
+    }
+
+    private static class SyncEventHandler extends AbstractEventHandler {
+
+        @Override
+        public void handleEvent(Event event) throws IdentityEventException {
+            //do nothing
+        }
+    }
+
+    private static class AsyncEventHandler extends AbstractEventHandler {
+
+        @Override
+        public void handleEvent(Event event) throws IdentityEventException {
+            //do nothing
+        }
+    }
+
+    private static class CustomEventHandler extends AbstractEventHandler {
+
+        @Override
+        public boolean canHandle(MessageContext messageContext) {
+            return true;
+        }
+
+        @Override
+        public void handleEvent(Event event) throws IdentityEventException {
+            //do nothing
+        }
+    }
+}
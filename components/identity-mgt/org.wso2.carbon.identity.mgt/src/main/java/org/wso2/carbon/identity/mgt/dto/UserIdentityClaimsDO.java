@@ -284,6 +284,28 @@ public class UserIdentityClaimsDO implements Serializable {
         this.userIdentityDataMap.put(UserIdentityDataStore.ACCOUNT_DISABLED, Boolean.toString(isAccountDisabled));
     }
 
+    /**
+     * Returns the user data which is added, or has a different value, compared to the user data in the identity data
+     * store. Changes made directly to the map returned by {@link #getUserDataMap()} are included.
+     *
+     * @param storedUserData user data values in the identity data store
+     * @return modified user data
+     */
+    public synchronized Map<String, String> getModifiedUserDataMap(Map<String, String> storedUserData) {
+
+        Map<String, String> modifiedUserData = new HashMap<String, String>();
+        if (userIdentityDataMap == null) {
+            return modifiedUserData;
+        }
+        for (Map.Entry<String, String> entry : userIdentityDataMap.entrySet()) {
+            if (!storedUserData.containsKey(entry.getKey()) ||
+                    !StringUtils.equals(storedUserData.get(entry.getKey()), entry.getValue())) {
+                modifiedUserData.put(entry.getKey(), entry.getValue());
+            }
+        }
+        return modifiedUserData;
+    }
+
     /**
      * Update the security question
      *
@@ -31,11 +31,13 @@ import org.wso2.carbon.user.core.util.UserCoreUtil;
 import org.wso2.carbon.utils.multitenancy.MultitenantConstants;
 
 import java.sql.Connection;
+import java.sql.DatabaseMetaData;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Set;
 
 /**
  * //TODO remove method when user is deleted
@@ -44,6 +46,13 @@ public class JDBCIdentityDataStore extends InMemoryIdentityDataStore {
 
     private static Log log = LogFactory.getLog(JDBCIdentityDataStore.class);
 
+    private static final String MYSQL = "MySQL";
+    private static final String MARIADB = "MariaDB";
+    private static final String H2 = "H2";
+    private static final String POSTGRESQL = "PostgreSQL";
+    private static final String MSSQL = "Microsoft SQL Server";
+    private static final String ORACLE = "Oracle";
+
     @Override
     public void store(UserIdentityClaimsDO userIdentityDTO, UserStoreManager userStoreManager)
             throws IdentityException {
@@ -70,103 +79,151 @@ public class JDBCIdentityDataStore extends InMemoryIdentityDataStore {
         userIdentityDTO.setTenantId(tenantId);
         super.store(userIdentityDTO, userStoreManager);
 
-        Map<String, String> data = userIdentityDTO.getUserDataMap();
-
-        for (Map.Entry<String, String> entry : data.entrySet()) {
-            String key = entry.getKey();
-            String value = entry.getValue();
-            boolean isUserExists = false;
-            try {
-                isUserExists = isExistingUserDataValue(userName, tenantId, key);
-            } catch (SQLException e) {
-                throw IdentityException.error("Error occurred while checking if user existing", e);
-            }
-            try {
-                if (isUserExists) {
-                    updateUserDataValue(userName, tenantId, key, value);
-                } else {
-                    addUserDataValue(userName, tenantId, key, value);
+        Connection connection = IdentityDatabaseUtil.getDBConnection();
+        try {
+            boolean isUsernameCaseSensitive = IdentityUtil.isUserStoreInUsernameCaseSensitive(userName, tenantId);
+            // Only the user data which differs from the database is written. It is compared with the database rather
+            // than with the cached user data, which may be outdated if the user data was changed in another node.
+            Map<String, String> storedData = getStoredUserData(connection, userName, tenantId,
+                    isUsernameCaseSensitive);
+            Map<String, String> modifiedData = userIdentityDTO.getModifiedUserDataMap(storedData);
+            if (modifiedData.isEmpty()) {
+                connection.commit();
+                if (log.isDebugEnabled()) {
+                    log.debug("No modified identity data to persist for:" + tenantId + ":" + userName);
                 }
-            } catch (SQLException e) {
-                throw IdentityException.error("Error occurred while persisting user data", e);
+                return;
             }
-        }
-    }
-
-    private boolean isExistingUserDataValue(String userName, int tenantId, String key) throws SQLException {
 
-        Connection connection = IdentityDatabaseUtil.getDBConnection();
-        PreparedStatement prepStmt = null;
-        ResultSet results;
-        boolean isUsernameCaseSensitive = IdentityUtil.isUserStoreInUsernameCaseSensitive(userName, tenantId);
-        try {
-            String query;
+            String upsertQuery = null;
             if (isUsernameCaseSensitive) {
-                query = SQLQuery.CHECK_EXIST_USER_DATA;
-            } else {
-                query = SQLQuery.CHECK_EXIST_USER_DATA_CASE_INSENSITIVE;
+                // An upsert would add a new row for a user name in a different case.
+                upsertQuery = getUpsertUserDataQuery(connection);
             }
-            prepStmt = connection.prepareStatement(query);
-            prepStmt.setInt(1, tenantId);
-            prepStmt.setString(2, userName);
-            prepStmt.setString(3, key);
-            results = prepStmt.executeQuery();
-            if (results.next()) {
-                return true;
+            if (upsertQuery != null) {
+                upsertUserDataValues(connection, upsertQuery, userName, tenantId, modifiedData);
+            } else {
+                storeUserDataValues(connection, userName, tenantId, isUsernameCaseSensitive, storedData.keySet(),
+                        modifiedData);
             }
             connection.commit();
+        } catch (SQLException e) {
+            IdentityDatabaseUtil.rollBack(connection);
+            throw IdentityException.error("Error occurred while persisting user data", e);
         } finally {
-            IdentityDatabaseUtil.closeStatement(prepStmt);
             IdentityDatabaseUtil.closeConnection(connection);
         }
-        return false;
     }
 
+    private void upsertUserDataValues(Connection connection, String upsertQuery, String userName, int tenantId,
+                                      Map<String, String> data) throws SQLException {
 
-    private void addUserDataValue(String userName, int tenantId, String key, String value) throws SQLException {
-
-        Connection connection = IdentityDatabaseUtil.getDBConnection();
         PreparedStatement prepStmt = null;
-
         try {
-            prepStmt = connection.prepareStatement(SQLQuery.STORE_USER_DATA);
-            prepStmt.setInt(1, tenantId);
-            prepStmt.setString(2, userName);
-            prepStmt.setString(3, key);
-            prepStmt.setString(4, value);
-            prepStmt.execute();
-            connection.commit();
+            prepStmt = connection.prepareStatement(upsertQuery);
+            for (Map.Entry<String, String> entry : data.entrySet()) {
+                prepStmt.setInt(1, tenantId);
+                prepStmt.setString(2, userName);
+                prepStmt.setString(3, entry.getKey());
+                prepStmt.setString(4, entry.getValue());
+                prepStmt.addBatch();
+            }
+            prepStmt.executeBatch();
         } finally {
             IdentityDatabaseUtil.closeStatement(prepStmt);
-            IdentityDatabaseUtil.closeConnection(connection);
         }
     }
 
+    private void storeUserDataValues(Connection connection, String userName, int tenantId,
+                                     boolean isUsernameCaseSensitive, Set<String> existingKeys,
+                                     Map<String, String> data) throws SQLException {
 
-    private void updateUserDataValue(String userName, int tenantId, String key, String value) throws SQLException {
+        PreparedStatement updateStmt = null;
+        PreparedStatement insertStmt = null;
+        try {
+            for (Map.Entry<String, String> entry : data.entrySet()) {
+                if (existingKeys.contains(entry.getKey())) {
+                    if (updateStmt == null) {
+                        updateStmt = connection.prepareStatement(isUsernameCaseSensitive ? SQLQuery.UPDATE_USER_DATA :
+                                SQLQuery.UPDATE_USER_DATA_CASE_INSENSITIVE);
+                    }
+                    updateStmt.setString(1, entry.getValue());
+                    updateStmt.setInt(2, tenantId);
+                    updateStmt.setString(3, userName);
+                    updateStmt.setString(4, entry.getKey());
+                    updateStmt.addBatch();
+                } else {
+                    if (insertStmt == null) {
+                        insertStmt = connection.prepareStatement(SQLQuery.STORE_USER_DATA);
+                    }
+                    insertStmt.setInt(1, tenantId);
+                    insertStmt.setString(2, userName);
+                    insertStmt.setString(3, entry.getKey());
+                    insertStmt.setString(4, entry.getValue());
+                    insertStmt.addBatch();
+                }
+            }
+            if (updateStmt != null) {
+                updateStmt.executeBatch();
+            }
+            if (insertStmt != null) {
+                insertStmt.executeBatch();
+            }
+        } finally {
+            IdentityDatabaseUtil.closeStatement(updateStmt);
+            IdentityDatabaseUtil.closeStatement(insertStmt);
+        }
+    }
+
+    private Map<String, String> getStoredUserData(Connection connection, String userName, int tenantId,
+                                                  boolean isUsernameCaseSensitive) throws SQLException {
 
-        Connection connection = IdentityDatabaseUtil.getDBConnection();
         PreparedStatement prepStmt = null;
-        boolean isUsernameCaseSensitive = IdentityUtil.isUserStoreInUsernameCaseSensitive(userName, tenantId);
+        ResultSet results = null;
+        Map<String, String> data = new HashMap<String, String>();
         try {
-            String query;
-            if (isUsernameCaseSensitive) {
-                query = SQLQuery.UPDATE_USER_DATA;
-            } else {
-                query = SQLQuery.UPDATE_USER_DATA_CASE_INSENSITIVE;
+            prepStmt = connection.prepareStatement(isUsernameCaseSensitive ? SQLQuery.LOAD_USER_DATA :
+                    SQLQuery.LOAD_USER_DATA_CASE_INSENSITIVE);
+            prepStmt.setInt(1, tenantId);
+            prepStmt.setString(2, userName);
+            results = prepStmt.executeQuery();
+            while (results.next()) {
+                data.put(results.getString(1), results.getString(2));
             }
-            prepStmt = connection.prepareStatement(query);
-            prepStmt.setString(1, value);
-            prepStmt.setInt(2, tenantId);
-            prepStmt.setString(3, userName);
-            prepStmt.setString(4, key);
-            prepStmt.executeUpdate();
-            connection.commit();
         } finally {
+            IdentityDatabaseUtil.closeResultSet(results);
             IdentityDatabaseUtil.closeStatement(prepStmt);
-            IdentityDatabaseUtil.closeConnection(connection);
         }
+        return data;
+    }
 
+    /**
+     * Returns the single statement insert or update query of the database, if there is one.
+     *
+     * @param connection database connection
+     * @return upsert query, or null if the database has no supported upsert statement
+     * @throws SQLException if the database metadata could not be read
+     */
+    private String getUpsertUserDataQuery(Connection connection) throws SQLException {
+
+        DatabaseMetaData metaData = connection.getMetaData();
+        String databaseProductName = metaData.getDatabaseProductName();
+        if (databaseProductName.contains(MYSQL) || databaseProductName.contains(MARIADB)) {
+            return SQLQuery.UPSERT_USER_DATA_MYSQL;
+        } else if (databaseProductName.contains(H2)) {
+            return SQLQuery.UPSERT_USER_DATA_H2;
+        } else if (databaseProductName.contains(POSTGRESQL)) {
+            // ON CONFLICT is supported from PostgreSQL 9.5.
+            int majorVersion = metaData.getDatabaseMajorVersion();
+            if (majorVersion > 9 || (majorVersion == 9 && metaData.getDatabaseMinorVersion() >= 5)) {
+                return SQLQuery.UPSERT_USER_DATA_POSTGRESQL;
+            }
+        } else if (databaseProductName.contains(MSSQL)) {
+            return SQLQuery.UPSERT_USER_DATA_MSSQL;
+        } else if (databaseProductName.contains(ORACLE)) {
+            return SQLQuery.UPSERT_USER_DATA_ORACLE;
+        }
+        return null;
     }
 
     @Override
@@ -266,14 +323,28 @@ public class JDBCIdentityDataStore extends InMemoryIdentityDataStore {
      * The primary key is tenantId, userName, DatKey combination
      */
     private static class SQLQuery {
-        public static final String CHECK_EXIST_USER_DATA = "SELECT DATA_VALUE FROM IDN_IDENTITY_USER_DATA WHERE " +
-                "TENANT_ID = ? AND USER_NAME = ? AND DATA_KEY = ?";
-        public static final String CHECK_EXIST_USER_DATA_CASE_INSENSITIVE = "SELECT DATA_VALUE FROM " +
-                "IDN_IDENTITY_USER_DATA WHERE TENANT_ID = ? AND LOWER(USER_NAME) = LOWER(?) AND DATA_KEY = ?";
-
         public static final String STORE_USER_DATA = "INSERT INTO IDN_IDENTITY_USER_DATA (TENANT_ID, USER_NAME, " +
                 "DATA_KEY, DATA_VALUE) VALUES (?,?,?,?)";
 
+        public static final String UPSERT_USER_DATA_MYSQL = "INSERT INTO IDN_IDENTITY_USER_DATA (TENANT_ID, " +
+                "USER_NAME, DATA_KEY, DATA_VALUE) VALUES (?,?,?,?) ON DUPLICATE KEY UPDATE DATA_VALUE = " +
+                "VALUES(DATA_VALUE)";
+        public static final String UPSERT_USER_DATA_H2 = "MERGE INTO IDN_IDENTITY_USER_DATA (TENANT_ID, USER_NAME, " +
+                "DATA_KEY, DATA_VALUE) KEY (TENANT_ID, USER_NAME, DATA_KEY) VALUES (?,?,?,?)";
+        public static final String UPSERT_USER_DATA_POSTGRESQL = "INSERT INTO IDN_IDENTITY_USER_DATA (TENANT_ID, " +
+                "USER_NAME, DATA_KEY, DATA_VALUE) VALUES (?,?,?,?) ON CONFLICT (TENANT_ID, USER_NAME, DATA_KEY) DO " +
+                "UPDATE SET DATA_VALUE = EXCLUDED.DATA_VALUE";
+        public static final String UPSERT_USER_DATA_MSSQL = "MERGE INTO IDN_IDENTITY_USER_DATA AS T USING (VALUES " +
+                "(?,?,?,?)) AS S (TENANT_ID, USER_NAME, DATA_KEY, DATA_VALUE) ON T.TENANT_ID = S.TENANT_ID AND " +
+                "T.USER_NAME = S.USER_NAME AND T.DATA_KEY = S.DATA_KEY WHEN MATCHED THEN UPDATE SET T.DATA_VALUE = " +
+                "S.DATA_VALUE WHEN NOT MATCHED THEN INSERT (TENANT_ID, USER_NAME, DATA_KEY, DATA_VALUE) VALUES " +
+                "(S.TENANT_ID, S.USER_NAME, S.DATA_KEY, S.DATA_VALUE);";
+        public static final String UPSERT_USER_DATA_ORACLE = "MERGE INTO IDN_IDENTITY_USER_DATA T USING (SELECT ? " +
+                "TENANT_ID, ? USER_NAME, ? DATA_KEY, ? DATA_VALUE FROM DUAL) S ON (T.TENANT_ID = S.TENANT_ID AND " +
+                "T.USER_NAME = S.USER_NAME AND T.DATA_KEY = S.DATA_KEY) WHEN MATCHED THEN UPDATE SET T.DATA_VALUE = " +
+                "S.DATA_VALUE WHEN NOT MATCHED THEN INSERT (TENANT_ID, USER_NAME, DATA_KEY, DATA_VALUE) VALUES " +
+                "(S.TENANT_ID, S.USER_NAME, S.DATA_KEY, S.DATA_VALUE)";
+
         public static final String UPDATE_USER_DATA = "UPDATE IDN_IDENTITY_USER_DATA SET DATA_VALUE=? WHERE " +
                 "TENANT_ID=? AND USER_NAME=? AND DATA_KEY=?";
         public static final String UPDATE_USER_DATA_CASE_INSENSITIVE = "UPDATE IDN_IDENTITY_USER_DATA SET " +
@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package org.wso2.carbon.identity.mgt.dto;
+
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.mgt.store.UserIdentityDataStore;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+
+public class UserIdentityClaimsDOTest {
+
+    private static final String USER_NAME = "PRIMARY/user";
+
+    @Test
+    public void testUnchangedUserDataIsNotModified() {
+
+        Map<String, String> storedData = getStoredData();
+        UserIdentityClaimsDO userIdentityClaims = new UserIdentityClaimsDO(USER_NAME, new HashMap<>(storedData));
+
+        assertTrue(userIdentityClaims.getModifiedUserDataMap(storedData).isEmpty());
+    }
+
+    @Test
+    public void testChangedAndAddedUserDataIsModified() {
+
+        Map<String, String> storedData = getStoredData();
+        UserIdentityClaimsDO userIdentityClaims = new UserIdentityClaimsDO(USER_NAME, new HashMap<>(storedData));
+        userIdentityClaims.setFailAttempts(3);
+        userIdentityClaims.setUnlockTime(1000L);
+        userIdentityClaims.getUserDataMap().put("http://wso2.org/claims/identity/custom", "value");
+
+        Map<String, String> modifiedData = userIdentityClaims.getModifiedUserDataMap(storedData);
+        assertEquals(modifiedData.size(), 3);
+        assertEquals(modifiedData.get(UserIdentityDataStore.FAIL_LOGIN_ATTEMPTS), "3");
+        assertEquals(modifiedData.get(UserIdentityDataStore.UNLOCKING_TIME), "1000");
+        assertEquals(modifiedData.get("http://wso2.org/claims/identity/custom"), "value");
+    }
+
+    @Test
+    public void testUserDataChangedInStoreIsModified() {
+
+        // The user data is cached with no failed attempts, and a failed attempt is stored by another node.
+        UserIdentityClaimsDO userIdentityClaims = new UserIdentityClaimsDO(USER_NAME, new HashMap<>(getStoredData()));
+        Map<String, String> storedData = getStoredData();
+        storedData.put(UserIdentityDataStore.FAIL_LOGIN_ATTEMPTS, "1");
+
+        // Resetting the failed attempts to the cached value must still be written.
+        userIdentityClaims.setFailAttempts(0);
+        Map<String, String> modifiedData = userIdentityClaims.getModifiedUserDataMap(storedData);
+        assertEquals(modifiedData, Collections.singletonMap(UserIdentityDataStore.FAIL_LOGIN_ATTEMPTS, "0"));
+    }
+
+    @Test
+    public void testUserDataNotInStoreIsModified() {
+
+        UserIdentityClaimsDO userIdentityClaims = new UserIdentityClaimsDO(USER_NAME, new HashMap<>(getStoredData()));
+
+        assertEquals(userIdentityClaims.getModifiedUserDataMap(Collections.<String, String>emptyMap()),
+                getStoredData());
+    }
+
+    private Map<String, String> getStoredData() {
+
+        Map<String, String> storedData = new HashMap<>();
+        storedData.put(UserIdentityDataStore.FAIL_LOGIN_ATTEMPTS, "0");
+        storedData.put(UserIdentityDataStore.UNLOCKING_TIME, "0");
+        return storedData;
+    }
+}
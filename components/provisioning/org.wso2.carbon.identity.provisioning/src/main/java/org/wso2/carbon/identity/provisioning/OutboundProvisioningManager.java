@@ -19,7 +19,6 @@
 package org.wso2.carbon.identity.provisioning;
 
 import org.apache.commons.collections.CollectionUtils;
-import org.apache.commons.collections.MapUtils;
 import org.apache.commons.lang.ArrayUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
@@ -67,7 +66,6 @@ import java.util.Map;
 import java.util.Map.Entry;
 import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
 
 /**
  *
@@ -407,12 +405,6 @@ public class OutboundProvisioningManager {
 
             ProvisioningEntity outboundProEntity;
 
-            ExecutorService executors = null;
-
-            if (MapUtils.isNotEmpty(connectors)) {
-                executors = Executors.newFixedThreadPool(connectors.size());
-            }
-
             for (Iterator<Entry<String, RuntimeProvisioningConfig>> iterator = connectors
                     .entrySet().iterator(); iterator.hasNext(); ) {
 
@@ -523,7 +515,8 @@ public class OutboundProvisioningManager {
                         outboundProEntity.setIdentifier(provisionedIdentifier);
                         outboundProEntity.setJitProvisioning(jitProvisioning);
                         boolean isBlocking = entry.getValue().isBlocking();
-                        executeOutboundProvisioning(provisioningEntity, executors, connectorType, idPName, proThread, isBlocking);
+                        executeOutboundProvisioning(provisioningEntity, tenantDomainName, connectorType, idPName,
+                                proThread, isBlocking);
 
                     }
 
@@ -546,7 +539,8 @@ public class OutboundProvisioningManager {
                             outboundProEntity.setIdentifier(provisionedUserIdentifier);
                             outboundProEntity.setJitProvisioning(jitProvisioning);
                             boolean isBlocking = entry.getValue().isBlocking();
-                            executeOutboundProvisioning(provisioningEntity, executors, connectorType, idPName, proThread, isBlocking);
+                            executeOutboundProvisioning(provisioningEntity, tenantDomainName, connectorType, idPName,
+                                    proThread, isBlocking);
                         }
                     }
 
@@ -582,42 +576,43 @@ public class OutboundProvisioningManager {
                                                                                              connectorType);
                     }
                     if (isAllowed) {
-                        executeOutboundProvisioning(provisioningEntity, executors, connectorType, idPName, proThread, isBlocking);
+                        executeOutboundProvisioning(provisioningEntity, tenantDomainName, connectorType, idPName,
+                                proThread, isBlocking);
                     }
                 }
             }
 
-            if (executors != null) {
-                executors.shutdown();
-            }
-
         } catch (CarbonException | IdentityApplicationManagementException | IdentityProviderManagementException | UserStoreException e) {
             throw new IdentityProvisioningException("Error occurred while checking for user " +
                                                     "provisioning", e);
         }
     }
 
-    private void executeOutboundProvisioning(ProvisioningEntity provisioningEntity, ExecutorService executors,
+    private void executeOutboundProvisioning(ProvisioningEntity provisioningEntity, String tenantDomainName,
                                              String connectorType,
                                              String idPName, Callable<Boolean> proThread, boolean isBlocking)
             throws IdentityProvisioningException {
+
+        ProvisioningConnectorBulkhead bulkhead = ProvisioningExecutor.getInstance().getBulkhead(tenantDomainName,
+                idPName, connectorType);
         if (!isBlocking) {
-            executors.submit(proThread);
+            if (!bulkhead.submit(proThread)) {
+                log.error("Provisioning queue of connector : " + connectorType + " of identity provider : " + idPName +
+                        " is full. " + generateMessageOnFailureProvisioningOperation(idPName, connectorType,
+                        provisioningEntity));
+            }
         } else {
             try {
 
-                boolean success = proThread.call();
+                boolean success = bulkhead.call(proThread);
                 if (!success) {
-                    if (executors != null) {
-                        executors.shutdown();
-                    }
                     throw new IdentityProvisioningException
                             (generateMessageOnFailureProvisioningOperation(idPName,
                                                                            connectorType, provisioningEntity));
                     //DO Rollback
                 }
             } catch (Exception e) { //call() of Callable interface throws this exception
-                handleException(idPName, connectorType, provisioningEntity, executors, e);
+                handleException(idPName, connectorType, provisioningEntity, null, e);
             }
         }
     }
@@ -953,7 +948,8 @@ public class OutboundProvisioningManager {
      * @param idPName
      * @param connectorType
      * @param provisioningEntity
-     * @param executors
+     * @param executors not used since provisioning calls run on the shared {@link ProvisioningExecutor}, always
+     *                  null
      * @param e
      */
     protected void handleException(String idPName, String connectorType, ProvisioningEntity provisioningEntity,
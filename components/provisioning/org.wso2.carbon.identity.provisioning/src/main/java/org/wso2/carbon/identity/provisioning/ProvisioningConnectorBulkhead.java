@@ -0,0 +1,307 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.provisioning;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Limits the provisioning calls made to a single outbound provisioning connector. At most the configured number of
+ * calls are in flight at a time. Non-blocking calls beyond that wait in a bounded queue and are dropped if they are
+ * not started within the timeout, while blocking calls wait for a free slot in the caller's thread.
+ */
+public class ProvisioningConnectorBulkhead {
+
+    private static final Log log = LogFactory.getLog(ProvisioningConnectorBulkhead.class);
+
+    private final String name;
+    private final int maxInFlight;
+    private final int queueSize;
+    private final long timeoutNanos;
+    private final Executor executor;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition slotAvailable = lock.newCondition();
+    private final Deque<QueuedTask> queue = new ArrayDeque<>();
+    private int inFlight;
+    private int waitingCallers;
+
+    private final AtomicLong completedCount = new AtomicLong();
+    private final AtomicLong failedCount = new AtomicLong();
+    private final AtomicLong rejectedCount = new AtomicLong();
+    private final AtomicLong timedOutCount = new AtomicLong();
+    private final AtomicLong totalWaitTimeNanos = new AtomicLong();
+    private final AtomicLong totalExecutionTimeNanos = new AtomicLong();
+    private final AtomicLong maxExecutionTimeNanos = new AtomicLong();
+
+    /**
+     * @param name          name of the connector, used in logs
+     * @param maxInFlight   maximum number of concurrent calls to the connector
+     * @param queueSize     maximum number of non-blocking calls waiting for a free slot
+     * @param timeout       maximum time a call waits for a free slot
+     * @param unit          time unit of the timeout
+     * @param executor      executor which runs the non-blocking calls
+     */
+    public ProvisioningConnectorBulkhead(String name, int maxInFlight, int queueSize, long timeout, TimeUnit unit,
+                                         Executor executor) {
+
+        if (maxInFlight <= 0 || queueSize < 0) {
+            throw new IllegalArgumentException("Maximum in flight calls should be positive and the queue size " +
+                    "should not be negative.");
+        }
+        this.name = name;
+        this.maxInFlight = maxInFlight;
+        this.queueSize = queueSize;
+        this.timeoutNanos = unit.toNanos(timeout);
+        this.executor = executor;
+    }
+
+    /**
+     * Submits a non-blocking provisioning call. The call is run by the executor as soon as there is a free slot.
+     *
+     * @param task provisioning call
+     * @return false if the call is rejected since the queue of the connector is full
+     */
+    public boolean submit(Callable<Boolean> task) {
+
+        lock.lock();
+        try {
+            if (queue.size() >= queueSize && inFlight >= maxInFlight) {
+                rejectedCount.incrementAndGet();
+                return false;
+            }
+            queue.add(new QueuedTask(task, System.nanoTime()));
+            if (waitingCallers == 0) {
+                dispatchQueuedTasks();
+            }
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Makes a blocking provisioning call in the caller's thread, once there is a free slot.
+     *
+     * @param task provisioning call
+     * @return result of the call
+     * @throws TimeoutException if there was no free slot within the timeout
+     * @throws Exception        if the call fails
+     */
+    public Boolean call(Callable<Boolean> task) throws Exception {
+
+        long startTime = System.nanoTime();
+        acquire();
+        long executionStartTime = System.nanoTime();
+        totalWaitTimeNanos.addAndGet(executionStartTime - startTime);
+        try {
+            return execute(task, executionStartTime);
+        } finally {
+            release();
+        }
+    }
+
+    private void acquire() throws InterruptedException, TimeoutException {
+
+        long remainingNanos = timeoutNanos;
+        boolean acquired = false;
+        lock.lockInterruptibly();
+        waitingCallers++;
+        try {
+            while (inFlight >= maxInFlight) {
+                if (remainingNanos <= 0) {
+                    timedOutCount.incrementAndGet();
+                    throw new TimeoutException("Timed out while waiting to call provisioning connector " + name);
+                }
+                remainingNanos = slotAvailable.awaitNanos(remainingNanos);
+            }
+            inFlight++;
+            acquired = true;
+        } finally {
+            waitingCallers--;
+            if (!acquired && waitingCallers == 0) {
+                // A slot handed over to this caller should not be left unused by the queued calls.
+                dispatchQueuedTasks();
+            }
+            lock.unlock();
+        }
+    }
+
+    private void release() {
+
+        lock.lock();
+        try {
+            inFlight--;
+            if (waitingCallers > 0) {
+                slotAvailable.signal();
+            } else {
+                dispatchQueuedTasks();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Starts queued calls while there are free slots. Should be called while holding the lock.
+     */
+    private void dispatchQueuedTasks() {
+
+        while (inFlight < maxInFlight && !queue.isEmpty()) {
+            final QueuedTask queuedTask = queue.poll();
+            final long waitTime = System.nanoTime() - queuedTask.enqueueTime;
+            if (waitTime > timeoutNanos) {
+                timedOutCount.incrementAndGet();
+                log.error("Dropping provisioning call to connector " + name + " since it was not started within " +
+                        TimeUnit.NANOSECONDS.toMillis(timeoutNanos) + " ms");
+                continue;
+            }
+            inFlight++;
+            try {
+                executor.execute(new Runnable() {
+                    @Override
+                    public void run() {
+
+                        totalWaitTimeNanos.addAndGet(waitTime);
+                        try {
+                            execute(queuedTask.task, System.nanoTime());
+                        } catch (Exception e) {
+                            if (log.isDebugEnabled()) {
+                                log.debug("Error while calling provisioning connector " + name, e);
+                            }
+                        } finally {
+                            release();
+                        }
+                    }
+                });
+            } catch (RejectedExecutionException e) {
+                inFlight--;
+                rejectedCount.incrementAndGet();
+                log.error("Provisioning executor rejected the call to connector " + name, e);
+            }
+        }
+    }
+
+    private Boolean execute(Callable<Boolean> task, long startTime) throws Exception {
+
+        boolean success = false;
+        try {
+            Boolean result = task.call();
+            success = Boolean.TRUE.equals(result);
+            return result;
+        } finally {
+            long executionTime = System.nanoTime() - startTime;
+            totalExecutionTimeNanos.addAndGet(executionTime);
+            long max = maxExecutionTimeNanos.get();
+            while (executionTime > max && !maxExecutionTimeNanos.compareAndSet(max, executionTime)) {
+                max = maxExecutionTimeNanos.get();
+            }
+            if (success) {
+                completedCount.incrementAndGet();
+            } else {
+                failedCount.incrementAndGet();
+            }
+        }
+    }
+
+    public String getName() {
+
+        return name;
+    }
+
+    public int getQueueDepth() {
+
+        lock.lock();
+        try {
+            return queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getInFlightCount() {
+
+        lock.lock();
+        try {
+            return inFlight;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getCompletedCount() {
+
+        return completedCount.get();
+    }
+
+    public long getFailedCount() {
+
+        return failedCount.get();
+    }
+
+    public long getRejectedCount() {
+
+        return rejectedCount.get();
+    }
+
+    public long getTimedOutCount() {
+
+        return timedOutCount.get();
+    }
+
+    public long getAverageWaitTimeMillis() {
+
+        long calls = completedCount.get() + failedCount.get();
+        return calls == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalWaitTimeNanos.get() / calls);
+    }
+
+    public long getAverageLatencyMillis() {
+
+        long calls = completedCount.get() + failedCount.get();
+        return calls == 0 ? 0 : TimeUnit.NANOSECONDS.toMillis(totalExecutionTimeNanos.get() / calls);
+    }
+
+    public long getMaxLatencyMillis() {
+
+        return TimeUnit.NANOSECONDS.toMillis(maxExecutionTimeNanos.get());
+    }
+
+    private static class QueuedTask {
+
+        private final Callable<Boolean> task;
+        private final long enqueueTime;
+
+        QueuedTask(Callable<Boolean> task, long enqueueTime) {
+
+            this.task = task;
+            this.enqueueTime = enqueueTime;
+        }
+    }
+}
@@ -0,0 +1,166 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.provisioning;
+
+import org.apache.commons.lang.StringUtils;
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.identity.core.util.IdentityUtil;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Long lived executor of the outbound provisioning calls, shared by all the provisioning connectors. Calls to each
+ * connector of an identity provider go through a {@link ProvisioningConnectorBulkhead}, so that a slow connector can
+ * only hold a bounded number of threads and queued calls.
+ */
+public class ProvisioningExecutor {
+
+    private static final Log log = LogFactory.getLog(ProvisioningExecutor.class);
+
+    private static final String THREAD_POOL_SIZE = "OutboundProvisioning.Executor.ThreadPoolSize";
+    private static final String MAX_IN_FLIGHT = "OutboundProvisioning.Executor.Connector.MaxInFlight";
+    private static final String QUEUE_SIZE = "OutboundProvisioning.Executor.Connector.QueueSize";
+    private static final String TIMEOUT = "OutboundProvisioning.Executor.Connector.Timeout";
+
+    private static final int DEFAULT_THREAD_POOL_SIZE = 20;
+    private static final int DEFAULT_MAX_IN_FLIGHT = 10;
+    private static final int DEFAULT_QUEUE_SIZE = 1000;
+    private static final int DEFAULT_TIMEOUT = 60000;
+
+    private static volatile ProvisioningExecutor instance;
+
+    private final ExecutorService executorService;
+    private final Map<String, ProvisioningConnectorBulkhead> bulkheads = new ConcurrentHashMap<>();
+    private final int maxInFlight;
+    private final int queueSize;
+    private final long timeout;
+
+    private ProvisioningExecutor() {
+
+        int threadPoolSize = getIntProperty(THREAD_POOL_SIZE, DEFAULT_THREAD_POOL_SIZE);
+        this.maxInFlight = getIntProperty(MAX_IN_FLIGHT, DEFAULT_MAX_IN_FLIGHT);
+        this.queueSize = getIntProperty(QUEUE_SIZE, DEFAULT_QUEUE_SIZE);
+        this.timeout = getIntProperty(TIMEOUT, DEFAULT_TIMEOUT);
+
+        final AtomicInteger threadCount = new AtomicInteger();
+        this.executorService = new ThreadPoolExecutor(threadPoolSize, threadPoolSize, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<Runnable>(), new ThreadFactory() {
+                    @Override
+                    public Thread newThread(Runnable runnable) {
+
+                        Thread thread = new Thread(runnable, "OutboundProvisioning-" + threadCount.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+
+        if (log.isDebugEnabled()) {
+            log.debug("Outbound provisioning executor is started with " + threadPoolSize + " threads. Connector max " +
+                    "in flight calls: " + maxInFlight + ", queue size: " + queueSize + ", timeout: " + timeout + " ms");
+        }
+    }
+
+    public static ProvisioningExecutor getInstance() {
+
+        if (instance == null) {
+            synchronized (ProvisioningExecutor.class) {
+                if (instance == null) {
+                    instance = new ProvisioningExecutor();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Returns the bulkhead of a provisioning connector of an identity provider.
+     *
+     * @param tenantDomain  tenant domain of the identity provider
+     * @param idPName       name of the identity provider
+     * @param connectorType type of the provisioning connector
+     * @return bulkhead of the connector
+     */
+    public ProvisioningConnectorBulkhead getBulkhead(String tenantDomain, String idPName, String connectorType) {
+
+        String key = tenantDomain + ":" + idPName + ":" + connectorType;
+        ProvisioningConnectorBulkhead bulkhead = bulkheads.get(key);
+        if (bulkhead == null) {
+            bulkhead = new ProvisioningConnectorBulkhead(key, maxInFlight, queueSize, timeout,
+                    TimeUnit.MILLISECONDS, executorService);
+            ProvisioningConnectorBulkhead existing = bulkheads.putIfAbsent(key, bulkhead);
+            if (existing != null) {
+                bulkhead = existing;
+            }
+        }
+        return bulkhead;
+    }
+
+    /**
+     * @return bulkheads of the connectors used so far, keyed by tenant domain, identity provider and connector type
+     */
+    public Map<String, ProvisioningConnectorBulkhead> getBulkheads() {
+
+        return Collections.unmodifiableMap(bulkheads);
+    }
+
+    /**
+     * Stops the executor once the provisioning calls which are already started are completed.
+     */
+    public static void shutdown() {
+
+        synchronized (ProvisioningExecutor.class) {
+            if (instance != null) {
+                instance.executorService.shutdown();
+                instance = null;
+            }
+        }
+    }
+
+    /**
+     * Reads a positive integer property. A value which is not a positive integer is replaced by the default value, as
+     * a pool, queue or permit count of zero or less would stop provisioning.
+     */
+    private static int getIntProperty(String propertyName, int defaultValue) {
+
+        String value = IdentityUtil.getProperty(propertyName);
+        if (StringUtils.isBlank(value)) {
+            return defaultValue;
+        }
+        try {
+            int intValue = Integer.parseInt(value.trim());
+            if (intValue > 0) {
+                return intValue;
+            }
+        } catch (NumberFormatException e) {
+            // Falls back to the default value below.
+        }
+        log.warn("Invalid value: " + value + " for " + propertyName + ". The value should be a positive integer. " +
+                "Using the default value: " + defaultValue);
+        return defaultValue;
+    }
+}
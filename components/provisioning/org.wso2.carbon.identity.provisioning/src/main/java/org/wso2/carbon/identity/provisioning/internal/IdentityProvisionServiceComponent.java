@@ -30,6 +30,7 @@ import org.wso2.carbon.identity.application.common.model.ProvisioningConnectorCo
 import org.wso2.carbon.identity.application.mgt.listener.ApplicationMgtListener;
 import org.wso2.carbon.identity.entitlement.EntitlementService;
 import org.wso2.carbon.identity.provisioning.AbstractProvisioningConnectorFactory;
+import org.wso2.carbon.identity.provisioning.ProvisioningExecutor;
 import org.wso2.carbon.identity.provisioning.listener.DefaultInboundUserProvisioningListener;
 import org.wso2.carbon.identity.provisioning.listener.ProvisioningApplicationMgtListener;
 import org.wso2.carbon.identity.provisioning.listener.ProvisioningIdentityProviderMgtListener;
@@ -133,6 +134,7 @@ public class IdentityProvisionServiceComponent {
      */
     @Deactivate
     protected void deactivate(ComponentContext context) {
+        ProvisioningExecutor.shutdown();
         if (log.isDebugEnabled()) {
             log.debug("Identity Provision bundle is de-activated");
         }
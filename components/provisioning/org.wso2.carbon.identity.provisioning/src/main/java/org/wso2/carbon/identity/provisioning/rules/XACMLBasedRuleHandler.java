@@ -19,29 +19,19 @@ package org.wso2.carbon.identity.provisioning.rules;
 import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
-import org.w3c.dom.Document;
-import org.w3c.dom.NodeList;
-import org.wso2.balana.utils.exception.PolicyBuilderException;
-import org.wso2.balana.utils.policy.PolicyBuilder;
-import org.wso2.balana.utils.policy.dto.RequestElementDTO;
+import org.wso2.balana.ctx.AbstractRequestCtx;
 import org.wso2.carbon.identity.application.common.model.ClaimMapping;
 import org.wso2.carbon.identity.application.common.model.ServiceProvider;
-import org.wso2.carbon.identity.core.util.IdentityUtil;
 import org.wso2.carbon.identity.entitlement.EntitlementException;
+import org.wso2.carbon.identity.entitlement.EntitlementUtil;
 import org.wso2.carbon.identity.entitlement.common.EntitlementPolicyConstants;
-import org.wso2.carbon.identity.entitlement.common.dto.RequestDTO;
-import org.wso2.carbon.identity.entitlement.common.dto.RowDTO;
-import org.wso2.carbon.identity.entitlement.common.util.PolicyCreatorUtil;
+import org.wso2.carbon.identity.entitlement.dto.AttributeDTO;
+import org.wso2.carbon.identity.entitlement.pdp.EntitlementDecision;
 import org.wso2.carbon.identity.provisioning.IdentityProvisioningConstants;
-import org.wso2.carbon.identity.provisioning.IdentityProvisioningException;
 import org.wso2.carbon.identity.provisioning.ProvisioningEntity;
 import org.wso2.carbon.identity.provisioning.ProvisioningOperation;
 import org.wso2.carbon.identity.provisioning.internal.ProvisioningServiceDataHolder;
-import org.xml.sax.InputSource;
-import org.xml.sax.SAXException;
 
-import java.io.IOException;
-import java.io.StringReader;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
@@ -49,9 +39,6 @@ import java.util.Calendar;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
 
 
 public class XACMLBasedRuleHandler {
@@ -82,93 +69,73 @@ public class XACMLBasedRuleHandler {
         }
 
         try {
-            RequestDTO requestDTO = createRequestDTO(tenantDomainName, provisioningEntity, serviceProvider,
-                                                     idPName, connectorType);
-            RequestElementDTO requestElementDTO = PolicyCreatorUtil.createRequestElementDTO(requestDTO);
+            List<AttributeDTO> attributeDTOs = createRequestAttributes(tenantDomainName, provisioningEntity,
+                                                                       serviceProvider, idPName, connectorType);
+            AbstractRequestCtx requestCtx = EntitlementUtil.createRequestContextByCategory(attributeDTOs);
 
-            String requestString = PolicyBuilder.getInstance().buildRequest(requestElementDTO);
+            EntitlementDecision decision = ProvisioningServiceDataHolder.getInstance().getEntitlementService()
+                    .getDecisionByRequestContext(requestCtx);
             if (log.isDebugEnabled()) {
-                log.debug("XACML request :\n" + requestString);
+                log.debug("XACML decision : " + decision.getDecision());
             }
-
-            String responseString =
-                    ProvisioningServiceDataHolder.getInstance().getEntitlementService().getDecision(requestString);
-            if (log.isDebugEnabled()) {
-                log.debug("XACML response :\n" + responseString);
-            }
-            Boolean isAuthorized = evaluateXACMLResponse(responseString);
-            if (isAuthorized) {
+            if (decision.isPermit() || decision.isNotApplicable()) {
                 return true;
             }
-        } catch (PolicyBuilderException e) {
-            log.error("Policy Builder Exception occurred", e);
         } catch (EntitlementException e) {
             log.error("Entitlement Exception occurred", e);
-        } catch (IdentityProvisioningException e) {
-            log.error("Error when evaluating the XACML response", e);
         }
         return false;
     }
 
 
-    private RequestDTO createRequestDTO(String tenantDomainName, ProvisioningEntity provisioningEntity,
-                                        ServiceProvider serviceProvider,
-                                        String idPName,
-                                        String connectorType) {
-        List<RowDTO> rowDTOs = new ArrayList<>();
+    private List<AttributeDTO> createRequestAttributes(String tenantDomainName, ProvisioningEntity provisioningEntity,
+                                                       ServiceProvider serviceProvider,
+                                                       String idPName,
+                                                       String connectorType) {
+        List<AttributeDTO> attributeDTOs = new ArrayList<>();
         //Setting up user-info category
-        RowDTO tenatDomainDTO =
-                createRowDTO(tenantDomainName, EntitlementPolicyConstants.STRING_DATA_TYPE,
-                             ProvisioningRuleConstanats.XACML_ATTRIBUTE_TENAT_DOMAIN,
-                             ProvisioningRuleConstanats.XACML_CATAGORY_USER);
-        RowDTO userDTO =
-                createRowDTO(provisioningEntity.getEntityName(), EntitlementPolicyConstants.STRING_DATA_TYPE,
-                             ProvisioningRuleConstanats.XACML_ATTRIBUTE_USER, ProvisioningRuleConstanats
-                                     .XACML_CATAGORY_USER);
-
-        RowDTO spNameDTO =
-                createRowDTO(serviceProvider.getApplicationName(),
-                             EntitlementPolicyConstants.STRING_DATA_TYPE,
-                             ProvisioningRuleConstanats.XACML_ATTRIBUTE_SP_NAME,
-                             ProvisioningRuleConstanats.XACML_CATAGORY_SERVICE_PROVIDER);
-        RowDTO spTenantDomainNameDTO =
-                createRowDTO(serviceProvider.getOwner().getTenantDomain(),
-                             EntitlementPolicyConstants.STRING_DATA_TYPE,
-                             ProvisioningRuleConstanats.XACML_ATTRIBUTE_SP_TENANT_DOMAIN,
-                             ProvisioningRuleConstanats.XACML_CATAGORY_SERVICE_PROVIDER);
+        addAttribute(attributeDTOs, tenantDomainName, EntitlementPolicyConstants.STRING_DATA_TYPE,
+                ProvisioningRuleConstanats.XACML_ATTRIBUTE_TENAT_DOMAIN,
+                ProvisioningRuleConstanats.XACML_CATAGORY_USER);
+        addAttribute(attributeDTOs, provisioningEntity.getEntityName(), EntitlementPolicyConstants.STRING_DATA_TYPE,
+                ProvisioningRuleConstanats.XACML_ATTRIBUTE_USER, ProvisioningRuleConstanats.XACML_CATAGORY_USER);
+
+        addAttribute(attributeDTOs, serviceProvider.getApplicationName(),
+                EntitlementPolicyConstants.STRING_DATA_TYPE,
+                ProvisioningRuleConstanats.XACML_ATTRIBUTE_SP_NAME,
+                ProvisioningRuleConstanats.XACML_CATAGORY_SERVICE_PROVIDER);
+        addAttribute(attributeDTOs, serviceProvider.getOwner().getTenantDomain(),
+                EntitlementPolicyConstants.STRING_DATA_TYPE,
+                ProvisioningRuleConstanats.XACML_ATTRIBUTE_SP_TENANT_DOMAIN,
+                ProvisioningRuleConstanats.XACML_CATAGORY_SERVICE_PROVIDER);
         //Setting up IDP category
-        RowDTO idpNameDTO =
-                createRowDTO(idPName,
-                             EntitlementPolicyConstants.STRING_DATA_TYPE,
-                             ProvisioningRuleConstanats.XACML_ATTRIBUTE_IDP_NAME,
-                             ProvisioningRuleConstanats.XACML_CATAGORY_IDENTITY_PROVIDER);
-        RowDTO connectorTypeDTO =
-                createRowDTO(connectorType,
-                             EntitlementPolicyConstants.STRING_DATA_TYPE,
-                             ProvisioningRuleConstanats.XACML_ATTRIBUTE_CONNECTOR_TYPE,
-                             ProvisioningRuleConstanats.XACML_CATAGORY_IDENTITY_PROVIDER);
+        addAttribute(attributeDTOs, idPName,
+                EntitlementPolicyConstants.STRING_DATA_TYPE,
+                ProvisioningRuleConstanats.XACML_ATTRIBUTE_IDP_NAME,
+                ProvisioningRuleConstanats.XACML_CATAGORY_IDENTITY_PROVIDER);
+        addAttribute(attributeDTOs, connectorType,
+                EntitlementPolicyConstants.STRING_DATA_TYPE,
+                ProvisioningRuleConstanats.XACML_ATTRIBUTE_CONNECTOR_TYPE,
+                ProvisioningRuleConstanats.XACML_CATAGORY_IDENTITY_PROVIDER);
 
         //Setting up Identity Action
-        RowDTO provisioningFlowDTO =
-                createRowDTO(ProvisioningRuleConstanats.IDENTITY_ACTION_PROVISIONING,
-                             EntitlementPolicyConstants.STRING_DATA_TYPE,
-                             ProvisioningRuleConstanats.XACML_ATTRIBUTE_IDENTITY_ACTION,
-                             ProvisioningRuleConstanats.XACML_CATAGORY_IDENTITY_ACTION);
+        addAttribute(attributeDTOs, ProvisioningRuleConstanats.IDENTITY_ACTION_PROVISIONING,
+                EntitlementPolicyConstants.STRING_DATA_TYPE,
+                ProvisioningRuleConstanats.XACML_ATTRIBUTE_IDENTITY_ACTION,
+                ProvisioningRuleConstanats.XACML_CATAGORY_IDENTITY_ACTION);
 
         if (provisioningEntity.getOperation().equals(ProvisioningOperation.POST)) {
-            RowDTO provisioningClaimGroupDTO =
-                    createRowDTO(StringUtils.substringBetween(provisioningEntity.getAttributes().get(ClaimMapping.build(
-                            IdentityProvisioningConstants.GROUP_CLAIM_URI, null, null, false)).toString(), "[", "]"),
-                                 EntitlementPolicyConstants.STRING_DATA_TYPE,
-                                 ProvisioningRuleConstanats.XACML_ATTRIBUTE_CLAIM_GROUPS,
-                                 ProvisioningRuleConstanats.XACML_CATAGORY_PROVISIONING);
-            rowDTOs.add(provisioningClaimGroupDTO);
+            addAttribute(attributeDTOs, StringUtils.substringBetween(provisioningEntity.getAttributes().get(
+                    ClaimMapping.build(IdentityProvisioningConstants.GROUP_CLAIM_URI, null, null, false)).toString(),
+                    "[", "]"),
+                    EntitlementPolicyConstants.STRING_DATA_TYPE,
+                    ProvisioningRuleConstanats.XACML_ATTRIBUTE_CLAIM_GROUPS,
+                    ProvisioningRuleConstanats.XACML_CATAGORY_PROVISIONING);
         }
-        RowDTO provisioningOperationDTO =
-                createRowDTO(provisioningEntity.getOperation().toString(),
-                             EntitlementPolicyConstants.STRING_DATA_TYPE,
-                             ProvisioningRuleConstanats.XACML_ATTRIBUTE_OPERATION,
-                             ProvisioningRuleConstanats.XACML_CATAGORY_PROVISIONING);
+        addAttribute(attributeDTOs, provisioningEntity.getOperation().toString(),
+                EntitlementPolicyConstants.STRING_DATA_TYPE,
+                ProvisioningRuleConstanats.XACML_ATTRIBUTE_OPERATION,
+                ProvisioningRuleConstanats.XACML_CATAGORY_PROVISIONING);
 
         if (provisioningEntity.getInboundAttributes() != null) {
             Iterator<Map.Entry<String, String>> claimIterator = provisioningEntity.getInboundAttributes().entrySet
@@ -177,83 +144,47 @@ public class XACMLBasedRuleHandler {
                 Map.Entry<String, String> claim = claimIterator.next();
                 String claimUri = claim.getKey();
                 String claimValue = claim.getValue();
-                RowDTO claimRowDTO =
-                        createRowDTO(claimValue, EntitlementPolicyConstants.STRING_DATA_TYPE,
-                                     claimUri, ProvisioningRuleConstanats.XACML_CATAGORY_USER);
-                rowDTOs.add(claimRowDTO);
+                addAttribute(attributeDTOs, claimValue, EntitlementPolicyConstants.STRING_DATA_TYPE,
+                        claimUri, ProvisioningRuleConstanats.XACML_CATAGORY_USER);
             }
         }
-        RowDTO environmentTypeDTO =
-                createRowDTO(tenantDomainName,
-                             EntitlementPolicyConstants.STRING_DATA_TYPE,
-                             ProvisioningRuleConstanats.XACML_ATTRIBUTE_ENVIRONMENT,
-                             ProvisioningRuleConstanats.XACML_CATAGORY_ENVIRONMENT);
-        RowDTO dateDTO =
-                createRowDTO(getCurrentDateTime(ProvisioningRuleConstanats.DATE_FORMAT),
-                             EntitlementPolicyConstants.STRING_DATA_TYPE,
-                             ProvisioningRuleConstanats.XACML_ATTRIBUTE_DATE,
-                             ProvisioningRuleConstanats.XACML_CATAGORY_ENVIRONMENT);
-        RowDTO timeDTO =
-                createRowDTO(getCurrentDateTime(ProvisioningRuleConstanats.TIME_FORMAT),
-                             EntitlementPolicyConstants.STRING_DATA_TYPE,
-                             ProvisioningRuleConstanats.XACML_ATTRIBUTE_TIME,
-                             ProvisioningRuleConstanats.XACML_CATAGORY_ENVIRONMENT);
-        RowDTO dateTimeDTO =
-                createRowDTO(getCurrentDateTime(ProvisioningRuleConstanats.DATE_TIME_FORMAT),
-                             EntitlementPolicyConstants.STRING_DATA_TYPE,
-                             ProvisioningRuleConstanats.XACML_ATTRIBUTE_DATE_TIME,
-                             ProvisioningRuleConstanats.XACML_CATAGORY_ENVIRONMENT);
-
-        rowDTOs.add(tenatDomainDTO);
-        rowDTOs.add(userDTO);
-        rowDTOs.add(spNameDTO);
-        rowDTOs.add(spTenantDomainNameDTO);
-        rowDTOs.add(idpNameDTO);
-        rowDTOs.add(provisioningFlowDTO);
-        rowDTOs.add(connectorTypeDTO);
-        rowDTOs.add(environmentTypeDTO);
-        rowDTOs.add(dateDTO);
-        rowDTOs.add(timeDTO);
-        rowDTOs.add(dateTimeDTO);
-        rowDTOs.add(provisioningOperationDTO);
-        RequestDTO requestDTO = new RequestDTO();
-        requestDTO.setRowDTOs(rowDTOs);
-        return requestDTO;
-    }
-
-    private RowDTO createRowDTO(String resourceName, String dataType, String attributeId, String categoryValue) {
-
-        RowDTO rowDTOTenant = new RowDTO();
-        rowDTOTenant.setAttributeValue(resourceName);
-        rowDTOTenant.setAttributeDataType(dataType);
-        rowDTOTenant.setAttributeId(attributeId);
-        rowDTOTenant.setCategory(categoryValue);
-        return rowDTOTenant;
+        addAttribute(attributeDTOs, tenantDomainName,
+                EntitlementPolicyConstants.STRING_DATA_TYPE,
+                ProvisioningRuleConstanats.XACML_ATTRIBUTE_ENVIRONMENT,
+                ProvisioningRuleConstanats.XACML_CATAGORY_ENVIRONMENT);
+        addAttribute(attributeDTOs, getCurrentDateTime(ProvisioningRuleConstanats.DATE_FORMAT),
+                EntitlementPolicyConstants.STRING_DATA_TYPE,
+                ProvisioningRuleConstanats.XACML_ATTRIBUTE_DATE,
+                ProvisioningRuleConstanats.XACML_CATAGORY_ENVIRONMENT);
+        addAttribute(attributeDTOs, getCurrentDateTime(ProvisioningRuleConstanats.TIME_FORMAT),
+                EntitlementPolicyConstants.STRING_DATA_TYPE,
+                ProvisioningRuleConstanats.XACML_ATTRIBUTE_TIME,
+                ProvisioningRuleConstanats.XACML_CATAGORY_ENVIRONMENT);
+        addAttribute(attributeDTOs, getCurrentDateTime(ProvisioningRuleConstanats.DATE_TIME_FORMAT),
+                EntitlementPolicyConstants.STRING_DATA_TYPE,
+                ProvisioningRuleConstanats.XACML_ATTRIBUTE_DATE_TIME,
+                ProvisioningRuleConstanats.XACML_CATAGORY_ENVIRONMENT);
+        return attributeDTOs;
     }
 
-    private boolean evaluateXACMLResponse(String xacmlResponse) throws IdentityProvisioningException {
+    /**
+     * Adds a string attribute to the request. As in a XACML request built from the same attribute, comma separated
+     * values are added as separate values of the attribute and blank values are ignored.
+     */
+    private void addAttribute(List<AttributeDTO> attributeDTOs, String value, String dataType, String attributeId,
+                              String categoryValue) {
 
-        try {
-            DocumentBuilderFactory documentBuilderFactory = IdentityUtil.getSecuredDocumentBuilderFactory();
-            DocumentBuilder db = documentBuilderFactory.newDocumentBuilder();
-            InputSource is = new InputSource();
-            is.setCharacterStream(new StringReader(xacmlResponse));
-            Document doc = db.parse(is);
-
-            String decision = "";
-            NodeList decisionNode = doc.getDocumentElement().getElementsByTagName(
-                            ProvisioningRuleConstanats.XACML_RESPONSE_DECISION_NODE);
-            if (decisionNode != null && decisionNode.item(0) != null) {
-                decision = decisionNode.item(0).getTextContent();
-            }
-            if (decision.equalsIgnoreCase(EntitlementPolicyConstants.RULE_EFFECT_PERMIT)
-                || decision.equalsIgnoreCase(EntitlementPolicyConstants.RULE_EFFECT_NOT_APPLICABLE)) {
-                return true;
-            }
-        } catch (ParserConfigurationException | SAXException | IOException e) {
-            throw new IdentityProvisioningException("Exception occurred while xacmlResponse processing", e);
+        if (StringUtils.isBlank(value) || StringUtils.isBlank(attributeId) || StringUtils.isBlank(categoryValue)) {
+            return;
+        }
+        for (String attributeValue : value.split(EntitlementPolicyConstants.ATTRIBUTE_SEPARATOR)) {
+            AttributeDTO attributeDTO = new AttributeDTO();
+            attributeDTO.setAttributeValue(attributeValue);
+            attributeDTO.setAttributeDataType(dataType);
+            attributeDTO.setAttributeId(attributeId);
+            attributeDTO.setCategory(categoryValue);
+            attributeDTOs.add(attributeDTO);
         }
-        return false;
     }
 
     private String getCurrentDateTime(String dateTimeFormat) {
@@ -0,0 +1,142 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.provisioning;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Test class for ProvisioningConnectorBulkhead test cases.
+ */
+public class ProvisioningConnectorBulkheadTest {
+
+    private ExecutorService executorService;
+
+    @BeforeMethod
+    public void setUp() {
+
+        executorService = Executors.newFixedThreadPool(4);
+    }
+
+    @AfterMethod
+    public void tearDown() {
+
+        executorService.shutdownNow();
+    }
+
+    @Test
+    public void testLimitInFlightCalls() throws Exception {
+
+        ProvisioningConnectorBulkhead bulkhead = new ProvisioningConnectorBulkhead("connector", 1, 1, 1,
+                TimeUnit.MINUTES, executorService);
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch completed = new CountDownLatch(2);
+
+        Assert.assertTrue(bulkhead.submit(new BlockingCall(release, completed)));
+        Assert.assertTrue(bulkhead.submit(new BlockingCall(release, completed)));
+        // One call is in flight and one is queued, so there is no room for another call.
+        Assert.assertFalse(bulkhead.submit(new BlockingCall(release, completed)));
+        Assert.assertEquals(bulkhead.getInFlightCount(), 1);
+        Assert.assertEquals(bulkhead.getQueueDepth(), 1);
+        Assert.assertEquals(bulkhead.getRejectedCount(), 1);
+
+        release.countDown();
+        Assert.assertTrue(completed.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(bulkhead.getQueueDepth(), 0);
+        Assert.assertEquals(bulkhead.getCompletedCount(), 2);
+    }
+
+    @Test
+    public void testBlockingCall() throws Exception {
+
+        ProvisioningConnectorBulkhead bulkhead = new ProvisioningConnectorBulkhead("connector", 1, 1, 100,
+                TimeUnit.MILLISECONDS, executorService);
+
+        Assert.assertTrue(bulkhead.call(new BlockingCall(new CountDownLatch(0), new CountDownLatch(1))));
+
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch completed = new CountDownLatch(1);
+        bulkhead.submit(new BlockingCall(release, completed));
+        try {
+            bulkhead.call(new BlockingCall(release, completed));
+            Assert.fail("Blocking call should time out while the connector is busy.");
+        } catch (TimeoutException e) {
+            Assert.assertEquals(bulkhead.getTimedOutCount(), 1);
+        }
+
+        release.countDown();
+        Assert.assertTrue(completed.await(5, TimeUnit.SECONDS));
+        Assert.assertEquals(bulkhead.getCompletedCount(), 2);
+    }
+
+    @Test
+    public void testFailedCalls() throws Exception {
+
+        ProvisioningConnectorBulkhead bulkhead = new ProvisioningConnectorBulkhead("connector", 1, 1, 1,
+                TimeUnit.MINUTES, executorService);
+
+        Assert.assertFalse(bulkhead.call(new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                return false;
+            }
+        }));
+        try {
+            bulkhead.call(new Callable<Boolean>() {
+                @Override
+                public Boolean call() throws Exception {
+                    throw new IdentityProvisioningException("Provisioning failed");
+                }
+            });
+            Assert.fail("Errors of blocking calls should be thrown to the caller.");
+        } catch (IdentityProvisioningException e) {
+            Assert.assertEquals(bulkhead.getFailedCount(), 2);
+            Assert.assertEquals(bulkhead.getInFlightCount(), 0);
+        }
+    }
+
+    private static class BlockingCall implements Callable<Boolean> {
+
+        private final CountDownLatch release;
+        private final CountDownLatch completed;
+
+        BlockingCall(CountDownLatch release, CountDownLatch completed) {
+
+            this.release = release;
+            this.completed = completed;
+        }
+
+        @Override
+        public Boolean call() throws Exception {
+
+            release.await();
+            completed.countDown();
+            return true;
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.provisioning;
+
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.testng.PowerMockTestCase;
+import org.powermock.reflect.Whitebox;
+import org.testng.Assert;
+import org.testng.IObjectFactory;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.ObjectFactory;
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.core.util.IdentityUtil;
+
+import static org.powermock.api.mockito.PowerMockito.mockStatic;
+import static org.powermock.api.mockito.PowerMockito.when;
+
+/**
+ * Test class for ProvisioningExecutor test cases.
+ */
+@PrepareForTest({IdentityUtil.class})
+public class ProvisioningExecutorTest extends PowerMockTestCase {
+
+    private static final String PROPERTY_NAME = "OutboundProvisioning.Executor.Connector.QueueSize";
+    private static final int DEFAULT_VALUE = 1000;
+
+    @DataProvider(name = "propertyValues")
+    public Object[][] getPropertyValues() {
+
+        return new Object[][]{
+                {"50", 50},
+                {" 50 ", 50},
+                {null, DEFAULT_VALUE},
+                {"", DEFAULT_VALUE},
+                {"invalid", DEFAULT_VALUE},
+                {"0", DEFAULT_VALUE},
+                {"-1", DEFAULT_VALUE}
+        };
+    }
+
+    @Test(dataProvider = "propertyValues")
+    public void testGetIntProperty(String value, int expected) throws Exception {
+
+        mockStatic(IdentityUtil.class);
+        when(IdentityUtil.getProperty(PROPERTY_NAME)).thenReturn(value);
+
+        int actual = Whitebox.invokeMethod(ProvisioningExecutor.class, "getIntProperty", PROPERTY_NAME,
+                DEFAULT_VALUE);
+        Assert.assertEquals(actual, expected);
+    }
+
+    @ObjectFactory
+    public IObjectFactory getObjectFactory() {
+
+        return new org.powermock.modules.testng.PowerMockObjectFactory();
+    }
+}
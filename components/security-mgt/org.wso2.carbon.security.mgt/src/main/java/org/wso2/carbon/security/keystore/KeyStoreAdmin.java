@@ -42,6 +42,7 @@ import org.wso2.carbon.security.keystore.service.CertDataDetail;
 import org.wso2.carbon.security.keystore.service.KeyStoreData;
 import org.wso2.carbon.security.keystore.service.PaginatedCertData;
 import org.wso2.carbon.security.keystore.service.PaginatedKeyStoreData;
+import org.wso2.carbon.security.util.CertificateLookupIndex;
 import org.wso2.carbon.security.util.KeyStoreMgtUtil;
 import org.wso2.carbon.utils.CarbonUtils;
 import org.wso2.carbon.utils.multitenancy.MultitenantConstants;
@@ -888,6 +889,9 @@ public class KeyStoreAdmin {
 
     private void updateKeyStore(String name, KeyStore keyStore) throws Exception {
 
+        // The entries of the loaded key store are already changed, even if it fails to be persisted.
+        CertificateLookupIndex.invalidate(keyStore);
+
         FileOutputStream resource1;
         String outputStream1;
         String path;
@@ -0,0 +1,228 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.security.util;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.apache.ws.security.WSSecurityException;
+import org.apache.ws.security.components.crypto.Crypto;
+
+import java.math.BigInteger;
+import java.security.KeyStore;
+import java.security.KeyStoreException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.security.cert.Certificate;
+import java.security.cert.CertificateEncodingException;
+import java.security.cert.X509Certificate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+
+/**
+ * Immutable index of the certificates of a key store, which maps the SHA-1 thumbprint, the subject key identifier,
+ * the issuer and serial number and the subject DN of each certificate to its alias. The index of a key store is
+ * shared by all the {@link ServerCrypto} instances using the key store.
+ * <p>
+ * A key store which is loaded again, such as after it is updated in another node, is a new instance and is indexed
+ * when it is first used. A change made to a loaded key store must be followed by {@link #invalidate(KeyStore)}. As a
+ * safeguard against changes made without it, the index is also rebuilt if the number of entries of the key store
+ * changes.
+ */
+public final class CertificateLookupIndex {
+
+    private static final Log log = LogFactory.getLog(CertificateLookupIndex.class);
+
+    private static final Map<KeyStore, CertificateLookupIndex> indexes =
+            Collections.synchronizedMap(new WeakHashMap<KeyStore, CertificateLookupIndex>());
+
+    private final int size;
+    private final Map<String, String> thumbprintAliases;
+    private final Map<String, String> skiAliases;
+    private final Map<List<Object>, String> issuerSerialAliases;
+    private final Map<List<String>, String[]> subjectAliases;
+
+    private CertificateLookupIndex(int size, Map<String, String> thumbprintAliases,
+                                   Map<String, String> skiAliases, Map<List<Object>, String> issuerSerialAliases,
+                                   Map<List<String>, String[]> subjectAliases) {
+
+        this.size = size;
+        this.thumbprintAliases = thumbprintAliases;
+        this.skiAliases = skiAliases;
+        this.issuerSerialAliases = issuerSerialAliases;
+        this.subjectAliases = subjectAliases;
+    }
+
+    /**
+     * Returns the index of a key store, building it if the key store is not indexed yet or is invalidated since it was
+     * indexed.
+     *
+     * @param keyStore key store
+     * @param crypto   crypto used to read the subject key identifiers of the certificates
+     * @return index of the key store
+     * @throws WSSecurityException if the key store could not be read
+     */
+    static CertificateLookupIndex getIndex(KeyStore keyStore, Crypto crypto) throws WSSecurityException {
+
+        try {
+            CertificateLookupIndex index = indexes.get(keyStore);
+            int size = keyStore.size();
+            if (index == null || index.size != size) {
+                index = build(keyStore, size, crypto);
+                indexes.put(keyStore, index);
+            }
+            return index;
+        } catch (KeyStoreException e) {
+            throw new WSSecurityException(WSSecurityException.FAILURE, "keystore");
+        }
+    }
+
+    /**
+     * Discards the index of a key store, so that it is rebuilt when it is next used. Should be called after an entry
+     * of a loaded key store is added, removed or replaced.
+     *
+     * @param keyStore changed key store
+     */
+    public static void invalidate(KeyStore keyStore) {
+
+        if (keyStore != null) {
+            indexes.remove(keyStore);
+        }
+    }
+
+    String getAliasForThumbprint(byte[] thumbprint) {
+
+        return thumbprint == null ? null : thumbprintAliases.get(encode(thumbprint));
+    }
+
+    String getAliasForSKI(byte[] skiBytes) {
+
+        return skiBytes == null ? null : skiAliases.get(encode(skiBytes));
+    }
+
+    String getAliasForIssuerSerial(String issuer, BigInteger serialNumber) {
+
+        return issuerSerialAliases.get(getIssuerSerialKey(issuer, serialNumber));
+    }
+
+    String[] getAliasesForSubjectDN(String subjectDN) {
+
+        String[] aliases = subjectAliases.get(ServerCrypto.splitAndTrim(subjectDN));
+        return aliases == null ? new String[0] : aliases.clone();
+    }
+
+    private static CertificateLookupIndex build(KeyStore keyStore, int size, Crypto crypto)
+            throws KeyStoreException, WSSecurityException {
+
+        MessageDigest sha;
+        try {
+            sha = MessageDigest.getInstance("SHA-1");
+        } catch (NoSuchAlgorithmException e) {
+            throw new WSSecurityException(0, "noSHA1availabe");
+        }
+
+        Map<String, String> thumbprintAliases = new HashMap<>();
+        Map<String, String> skiAliases = new HashMap<>();
+        Map<List<Object>, String> issuerSerialAliases = new HashMap<>();
+        Map<List<String>, List<String>> subjectAliasLists = new HashMap<>();
+
+        for (Enumeration<String> e = keyStore.aliases(); e.hasMoreElements(); ) {
+            String alias = e.nextElement();
+            X509Certificate cert = getCertificate(keyStore, alias);
+            if (cert == null) {
+                continue;
+            }
+
+            try {
+                putIfAbsent(thumbprintAliases, encode(sha.digest(cert.getEncoded())), alias);
+            } catch (CertificateEncodingException ex) {
+                throw new WSSecurityException(WSSecurityException.SECURITY_TOKEN_UNAVAILABLE, "encodeError");
+            }
+            try {
+                putIfAbsent(skiAliases, encode(crypto.getSKIBytesFromCert(cert)), alias);
+            } catch (WSSecurityException ex) {
+                if (log.isDebugEnabled()) {
+                    log.debug("Subject key identifier of the certificate: " + alias + " is not indexed", ex);
+                }
+            }
+            putIfAbsent(issuerSerialAliases, getIssuerSerialKey(cert.getIssuerDN().getName(),
+                    cert.getSerialNumber()), alias);
+
+            List<String> subjectRDN = ServerCrypto.splitAndTrim(cert.getSubjectDN().getName());
+            List<String> aliases = subjectAliasLists.get(subjectRDN);
+            if (aliases == null) {
+                aliases = new ArrayList<>();
+                subjectAliasLists.put(subjectRDN, aliases);
+            }
+            aliases.add(alias);
+        }
+
+        Map<List<String>, String[]> subjectAliases = new HashMap<>();
+        for (Map.Entry<List<String>, List<String>> entry : subjectAliasLists.entrySet()) {
+            subjectAliases.put(entry.getKey(), entry.getValue().toArray(new String[entry.getValue().size()]));
+        }
+
+        if (log.isDebugEnabled()) {
+            log.debug("Indexed " + thumbprintAliases.size() + " certificates of the key store of type: " +
+                    keyStore.getType());
+        }
+        return new CertificateLookupIndex(size, Collections.unmodifiableMap(thumbprintAliases),
+                Collections.unmodifiableMap(skiAliases), Collections.unmodifiableMap(issuerSerialAliases),
+                Collections.unmodifiableMap(subjectAliases));
+    }
+
+    private static X509Certificate getCertificate(KeyStore keyStore, String alias) throws KeyStoreException {
+
+        Certificate cert = null;
+        Certificate[] certs = keyStore.getCertificateChain(alias);
+        if (certs != null && certs.length > 0) {
+            cert = certs[0];
+        } else {
+            cert = keyStore.getCertificate(alias);
+        }
+        return cert instanceof X509Certificate ? (X509Certificate) cert : null;
+    }
+
+    /**
+     * The first alias of the key store is kept for a duplicated certificate, as the lookups used to return the
+     * first match.
+     */
+    private static <K> void putIfAbsent(Map<K, String> map, K key, String alias) {
+
+        if (!map.containsKey(key)) {
+            map.put(key, alias);
+        }
+    }
+
+    private static List<Object> getIssuerSerialKey(String issuer, BigInteger serialNumber) {
+
+        return Arrays.<Object>asList(ServerCrypto.splitAndTrim(issuer), serialNumber);
+    }
+
+    private static String encode(byte[] bytes) {
+
+        return Base64.getEncoder().encodeToString(bytes);
+    }
+}
@@ -57,7 +57,6 @@ import java.security.cert.PKIXParameters;
 import java.security.cert.X509Certificate;
 import java.security.interfaces.RSAPublicKey;
 import java.util.ArrayList;
-import java.util.Arrays;
 import java.util.Enumeration;
 import java.util.Iterator;
 import java.util.List;
@@ -427,12 +426,10 @@ public class ServerCrypto implements Crypto {
      */
     public String getAliasForX509Cert(String issuer, BigInteger serialNumber)
             throws WSSecurityException {
-        String alias = getAliasForX509Cert(issuer, serialNumber, true, this.keystore);
+        String alias = CertificateLookupIndex.getIndex(keystore, this).getAliasForIssuerSerial(issuer, serialNumber);
         if (alias == null) {
-            Iterator<KeyStore> ite = this.trustStores.iterator();
-            while (ite.hasNext()) {
-                KeyStore ks = ite.next();
-                alias = getAliasForX509Cert(issuer, serialNumber, true, ks);
+            for (KeyStore ks : this.trustStores) {
+                alias = CertificateLookupIndex.getIndex(ks, this).getAliasForIssuerSerial(issuer, serialNumber);
                 if (alias != null) {
                     break;
                 }
@@ -446,30 +443,8 @@ public class ServerCrypto implements Crypto {
      * @see org.apache.ws.security.components.crypto.Crypto#getAliasForX509Cert(byte[])
      */
     public String getAliasForX509Cert(byte[] skiBytes) throws WSSecurityException {
-        try {
-
-            Certificate cert;
-            for (Enumeration e = keystore.aliases(); e.hasMoreElements(); ) {
-                String alias = (String) e.nextElement();
-                Certificate[] certs = this.getCertificates(alias);
-                if (certs == null || certs.length == 0) {
-                    return null;
-                } else {
-                    cert = certs[0];
-                }
-                byte[] data = getSKIBytesFromCert((X509Certificate) cert);
-                if (data.length != skiBytes.length) {
-                    continue;
-                }
-                if (Arrays.equals(data, skiBytes)) {
-                    return alias;
-                }
-            }
 
-        } catch (KeyStoreException e) {
-            throw new WSSecurityException(WSSecurityException.FAILURE, "keystore");
-        }
-        return null;
+        return CertificateLookupIndex.getIndex(keystore, this).getAliasForSKI(skiBytes);
     }
 
     @Override
@@ -530,39 +505,8 @@ public class ServerCrypto implements Crypto {
      * @see org.apache.ws.security.components.crypto.Crypto#getAliasForX509CertThumb(byte[])
      */
     public String getAliasForX509CertThumb(byte[] thumb) throws WSSecurityException {
-        Certificate cert;
-        MessageDigest sha;
-        try {
-            sha = MessageDigest.getInstance("SHA-1");
-        } catch (NoSuchAlgorithmException e1) {
-            throw new WSSecurityException(0, "noSHA1availabe");
-        }
-        try {
-            for (Enumeration e = keystore.aliases(); e.hasMoreElements(); ) {
-                String alias = (String) e.nextElement();
-                Certificate[] certs = this.getCertificates(alias);
-                if (certs == null || certs.length == 0) {
-                    return null;
-                } else {
-                    cert = certs[0];
-                }
-                sha.reset();
-                try {
-                    sha.update(cert.getEncoded());
-                } catch (CertificateEncodingException e1) {
-                    throw new WSSecurityException(WSSecurityException.SECURITY_TOKEN_UNAVAILABLE,
-                            "encodeError");
-                }
-                byte[] data = sha.digest();
 
-                if (Arrays.equals(data, thumb)) {
-                    return alias;
-                }
-            }
-        } catch (KeyStoreException e) {
-            throw new WSSecurityException(WSSecurityException.FAILURE, "keystore");
-        }
-        return null;
+        return CertificateLookupIndex.getIndex(keystore, this).getAliasForThumbprint(thumb);
     }
 
     @Override
@@ -627,43 +571,7 @@ public class ServerCrypto implements Crypto {
      */
     public String[] getAliasesForDN(String subjectDN) throws WSSecurityException {
 
-        // Store the aliases found
-        List aliases = new Vector();
-        Certificate cert;
-
-        // The DN to search the keystore for
-        Vector subjectRDN = splitAndTrim(subjectDN);
-
-        // Look at every certificate in the keystore
-        try {
-            for (Enumeration e = keystore.aliases(); e.hasMoreElements(); ) {
-                String alias = (String) e.nextElement();
-
-                Certificate[] certs = this.getCertificates(alias);
-                if (certs == null || certs.length == 0) {
-                    return new String[0];
-                } else {
-                    cert = certs[0];
-                }
-
-                Vector foundRDN = splitAndTrim(((X509Certificate) cert).getSubjectDN()
-                        .getName());
-
-                if (subjectRDN.equals(foundRDN)) {
-                    aliases.add(alias);
-                }
-            }
-        } catch (KeyStoreException e) {
-            throw new WSSecurityException(WSSecurityException.FAILURE, "keystore");
-        }
-
-        // Convert the vector into an array
-        String[] result = new String[aliases.size()];
-        for (int i = 0; i < aliases.size(); i++) {
-            result[i] = (String) aliases.get(i);
-        }
-        return result;
-
+        return CertificateLookupIndex.getIndex(keystore, this).getAliasesForSubjectDN(subjectDN);
     }
 
     private String getAliasForX509Cert(String issuer, BigInteger serialNumber,
@@ -697,9 +605,9 @@ public class ServerCrypto implements Crypto {
         return null;
     }
 
-    private Vector splitAndTrim(String inString) {
+    static Vector<String> splitAndTrim(String inString) {
         X509NameTokenizer nmTokens = new X509NameTokenizer(inString);
-        Vector vr = new Vector();
+        Vector<String> vr = new Vector<>();
 
         while (nmTokens.hasMoreTokens()) {
             vr.add(nmTokens.nextToken());
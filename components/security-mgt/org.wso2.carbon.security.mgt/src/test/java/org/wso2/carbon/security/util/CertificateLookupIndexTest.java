@@ -0,0 +1,200 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.security.util;
+
+import org.apache.ws.security.WSSecurityException;
+import org.apache.ws.security.components.crypto.Crypto;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.testng.PowerMockTestCase;
+import org.powermock.reflect.Whitebox;
+import org.testng.IObjectFactory;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.ObjectFactory;
+import org.testng.annotations.Test;
+import org.wso2.carbon.base.ServerConfiguration;
+import org.wso2.carbon.core.util.KeyStoreManager;
+import org.wso2.carbon.security.keystore.KeyStoreAdmin;
+
+import java.io.InputStream;
+import java.math.BigInteger;
+import java.security.KeyStore;
+import java.security.MessageDigest;
+import java.security.cert.X509Certificate;
+import java.util.Base64;
+import java.util.Map;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.powermock.api.mockito.PowerMockito.mockStatic;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertSame;
+
+@PrepareForTest({ServerConfiguration.class, KeyStoreManager.class})
+public class CertificateLookupIndexTest extends PowerMockTestCase {
+
+    private static final String KEY_STORE_NAME = "lookup-index.jks";
+    private static final String KEY_STORE_PASSWORD = "wso2carbon";
+    private static final int TENANT_ID = 1;
+
+    private KeyStore keyStore;
+    private Crypto crypto;
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+
+        keyStore = KeyStore.getInstance("JKS");
+        try (InputStream in = getClass().getClassLoader().getResourceAsStream(KEY_STORE_NAME)) {
+            keyStore.load(in, KEY_STORE_PASSWORD.toCharArray());
+        }
+        crypto = mock(Crypto.class);
+        when(crypto.getSKIBytesFromCert(any(X509Certificate.class))).thenThrow(
+                new WSSecurityException(WSSecurityException.FAILURE, "noSKIHandling"));
+    }
+
+    @ObjectFactory
+    public IObjectFactory getObjectFactory() {
+
+        return new org.powermock.modules.testng.PowerMockObjectFactory();
+    }
+
+    @Test
+    public void testGetAliasForThumbprint() throws Exception {
+
+        CertificateLookupIndex index = CertificateLookupIndex.getIndex(keyStore, crypto);
+
+        for (String alias : new String[]{"cert1", "cert2", "cert3"}) {
+            assertEquals(index.getAliasForThumbprint(getThumbprint(getCertificate(alias))), alias);
+        }
+        assertNull(index.getAliasForThumbprint(new byte[20]));
+        assertNull(index.getAliasForThumbprint(null));
+    }
+
+    @Test
+    public void testGetAliasForIssuerSerial() throws Exception {
+
+        CertificateLookupIndex index = CertificateLookupIndex.getIndex(keyStore, crypto);
+        X509Certificate cert1 = getCertificate("cert1");
+        X509Certificate cert2 = getCertificate("cert2");
+
+        assertEquals(index.getAliasForIssuerSerial(cert1.getIssuerDN().getName(), cert1.getSerialNumber()), "cert1");
+        // The issuer is matched by its relative distinguished names, regardless of the spaces between them.
+        assertEquals(index.getAliasForIssuerSerial("CN=cert2,O=WSO2,C=US", cert2.getSerialNumber()), "cert2");
+        assertNull(index.getAliasForIssuerSerial(cert1.getIssuerDN().getName(), cert2.getSerialNumber()));
+        assertNull(index.getAliasForIssuerSerial(cert1.getIssuerDN().getName(), BigInteger.ONE));
+    }
+
+    @Test
+    public void testGetAliasForSKI() throws Exception {
+
+        byte[] ski = new byte[]{1, 2, 3, 4};
+        crypto = mock(Crypto.class);
+        when(crypto.getSKIBytesFromCert(any(X509Certificate.class))).thenReturn(new byte[]{9, 9});
+        when(crypto.getSKIBytesFromCert(getCertificate("cert2"))).thenReturn(ski);
+
+        CertificateLookupIndex index = CertificateLookupIndex.getIndex(keyStore, crypto);
+
+        assertEquals(index.getAliasForSKI(ski), "cert2");
+        assertNull(index.getAliasForSKI(new byte[]{5}));
+    }
+
+    @Test
+    public void testGetAliasesForSubjectDN() throws Exception {
+
+        CertificateLookupIndex index = CertificateLookupIndex.getIndex(keyStore, crypto);
+
+        String[] aliases = index.getAliasesForSubjectDN("CN=cert1, O=WSO2, C=US");
+        assertEquals(aliases, new String[]{"cert1"});
+        assertEquals(index.getAliasesForSubjectDN("CN=unknown").length, 0);
+    }
+
+    @Test
+    public void testIndexSharedUntilChanged() throws Exception {
+
+        CertificateLookupIndex index = CertificateLookupIndex.getIndex(keyStore, crypto);
+        assertSame(CertificateLookupIndex.getIndex(keyStore, crypto), index);
+
+        CertificateLookupIndex.invalidate(keyStore);
+        CertificateLookupIndex rebuilt = CertificateLookupIndex.getIndex(keyStore, crypto);
+        assertNotSame(rebuilt, index);
+
+        // A change made without an invalidation is detected by the number of entries.
+        X509Certificate cert1 = getCertificate("cert1");
+        keyStore.deleteEntry("cert1");
+        CertificateLookupIndex shrunk = CertificateLookupIndex.getIndex(keyStore, crypto);
+        assertNotSame(shrunk, rebuilt);
+        assertNull(shrunk.getAliasForThumbprint(getThumbprint(cert1)));
+    }
+
+    @Test
+    public void testRebuiltAfterKeyStoreAdminUpdate() throws Exception {
+
+        mockKeyStoreAdminEnvironment();
+        KeyStoreAdmin keyStoreAdmin = new KeyStoreAdmin(TENANT_ID, null);
+        X509Certificate cert3 = getCertificate("cert3");
+
+        // The certificate is imported again under a new alias, leaving the number of entries as it was indexed.
+        assertEquals(CertificateLookupIndex.getIndex(keyStore, crypto).getAliasForThumbprint(getThumbprint(cert3)),
+                "cert3");
+        keyStore.deleteEntry("cert3");
+        String alias = keyStoreAdmin.importCertToStore(Base64.getEncoder().encodeToString(cert3.getEncoded()),
+                KEY_STORE_NAME);
+
+        assertFalse(getIndexes().containsKey(keyStore));
+        assertEquals(CertificateLookupIndex.getIndex(keyStore, crypto).getAliasForThumbprint(getThumbprint(cert3)),
+                alias);
+
+        keyStoreAdmin.removeCertFromStore(alias, KEY_STORE_NAME);
+
+        assertFalse(getIndexes().containsKey(keyStore));
+        assertNull(CertificateLookupIndex.getIndex(keyStore, crypto).getAliasForThumbprint(getThumbprint(cert3)));
+    }
+
+    private void mockKeyStoreAdminEnvironment() throws Exception {
+
+        ServerConfiguration serverConfiguration = mock(ServerConfiguration.class);
+        when(serverConfiguration.getFirstProperty(anyString())).thenReturn("client-truststore.jks");
+        mockStatic(ServerConfiguration.class);
+        when(ServerConfiguration.getInstance()).thenReturn(serverConfiguration);
+
+        KeyStoreManager keyStoreManager = mock(KeyStoreManager.class);
+        when(keyStoreManager.getKeyStore(KEY_STORE_NAME)).thenReturn(keyStore);
+        mockStatic(KeyStoreManager.class);
+        when(KeyStoreManager.getInstance(TENANT_ID)).thenReturn(keyStoreManager);
+    }
+
+    private X509Certificate getCertificate(String alias) throws Exception {
+
+        return (X509Certificate) keyStore.getCertificate(alias);
+    }
+
+    private static byte[] getThumbprint(X509Certificate cert) throws Exception {
+
+        return MessageDigest.getInstance("SHA-1").digest(cert.getEncoded());
+    }
+
+    private static Map<KeyStore, CertificateLookupIndex> getIndexes() {
+
+        return Whitebox.getInternalState(CertificateLookupIndex.class, "indexes");
+    }
+}
@@ -30,6 +30,9 @@ import org.wso2.carbon.core.AbstractAdmin;
 import org.wso2.carbon.identity.base.IdentityConstants;
 import org.wso2.carbon.identity.core.util.IdentityDatabaseUtil;
 import org.wso2.carbon.identity.core.util.IdentityUtil;
+import org.wso2.carbon.identity.user.profile.mgt.cache.FederatedAssociationCache;
+import org.wso2.carbon.identity.user.profile.mgt.cache.FederatedAssociationCacheEntry;
+import org.wso2.carbon.identity.user.profile.mgt.cache.FederatedAssociationCacheKey;
 import org.wso2.carbon.identity.user.profile.mgt.util.Constants;
 import org.wso2.carbon.user.api.Claim;
 import org.wso2.carbon.user.api.ClaimMapping;
@@ -669,6 +672,7 @@ public class UserProfileAdmin extends AbstractAdmin {
             prepStmt.setString(6, username);
             prepStmt.execute();
             connection.commit();
+            clearAssociationCache(tenantID, idpID, associatedID);
         } catch (SQLException e) {
             log.error("Error occurred while persisting association for federated user ID '" + associatedID + "' for" +
                     " IdP '" + idpID + "' with the local user account '" + UserCoreUtil.addDomainToName
@@ -680,12 +684,30 @@ public class UserProfileAdmin extends AbstractAdmin {
 
     public String getNameAssociatedWith(String idpID, String associatedID) throws UserProfileException {
 
+        int tenantID = CarbonContext.getThreadLocalCarbonContext().getTenantId();
+        if (idpID == null || associatedID == null) {
+            return getNameAssociatedWith(tenantID, idpID, associatedID);
+        }
+
+        FederatedAssociationCacheKey cacheKey = new FederatedAssociationCacheKey(tenantID, idpID, associatedID);
+        FederatedAssociationCacheEntry cacheEntry = FederatedAssociationCache.getInstance().getValueFromCache(cacheKey);
+        if (cacheEntry != null) {
+            return cacheEntry.getUsername();
+        }
+        String username = getNameAssociatedWith(tenantID, idpID, associatedID);
+        // The absence of an association is cached as well, as most of the federated users are not associated.
+        FederatedAssociationCache.getInstance().addToCache(cacheKey, new FederatedAssociationCacheEntry(username));
+        return username;
+    }
+
+    private String getNameAssociatedWith(int tenantID, String idpID, String associatedID)
+            throws UserProfileException {
+
         Connection connection = IdentityDatabaseUtil.getDBConnection();
         PreparedStatement prepStmt = null;
         ResultSet resultSet;
         String sql = null;
         String username = "";
-        int tenantID = CarbonContext.getThreadLocalCarbonContext().getTenantId();
 
         try {
             sql = "SELECT DOMAIN_NAME, USER_NAME FROM IDN_ASSOCIATED_ID WHERE TENANT_ID = ? AND IDP_ID = (SELECT ID " +
@@ -784,10 +806,19 @@ public class UserProfileAdmin extends AbstractAdmin {
             throw new UserProfileException("Error occurred while removing associated ID", e);
         } finally {
             IdentityDatabaseUtil.closeAllConnections(connection, null, prepStmt);
+            clearAssociationCache(tenantID, idpID, associatedID);
         }
 
     }
 
+    private void clearAssociationCache(int tenantID, String idpID, String associatedID) {
+
+        if (idpID != null && associatedID != null) {
+            FederatedAssociationCache.getInstance().clearCacheEntry(new FederatedAssociationCacheKey(tenantID, idpID,
+                    associatedID));
+        }
+    }
+
     /**
      * Checks whether the given user name is admin user name and the currently logged in user also admin.
      * Only admin user is allowed for admin user profile related operations.
@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.user.profile.mgt.cache;
+
+import org.wso2.carbon.identity.application.common.cache.CacheEntry;
+
+public class FederatedAssociationCacheEntry extends CacheEntry {
+
+    private static final long serialVersionUID = -3061589305817396215L;
+
+    private String username;
+
+    /**
+     * @param username domain qualified name of the associated local user, or null if the federated user ID is not
+     *                 associated with a local user
+     */
+    public FederatedAssociationCacheEntry(String username) {
+        this.username = username;
+    }
+
+    public String getUsername() {
+        return username;
+    }
+}
@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.user.profile.mgt.cache;
+
+import org.wso2.carbon.identity.application.common.cache.CacheKey;
+
+public class FederatedAssociationCacheKey extends CacheKey {
+
+    private static final long serialVersionUID = 4417802617592740325L;
+
+    private int tenantId;
+    private String idpName;
+    private String federatedUserId;
+
+    public FederatedAssociationCacheKey(int tenantId, String idpName, String federatedUserId) {
+        this.tenantId = tenantId;
+        this.idpName = idpName;
+        this.federatedUserId = federatedUserId;
+    }
+
+    public int getTenantId() {
+        return tenantId;
+    }
+
+    public String getIdpName() {
+        return idpName;
+    }
+
+    public String getFederatedUserId() {
+        return federatedUserId;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass() || !super.equals(o)) {
+            return false;
+        }
+
+        FederatedAssociationCacheKey that = (FederatedAssociationCacheKey) o;
+
+        return tenantId == that.tenantId && idpName.equals(that.idpName) &&
+                federatedUserId.equals(that.federatedUserId);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = super.hashCode();
+        result = 31 * result + tenantId;
+        result = 31 * result + idpName.hashCode();
+        result = 31 * result + federatedUserId.hashCode();
+        return result;
+    }
+}
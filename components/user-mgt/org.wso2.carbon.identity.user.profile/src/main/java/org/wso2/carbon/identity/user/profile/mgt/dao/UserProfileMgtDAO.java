@@ -20,6 +20,7 @@ package org.wso2.carbon.identity.user.profile.mgt.dao;
 import org.wso2.carbon.identity.application.common.util.IdentityApplicationManagementUtil;
 import org.wso2.carbon.identity.core.util.IdentityDatabaseUtil;
 import org.wso2.carbon.identity.user.profile.mgt.UserProfileException;
+import org.wso2.carbon.identity.user.profile.mgt.cache.FederatedAssociationCache;
 import org.wso2.carbon.identity.user.profile.mgt.util.Constants;
 
 import java.sql.Connection;
@@ -59,6 +60,8 @@ public class UserProfileMgtDAO {
         } finally {
             IdentityApplicationManagementUtil.closeStatement(preparedStatement);
             IdentityApplicationManagementUtil.closeConnection(dbConnection);
+            // The cached associations are not keyed by the domain, hence all of them are cleared.
+            FederatedAssociationCache.getInstance().clear();
         }
     }
 
@@ -83,6 +86,7 @@ public class UserProfileMgtDAO {
         } finally {
             IdentityApplicationManagementUtil.closeStatement(preparedStatement);
             IdentityApplicationManagementUtil.closeConnection(dbConnection);
+            FederatedAssociationCache.getInstance().clear();
         }
     }
 
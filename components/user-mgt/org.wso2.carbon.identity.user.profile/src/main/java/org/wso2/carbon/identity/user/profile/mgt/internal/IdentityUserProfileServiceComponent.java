@@ -28,9 +28,11 @@ import org.osgi.service.component.annotations.ReferenceCardinality;
 import org.osgi.service.component.annotations.ReferencePolicy;
 import org.wso2.carbon.identity.core.util.IdentityCoreInitializedEvent;
 import org.wso2.carbon.identity.core.util.IdentityDatabaseUtil;
+import org.wso2.carbon.identity.user.profile.mgt.listener.FederatedAssociationIdPMgtListener;
 import org.wso2.carbon.identity.user.profile.mgt.listener.ProfileMgtEventListener;
 import org.wso2.carbon.identity.user.profile.mgt.util.ServiceHodler;
 import org.wso2.carbon.identity.user.store.configuration.listener.UserStoreConfigListener;
+import org.wso2.carbon.idp.mgt.listener.IdentityProviderMgtListener;
 import org.wso2.carbon.user.core.UserRealm;
 import org.wso2.carbon.user.core.listener.UserOperationEventListener;
 
@@ -73,6 +75,15 @@ public class IdentityUserProfileServiceComponent {
             } else {
                 log.error("User profile management - ProfileMgtEventListener could not be registered.");
             }
+            ServiceRegistration idpMgtListenerSR = ctxt.getBundleContext().registerService(
+                    IdentityProviderMgtListener.class.getName(), new FederatedAssociationIdPMgtListener(), null);
+            if (idpMgtListenerSR != null) {
+                if (log.isDebugEnabled()) {
+                    log.debug("User profile management - FederatedAssociationIdPMgtListener registered.");
+                }
+            } else {
+                log.error("User profile management - FederatedAssociationIdPMgtListener could not be registered.");
+            }
         } catch (Throwable e) {
             log.error("Failed to activate ProfileMgt bundle ", e);
         }
@@ -0,0 +1,58 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.user.profile.mgt.listener;
+
+import org.apache.commons.lang.StringUtils;
+import org.wso2.carbon.identity.application.common.model.IdentityProvider;
+import org.wso2.carbon.identity.user.profile.mgt.cache.FederatedAssociationCache;
+import org.wso2.carbon.idp.mgt.IdentityProviderManagementException;
+import org.wso2.carbon.idp.mgt.listener.AbstractIdentityProviderMgtListener;
+
+/**
+ * Clears the cached federated associations when an identity provider is deleted or renamed. The associations are
+ * cached by the name of the identity provider, while they are stored against its ID, so a cached association of a
+ * deleted identity provider, or of the old name of a renamed one, would otherwise outlive the stored association.
+ */
+public class FederatedAssociationIdPMgtListener extends AbstractIdentityProviderMgtListener {
+
+    @Override
+    public boolean doPostUpdateIdP(String oldIdPName, IdentityProvider identityProvider, String tenantDomain)
+            throws IdentityProviderManagementException {
+
+        if (isEnable() && !StringUtils.equals(oldIdPName, identityProvider.getIdentityProviderName())) {
+            FederatedAssociationCache.getInstance().clear();
+        }
+        return true;
+    }
+
+    @Override
+    public boolean doPostDeleteIdP(String idPName, String tenantDomain) throws IdentityProviderManagementException {
+
+        if (isEnable()) {
+            FederatedAssociationCache.getInstance().clear();
+        }
+        return true;
+    }
+
+    @Override
+    public int getDefaultOrderId() {
+
+        return 32;
+    }
+}
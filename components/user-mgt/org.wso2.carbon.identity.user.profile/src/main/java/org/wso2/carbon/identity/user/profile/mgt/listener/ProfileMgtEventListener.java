@@ -26,6 +26,7 @@ import org.wso2.carbon.identity.base.IdentityValidationUtil;
 import org.wso2.carbon.identity.core.AbstractIdentityUserOperationEventListener;
 import org.wso2.carbon.identity.core.util.IdentityDatabaseUtil;
 import org.wso2.carbon.identity.core.util.IdentityTenantUtil;
+import org.wso2.carbon.identity.user.profile.mgt.cache.FederatedAssociationCache;
 import org.wso2.carbon.identity.user.profile.mgt.util.ServiceHodler;
 import org.wso2.carbon.user.core.UserCoreConstants;
 import org.wso2.carbon.user.core.UserStoreException;
@@ -154,6 +155,9 @@ public class ProfileMgtEventListener extends AbstractIdentityUserOperationEventL
         } catch (SQLException e) {
             String msg = "Error when trying to delete the federated IDP user account associations of user:%s";
             throw new UserStoreException(String.format(msg, fullyQualifiedUsername), e);
+        } finally {
+            // The cached associations are keyed by the federated user ID, hence all of them are cleared.
+            FederatedAssociationCache.getInstance().clear();
         }
     }
 
@@ -0,0 +1,199 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.user.profile.mgt;
+
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.testng.PowerMockTestCase;
+import org.testng.IObjectFactory;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.ObjectFactory;
+import org.testng.annotations.Test;
+import org.wso2.carbon.context.PrivilegedCarbonContext;
+import org.wso2.carbon.identity.core.util.IdentityDatabaseUtil;
+import org.wso2.carbon.identity.user.profile.mgt.cache.FederatedAssociationCache;
+import org.wso2.carbon.identity.user.profile.mgt.cache.FederatedAssociationCacheEntry;
+import org.wso2.carbon.identity.user.profile.mgt.cache.FederatedAssociationCacheKey;
+
+import java.nio.file.Paths;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.powermock.api.mockito.PowerMockito.mockStatic;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertNull;
+import static org.testng.Assert.assertTrue;
+
+/**
+ * Tests of the caching of the federated associations by {@link UserProfileAdmin}.
+ */
+@PrepareForTest({IdentityDatabaseUtil.class, FederatedAssociationCache.class})
+public class UserProfileAdminTest extends PowerMockTestCase {
+
+    private static final int TENANT_ID = 1;
+    private static final String IDP_NAME = "idp1";
+    private static final String FEDERATED_USER_ID = "federatedUser1";
+    private static final FederatedAssociationCacheKey CACHE_KEY =
+            new FederatedAssociationCacheKey(TENANT_ID, IDP_NAME, FEDERATED_USER_ID);
+
+    private Map<FederatedAssociationCacheKey, FederatedAssociationCacheEntry> cacheEntries;
+    private Connection connection;
+    private ResultSet resultSet;
+    private UserProfileAdmin userProfileAdmin;
+
+    @BeforeClass
+    public void setUpClass() {
+
+        System.setProperty("carbon.home", Paths.get(System.getProperty("user.dir"), "target").toString());
+    }
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+
+        PrivilegedCarbonContext.startTenantFlow();
+        PrivilegedCarbonContext carbonContext = PrivilegedCarbonContext.getThreadLocalCarbonContext();
+        carbonContext.setTenantId(TENANT_ID);
+        carbonContext.setTenantDomain("wso2.com");
+        carbonContext.setUsername("admin");
+
+        resultSet = mock(ResultSet.class);
+        PreparedStatement preparedStatement = mock(PreparedStatement.class);
+        when(preparedStatement.executeQuery()).thenReturn(resultSet);
+        connection = mock(Connection.class);
+        when(connection.prepareStatement(anyString())).thenReturn(preparedStatement);
+        mockStatic(IdentityDatabaseUtil.class);
+        when(IdentityDatabaseUtil.getDBConnection()).thenReturn(connection);
+
+        mockFederatedAssociationCache();
+        userProfileAdmin = new UserProfileAdmin();
+    }
+
+    @AfterMethod
+    public void tearDown() {
+
+        PrivilegedCarbonContext.endTenantFlow();
+    }
+
+    @ObjectFactory
+    public IObjectFactory getObjectFactory() {
+
+        return new org.powermock.modules.testng.PowerMockObjectFactory();
+    }
+
+    @Test
+    public void testAssociationCached() throws Exception {
+
+        when(resultSet.next()).thenReturn(true);
+        when(resultSet.getString(1)).thenReturn("SECONDARY");
+        when(resultSet.getString(2)).thenReturn("user1");
+
+        assertEquals(userProfileAdmin.getNameAssociatedWith(IDP_NAME, FEDERATED_USER_ID), "SECONDARY/user1");
+        assertEquals(userProfileAdmin.getNameAssociatedWith(IDP_NAME, FEDERATED_USER_ID), "SECONDARY/user1");
+        verify(connection, times(1)).prepareStatement(anyString());
+    }
+
+    @Test
+    public void testNoAssociationCached() throws Exception {
+
+        when(resultSet.next()).thenReturn(false);
+
+        assertNull(userProfileAdmin.getNameAssociatedWith(IDP_NAME, FEDERATED_USER_ID));
+        assertNull(userProfileAdmin.getNameAssociatedWith(IDP_NAME, FEDERATED_USER_ID));
+        verify(connection, times(1)).prepareStatement(anyString());
+        assertTrue(cacheEntries.containsKey(CACHE_KEY));
+        assertNull(cacheEntries.get(CACHE_KEY).getUsername());
+    }
+
+    @Test
+    public void testAssociateIDClearsCachedAssociation() throws Exception {
+
+        when(resultSet.next()).thenReturn(false);
+        assertNull(userProfileAdmin.getNameAssociatedWith(IDP_NAME, FEDERATED_USER_ID));
+        cacheEntries.put(new FederatedAssociationCacheKey(TENANT_ID, IDP_NAME, "federatedUser2"),
+                new FederatedAssociationCacheEntry(null));
+
+        userProfileAdmin.associateID(IDP_NAME, FEDERATED_USER_ID);
+
+        // Only the association of the federated user ID is cleared.
+        assertFalse(cacheEntries.containsKey(CACHE_KEY));
+        assertEquals(cacheEntries.size(), 1);
+    }
+
+    @Test
+    public void testRemoveAssociateIDClearsCachedAssociation() throws Exception {
+
+        when(resultSet.next()).thenReturn(true);
+        when(resultSet.getString(1)).thenReturn("PRIMARY");
+        when(resultSet.getString(2)).thenReturn("admin");
+        assertEquals(userProfileAdmin.getNameAssociatedWith(IDP_NAME, FEDERATED_USER_ID), "admin");
+
+        userProfileAdmin.removeAssociateID(IDP_NAME, FEDERATED_USER_ID);
+
+        assertFalse(cacheEntries.containsKey(CACHE_KEY));
+        when(resultSet.next()).thenReturn(false);
+        assertNull(userProfileAdmin.getNameAssociatedWith(IDP_NAME, FEDERATED_USER_ID));
+    }
+
+    private void mockFederatedAssociationCache() {
+
+        cacheEntries = new HashMap<>();
+        FederatedAssociationCache cache = mock(FederatedAssociationCache.class);
+        when(cache.getValueFromCache(any(FederatedAssociationCacheKey.class))).thenAnswer(
+                new Answer<FederatedAssociationCacheEntry>() {
+                    @Override
+                    public FederatedAssociationCacheEntry answer(InvocationOnMock invocation) {
+
+                        return cacheEntries.get(invocation.getArguments()[0]);
+                    }
+                });
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+
+                cacheEntries.put((FederatedAssociationCacheKey) invocation.getArguments()[0],
+                        (FederatedAssociationCacheEntry) invocation.getArguments()[1]);
+                return null;
+            }
+        }).when(cache).addToCache(any(FederatedAssociationCacheKey.class), any(FederatedAssociationCacheEntry.class));
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+
+                cacheEntries.remove(invocation.getArguments()[0]);
+                return null;
+            }
+        }).when(cache).clearCacheEntry(any(FederatedAssociationCacheKey.class));
+        mockStatic(FederatedAssociationCache.class);
+        when(FederatedAssociationCache.getInstance()).thenReturn(cache);
+    }
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.user.profile.mgt.listener;
+
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.testng.PowerMockTestCase;
+import org.testng.IObjectFactory;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.ObjectFactory;
+import org.testng.annotations.Test;
+import org.wso2.carbon.identity.application.common.model.IdentityProvider;
+import org.wso2.carbon.identity.core.model.IdentityEventListenerConfig;
+import org.wso2.carbon.identity.core.util.IdentityUtil;
+import org.wso2.carbon.identity.user.profile.mgt.cache.FederatedAssociationCache;
+
+import java.util.Properties;
+
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.powermock.api.mockito.PowerMockito.mockStatic;
+import static org.testng.Assert.assertTrue;
+
+@PrepareForTest({IdentityUtil.class, FederatedAssociationCache.class})
+public class FederatedAssociationIdPMgtListenerTest extends PowerMockTestCase {
+
+    private static final String TENANT_DOMAIN = "wso2.com";
+
+    private FederatedAssociationCache cache;
+    private FederatedAssociationIdPMgtListener listener;
+
+    @BeforeMethod
+    public void setUp() {
+
+        mockStatic(IdentityUtil.class);
+        cache = mock(FederatedAssociationCache.class);
+        mockStatic(FederatedAssociationCache.class);
+        when(FederatedAssociationCache.getInstance()).thenReturn(cache);
+        listener = new FederatedAssociationIdPMgtListener();
+    }
+
+    @ObjectFactory
+    public IObjectFactory getObjectFactory() {
+
+        return new org.powermock.modules.testng.PowerMockObjectFactory();
+    }
+
+    @Test
+    public void testDeleteClearsCache() throws Exception {
+
+        assertTrue(listener.doPostDeleteIdP("idp1", TENANT_DOMAIN));
+        verify(cache, times(1)).clear();
+    }
+
+    @Test
+    public void testRenameClearsCache() throws Exception {
+
+        assertTrue(listener.doPostUpdateIdP("idp1", getIdentityProvider("idp2"), TENANT_DOMAIN));
+        verify(cache, times(1)).clear();
+    }
+
+    @Test
+    public void testUpdateWithoutRenameKeepsCache() throws Exception {
+
+        assertTrue(listener.doPostUpdateIdP("idp1", getIdentityProvider("idp1"), TENANT_DOMAIN));
+        verify(cache, never()).clear();
+    }
+
+    @Test
+    public void testDisabledListenerKeepsCache() throws Exception {
+
+        when(IdentityUtil.readEventListenerProperty(anyString(), anyString())).thenReturn(
+                new IdentityEventListenerConfig("false", 32, null, new Properties()));
+
+        assertTrue(listener.doPostDeleteIdP("idp1", TENANT_DOMAIN));
+        assertTrue(listener.doPostUpdateIdP("idp1", getIdentityProvider("idp2"), TENANT_DOMAIN));
+        verify(cache, never()).clear();
+    }
+
+    private static IdentityProvider getIdentityProvider(String name) {
+
+        IdentityProvider identityProvider = new IdentityProvider();
+        identityProvider.setIdentityProviderName(name);
+        return identityProvider;
+    }
+}
@@ -75,6 +75,7 @@ public class UserRealmProxy {
             + CarbonConstants.UI_PERMISSION_NAME + RegistryConstants.PATH_SEPARATOR
             + "applications";
     private static final String DISAPLAY_NAME_CLAIM = "http://wso2.org/claims/displayName";
+    private static final String BULK_IMPORT_THREAD_POOL_SIZE = "UserBulkImport.ThreadPoolSize";
     public static final String FALSE = "false";
     public static final String PERMISSION = "/permission";
     public static final String PERMISSION_ADMIN = "/permission/admin";
@@ -2121,6 +2122,15 @@ public class UserRealmProxy {
             if (StringUtils.isNotEmpty(userStoreDomain)) {
                 config.setUserStoreDomain(userStoreDomain);
             }
+            String threadPoolSize = IdentityUtil.getProperty(BULK_IMPORT_THREAD_POOL_SIZE);
+            if (StringUtils.isNotBlank(threadPoolSize)) {
+                try {
+                    config.setThreadPoolSize(Integer.parseInt(threadPoolSize.trim()));
+                } catch (NumberFormatException e) {
+                    log.warn("Invalid value: " + threadPoolSize + " configured for " + BULK_IMPORT_THREAD_POOL_SIZE +
+                            ". Using default value: " + BulkImportConfig.DEFAULT_THREAD_POOL_SIZE);
+                }
+            }
 
             UserStoreManager userStore = this.realm.getUserStoreManager();
             userStore = userStore.getSecondaryUserStoreManager(userStoreDomain);
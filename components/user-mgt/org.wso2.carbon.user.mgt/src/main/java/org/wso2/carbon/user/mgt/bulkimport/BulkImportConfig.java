@@ -22,10 +22,13 @@ import java.io.InputStream;
 
 public class BulkImportConfig {
 
+    public static final int DEFAULT_THREAD_POOL_SIZE = 4;
+
     private InputStream inStream;
     private String userStoreDomain;
     private String fileName;
     private String defaultPassword;
+    private int threadPoolSize = DEFAULT_THREAD_POOL_SIZE;
 
     public BulkImportConfig(InputStream inStream, String fileName) {
         this.inStream = inStream;
@@ -56,6 +59,14 @@ public class BulkImportConfig {
         this.defaultPassword = defaultPassword;
     }
 
+    public int getThreadPoolSize() {
+        return threadPoolSize;
+    }
+
+    public void setThreadPoolSize(int threadPoolSize) {
+        this.threadPoolSize = threadPoolSize;
+    }
+
     public InputStream getInStream() {
         return inStream;
     }
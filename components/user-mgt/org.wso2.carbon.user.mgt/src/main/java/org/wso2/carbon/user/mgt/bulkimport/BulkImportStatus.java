@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.user.mgt.bulkimport;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Progress of a bulk user import. The counters are updated by the import workers while the file is read, so they
+ * can be read at any time during the import. Only the first {@link #MAX_REPORTED_ERRORS} row errors are kept, so
+ * that an import of a large file with many bad rows does not hold all of its errors in memory.
+ */
+public class BulkImportStatus {
+
+    public static final int MAX_REPORTED_ERRORS = 100;
+
+    private final long startTime = System.currentTimeMillis();
+    private final AtomicInteger readCount = new AtomicInteger();
+    private final AtomicInteger successCount = new AtomicInteger();
+    private final AtomicInteger failCount = new AtomicInteger();
+    private final AtomicInteger duplicateCount = new AtomicInteger();
+    private final AtomicInteger processedCount = new AtomicInteger();
+    private final List<String> errors = new ArrayList<>();
+    private volatile String lastError = "UNKNOWN";
+
+    /**
+     * @return number of rows read from the file so far
+     */
+    public int getReadCount() {
+        return readCount.get();
+    }
+
+    /**
+     * @return number of users imported so far
+     */
+    public int getSuccessCount() {
+        return successCount.get();
+    }
+
+    /**
+     * @return number of rows which could not be imported so far
+     */
+    public int getFailCount() {
+        return failCount.get();
+    }
+
+    /**
+     * @return number of rows of existing users found so far
+     */
+    public int getDuplicateCount() {
+        return duplicateCount.get();
+    }
+
+    /**
+     * @return number of rows processed so far, whether the user was imported or not
+     */
+    public int getProcessedCount() {
+        return processedCount.get();
+    }
+
+    /**
+     * @return time since the import was started, in milliseconds
+     */
+    public long getElapsedTime() {
+        return System.currentTimeMillis() - startTime;
+    }
+
+    /**
+     * @return number of rows processed per second since the import was started
+     */
+    public double getThroughput() {
+        long elapsedTime = getElapsedTime();
+        return elapsedTime > 0 ? getProcessedCount() * 1000.0 / elapsedTime : 0;
+    }
+
+    /**
+     * @return the first row errors of the import, as "Row : number - Username : name - Error: message"
+     */
+    public List<String> getErrors() {
+        synchronized (errors) {
+            return Collections.unmodifiableList(new ArrayList<>(errors));
+        }
+    }
+
+    /**
+     * Returns the reported row errors of the import, one per line, so that they can be shown to the user who started
+     * the import along with its result.
+     *
+     * @return the first row errors, followed by the number of row errors which were not reported
+     */
+    public String getErrorReport() {
+        List<String> reportedErrors = getErrors();
+        StringBuilder errorReport = new StringBuilder();
+        for (String error : reportedErrors) {
+            errorReport.append(System.lineSeparator()).append(error);
+        }
+        int unreportedCount = getFailCount() - reportedErrors.size();
+        if (unreportedCount > 0) {
+            errorReport.append(System.lineSeparator()).append("... and ").append(unreportedCount)
+                    .append(" more row errors");
+        }
+        return errorReport.toString();
+    }
+
+    /**
+     * @return message of the last row error, or "UNKNOWN" if there is none
+     */
+    public String getLastError() {
+        return lastError;
+    }
+
+    void rowRead() {
+        readCount.incrementAndGet();
+    }
+
+    /**
+     * @return number of rows processed, including this one
+     */
+    int userImported() {
+        successCount.incrementAndGet();
+        return processedCount.incrementAndGet();
+    }
+
+    /**
+     * @return number of rows processed, including this one
+     */
+    int duplicateFound() {
+        duplicateCount.incrementAndGet();
+        return processedCount.incrementAndGet();
+    }
+
+    /**
+     * @return number of rows processed, including this one
+     */
+    int rowFailed(int rowNumber, String userName, String error) {
+        failCount.incrementAndGet();
+        lastError = error;
+        synchronized (errors) {
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.add("Row : " + rowNumber + " - Username : " + userName + " - Error: " + error);
+            }
+        }
+        return processedCount.incrementAndGet();
+    }
+
+    @Override
+    public String toString() {
+        return "Read count: " + getReadCount() + ", Success count: " + getSuccessCount() + ", Fail count: " +
+                getFailCount() + ", Duplicate count: " + getDuplicateCount() + ", Throughput: " +
+                String.format("%.1f", getThroughput()) + " users/s";
+    }
+}
@@ -21,25 +21,21 @@ package org.wso2.carbon.user.mgt.bulkimport;
 import au.com.bytecode.opencsv.CSVReader;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
-import org.wso2.carbon.CarbonConstants;
-import org.wso2.carbon.user.core.UserStoreException;
 import org.wso2.carbon.user.core.UserStoreManager;
-import org.wso2.carbon.user.core.util.UserCoreUtil;
 import org.wso2.carbon.user.mgt.common.UserAdminException;
 
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.nio.charset.Charset;
-import java.util.HashMap;
-import java.util.Map;
 
-public class CSVUserBulkImport {
+public class CSVUserBulkImport implements UserBulkImport {
 
     private static final Log log = LogFactory.getLog(CSVUserBulkImport.class);
 
     private BufferedReader reader;
     private BulkImportConfig config;
+    private BulkImportStatus status = new BulkImportStatus();
 
     public CSVUserBulkImport(BulkImportConfig config) {
         this.config = config;
@@ -48,85 +44,31 @@ public class CSVUserBulkImport {
 
     public void addUserList(UserStoreManager userStore) throws UserAdminException {
         CSVReader csvReader = new CSVReader(reader, ',', '"', 1);
+        UserBulkImportExecutor importExecutor = new UserBulkImportExecutor(userStore, config, status);
         try {
-
-            String domain = config.getUserStoreDomain();
+            // The first line of the file is the header.
+            int rowNumber = 1;
             String[] line = csvReader.readNext();
-            boolean isDuplicate = false;
-            boolean fail = false;
-            boolean success = false;
-            String lastError = "UNKNOWN";
-            int successCount = 0;
-            int failCount = 0;
-            int duplicateCount = 0;
             while (line != null && line.length > 0) {
-                String userName = line[0];
-
-                int index;
-                index = userName.indexOf(CarbonConstants.DOMAIN_SEPARATOR);
-                if (index > 0) {
-                    String domainFreeName = userName.substring(index + 1);
-                    userName = UserCoreUtil.addDomainToName(domainFreeName, domain);
-                } else {
-                    userName = UserCoreUtil.addDomainToName(userName, domain);
-                }
-
-                if (userName != null && userName.trim().length() > 0) {
-                    try {
-                        if (!userStore.isExistingUser(userName)) {
-                            if (line.length == 1) {
-                                userStore.addUser(userName, null, null, null, null, true);
-                                success = true;
-                                successCount++;
-                            } else {
-                                try {
-                                    addUserWithClaims(userName, line, userStore);
-                                    success = true;
-                                    successCount++;
-                                    if (log.isDebugEnabled()){
-                                        log.debug("User import successful - Username : " + userName);
-                                    }
-                                }catch (UserAdminException e){
-                                    fail = true;
-                                    failCount++;
-                                    lastError = e.getMessage();
-                                    log.error("User import unsuccessful - Username : " + userName + " - Error: " +
-                                            e.getMessage());
-                                }
-                            }
-                        } else {
-                            isDuplicate = true;
-                            duplicateCount++;
-                            log.error("User import unsuccessful - Username : " + userName + " - Error: Duplicate user");
-                        }
-                    } catch (UserStoreException e) {
-                        if (log.isDebugEnabled()) {
-                            log.debug(e);
-                        }
-                        lastError = e.getMessage();
-                        fail = true;
-                        failCount++;
-                        log.error("User import unsuccessful - Username : " + userName + " - Error: " + e.getMessage());
-                    }
-                }
+                importExecutor.addUser(++rowNumber, line);
                 line = csvReader.readNext();
             }
+            importExecutor.awaitCompletion();
 
-            log.info("Success count: " + successCount + ", Fail count: " + failCount + ", Duplicate count: " +
-                    duplicateCount);
-
-            if (fail && success) {
+            int successCount = status.getSuccessCount();
+            int failCount = status.getFailCount();
+            int duplicateCount = status.getDuplicateCount();
+            if (failCount > 0 && successCount > 0) {
                 throw new UserAdminException("Error occurs while importing user names. " +
                         "Success count: " + successCount + ", Fail count: " + failCount + ", Duplicate count: " +
-                        duplicateCount+". Last error was : " + lastError);
+                        duplicateCount + ". Row errors :" + status.getErrorReport());
             }
-
-            if(fail && !success){
+            if (failCount > 0) {
                 throw new UserAdminException("Error occurs while importing user names. " +
-                        "All user names were not imported. Last error was : " + lastError);
+                        "All user names were not imported. Row errors :" + status.getErrorReport());
             }
-            if (isDuplicate) {
-                throw new UserAdminException("Detected " + duplicateCount +" duplicate user names. " +
+            if (duplicateCount > 0) {
+                throw new UserAdminException("Detected " + duplicateCount + " duplicate user names. " +
                         "Failed to import duplicate users. Non-duplicate user names were successfully imported.");
             }
         } catch (UserAdminException e) {
@@ -135,6 +77,7 @@ public class CSVUserBulkImport {
             log.error("Error occured while adding userlist", e);
             throw new UserAdminException("Error occured while adding userlist", e);
         } finally {
+            importExecutor.shutdownNow();
             try {
                 if (csvReader != null) {
                     csvReader.close();
@@ -145,38 +88,12 @@ public class CSVUserBulkImport {
         }
     }
 
-    private void addUserWithClaims(String username, String[] line, UserStoreManager userStore)
-            throws UserStoreException, UserAdminException {
-        String roleString = null;
-        String[] roles = null;
-        String password = line[1];
-        Map<String, String> claims = new HashMap<String, String>();
-        for (int i = 2; i < line.length; i++) {
-            if (line[i] != null && !line[i].isEmpty()) {
-                String[] claimStrings = line[i].split("=");
-                if (claimStrings.length != 2) {
-                    throw new UserAdminException("Claims and values are not in correct format");
-                } else {
-                    String claimURI = claimStrings[0];
-                    String claimValue = claimStrings[1];
-                    if (claimURI.contains("role")) {
-                        roleString = claimValue;
-                    } else {
-                        if (!claimURI.isEmpty()) {
-                            // Not trimming the claim values as we should not restrict the claim values not to have
-                            // leading or trailing whitespaces.
-                            claims.put(claimURI.trim(), claimValue);
-                        }
-                    }
-                }
-
-            }
-        }
-
-        if (roleString != null && !roleString.isEmpty()) {
-            roles = roleString.split(":");
-        }
-
-        userStore.addUser(username, password, roles, claims, null, true);
+    /**
+     * Returns the progress of the import, which is updated while the users are added.
+     *
+     * @return status of the import
+     */
+    public BulkImportStatus getStatus() {
+        return status;
     }
 }
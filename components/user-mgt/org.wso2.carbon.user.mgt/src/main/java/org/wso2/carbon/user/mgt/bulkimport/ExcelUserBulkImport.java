@@ -21,25 +21,50 @@ package org.wso2.carbon.user.mgt.bulkimport;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
 import org.apache.poi.hssf.usermodel.HSSFWorkbook;
+import org.apache.poi.openxml4j.opc.OPCPackage;
+import org.apache.poi.openxml4j.opc.PackageAccess;
 import org.apache.poi.poifs.filesystem.POIFSFileSystem;
 import org.apache.poi.ss.usermodel.Cell;
 import org.apache.poi.ss.usermodel.Row;
 import org.apache.poi.ss.usermodel.Sheet;
 import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.ss.util.CellReference;
+import org.apache.poi.xssf.eventusermodel.ReadOnlySharedStringsTable;
+import org.apache.poi.xssf.eventusermodel.XSSFReader;
+import org.apache.poi.xssf.eventusermodel.XSSFSheetXMLHandler;
 import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.wso2.carbon.identity.core.util.IdentityIOStreamUtils;
-import org.wso2.carbon.CarbonConstants;
 import org.wso2.carbon.user.core.UserStoreManager;
-import org.wso2.carbon.user.core.util.UserCoreUtil;
 import org.wso2.carbon.user.mgt.common.UserAdminException;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+import org.xml.sax.XMLReader;
 
+import java.io.File;
 import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Iterator;
+import javax.xml.XMLConstants;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.parsers.SAXParserFactory;
 
-public class ExcelUserBulkImport {
+/**
+ * Imports the user names in the first column of the first sheet of an Excel file. An XLSX file is read as a stream of
+ * rows, so that the sheet is never held in memory as a whole.
+ */
+public class ExcelUserBulkImport implements UserBulkImport {
 
     private static final Log log = LogFactory.getLog(ExcelUserBulkImport.class);
 
+    private static final String DISALLOW_DOCTYPE_FEATURE = "http://apache.org/xml/features/disallow-doctype-decl";
+    private static final String EXTERNAL_GENERAL_ENTITIES_FEATURE =
+            "http://xml.org/sax/features/external-general-entities";
+    private static final String EXTERNAL_PARAMETER_ENTITIES_FEATURE =
+            "http://xml.org/sax/features/external-parameter-entities";
+
     private BulkImportConfig config;
+    private BulkImportStatus status = new BulkImportStatus();
 
     public ExcelUserBulkImport(BulkImportConfig config) {
         super();
@@ -47,67 +72,40 @@ public class ExcelUserBulkImport {
     }
 
     public void addUserList(UserStoreManager userStore) throws UserAdminException {
+        UserBulkImportExecutor importExecutor = new UserBulkImportExecutor(userStore, config, status);
         try {
-            Workbook wb = this.createWorkbook();
-            Sheet sheet = wb.getSheet(wb.getSheetName(0));
-            String domain = config.getUserStoreDomain();
-
-            if (sheet == null || sheet.getLastRowNum() == -1) {
-                throw new UserAdminException("The first sheet is empty");
-            }
-            int limit = sheet.getLastRowNum();
-            boolean isDuplicate = false;
-            boolean fail = false;
-            boolean success = false;
-            String lastError = "UNKNOWN";
-            for (int i = 1; i < limit + 1; i++) {
-                Row row = sheet.getRow(i);
-                Cell cell = row.getCell(0);
-                String userName = cell.getStringCellValue();
-
-                int index;
-                index = userName.indexOf(CarbonConstants.DOMAIN_SEPARATOR);
-                if (index > 0) {
-                    String domainFreeName = userName.substring(index + 1);
-                    userName = UserCoreUtil.addDomainToName(domainFreeName, domain);
-                } else {
-                    userName = UserCoreUtil.addDomainToName(userName, domain);
-                }
-
-                if (userName != null && userName.trim().length() > 0) {
-                    try {
-                        if (!userStore.isExistingUser(userName)) {
-                            userStore.addUser(userName, null, null, null, null, true);
-                            success = true;
-                        } else {
-                            isDuplicate = true;
-                        }
-                    } catch (Exception e) {
-                        if (log.isDebugEnabled()) {
-                            log.debug(e);
-                        }
-                        lastError = e.getMessage();
-                        fail = true;
-                    }
-                }
-            }
-
-            if (fail && success) {
-                throw new UserAdminException("Error occurs while importing user names. " +
-                        "Some user names were successfully imported. Some were not. Last error was : " + lastError);
+            if (config.getFileName().endsWith(".xlsx")) {
+                readXLSX(importExecutor);
+            } else {
+                readWorkbook(importExecutor);
             }
+            importExecutor.awaitCompletion();
+        } finally {
+            importExecutor.shutdownNow();
+        }
 
-            if (fail && !success) {
-                throw new UserAdminException("Error occurs while importing user names. " +
-                        "All user names were not imported. Last error was : " + lastError);
-            }
-            if (isDuplicate) {
-                throw new UserAdminException("Detected duplicate user names. " +
-                        "Failed to import duplicate users. Non-duplicate user names were successfully imported.");
-            }
-        } catch (UserAdminException e) {
-            throw e;
+        if (status.getFailCount() > 0 && status.getSuccessCount() > 0) {
+            throw new UserAdminException("Error occurs while importing user names. " +
+                    "Some user names were successfully imported. Some were not. Row errors :" +
+                    status.getErrorReport());
+        }
+        if (status.getFailCount() > 0) {
+            throw new UserAdminException("Error occurs while importing user names. " +
+                    "All user names were not imported. Row errors :" + status.getErrorReport());
         }
+        if (status.getDuplicateCount() > 0) {
+            throw new UserAdminException("Detected duplicate user names. " +
+                    "Failed to import duplicate users. Non-duplicate user names were successfully imported.");
+        }
+    }
+
+    /**
+     * Returns the progress of the import, which is updated while the users are added.
+     *
+     * @return status of the import
+     */
+    public BulkImportStatus getStatus() {
+        return status;
     }
 
     public Workbook createWorkbook() throws UserAdminException {
@@ -130,4 +128,118 @@ public class ExcelUserBulkImport {
         return wb;
     }
 
+    private void readWorkbook(UserBulkImportExecutor importExecutor) throws UserAdminException {
+        Workbook wb = this.createWorkbook();
+        Sheet sheet = wb.getSheet(wb.getSheetName(0));
+
+        if (sheet == null || sheet.getLastRowNum() == -1) {
+            throw new UserAdminException("The first sheet is empty");
+        }
+        int limit = sheet.getLastRowNum();
+        for (int i = 1; i < limit + 1; i++) {
+            Row row = sheet.getRow(i);
+            Cell cell = row != null ? row.getCell(0) : null;
+            if (cell != null) {
+                importExecutor.addUser(i + 1, new String[]{cell.getStringCellValue()});
+            }
+        }
+    }
+
+    /**
+     * Reads the rows of the first sheet of an XLSX file by the SAX event API. The file is copied to a temporary file
+     * first, as an XLSX package read from a stream is held in memory.
+     */
+    private void readXLSX(UserBulkImportExecutor importExecutor) throws UserAdminException {
+        File file = null;
+        OPCPackage xlsxPackage = null;
+        InputStream ins = config.getInStream();
+        try {
+            file = File.createTempFile("user-bulk-import", ".xlsx");
+            Files.copy(ins, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            xlsxPackage = OPCPackage.open(file.getAbsolutePath(), PackageAccess.READ);
+
+            XSSFReader xssfReader = new XSSFReader(xlsxPackage);
+            Iterator<InputStream> sheets = xssfReader.getSheetsData();
+            if (!sheets.hasNext()) {
+                throw new UserAdminException("The first sheet is empty");
+            }
+            UserNameHandler userNameHandler = new UserNameHandler(importExecutor);
+            InputStream sheet = sheets.next();
+            try {
+                XMLReader xmlReader = createXMLReader();
+                xmlReader.setContentHandler(new XSSFSheetXMLHandler(xssfReader.getStylesTable(),
+                        new ReadOnlySharedStringsTable(xlsxPackage), userNameHandler, false));
+                xmlReader.parse(new InputSource(sheet));
+            } finally {
+                IdentityIOStreamUtils.closeInputStream(sheet);
+            }
+            if (!userNameHandler.hasRows) {
+                throw new UserAdminException("The first sheet is empty");
+            }
+        } catch (UserAdminException e) {
+            throw e;
+        } catch (Exception e) {
+            log.error("Bulk import failed" + e.getMessage(), e);
+            throw new UserAdminException("Bulk import failed" + e.getMessage(), e);
+        } finally {
+            IdentityIOStreamUtils.closeInputStream(ins);
+            if (xlsxPackage != null) {
+                xlsxPackage.revert();
+            }
+            if (file != null && !file.delete()) {
+                log.warn("Could not delete the temporary file of the bulk import : " + file.getAbsolutePath());
+            }
+        }
+    }
+
+    private static XMLReader createXMLReader() throws ParserConfigurationException, SAXException {
+        SAXParserFactory factory = SAXParserFactory.newInstance();
+        factory.setXIncludeAware(false);
+        factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+        factory.setFeature(DISALLOW_DOCTYPE_FEATURE, true);
+        factory.setFeature(EXTERNAL_GENERAL_ENTITIES_FEATURE, false);
+        factory.setFeature(EXTERNAL_PARAMETER_ENTITIES_FEATURE, false);
+        return factory.newSAXParser().getXMLReader();
+    }
+
+    /**
+     * Hands the user name in the first column of each row but the header to the import workers, as the row is read.
+     */
+    private static class UserNameHandler implements XSSFSheetXMLHandler.SheetContentsHandler {
+
+        private final UserBulkImportExecutor importExecutor;
+        private boolean hasRows;
+        private int rowNumber;
+        private String userName;
+
+        UserNameHandler(UserBulkImportExecutor importExecutor) {
+            this.importExecutor = importExecutor;
+        }
+
+        @Override
+        public void startRow(int rowNum) {
+            hasRows = true;
+            rowNumber = rowNum;
+            userName = null;
+        }
+
+        @Override
+        public void endRow() {
+            if (rowNumber > 0 && userName != null) {
+                importExecutor.addUser(rowNumber + 1, new String[]{userName});
+            }
+        }
+
+        @Override
+        public void cell(String cellReference, String formattedValue) {
+            if (cellReference != null && new CellReference(cellReference).getCol() == 0) {
+                userName = formattedValue;
+            }
+        }
+
+        @Override
+        public void headerFooter(String text, boolean isHeader, String tagName) {
+            // Headers and footers of the sheet are not imported.
+        }
+    }
 }
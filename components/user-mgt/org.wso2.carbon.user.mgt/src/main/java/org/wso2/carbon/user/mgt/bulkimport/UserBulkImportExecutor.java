@@ -0,0 +1,242 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.user.mgt.bulkimport;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.CarbonConstants;
+import org.wso2.carbon.context.PrivilegedCarbonContext;
+import org.wso2.carbon.user.core.UserStoreException;
+import org.wso2.carbon.user.core.UserStoreManager;
+import org.wso2.carbon.user.core.util.UserCoreUtil;
+import org.wso2.carbon.user.mgt.common.UserAdminException;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Adds the users of the rows read by a bulk import to the user store, on a pool of workers of the import. The queue
+ * of the pool is bounded and a row which does not fit in it is added by the reading thread, so that the reader does
+ * not get ahead of the user store by more than the queue, however large the file is.
+ * <p>
+ * A row is an array of the user name, followed by the password and the claims of the user if there are any.
+ * <p>
+ * The summary of the import is left to the caller, once {@link #awaitCompletion()} returns, as each file type
+ * reports it with its own messages.
+ */
+class UserBulkImportExecutor {
+
+    private static final Log log = LogFactory.getLog(UserBulkImportExecutor.class);
+
+    private static final int QUEUED_ROWS_PER_THREAD = 100;
+    private static final int PROGRESS_LOG_INTERVAL = 10000;
+
+    private final UserStoreManager userStore;
+    private final String domain;
+    private final BulkImportStatus status;
+    private final ThreadPoolExecutor executor;
+    private final int tenantId;
+    private final String tenantDomain;
+    private final String username;
+
+    /**
+     * User names being added by the workers, so that a user name repeated in the file is found as a duplicate even
+     * when its rows are added at the same time.
+     */
+    private final Set<String> userNamesInProgress =
+            Collections.newSetFromMap(new ConcurrentHashMap<String, Boolean>());
+
+    UserBulkImportExecutor(UserStoreManager userStore, BulkImportConfig config, BulkImportStatus status) {
+        this.userStore = userStore;
+        this.domain = config.getUserStoreDomain();
+        this.status = status;
+
+        PrivilegedCarbonContext carbonContext = PrivilegedCarbonContext.getThreadLocalCarbonContext();
+        this.tenantId = carbonContext.getTenantId();
+        this.tenantDomain = carbonContext.getTenantDomain();
+        this.username = carbonContext.getUsername();
+
+        int threadPoolSize = Math.max(1, config.getThreadPoolSize());
+        final AtomicInteger threadCount = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threadPoolSize, threadPoolSize, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<Runnable>(threadPoolSize * QUEUED_ROWS_PER_THREAD), new ThreadFactory() {
+
+            @Override
+            public Thread newThread(Runnable runnable) {
+                Thread thread = new Thread(runnable, "UserBulkImport-" + threadCount.incrementAndGet());
+                thread.setDaemon(true);
+                return thread;
+            }
+        }, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    /**
+     * Adds the user of a row to the user store, once a worker is free.
+     *
+     * @param rowNumber number of the row in the file, used to report errors
+     * @param row       user name, followed by the password and the claims of the user if there are any
+     */
+    void addUser(final int rowNumber, final String[] row) {
+        status.rowRead();
+        executor.execute(new Runnable() {
+
+            @Override
+            public void run() {
+                int processedCount;
+                try {
+                    PrivilegedCarbonContext.startTenantFlow();
+                    PrivilegedCarbonContext carbonContext = PrivilegedCarbonContext.getThreadLocalCarbonContext();
+                    carbonContext.setTenantId(tenantId);
+                    carbonContext.setTenantDomain(tenantDomain);
+                    carbonContext.setUsername(username);
+                    processedCount = importUser(rowNumber, row);
+                } finally {
+                    PrivilegedCarbonContext.endTenantFlow();
+                }
+                if (processedCount > 0 && processedCount % PROGRESS_LOG_INTERVAL == 0) {
+                    log.info("Bulk user import in progress. " + status);
+                }
+            }
+        });
+    }
+
+    /**
+     * Waits until the users of all the rows are added.
+     *
+     * @throws UserAdminException if interrupted while waiting
+     */
+    void awaitCompletion() throws UserAdminException {
+        executor.shutdown();
+        try {
+            while (!executor.awaitTermination(1, TimeUnit.MINUTES)) {
+                log.info("Bulk user import in progress. " + status);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new UserAdminException("Interrupted while importing user names. " + status, e);
+        }
+
+        log.info("Success count: " + status.getSuccessCount() + ", Fail count: " + status.getFailCount() +
+                ", Duplicate count: " + status.getDuplicateCount() + ", Throughput: " +
+                String.format("%.1f", status.getThroughput()) + " users/s");
+    }
+
+    /**
+     * Stops the workers, dropping the rows which are not added yet. Does nothing if the import is completed.
+     */
+    void shutdownNow() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * @return number of rows processed, including this one, or 0 if the row has no user name
+     */
+    private int importUser(int rowNumber, String[] row) {
+        String userName = row[0];
+        if (userName == null) {
+            return 0;
+        }
+
+        int index;
+        index = userName.indexOf(CarbonConstants.DOMAIN_SEPARATOR);
+        if (index > 0) {
+            String domainFreeName = userName.substring(index + 1);
+            userName = UserCoreUtil.addDomainToName(domainFreeName, domain);
+        } else {
+            userName = UserCoreUtil.addDomainToName(userName, domain);
+        }
+
+        if (userName == null || userName.trim().length() == 0) {
+            return 0;
+        }
+
+        if (!userNamesInProgress.add(userName)) {
+            return duplicateFound(userName);
+        }
+        try {
+            if (userStore.isExistingUser(userName)) {
+                return duplicateFound(userName);
+            }
+            if (row.length == 1) {
+                userStore.addUser(userName, null, null, null, null, true);
+            } else {
+                addUserWithClaims(userName, row);
+            }
+            if (log.isDebugEnabled()) {
+                log.debug("User import successful - Username : " + userName);
+            }
+            return status.userImported();
+        } catch (Exception e) {
+            if (log.isDebugEnabled()) {
+                log.debug(e);
+            }
+            log.error("User import unsuccessful - Username : " + userName + " - Error: " + e.getMessage());
+            return status.rowFailed(rowNumber, userName, e.getMessage());
+        } finally {
+            userNamesInProgress.remove(userName);
+        }
+    }
+
+    private int duplicateFound(String userName) {
+        log.error("User import unsuccessful - Username : " + userName + " - Error: Duplicate user");
+        return status.duplicateFound();
+    }
+
+    private void addUserWithClaims(String username, String[] line) throws UserStoreException, UserAdminException {
+        String roleString = null;
+        String[] roles = null;
+        String password = line[1];
+        Map<String, String> claims = new HashMap<String, String>();
+        for (int i = 2; i < line.length; i++) {
+            if (line[i] != null && !line[i].isEmpty()) {
+                String[] claimStrings = line[i].split("=");
+                if (claimStrings.length != 2) {
+                    throw new UserAdminException("Claims and values are not in correct format");
+                } else {
+                    String claimURI = claimStrings[0];
+                    String claimValue = claimStrings[1];
+                    if (claimURI.contains("role")) {
+                        roleString = claimValue;
+                    } else {
+                        if (!claimURI.isEmpty()) {
+                            // Not trimming the claim values as we should not restrict the claim values not to have
+                            // leading or trailing whitespaces.
+                            claims.put(claimURI.trim(), claimValue);
+                        }
+                    }
+                }
+
+            }
+        }
+
+        if (roleString != null && !roleString.isEmpty()) {
+            roles = roleString.split(":");
+        }
+
+        userStore.addUser(username, password, roles, claims, null, true);
+    }
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.user.mgt.bulkimport;
+
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.Test;
+import org.wso2.carbon.context.PrivilegedCarbonContext;
+import org.wso2.carbon.user.core.UserStoreManager;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.OutputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.file.Paths;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.testng.Assert.assertEquals;
+
+/**
+ * Imports a large XLSX file. This test is run by its own surefire execution with a small heap, which the sheet does
+ * not fit in when it is loaded as a whole.
+ */
+public class LargeXLSXUserBulkImportTest {
+
+    private static final int ROW_COUNT = 100000;
+
+    private File xlsx;
+
+    @BeforeClass
+    public void setUp() throws Exception {
+        String carbonHome = Paths.get(System.getProperty("user.dir"), "target").toString();
+        System.setProperty("carbon.home", carbonHome);
+        PrivilegedCarbonContext.startTenantFlow();
+        PrivilegedCarbonContext.getThreadLocalCarbonContext().setTenantDomain("carbon.super");
+        PrivilegedCarbonContext.getThreadLocalCarbonContext().setUsername("admin");
+
+        xlsx = File.createTempFile("large-user-bulk-import", ".xlsx");
+        SXSSFWorkbook workbook = new SXSSFWorkbook();
+        Sheet sheet = workbook.createSheet("users");
+        sheet.createRow(0).createCell(0).setCellValue("UserName");
+        for (int i = 1; i <= ROW_COUNT; i++) {
+            sheet.createRow(i).createCell(0).setCellValue("user" + i);
+        }
+        try (OutputStream out = new FileOutputStream(xlsx)) {
+            workbook.write(out);
+        } finally {
+            workbook.dispose();
+        }
+    }
+
+    @AfterClass
+    public void tearDown() {
+        PrivilegedCarbonContext.endTenantFlow();
+        if (xlsx != null) {
+            xlsx.delete();
+        }
+    }
+
+    @Test
+    public void testLargeXLSXImport() throws Exception {
+        CountingUserStore userStore = new CountingUserStore();
+        BulkImportConfig config = new BulkImportConfig(new FileInputStream(xlsx), "users.xlsx");
+        config.setUserStoreDomain("PRIMARY");
+        ExcelUserBulkImport excelUserBulkImport = new ExcelUserBulkImport(config);
+        excelUserBulkImport.addUserList(userStore.getUserStoreManager());
+
+        BulkImportStatus status = excelUserBulkImport.getStatus();
+        assertEquals(status.getReadCount(), ROW_COUNT);
+        assertEquals(status.getSuccessCount(), ROW_COUNT);
+        assertEquals(status.getFailCount(), 0);
+        assertEquals(userStore.addedUsers.get(), ROW_COUNT);
+    }
+
+    /**
+     * User store which only counts the added users, so that the heap is left to the import.
+     */
+    private static class CountingUserStore implements InvocationHandler {
+
+        private final AtomicInteger addedUsers = new AtomicInteger();
+
+        UserStoreManager getUserStoreManager() {
+            return (UserStoreManager) Proxy.newProxyInstance(UserStoreManager.class.getClassLoader(),
+                    new Class<?>[]{UserStoreManager.class}, this);
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) {
+            if ("addUser".equals(method.getName())) {
+                addedUsers.incrementAndGet();
+                return null;
+            }
+            if (method.getReturnType() == boolean.class) {
+                return false;
+            }
+            return null;
+        }
+    }
+}
@@ -0,0 +1,298 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.user.mgt.bulkimport;
+
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+import org.wso2.carbon.context.PrivilegedCarbonContext;
+import org.wso2.carbon.user.core.UserStoreException;
+import org.wso2.carbon.user.core.UserStoreManager;
+import org.wso2.carbon.user.core.util.UserCoreUtil;
+import org.wso2.carbon.user.mgt.common.UserAdminException;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Paths;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertTrue;
+import static org.testng.Assert.fail;
+
+/**
+ * Unit tests of the CSV and Excel bulk user imports, run against an in-memory user store.
+ */
+public class UserBulkImportTest {
+
+    private static final int CSV_ROW_COUNT = 100000;
+    private static final int XLSX_ROW_COUNT = 1000;
+    private static final int INVALID_ROW_INTERVAL = 1000;
+    private static final int DUPLICATE_ROW_COUNT = 20;
+    private static final String DOMAIN = "PRIMARY";
+    private static final String EMAIL_CLAIM = "http://wso2.org/claims/emailaddress";
+
+    private InMemoryUserStore userStore;
+
+    @BeforeClass
+    public void setUp() {
+        String carbonHome = Paths.get(System.getProperty("user.dir"), "target").toString();
+        System.setProperty("carbon.home", carbonHome);
+        PrivilegedCarbonContext.startTenantFlow();
+        PrivilegedCarbonContext.getThreadLocalCarbonContext().setTenantDomain("carbon.super");
+        PrivilegedCarbonContext.getThreadLocalCarbonContext().setUsername("admin");
+    }
+
+    @AfterClass
+    public void tearDown() {
+        PrivilegedCarbonContext.endTenantFlow();
+    }
+
+    @BeforeMethod
+    public void initUserStore() {
+        userStore = new InMemoryUserStore();
+    }
+
+    @Test
+    public void testCSVImport() throws Exception {
+        userStore.users.put(UserCoreUtil.addDomainToName("user1", DOMAIN), "");
+        GeneratedCSVInputStream csv = new GeneratedCSVInputStream(CSV_ROW_COUNT);
+        userStore.csv = csv;
+
+        BulkImportConfig config = new BulkImportConfig(csv, "users.csv");
+        config.setUserStoreDomain(DOMAIN);
+        CSVUserBulkImport csvUserBulkImport = new CSVUserBulkImport(config);
+        String errorMessage = null;
+        try {
+            csvUserBulkImport.addUserList(userStore.getUserStoreManager());
+            fail("Import of invalid rows is not reported.");
+        } catch (UserAdminException e) {
+            errorMessage = e.getMessage();
+            assertTrue(errorMessage.startsWith("Error occurs while importing user names."), errorMessage);
+        }
+
+        int invalidRowCount = CSV_ROW_COUNT / INVALID_ROW_INTERVAL;
+        BulkImportStatus status = csvUserBulkImport.getStatus();
+        assertEquals(status.getReadCount(), CSV_ROW_COUNT);
+        assertEquals(status.getDuplicateCount(), 1);
+        assertEquals(status.getFailCount(), invalidRowCount);
+        assertEquals(status.getSuccessCount(), CSV_ROW_COUNT - invalidRowCount - 1);
+        assertEquals(status.getErrors().size(), Math.min(invalidRowCount, BulkImportStatus.MAX_REPORTED_ERRORS));
+        assertTrue(status.getErrors().get(0).startsWith("Row : "), status.getErrors().get(0));
+        // The row errors are reported to the user who started the import.
+        for (String error : status.getErrors()) {
+            assertTrue(errorMessage.contains(error), errorMessage);
+        }
+        assertEquals(userStore.users.size(), CSV_ROW_COUNT - invalidRowCount);
+        assertEquals(userStore.users.get(UserCoreUtil.addDomainToName("user2", DOMAIN)), "user2@wso2.com");
+
+        // The users are added while the file is read, instead of after it is read as a whole.
+        assertTrue(userStore.rowsGeneratedAtFirstAdd < CSV_ROW_COUNT,
+                "Users were added only after " + userStore.rowsGeneratedAtFirstAdd + " rows were read.");
+    }
+
+    @Test
+    public void testUnreportedRowErrorsCounted() throws Exception {
+        int invalidRowCount = BulkImportStatus.MAX_REPORTED_ERRORS + 5;
+        StringBuilder csv = new StringBuilder("UserName,Password,Claims\n");
+        for (int i = 1; i <= invalidRowCount; i++) {
+            csv.append("user").append(i).append(",Password").append(i).append(",invalid-claim\n");
+        }
+
+        BulkImportConfig config = new BulkImportConfig(
+                new ByteArrayInputStream(csv.toString().getBytes(StandardCharsets.UTF_8)), "users.csv");
+        config.setUserStoreDomain(DOMAIN);
+        CSVUserBulkImport csvUserBulkImport = new CSVUserBulkImport(config);
+        try {
+            csvUserBulkImport.addUserList(userStore.getUserStoreManager());
+            fail("Import of invalid rows is not reported.");
+        } catch (UserAdminException e) {
+            assertTrue(e.getMessage().startsWith("Error occurs while importing user names. " +
+                    "All user names were not imported. Row errors :"), e.getMessage());
+            assertTrue(e.getMessage().endsWith("... and 5 more row errors"), e.getMessage());
+        }
+        assertEquals(csvUserBulkImport.getStatus().getFailCount(), invalidRowCount);
+    }
+
+    @Test
+    public void testXLSXImport() throws Exception {
+        userStore.users.put(UserCoreUtil.addDomainToName("user1", DOMAIN), "");
+
+        BulkImportConfig config = new BulkImportConfig(createXLSX(XLSX_ROW_COUNT), "users.xlsx");
+        config.setUserStoreDomain(DOMAIN);
+        ExcelUserBulkImport excelUserBulkImport = new ExcelUserBulkImport(config);
+        try {
+            excelUserBulkImport.addUserList(userStore.getUserStoreManager());
+            fail("Import of duplicate users is not reported.");
+        } catch (UserAdminException e) {
+            assertTrue(e.getMessage().startsWith("Detected duplicate user names."), e.getMessage());
+        }
+
+        BulkImportStatus status = excelUserBulkImport.getStatus();
+        assertEquals(status.getReadCount(), XLSX_ROW_COUNT);
+        assertEquals(status.getSuccessCount(), XLSX_ROW_COUNT - 1);
+        assertEquals(status.getFailCount(), 0);
+        assertEquals(userStore.users.size(), XLSX_ROW_COUNT);
+        assertTrue(userStore.users.containsKey(UserCoreUtil.addDomainToName("user" + XLSX_ROW_COUNT, DOMAIN)));
+    }
+
+    @Test
+    public void testDuplicateRowsImport() throws Exception {
+        // The rows of the same user are added by several workers at the same time.
+        userStore.addDelayMillis = 10;
+        StringBuilder csv = new StringBuilder("UserName\n");
+        for (int i = 0; i < DUPLICATE_ROW_COUNT; i++) {
+            csv.append("duplicate-user\n");
+        }
+
+        BulkImportConfig config = new BulkImportConfig(
+                new ByteArrayInputStream(csv.toString().getBytes(StandardCharsets.UTF_8)), "users.csv");
+        config.setUserStoreDomain(DOMAIN);
+        CSVUserBulkImport csvUserBulkImport = new CSVUserBulkImport(config);
+        try {
+            csvUserBulkImport.addUserList(userStore.getUserStoreManager());
+            fail("Import of duplicate users is not reported.");
+        } catch (UserAdminException e) {
+            assertTrue(e.getMessage().startsWith("Detected " + (DUPLICATE_ROW_COUNT - 1) + " duplicate user names."),
+                    e.getMessage());
+        }
+
+        BulkImportStatus status = csvUserBulkImport.getStatus();
+        assertEquals(status.getSuccessCount(), 1);
+        assertEquals(status.getDuplicateCount(), DUPLICATE_ROW_COUNT - 1);
+        assertEquals(status.getFailCount(), 0);
+        assertEquals(status.getProcessedCount(), DUPLICATE_ROW_COUNT);
+    }
+
+    @Test
+    public void testEmptyXLSXImport() throws Exception {
+        BulkImportConfig config = new BulkImportConfig(createXLSX(-1), "users.xlsx");
+        ExcelUserBulkImport excelUserBulkImport = new ExcelUserBulkImport(config);
+        try {
+            excelUserBulkImport.addUserList(userStore.getUserStoreManager());
+            fail("Import of an empty sheet is not reported.");
+        } catch (UserAdminException e) {
+            assertEquals(e.getMessage(), "The first sheet is empty");
+        }
+    }
+
+    /**
+     * Creates an XLSX file with a header row and the given number of user rows, or without any row if the number is
+     * negative.
+     */
+    private static InputStream createXLSX(int rowCount) throws Exception {
+        SXSSFWorkbook workbook = new SXSSFWorkbook();
+        Sheet sheet = workbook.createSheet("users");
+        if (rowCount >= 0) {
+            sheet.createRow(0).createCell(0).setCellValue("UserName");
+        }
+        for (int i = 1; i <= rowCount; i++) {
+            Row row = sheet.createRow(i);
+            row.createCell(0).setCellValue("user" + i);
+        }
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        workbook.write(out);
+        workbook.dispose();
+        return new ByteArrayInputStream(out.toByteArray());
+    }
+
+    /**
+     * CSV file of users which is generated while it is read, so that the file is never held in memory. Every
+     * {@link #INVALID_ROW_INTERVAL}th row has an invalid claim.
+     */
+    private static class GeneratedCSVInputStream extends InputStream {
+
+        private final int rowCount;
+        private volatile int rowsGenerated;
+        private byte[] line = "UserName,Password,Claims\n".getBytes(StandardCharsets.UTF_8);
+        private int position;
+
+        GeneratedCSVInputStream(int rowCount) {
+            this.rowCount = rowCount;
+        }
+
+        @Override
+        public int read() {
+            if (position == line.length) {
+                if (rowsGenerated == rowCount) {
+                    return -1;
+                }
+                int rowNumber = ++rowsGenerated;
+                String claim = rowNumber % INVALID_ROW_INTERVAL == 0 ? "invalid-claim" :
+                        EMAIL_CLAIM + "=user" + rowNumber + "@wso2.com";
+                line = ("user" + rowNumber + ",Password" + rowNumber + "," + claim + "\n")
+                        .getBytes(StandardCharsets.UTF_8);
+                position = 0;
+            }
+            return line[position++];
+        }
+    }
+
+    /**
+     * User store which keeps the email addresses of the users in memory.
+     */
+    private static class InMemoryUserStore implements InvocationHandler {
+
+        private final Map<String, String> users = new ConcurrentHashMap<>();
+        private GeneratedCSVInputStream csv;
+        private volatile int rowsGeneratedAtFirstAdd = -1;
+        private volatile long addDelayMillis;
+
+        UserStoreManager getUserStoreManager() {
+            return (UserStoreManager) Proxy.newProxyInstance(UserStoreManager.class.getClassLoader(),
+                    new Class<?>[]{UserStoreManager.class}, this);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if ("isExistingUser".equals(method.getName())) {
+                return users.containsKey((String) args[0]);
+            }
+            if ("addUser".equals(method.getName()) && args.length == 6) {
+                if (csv != null && rowsGeneratedAtFirstAdd < 0) {
+                    rowsGeneratedAtFirstAdd = csv.rowsGenerated;
+                }
+                if (addDelayMillis > 0) {
+                    Thread.sleep(addDelayMillis);
+                }
+                Map<String, String> claims = (Map<String, String>) args[3];
+                String email = claims != null && claims.get(EMAIL_CLAIM) != null ? claims.get(EMAIL_CLAIM) : "";
+                if (users.putIfAbsent((String) args[0], email) != null) {
+                    throw new UserStoreException("User " + args[0] + " already exists");
+                }
+                return null;
+            }
+            if (method.getReturnType() == boolean.class) {
+                return false;
+            }
+            return null;
+        }
+    }
+}
@@ -17,15 +17,36 @@
  */
 package org.wso2.carbon.identity.user.store.count;
 
+import org.apache.commons.lang.StringUtils;
 import org.apache.commons.logging.Log;
 import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.context.CarbonContext;
+import org.wso2.carbon.context.PrivilegedCarbonContext;
+import org.wso2.carbon.identity.core.util.IdentityUtil;
 import org.wso2.carbon.identity.user.store.count.dto.PairDTO;
 import org.wso2.carbon.identity.user.store.count.exception.UserStoreCounterException;
 import org.wso2.carbon.identity.user.store.count.jdbc.internal.InternalStoreCountConstants;
+import org.wso2.carbon.identity.user.store.count.util.UserStoreCountCache;
 import org.wso2.carbon.identity.user.store.count.util.UserStoreCountUtils;
+import org.wso2.carbon.user.core.UserCoreConstants;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Set;
-import org.wso2.carbon.user.core.UserCoreConstants;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * Service class that expose count functionality for underline user stores on users, roles and claims.
@@ -34,34 +55,49 @@ public class UserStoreCountService {
 
     private static final Log log = LogFactory.getLog(UserStoreCountService.class);
 
+    private static final String THREAD_POOL_SIZE = "UserStoreCount.ThreadPoolSize";
+    private static final String TIMEOUT = "UserStoreCount.Timeout";
+    private static final String CACHE_TIMEOUT = "UserStoreCount.CacheTimeout";
+    private static final int DEFAULT_THREAD_POOL_SIZE = 4;
+    private static final int DEFAULT_TIMEOUT = 10000;
+    private static final int DEFAULT_CACHE_TIMEOUT = 60;
+    private static final int MAX_QUEUED_COUNTS = 100;
+
+    private static final String USER_COUNT = "users";
+    private static final String ROLE_COUNT = "roles";
+    private static final String CLAIM_COUNT = "claim";
+
+    private static final Object lock = new Object();
+    private static volatile ExecutorService executor;
+
+    /**
+     * Counts which are being taken, by their cache keys. A count which is not taken within the timeout keeps running
+     * to be cached, so the calls made meanwhile wait for it instead of taking the same count again.
+     */
+    private static final ConcurrentMap<List<Object>, Future<Long>> countsInProgress = new ConcurrentHashMap<>();
+
     /**
      * Get the count of users having a matching user name for the filter
      *
      * @param filter the filter for the user name. Use '*' to have all.
      * @return the number of users matching the filter by each domain
      */
-    public PairDTO[] countUsers(String filter) throws UserStoreCounterException {
-        Set<String> userStoreDomains = UserStoreCountUtils.getCountEnabledUserStores();
-        PairDTO[] userCounts = new PairDTO[userStoreDomains.size()];
-        int i = 0;
+    public PairDTO[] countUsers(final String filter) throws UserStoreCounterException {
+        List<DomainCount> domainCounts = new ArrayList<>();
 
-        for (String userStoreDomain : userStoreDomains) {
-            UserStoreCountRetriever counter = UserStoreCountUtils.getCounterInstanceForDomain(userStoreDomain);
-            Long count = Long.valueOf(-1);
-            if (counter != null) {
-                try {
-                    count = counter.countUsers(filter);
-                } catch (UserStoreCounterException e) {
-                    log.error("Error while getting user count from user store domain : " + userStoreDomain, e);
+        for (String userStoreDomain : UserStoreCountUtils.getCountEnabledUserStores()) {
+            domainCounts.add(new DomainCount(userStoreDomain, USER_COUNT,
+                    "Error while getting user count from user store domain : " + userStoreDomain,
+                    UserStoreCountUtils.getCounterInstanceForDomain(userStoreDomain), filter) {
+
+                @Override
+                protected Long count(UserStoreCountRetriever counter) throws UserStoreCounterException {
+                    return counter.countUsers(filter);
                 }
-            } else {
-                //no action
-            }
-            userCounts[i] = new PairDTO(userStoreDomain, Long.toString(count));
-            i++;
+            });
         }
 
-        return userCounts;
+        return getCounts(domainCounts);
     }
 
     /**
@@ -70,35 +106,43 @@ public class UserStoreCountService {
      * @param filter the filter for the role name. Use '*' to have all.
      * @return the number of roles matching the filter by each domain
      */
-    public PairDTO[] countRoles(String filter) throws UserStoreCounterException {
-        Set<String> userStoreDomains = UserStoreCountUtils.getCountEnabledUserStores();
-        //add 3 more for the counts of Internal, Application domains
-        PairDTO[] roleCounts = new PairDTO[userStoreDomains.size() + 2];
-        int i = 0;
-
-        for (String userStoreDomain : userStoreDomains) {
-            UserStoreCountRetriever counter = UserStoreCountUtils.getCounterInstanceForDomain(userStoreDomain);
-            Long count = Long.valueOf(-1);
-            if (counter != null) {
-                try {
-                    count = counter.countRoles(filter);
-                } catch (UserStoreCounterException e) {
-                    log.error("Error while getting role count from user store domain : " + userStoreDomain, e);
-                }
-            } else {
-                //no action
-            }
+    public PairDTO[] countRoles(final String filter) throws UserStoreCounterException {
+        List<DomainCount> domainCounts = new ArrayList<>();
+
+        for (String userStoreDomain : UserStoreCountUtils.getCountEnabledUserStores()) {
+            domainCounts.add(new DomainCount(userStoreDomain, ROLE_COUNT,
+                    "Error while getting role count from user store domain : " + userStoreDomain,
+                    UserStoreCountUtils.getCounterInstanceForDomain(userStoreDomain), filter) {
 
-            roleCounts[i] = new PairDTO(userStoreDomain, Long.toString(count));
-            i++;
+                @Override
+                protected Long count(UserStoreCountRetriever counter) throws UserStoreCounterException {
+                    return counter.countRoles(filter);
+                }
+            });
         }
 
-        roleCounts[i] =  new PairDTO(UserCoreConstants.INTERNAL_DOMAIN, String.valueOf(
-                UserStoreCountUtils.getInternalRoleCount(filter)));
-        roleCounts[++i] =  new PairDTO(InternalStoreCountConstants.APPLICATION_DOMAIN, String.valueOf(
-                UserStoreCountUtils.getApplicationRoleCount(filter)));
+        //add the counts of Internal, Application domains
+        UserStoreCountRetriever internalCounter = UserStoreCountUtils.getInternalCounterInstance();
+        domainCounts.add(new DomainCount(UserCoreConstants.INTERNAL_DOMAIN, ROLE_COUNT,
+                "Error while getting role count from user store domain : " + UserCoreConstants.INTERNAL_DOMAIN,
+                internalCounter, filter) {
 
-        return roleCounts;
+            @Override
+            protected Long count(UserStoreCountRetriever counter) throws UserStoreCounterException {
+                return UserStoreCountUtils.getInternalRoleCount(counter, filter);
+            }
+        });
+        domainCounts.add(new DomainCount(InternalStoreCountConstants.APPLICATION_DOMAIN, ROLE_COUNT,
+                "Error while getting role count from user store domain : " +
+                        InternalStoreCountConstants.APPLICATION_DOMAIN, internalCounter, filter) {
+
+            @Override
+            protected Long count(UserStoreCountRetriever counter) throws UserStoreCounterException {
+                return UserStoreCountUtils.getApplicationRoleCount(counter, filter);
+            }
+        });
+
+        return getCounts(domainCounts);
     }
 
     /**
@@ -108,28 +152,23 @@ public class UserStoreCountService {
      * @param valueFilter filter for the claim values
      * @return the number of users matching the given claim and filter by each domain
      */
-    public PairDTO[] countClaim(String claimURI, String valueFilter) throws UserStoreCounterException {
-        Set<String> userStoreDomains = UserStoreCountUtils.getCountEnabledUserStores();
-        PairDTO[] claimCounts = new PairDTO[userStoreDomains.size()];
-        int i = 0;
+    public PairDTO[] countClaim(final String claimURI, final String valueFilter) throws UserStoreCounterException {
+        List<DomainCount> domainCounts = new ArrayList<>();
 
-        for (String userStoreDomain : userStoreDomains) {
-            UserStoreCountRetriever counter = UserStoreCountUtils.getCounterInstanceForDomain(userStoreDomain);
-            Long count = Long.valueOf(-1);
-            if (counter != null) {
-                try {
-                    count = counter.countClaim(claimURI, valueFilter);
-                } catch (UserStoreCounterException e) {
-                    log.error("Error while getting user count with claim : " + claimURI + " from user store domain : " + userStoreDomain, e);
+        for (String userStoreDomain : UserStoreCountUtils.getCountEnabledUserStores()) {
+            domainCounts.add(new DomainCount(userStoreDomain, CLAIM_COUNT,
+                    "Error while getting user count with claim : " + claimURI + " from user store domain : " +
+                            userStoreDomain, UserStoreCountUtils.getCounterInstanceForDomain(userStoreDomain),
+                    claimURI, valueFilter) {
+
+                @Override
+                protected Long count(UserStoreCountRetriever counter) throws UserStoreCounterException {
+                    return counter.countClaim(claimURI, valueFilter);
                 }
-            } else {
-                //no action
-            }
-            claimCounts[i] = new PairDTO(userStoreDomain, Long.toString(count));
-            i++;
+            });
         }
 
-        return claimCounts;
+        return getCounts(domainCounts);
     }
 
     /**
@@ -191,6 +230,181 @@ public class UserStoreCountService {
 
     }
 
+    /**
+     * Takes the counts of the user store domains in parallel. A cached count is used if there is one, and a count
+     * which is already being taken is waited for. A domain whose count is not taken within the timeout is flagged as
+     * incomplete with the count -1, and its count is cached for the next call once it is taken.
+     *
+     * @param domainCounts counts of the domains
+     * @return the counts by each domain, in the order of the given counts
+     */
+    private PairDTO[] getCounts(List<DomainCount> domainCounts) {
+        PairDTO[] counts = new PairDTO[domainCounts.size()];
+        List<Future<Long>> results = new ArrayList<>(domainCounts.size());
+
+        for (int i = 0; i < domainCounts.size(); i++) {
+            DomainCount domainCount = domainCounts.get(i);
+            Future<Long> result = null;
+            Long count = UserStoreCountCache.getInstance().getCount(domainCount.cacheKey);
+            if (count != null) {
+                counts[i] = new PairDTO(domainCount.domain, Long.toString(count));
+            } else {
+                try {
+                    result = submitCount(domainCount);
+                } catch (RejectedExecutionException e) {
+                    log.warn("Too many user store counts are in progress. Skipping the count of user store " +
+                            "domain : " + domainCount.domain);
+                    counts[i] = new PairDTO(domainCount.domain, Long.toString(-1), true);
+                }
+            }
+            results.add(result);
+        }
+
+        long deadline = System.currentTimeMillis() + getIntProperty(TIMEOUT, DEFAULT_TIMEOUT);
+        for (int i = 0; i < domainCounts.size(); i++) {
+            Future<Long> result = results.get(i);
+            if (result == null) {
+                continue;
+            }
+            DomainCount domainCount = domainCounts.get(i);
+            try {
+                Long count = result.get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+                counts[i] = new PairDTO(domainCount.domain, Long.toString(count));
+            } catch (TimeoutException e) {
+                log.warn("Timed out while getting the count from user store domain : " + domainCount.domain);
+                counts[i] = new PairDTO(domainCount.domain, Long.toString(-1), true);
+            } catch (ExecutionException e) {
+                log.error(domainCount.errorMessage, e.getCause());
+                counts[i] = new PairDTO(domainCount.domain, Long.toString(-1));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                counts[i] = new PairDTO(domainCount.domain, Long.toString(-1), true);
+            }
+        }
+
+        return counts;
+    }
+
+    /**
+     * Submits a count to be taken, unless the same count is already being taken.
+     *
+     * @param domainCount count of a domain
+     * @return result of the count
+     */
+    private static Future<Long> submitCount(DomainCount domainCount) {
+        Future<Long> result = countsInProgress.get(domainCount.cacheKey);
+        if (result != null) {
+            return result;
+        }
+        CountTask task = new CountTask(domainCount);
+        result = countsInProgress.putIfAbsent(domainCount.cacheKey, task);
+        if (result != null) {
+            return result;
+        }
+        try {
+            getExecutor().execute(task);
+        } catch (RejectedExecutionException e) {
+            countsInProgress.remove(domainCount.cacheKey, task);
+            throw e;
+        }
+        return task;
+    }
+
+    private static ExecutorService getExecutor() {
+        if (executor == null) {
+            synchronized (lock) {
+                if (executor == null) {
+                    int threadPoolSize = Math.max(1, getIntProperty(THREAD_POOL_SIZE, DEFAULT_THREAD_POOL_SIZE));
+                    final AtomicInteger threadCount = new AtomicInteger();
+                    executor = new ThreadPoolExecutor(threadPoolSize, threadPoolSize, 0L, TimeUnit.MILLISECONDS,
+                            new LinkedBlockingQueue<Runnable>(MAX_QUEUED_COUNTS), new ThreadFactory() {
+
+                        @Override
+                        public Thread newThread(Runnable runnable) {
+                            Thread thread = new Thread(runnable, "UserStoreCount-" + threadCount.incrementAndGet());
+                            thread.setDaemon(true);
+                            return thread;
+                        }
+                    });
+                }
+            }
+        }
+        return executor;
+    }
+
+    private static int getIntProperty(String propertyName, int defaultValue) {
+        String value = IdentityUtil.getProperty(propertyName);
+        if (StringUtils.isNotBlank(value)) {
+            try {
+                return Integer.parseInt(value.trim());
+            } catch (NumberFormatException e) {
+                log.warn("Invalid value: " + value + " configured for " + propertyName + ". Using default value: "
+                        + defaultValue);
+            }
+        }
+        return defaultValue;
+    }
+
+    /**
+     * Count of a user store domain, which is taken in the tenant of the caller and cached once it is taken.
+     */
+    private abstract static class DomainCount implements Callable<Long> {
+
+        private final String domain;
+        private final String errorMessage;
+        private final UserStoreCountRetriever counter;
+        private final List<Object> cacheKey;
+        private final int tenantId = CarbonContext.getThreadLocalCarbonContext().getTenantId();
+        private final String tenantDomain = CarbonContext.getThreadLocalCarbonContext().getTenantDomain();
+
+        DomainCount(String domain, String countType, String errorMessage, UserStoreCountRetriever counter,
+                    String... filters) {
+            this.domain = domain;
+            this.errorMessage = errorMessage;
+            this.counter = counter;
+            this.cacheKey = UserStoreCountCache.getKey(tenantId, countType, domain, filters);
+        }
+
+        @Override
+        public Long call() throws UserStoreCounterException {
+            Long count = Long.valueOf(-1);
+            if (counter != null) {
+                try {
+                    PrivilegedCarbonContext.startTenantFlow();
+                    PrivilegedCarbonContext carbonContext = PrivilegedCarbonContext.getThreadLocalCarbonContext();
+                    carbonContext.setTenantId(tenantId);
+                    carbonContext.setTenantDomain(tenantDomain);
+                    count = count(counter);
+                } finally {
+                    PrivilegedCarbonContext.endTenantFlow();
+                }
+            }
+            UserStoreCountCache.getInstance().addCount(cacheKey, count,
+                    TimeUnit.SECONDS.toMillis(getIntProperty(CACHE_TIMEOUT, DEFAULT_CACHE_TIMEOUT)));
+            return count;
+        }
+
+        protected abstract Long count(UserStoreCountRetriever counter) throws UserStoreCounterException;
+    }
+
+    /**
+     * Count which is no longer in progress once it is done.
+     */
+    private static class CountTask extends FutureTask<Long> {
+
+        private final List<Object> cacheKey;
+
+        CountTask(DomainCount domainCount) {
+            super(domainCount);
+            this.cacheKey = domainCount.cacheKey;
+        }
+
+        @Override
+        protected void done() {
+            countsInProgress.remove(cacheKey, this);
+        }
+    }
+
     /**
      * Get count enabled user stores.
      * @return
@@ -18,17 +18,25 @@
 package org.wso2.carbon.identity.user.store.count.dto;
 
 /**
- * DTO to represent a key value pair
+ * DTO to represent a key value pair. A count of a user store domain which could not be taken in time is flagged as
+ * incomplete.
  */
 public class PairDTO {
     private String key;
     private String value;
+    private boolean incomplete;
 
     public PairDTO(String key, String value) {
         this.key = key;
         this.value = value;
     }
 
+    public PairDTO(String key, String value, boolean incomplete) {
+        this.key = key;
+        this.value = value;
+        this.incomplete = incomplete;
+    }
+
     public String getKey() {
         return key;
     }
@@ -44,4 +52,12 @@ public class PairDTO {
     public void setValue(String value) {
         this.value = value;
     }
+
+    public boolean isIncomplete() {
+        return incomplete;
+    }
+
+    public void setIncomplete(boolean incomplete) {
+        this.incomplete = incomplete;
+    }
 }
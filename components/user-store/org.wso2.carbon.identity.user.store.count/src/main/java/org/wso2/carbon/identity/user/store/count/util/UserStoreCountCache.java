@@ -0,0 +1,138 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.user.store.count.util;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the counts of the user store domains for a short time, so that the counts shown on the dashboards do not
+ * query every user store on each refresh. The counts are keyed by the tenant, the type of the count, the domain and
+ * the filter.
+ */
+public class UserStoreCountCache {
+
+    private static final int MAX_ENTRIES = 1000;
+
+    private static final UserStoreCountCache instance = new UserStoreCountCache();
+
+    private final Map<List<Object>, CountEntry> counts = new ConcurrentHashMap<>();
+
+    private UserStoreCountCache() {
+
+    }
+
+    public static UserStoreCountCache getInstance() {
+
+        return instance;
+    }
+
+    /**
+     * Builds the key of a count.
+     *
+     * @param tenantId  tenant id
+     * @param countType type of the count, such as users, roles or claim
+     * @param domain    user store domain
+     * @param filters   filters of the count
+     * @return key of the count
+     */
+    public static List<Object> getKey(int tenantId, String countType, String domain, String... filters) {
+
+        return Arrays.<Object>asList(tenantId, countType, domain, Arrays.asList(filters));
+    }
+
+    /**
+     * Returns a count, if it is not expired.
+     *
+     * @param key key of the count
+     * @return count, or null if the count is not cached or expired
+     */
+    public Long getCount(List<Object> key) {
+
+        CountEntry entry = counts.get(key);
+        if (entry == null) {
+            return null;
+        }
+        if (entry.isExpired(System.currentTimeMillis())) {
+            counts.remove(key, entry);
+            return null;
+        }
+        return entry.count;
+    }
+
+    /**
+     * Keeps a count.
+     *
+     * @param key     key of the count
+     * @param count   count
+     * @param timeout time in milliseconds to keep the count
+     */
+    public void addCount(List<Object> key, Long count, long timeout) {
+
+        if (timeout <= 0 || count == null) {
+            return;
+        }
+        long currentTime = System.currentTimeMillis();
+        if (counts.size() >= MAX_ENTRIES) {
+            removeExpiredCounts(currentTime);
+            if (counts.size() >= MAX_ENTRIES) {
+                // The filters are given by the users, so the number of counts is bounded by dropping all of them.
+                counts.clear();
+            }
+        }
+        counts.put(key, new CountEntry(count, currentTime + timeout));
+    }
+
+    /**
+     * Clears all the counts.
+     */
+    public void clear() {
+
+        counts.clear();
+    }
+
+    private void removeExpiredCounts(long currentTime) {
+
+        for (Iterator<CountEntry> iterator = counts.values().iterator(); iterator.hasNext(); ) {
+            if (iterator.next().isExpired(currentTime)) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private static class CountEntry {
+
+        private final Long count;
+        private final long expiryTime;
+
+        CountEntry(Long count, long expiryTime) {
+
+            this.count = count;
+            this.expiryTime = expiryTime;
+        }
+
+        boolean isExpired(long currentTime) {
+
+            return currentTime >= expiryTime;
+        }
+    }
+}
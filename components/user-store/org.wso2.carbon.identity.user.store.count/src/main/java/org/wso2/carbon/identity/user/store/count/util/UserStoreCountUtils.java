@@ -202,12 +202,21 @@ public class UserStoreCountUtils {
     }
 
     public static Long getInternalRoleCount(String filter) throws UserStoreCounterException {
-        return getInternalCounterInstance().countRoles(UserCoreConstants.INTERNAL_DOMAIN + "%" + filter);
+        return getInternalRoleCount(getInternalCounterInstance(), filter);
+    }
+
+    public static Long getInternalRoleCount(UserStoreCountRetriever internalCounter, String filter)
+            throws UserStoreCounterException {
+        return internalCounter.countRoles(UserCoreConstants.INTERNAL_DOMAIN + "%" + filter);
     }
 
     public static Long getApplicationRoleCount(String filter) throws UserStoreCounterException {
-        return getInternalCounterInstance()
-                .countRoles(InternalStoreCountConstants.APPLICATION_DOMAIN + "%" + filter);
+        return getApplicationRoleCount(getInternalCounterInstance(), filter);
+    }
+
+    public static Long getApplicationRoleCount(UserStoreCountRetriever internalCounter, String filter)
+            throws UserStoreCounterException {
+        return internalCounter.countRoles(InternalStoreCountConstants.APPLICATION_DOMAIN + "%" + filter);
     }
 
     public static boolean isUserStoreEnabled(String domain) throws UserStoreCounterException {
@@ -0,0 +1,185 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.user.store.count;
+
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.testng.PowerMockTestCase;
+import org.testng.IObjectFactory;
+import org.testng.annotations.AfterClass;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.ObjectFactory;
+import org.testng.annotations.Test;
+import org.wso2.carbon.context.PrivilegedCarbonContext;
+import org.wso2.carbon.identity.core.util.IdentityUtil;
+import org.wso2.carbon.identity.user.store.count.dto.PairDTO;
+import org.wso2.carbon.identity.user.store.count.exception.UserStoreCounterException;
+import org.wso2.carbon.identity.user.store.count.util.UserStoreCountCache;
+import org.wso2.carbon.identity.user.store.count.util.UserStoreCountUtils;
+
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.powermock.api.mockito.PowerMockito.mockStatic;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertFalse;
+import static org.testng.Assert.assertTrue;
+
+@PrepareForTest({UserStoreCountUtils.class, IdentityUtil.class})
+public class UserStoreCountServiceTest extends PowerMockTestCase {
+
+    private static final String PRIMARY_DOMAIN = "PRIMARY";
+    private static final String SECONDARY_DOMAIN = "SECONDARY";
+
+    private UserStoreCountService userStoreCountService = new UserStoreCountService();
+    private UserStoreCountRetriever primaryCounter;
+    private UserStoreCountRetriever secondaryCounter;
+
+    @BeforeClass
+    public void setUpClass() {
+
+        System.setProperty("carbon.home", Paths.get(System.getProperty("user.dir"), "target").toString());
+        PrivilegedCarbonContext.startTenantFlow();
+        PrivilegedCarbonContext.getThreadLocalCarbonContext().setTenantDomain("carbon.super");
+        PrivilegedCarbonContext.getThreadLocalCarbonContext().setTenantId(-1234);
+    }
+
+    @AfterClass
+    public void tearDownClass() {
+
+        PrivilegedCarbonContext.endTenantFlow();
+    }
+
+    @BeforeMethod
+    public void setUp() throws Exception {
+
+        UserStoreCountCache.getInstance().clear();
+        primaryCounter = mock(UserStoreCountRetriever.class);
+        secondaryCounter = mock(UserStoreCountRetriever.class);
+
+        mockStatic(UserStoreCountUtils.class);
+        when(UserStoreCountUtils.getCountEnabledUserStores())
+                .thenReturn(new LinkedHashSet<>(Arrays.asList(PRIMARY_DOMAIN, SECONDARY_DOMAIN)));
+        when(UserStoreCountUtils.getCounterInstanceForDomain(PRIMARY_DOMAIN)).thenReturn(primaryCounter);
+        when(UserStoreCountUtils.getCounterInstanceForDomain(SECONDARY_DOMAIN)).thenReturn(secondaryCounter);
+
+        mockStatic(IdentityUtil.class);
+        when(IdentityUtil.getProperty("UserStoreCount.Timeout")).thenReturn("200");
+    }
+
+    @ObjectFactory
+    public IObjectFactory getObjectFactory() {
+
+        return new org.powermock.modules.testng.PowerMockObjectFactory();
+    }
+
+    @Test
+    public void testCountUsers() throws Exception {
+
+        when(primaryCounter.countUsers("*")).thenReturn(10L);
+        when(secondaryCounter.countUsers("*")).thenReturn(20L);
+
+        PairDTO[] counts = userStoreCountService.countUsers("*");
+        assertCount(counts[0], PRIMARY_DOMAIN, "10", false);
+        assertCount(counts[1], SECONDARY_DOMAIN, "20", false);
+
+        // The counts are cached.
+        counts = userStoreCountService.countUsers("*");
+        assertCount(counts[0], PRIMARY_DOMAIN, "10", false);
+        assertCount(counts[1], SECONDARY_DOMAIN, "20", false);
+        verify(primaryCounter, times(1)).countUsers("*");
+        verify(secondaryCounter, times(1)).countUsers("*");
+    }
+
+    @Test
+    public void testTimedOutCountIsIncomplete() throws Exception {
+
+        final CountDownLatch release = new CountDownLatch(1);
+        final AtomicInteger primaryCountCalls = new AtomicInteger();
+        when(primaryCounter.countUsers(anyString())).thenAnswer(new Answer<Long>() {
+            @Override
+            public Long answer(InvocationOnMock invocation) throws Throwable {
+
+                primaryCountCalls.incrementAndGet();
+                release.await(10, TimeUnit.SECONDS);
+                return 10L;
+            }
+        });
+        when(secondaryCounter.countUsers(anyString())).thenReturn(20L);
+
+        try {
+            // The hung count is taken once, however many times the counts are asked for meanwhile.
+            for (int i = 0; i < 6; i++) {
+                PairDTO[] counts = userStoreCountService.countUsers("*");
+                assertCount(counts[0], PRIMARY_DOMAIN, "-1", true);
+                assertCount(counts[1], SECONDARY_DOMAIN, "20", false);
+            }
+            assertEquals(primaryCountCalls.get(), 1);
+        } finally {
+            release.countDown();
+        }
+
+        // The count is cached once it is taken.
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(10);
+        PairDTO[] counts = userStoreCountService.countUsers("*");
+        while (counts[0].isIncomplete() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+            counts = userStoreCountService.countUsers("*");
+        }
+        assertCount(counts[0], PRIMARY_DOMAIN, "10", false);
+        assertEquals(primaryCountCalls.get(), 1);
+    }
+
+    @Test
+    public void testFailedCount() throws Exception {
+
+        when(primaryCounter.countUsers("*")).thenThrow(new UserStoreCounterException("Error while counting"));
+        when(secondaryCounter.countUsers("*")).thenReturn(20L);
+
+        PairDTO[] counts = userStoreCountService.countUsers("*");
+        assertCount(counts[0], PRIMARY_DOMAIN, "-1", false);
+        assertCount(counts[1], SECONDARY_DOMAIN, "20", false);
+
+        // A failed count is not cached.
+        userStoreCountService.countUsers("*");
+        verify(primaryCounter, times(2)).countUsers("*");
+    }
+
+    private void assertCount(PairDTO count, String domain, String value, boolean incomplete) {
+
+        assertEquals(count.getKey(), domain);
+        assertEquals(count.getValue(), value);
+        if (incomplete) {
+            assertTrue(count.isIncomplete(), "Count of " + domain + " should be incomplete");
+        } else {
+            assertFalse(count.isIncomplete(), "Count of " + domain + " should be complete");
+        }
+    }
+}
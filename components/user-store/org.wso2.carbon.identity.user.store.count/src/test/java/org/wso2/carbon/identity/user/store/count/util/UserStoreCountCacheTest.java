@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.user.store.count.util;
+
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.util.List;
+
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotEquals;
+import static org.testng.Assert.assertNull;
+
+public class UserStoreCountCacheTest {
+
+    private static final long TIMEOUT = 60000;
+
+    private UserStoreCountCache cache = UserStoreCountCache.getInstance();
+
+    @BeforeMethod
+    public void setUp() {
+
+        cache.clear();
+    }
+
+    @Test
+    public void testGetKey() {
+
+        assertEquals(UserStoreCountCache.getKey(-1234, "users", "PRIMARY", "*"),
+                UserStoreCountCache.getKey(-1234, "users", "PRIMARY", "*"));
+        assertNotEquals(UserStoreCountCache.getKey(-1234, "users", "PRIMARY", "*"),
+                UserStoreCountCache.getKey(1, "users", "PRIMARY", "*"));
+        assertNotEquals(UserStoreCountCache.getKey(-1234, "users", "PRIMARY", "*"),
+                UserStoreCountCache.getKey(-1234, "roles", "PRIMARY", "*"));
+        assertNotEquals(UserStoreCountCache.getKey(-1234, "claim", "PRIMARY", "a", "bc"),
+                UserStoreCountCache.getKey(-1234, "claim", "PRIMARY", "ab", "c"));
+    }
+
+    @Test
+    public void testAddCount() {
+
+        List<Object> key = UserStoreCountCache.getKey(-1234, "users", "PRIMARY", "*");
+        assertNull(cache.getCount(key));
+        cache.addCount(key, 10L, TIMEOUT);
+        assertEquals(cache.getCount(key), Long.valueOf(10));
+        cache.addCount(key, 11L, TIMEOUT);
+        assertEquals(cache.getCount(key), Long.valueOf(11));
+    }
+
+    @Test
+    public void testCountNotKept() {
+
+        List<Object> key = UserStoreCountCache.getKey(-1234, "users", "PRIMARY", "*");
+        cache.addCount(key, 10L, 0);
+        assertNull(cache.getCount(key));
+        cache.addCount(key, null, TIMEOUT);
+        assertNull(cache.getCount(key));
+    }
+
+    @Test
+    public void testCountExpires() throws Exception {
+
+        List<Object> key = UserStoreCountCache.getKey(-1234, "users", "PRIMARY", "*");
+        cache.addCount(key, 10L, 1);
+        Thread.sleep(10);
+        assertNull(cache.getCount(key));
+    }
+
+    @Test
+    public void testClear() {
+
+        List<Object> key = UserStoreCountCache.getKey(-1234, "users", "PRIMARY", "*");
+        cache.addCount(key, 10L, TIMEOUT);
+        cache.clear();
+        assertNull(cache.getCount(key));
+    }
+
+    @Test
+    public void testCountsAreBounded() throws Exception {
+
+        List<Object> expiredKey = UserStoreCountCache.getKey(-1234, "users", "PRIMARY", "expired");
+        cache.addCount(expiredKey, 10L, 1);
+        for (int i = 1; i < 1000; i++) {
+            cache.addCount(UserStoreCountCache.getKey(-1234, "users", "PRIMARY", "filter" + i), 10L, TIMEOUT);
+        }
+        Thread.sleep(10);
+
+        // The expired count is dropped to make room for a new count.
+        List<Object> key = UserStoreCountCache.getKey(-1234, "users", "PRIMARY", "filter1000");
+        cache.addCount(key, 10L, TIMEOUT);
+        assertEquals(cache.getCount(key), Long.valueOf(10));
+        assertEquals(cache.getCount(UserStoreCountCache.getKey(-1234, "users", "PRIMARY", "filter1")),
+                Long.valueOf(10));
+
+        // All the counts are dropped once there is no expired count.
+        List<Object> nextKey = UserStoreCountCache.getKey(-1234, "users", "PRIMARY", "filter1001");
+        cache.addCount(nextKey, 10L, TIMEOUT);
+        assertEquals(cache.getCount(nextKey), Long.valueOf(10));
+        assertNull(cache.getCount(UserStoreCountCache.getKey(-1234, "users", "PRIMARY", "filter1")));
+    }
+}
@@ -18,7 +18,11 @@
 
 package org.wso2.carbon.identity.workflow.mgt.bean;
 
-public class WorkflowAssociation {
+import java.io.Serializable;
+
+public class WorkflowAssociation implements Serializable {
+
+    private static final long serialVersionUID = -3021484373560207347L;
 
     private int associationId;
     private String associationName ;
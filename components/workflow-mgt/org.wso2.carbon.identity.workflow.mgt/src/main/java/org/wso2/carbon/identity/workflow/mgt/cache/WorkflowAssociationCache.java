@@ -0,0 +1,167 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.workflow.mgt.cache;
+
+import org.apache.commons.logging.Log;
+import org.apache.commons.logging.LogFactory;
+import org.wso2.carbon.identity.application.common.cache.BaseCache;
+import org.wso2.carbon.identity.workflow.mgt.bean.Parameter;
+import org.wso2.carbon.identity.workflow.mgt.bean.Workflow;
+import org.wso2.carbon.identity.workflow.mgt.bean.WorkflowAssociation;
+import org.wso2.carbon.identity.workflow.mgt.dao.WorkflowDAO;
+import org.wso2.carbon.identity.workflow.mgt.dao.WorkflowRequestAssociationDAO;
+import org.wso2.carbon.identity.workflow.mgt.exception.InternalWorkflowException;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caches the workflow association table of each tenant, so that the workflow associations of a request are found
+ * without a database query. The table of a tenant is removed by the workflow and association DAOs on every change,
+ * which also removes it from the cache of the other nodes.
+ * <p>
+ * A table loaded while the associations of the tenant are changed on this node is not cached, as it may have been read
+ * before the change was committed. Each invalidation bumps a version of the tenant, and a loaded table is only cached
+ * if the version is unchanged since the load started.
+ */
+public class WorkflowAssociationCache extends BaseCache<WorkflowAssociationCacheKey, WorkflowAssociationTable> {
+
+    private static final Log log = LogFactory.getLog(WorkflowAssociationCache.class);
+
+    private static final String CACHE_NAME = "WorkflowAssociationCache";
+
+    private static volatile WorkflowAssociationCache instance;
+
+    private final ConcurrentMap<Integer, AtomicLong> tenantVersions = new ConcurrentHashMap<>();
+
+    private WorkflowAssociationCache() {
+
+        super(CACHE_NAME);
+    }
+
+    public static WorkflowAssociationCache getInstance() {
+
+        if (instance == null) {
+            synchronized (WorkflowAssociationCache.class) {
+                if (instance == null) {
+                    instance = new WorkflowAssociationCache();
+                }
+            }
+        }
+        return instance;
+    }
+
+    /**
+     * Returns the association table of a tenant, loading it from the database if it is not cached.
+     *
+     * @param tenantId tenant id
+     * @return association table of the tenant
+     * @throws InternalWorkflowException if the associations could not be loaded
+     */
+    public WorkflowAssociationTable getAssociationTable(int tenantId) throws InternalWorkflowException {
+
+        WorkflowAssociationCacheKey cacheKey = new WorkflowAssociationCacheKey(tenantId);
+        WorkflowAssociationTable table = getValueFromCache(cacheKey);
+        if (table == null) {
+            AtomicLong version = getVersion(tenantId);
+            long loadedVersion = version.get();
+            table = loadAssociationTable(tenantId);
+            synchronized (version) {
+                if (version.get() == loadedVersion) {
+                    addToCache(cacheKey, table);
+                } else if (log.isDebugEnabled()) {
+                    log.debug("Workflow associations of tenant: " + tenantId + " changed while loading. " +
+                            "Not caching the loaded associations.");
+                }
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Removes the association table of a tenant. A table of the tenant which is being loaded at the same time is not
+     * cached.
+     *
+     * @param tenantId tenant id
+     */
+    public void invalidate(int tenantId) {
+
+        if (log.isDebugEnabled()) {
+            log.debug("Invalidating workflow associations of tenant: " + tenantId);
+        }
+        AtomicLong version = getVersion(tenantId);
+        synchronized (version) {
+            version.incrementAndGet();
+            clearCacheEntry(new WorkflowAssociationCacheKey(tenantId));
+        }
+    }
+
+    private AtomicLong getVersion(int tenantId) {
+
+        AtomicLong version = tenantVersions.get(tenantId);
+        if (version == null) {
+            AtomicLong newVersion = new AtomicLong();
+            version = tenantVersions.putIfAbsent(tenantId, newVersion);
+            if (version == null) {
+                version = newVersion;
+            }
+        }
+        return version;
+    }
+
+    private WorkflowAssociationTable loadAssociationTable(int tenantId) throws InternalWorkflowException {
+
+        List<WorkflowAssociation> associations =
+                new WorkflowRequestAssociationDAO().getWorkflowAssociationsForTenant(tenantId);
+        WorkflowDAO workflowDAO = new WorkflowDAO();
+        Map<String, Workflow> workflows = new HashMap<>();
+        Map<String, List<Parameter>> workflowParams = new HashMap<>();
+        Map<String, List<WorkflowAssociationTable.Entry>> entriesByEvent = new HashMap<>();
+
+        for (WorkflowAssociation association : associations) {
+            String workflowId = association.getWorkflowId();
+            if (!workflows.containsKey(workflowId)) {
+                workflows.put(workflowId, workflowDAO.getWorkflow(workflowId));
+                workflowParams.put(workflowId, workflowDAO.getWorkflowParams(workflowId));
+            }
+            Workflow workflow = workflows.get(workflowId);
+            if (workflow == null) {
+                // Workflow is removed after the associations are read.
+                continue;
+            }
+
+            List<WorkflowAssociationTable.Entry> entries = entriesByEvent.get(association.getEventId());
+            if (entries == null) {
+                entries = new ArrayList<>();
+                entriesByEvent.put(association.getEventId(), entries);
+            }
+            entries.add(new WorkflowAssociationTable.Entry(association, workflow, workflowParams.get(workflowId)));
+        }
+
+        if (log.isDebugEnabled()) {
+            log.debug("Loaded " + associations.size() + " workflow associations of tenant: " + tenantId);
+        }
+        return new WorkflowAssociationTable(entriesByEvent);
+    }
+}
@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.workflow.mgt.cache;
+
+import org.apache.axiom.om.xpath.AXIOMXPath;
+import org.jaxen.JaxenException;
+import org.wso2.carbon.identity.workflow.mgt.bean.Parameter;
+import org.wso2.carbon.identity.workflow.mgt.bean.Workflow;
+import org.wso2.carbon.identity.workflow.mgt.bean.WorkflowAssociation;
+
+import java.io.Serializable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Table of the enabled workflow associations of a tenant, keyed by the event type. Association conditions are
+ * compiled and the workflows of the associations are loaded with their parameters when the table is built.
+ */
+public class WorkflowAssociationTable implements Serializable {
+
+    private static final long serialVersionUID = -6427710985693526392L;
+
+    private final Map<String, List<Entry>> entriesByEvent;
+
+    WorkflowAssociationTable(Map<String, List<Entry>> entriesByEvent) {
+
+        this.entriesByEvent = entriesByEvent;
+    }
+
+    /**
+     * @param eventType event type of a workflow request
+     * @return associations of the event type, in the order they are stored
+     */
+    public List<Entry> getAssociations(String eventType) {
+
+        List<Entry> entries = entriesByEvent.get(eventType);
+        return entries != null ? Collections.unmodifiableList(entries) : Collections.<Entry>emptyList();
+    }
+
+    /**
+     * A workflow association with its compiled condition, workflow and workflow parameters.
+     */
+    public static class Entry implements Serializable {
+
+        private static final long serialVersionUID = 2961380562270727105L;
+
+        private final WorkflowAssociation association;
+        private final Workflow workflow;
+        private final List<Parameter> parameters;
+        private transient volatile AXIOMXPath condition;
+
+        Entry(WorkflowAssociation association, Workflow workflow, List<Parameter> parameters) {
+
+            this.association = association;
+            this.workflow = workflow;
+            this.parameters = copyParameters(parameters);
+            try {
+                this.condition = new AXIOMXPath(association.getAssociationCondition());
+            } catch (JaxenException e) {
+                // Reported when the condition is evaluated.
+            }
+        }
+
+        public WorkflowAssociation getAssociation() {
+
+            return association;
+        }
+
+        /**
+         * @return compiled association condition
+         * @throws JaxenException if the association condition is not a valid XPath expression
+         */
+        public AXIOMXPath getCondition() throws JaxenException {
+
+            AXIOMXPath compiledCondition = condition;
+            if (compiledCondition == null) {
+                // The condition is invalid, or the entry is deserialized.
+                compiledCondition = new AXIOMXPath(association.getAssociationCondition());
+                condition = compiledCondition;
+            }
+            return compiledCondition;
+        }
+
+        public Workflow getWorkflow() {
+
+            return workflow;
+        }
+
+        /**
+         * @return a copy of the workflow parameters, which can be modified by the workflow implementation
+         */
+        public List<Parameter> getParameters() {
+
+            return copyParameters(parameters);
+        }
+
+        private static List<Parameter> copyParameters(List<Parameter> parameters) {
+
+            List<Parameter> copy = new ArrayList<>();
+            if (parameters != null) {
+                for (Parameter parameter : parameters) {
+                    copy.add(new Parameter(parameter.getWorkflowId(), parameter.getParamName(),
+                            parameter.getParamValue(), parameter.getqName(), parameter.getHolder()));
+                }
+            }
+            return copy;
+        }
+    }
+}
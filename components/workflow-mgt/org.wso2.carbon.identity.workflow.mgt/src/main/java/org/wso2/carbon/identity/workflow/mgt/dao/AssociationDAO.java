@@ -18,7 +18,9 @@
 
 package org.wso2.carbon.identity.workflow.mgt.dao;
 
+import org.wso2.carbon.context.CarbonContext;
 import org.wso2.carbon.identity.core.util.IdentityDatabaseUtil;
+import org.wso2.carbon.identity.workflow.mgt.cache.WorkflowAssociationCache;
 import org.wso2.carbon.identity.workflow.mgt.dto.Association;
 import org.wso2.carbon.identity.workflow.mgt.exception.InternalWorkflowException;
 import org.wso2.carbon.identity.workflow.mgt.util.SQLConstants;
@@ -61,6 +63,8 @@ public class AssociationDAO {
             prepStmt.setString(4, workflowId);
             prepStmt.executeUpdate();
             connection.commit();
+            WorkflowAssociationCache.getInstance().invalidate(
+                    CarbonContext.getThreadLocalCarbonContext().getTenantId());
         } catch (SQLException e) {
             throw new InternalWorkflowException(errorMessage, e);
         } finally {
@@ -96,6 +100,8 @@ public class AssociationDAO {
             prepStmt.setInt(6, Integer.parseInt(associationDTO.getAssociationId()));
             prepStmt.executeUpdate();
             connection.commit();
+            WorkflowAssociationCache.getInstance().invalidate(
+                    CarbonContext.getThreadLocalCarbonContext().getTenantId());
         } catch (SQLException e) {
             throw new InternalWorkflowException(errorMessage, e);
         } finally {
@@ -214,6 +220,8 @@ public class AssociationDAO {
             prepStmt.setInt(1, id);
             prepStmt.executeUpdate();
             connection.commit();
+            WorkflowAssociationCache.getInstance().invalidate(
+                    CarbonContext.getThreadLocalCarbonContext().getTenantId());
         } catch (SQLException e) {
             throw new InternalWorkflowException(errorMessage, e);
         } finally {
@@ -19,7 +19,9 @@
 package org.wso2.carbon.identity.workflow.mgt.dao;
 
 import org.apache.commons.lang.StringUtils;
+import org.wso2.carbon.context.CarbonContext;
 import org.wso2.carbon.identity.core.util.IdentityDatabaseUtil;
+import org.wso2.carbon.identity.workflow.mgt.cache.WorkflowAssociationCache;
 import org.wso2.carbon.identity.workflow.mgt.bean.Parameter;
 import org.wso2.carbon.identity.workflow.mgt.bean.Workflow;
 import org.wso2.carbon.identity.workflow.mgt.exception.InternalWorkflowException;
@@ -63,6 +65,7 @@ public class WorkflowDAO {
             prepStmt.setInt(6, tenantId);
             prepStmt.executeUpdate();
             connection.commit();
+            WorkflowAssociationCache.getInstance().invalidate(tenantId);
         } catch (SQLException e) {
             throw new InternalWorkflowException(errorMessage , e);
         } finally {
@@ -128,6 +131,8 @@ public class WorkflowDAO {
             prepStmt.setString(1, workflowId);
             prepStmt.executeUpdate();
             connection.commit();
+            WorkflowAssociationCache.getInstance().invalidate(
+                    CarbonContext.getThreadLocalCarbonContext().getTenantId());
         } catch (SQLException e) {
             throw new InternalWorkflowException(errorMessage, e);
         } finally {
@@ -156,6 +161,8 @@ public class WorkflowDAO {
             prepStmt.setString(5, workflow.getWorkflowId());
             prepStmt.executeUpdate();
             connection.commit();
+            WorkflowAssociationCache.getInstance().invalidate(
+                    CarbonContext.getThreadLocalCarbonContext().getTenantId());
         } catch (SQLException e) {
             throw new InternalWorkflowException(errorMessage, e);
         } finally {
@@ -221,6 +228,8 @@ public class WorkflowDAO {
             prepStmt.setString(1, workflowId);
             prepStmt.executeUpdate();
             connection.commit();
+            WorkflowAssociationCache.getInstance().invalidate(
+                    CarbonContext.getThreadLocalCarbonContext().getTenantId());
         } catch (SQLException e) {
             throw new InternalWorkflowException(errorMessage, e);
         } finally {
@@ -256,6 +265,7 @@ public class WorkflowDAO {
                 prepStmt.executeUpdate();
             }
             connection.commit();
+            WorkflowAssociationCache.getInstance().invalidate(tenantId);
         } catch (SQLException e) {
             throw new InternalWorkflowException(errorMessage, e);
         } finally {
@@ -296,4 +296,38 @@ public class WorkflowRequestAssociationDAO {
         return associations;
     }
 
+    /**
+     * Retrieves the enabled workflow associations of all the events of a tenant.
+     *
+     * @param tenantId tenant id
+     * @return enabled workflow associations of the tenant
+     * @throws InternalWorkflowException
+     */
+    public List<WorkflowAssociation> getWorkflowAssociationsForTenant(int tenantId) throws InternalWorkflowException {
+
+        Connection connection = IdentityDatabaseUtil.getDBConnection();
+        PreparedStatement prepStmt = null;
+        ResultSet rs = null;
+        List<WorkflowAssociation> associations = new ArrayList<>();
+        String query = SQLConstants.GET_ASSOCIATIONS_FOR_TENANT_QUERY;
+        try {
+            prepStmt = connection.prepareStatement(query);
+            prepStmt.setInt(1, tenantId);
+            rs = prepStmt.executeQuery();
+            while (rs.next()) {
+                WorkflowAssociation association = new WorkflowAssociation();
+                association.setWorkflowId(rs.getString(SQLConstants.WORKFLOW_ID_COLUMN));
+                association.setAssociationCondition(rs.getString(SQLConstants.CONDITION_COLUMN));
+                association.setEventId(rs.getString(SQLConstants.EVENT_ID_COLUMN));
+                association.setAssociationId(rs.getInt(SQLConstants.ID_COLUMN));
+                association.setAssociationName(rs.getString(SQLConstants.ASSOCIATION_NAME_COLUMN));
+                associations.add(association);
+            }
+        } catch (SQLException e) {
+            throw new InternalWorkflowException("Error when executing the sql query:" + query, e);
+        } finally {
+            IdentityDatabaseUtil.closeAllConnections(connection, rs, prepStmt);
+        }
+        return associations;
+    }
 }
@@ -91,6 +91,12 @@ public class SQLConstants {
             "WF_WORKFLOW_ASSOCIATION .WORKFLOW_ID = WF_WORKFLOW.ID AND WF_WORKFLOW.TENANT_ID = ? AND " +
             "WF_WORKFLOW_ASSOCIATION.IS_ENABLED = '1'";
 
+    public static final String GET_ASSOCIATIONS_FOR_TENANT_QUERY = "SELECT WF_WORKFLOW_ASSOCIATION.WORKFLOW_ID, " +
+            "WF_WORKFLOW_ASSOCIATION.ID,WF_WORKFLOW_ASSOCIATION.ASSOC_NAME,WF_WORKFLOW_ASSOCIATION.ASSOC_CONDITION, " +
+            "WF_WORKFLOW_ASSOCIATION.EVENT_ID FROM WF_WORKFLOW, WF_WORKFLOW_ASSOCIATION WHERE " +
+            "WF_WORKFLOW_ASSOCIATION.WORKFLOW_ID = WF_WORKFLOW.ID AND WF_WORKFLOW.TENANT_ID = ? AND " +
+            "WF_WORKFLOW_ASSOCIATION.IS_ENABLED = '1'";
+
     public static final String GET_ASSOCIATIONS_FOR_WORKFLOW_QUERY = "SELECT WF_WORKFLOW.WF_NAME,  " +
             "WF_WORKFLOW_ASSOCIATION.ID, WF_WORKFLOW_ASSOCIATION.ASSOC_NAME, WF_WORKFLOW_ASSOCIATION.EVENT_ID, " +
             "WF_WORKFLOW_ASSOCIATION.ASSOC_CONDITION, WF_WORKFLOW_ASSOCIATION.IS_ENABLED FROM WF_WORKFLOW, " +
@@ -0,0 +1,225 @@
+/*
+ * Copyright (c) 2018, WSO2 Inc. (http://www.wso2.org) All Rights Reserved.
+ *
+ * WSO2 Inc. licenses this file to you under the Apache License,
+ * Version 2.0 (the "License"); you may not use this file except
+ * in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing,
+ * software distributed under the License is distributed on an
+ * "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied.  See the License for the
+ * specific language governing permissions and limitations
+ * under the License.
+ */
+
+package org.wso2.carbon.identity.workflow.mgt.cache;
+
+import org.mockito.invocation.InvocationOnMock;
+import org.mockito.stubbing.Answer;
+import org.powermock.core.classloader.annotations.PrepareForTest;
+import org.powermock.modules.testng.PowerMockTestCase;
+import org.powermock.reflect.Whitebox;
+import org.testng.IObjectFactory;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeClass;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.ObjectFactory;
+import org.testng.annotations.Test;
+import org.wso2.carbon.caching.impl.CacheImpl;
+import org.wso2.carbon.context.PrivilegedCarbonContext;
+import org.wso2.carbon.identity.core.util.IdentityUtil;
+import org.wso2.carbon.identity.workflow.mgt.bean.Workflow;
+import org.wso2.carbon.identity.workflow.mgt.bean.WorkflowAssociation;
+import org.wso2.carbon.identity.workflow.mgt.dao.WorkflowDAO;
+import org.wso2.carbon.identity.workflow.mgt.dao.WorkflowRequestAssociationDAO;
+import org.wso2.carbon.utils.multitenancy.MultitenantConstants;
+
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.cache.Cache;
+import javax.cache.CacheManager;
+import javax.cache.CacheManagerFactory;
+import javax.cache.Caching;
+import javax.cache.Status;
+
+import static org.mockito.Matchers.any;
+import static org.mockito.Matchers.anyString;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.powermock.api.mockito.PowerMockito.mockStatic;
+import static org.powermock.api.mockito.PowerMockito.whenNew;
+import static org.testng.Assert.assertEquals;
+import static org.testng.Assert.assertNotSame;
+import static org.testng.Assert.assertSame;
+import static org.testng.Assert.assertTrue;
+
+@PrepareForTest({WorkflowAssociationCache.class, Caching.class, IdentityUtil.class})
+public class WorkflowAssociationCacheTest extends PowerMockTestCase {
+
+    private static final String CACHE_NAME = "WorkflowAssociationCache";
+    private static final String EVENT_ID = "ADD_USER";
+    private static final String WORKFLOW_ID = "workflow1";
+    private static final int TENANT_ID = 1;
+    private static final int OTHER_TENANT_ID = 2;
+
+    private Map<Object, Object> cacheEntries;
+    private WorkflowRequestAssociationDAO associationDAO;
+    private WorkflowAssociationCache associationCache;
+
+    @BeforeClass
+    public void setUpClass() {
+
+        System.setProperty("carbon.home", Paths.get(System.getProperty("user.dir"), "target").toString());
+    }
+
+    @BeforeMethod
+    @SuppressWarnings("unchecked")
+    public void setUp() throws Exception {
+
+        PrivilegedCarbonContext.startTenantFlow();
+        PrivilegedCarbonContext.getThreadLocalCarbonContext().setTenantId(MultitenantConstants.SUPER_TENANT_ID);
+        PrivilegedCarbonContext.getThreadLocalCarbonContext()
+                .setTenantDomain(MultitenantConstants.SUPER_TENANT_DOMAIN_NAME);
+
+        mockStatic(IdentityUtil.class);
+        CacheImpl cache = mockCache();
+        CacheManager cacheManager = mock(CacheManager.class);
+        when(cacheManager.getCache(CACHE_NAME)).thenReturn((Cache) cache);
+        CacheManagerFactory cacheManagerFactory = mock(CacheManagerFactory.class);
+        when(cacheManagerFactory.getCacheManager(anyString())).thenReturn(cacheManager);
+        mockStatic(Caching.class);
+        when(Caching.getCacheManagerFactory()).thenReturn(cacheManagerFactory);
+
+        associationDAO = mock(WorkflowRequestAssociationDAO.class);
+        whenNew(WorkflowRequestAssociationDAO.class).withNoArguments().thenReturn(associationDAO);
+        WorkflowDAO workflowDAO = mock(WorkflowDAO.class);
+        Workflow workflow = new Workflow();
+        workflow.setWorkflowId(WORKFLOW_ID);
+        when(workflowDAO.getWorkflow(WORKFLOW_ID)).thenReturn(workflow);
+        whenNew(WorkflowDAO.class).withNoArguments().thenReturn(workflowDAO);
+
+        associationCache = Whitebox.invokeConstructor(WorkflowAssociationCache.class);
+    }
+
+    @AfterMethod
+    public void tearDown() {
+
+        PrivilegedCarbonContext.endTenantFlow();
+    }
+
+    @ObjectFactory
+    public IObjectFactory getObjectFactory() {
+
+        return new org.powermock.modules.testng.PowerMockObjectFactory();
+    }
+
+    @Test
+    public void testLoadedTableCached() throws Exception {
+
+        when(associationDAO.getWorkflowAssociationsForTenant(TENANT_ID)).thenReturn(associations());
+
+        WorkflowAssociationTable table = associationCache.getAssociationTable(TENANT_ID);
+        assertEquals(table.getAssociations(EVENT_ID).size(), 1);
+        assertSame(associationCache.getAssociationTable(TENANT_ID), table);
+        verify(associationDAO, times(1)).getWorkflowAssociationsForTenant(TENANT_ID);
+    }
+
+    @Test
+    public void testInvalidateReloadsTable() throws Exception {
+
+        when(associationDAO.getWorkflowAssociationsForTenant(TENANT_ID)).thenReturn(associations());
+
+        WorkflowAssociationTable table = associationCache.getAssociationTable(TENANT_ID);
+        associationCache.invalidate(TENANT_ID);
+        assertNotSame(associationCache.getAssociationTable(TENANT_ID), table);
+        verify(associationDAO, times(2)).getWorkflowAssociationsForTenant(TENANT_ID);
+    }
+
+    @Test
+    public void testInvalidateOnlyRemovesGivenTenant() throws Exception {
+
+        when(associationDAO.getWorkflowAssociationsForTenant(TENANT_ID)).thenReturn(associations());
+        when(associationDAO.getWorkflowAssociationsForTenant(OTHER_TENANT_ID)).thenReturn(associations());
+
+        associationCache.getAssociationTable(TENANT_ID);
+        associationCache.getAssociationTable(OTHER_TENANT_ID);
+        associationCache.invalidate(OTHER_TENANT_ID);
+
+        assertTrue(cacheEntries.containsKey(new WorkflowAssociationCacheKey(TENANT_ID)));
+        assertEquals(cacheEntries.size(), 1);
+    }
+
+    @Test
+    public void testTableLoadedDuringInvalidateNotCached() throws Exception {
+
+        // The associations are changed and invalidated after the load has read them, so the loaded table is stale.
+        when(associationDAO.getWorkflowAssociationsForTenant(TENANT_ID)).thenAnswer(
+                new Answer<List<WorkflowAssociation>>() {
+                    @Override
+                    public List<WorkflowAssociation> answer(InvocationOnMock invocation) {
+
+                        List<WorkflowAssociation> associations = associations();
+                        associationCache.invalidate(TENANT_ID);
+                        return associations;
+                    }
+                });
+
+        WorkflowAssociationTable table = associationCache.getAssociationTable(TENANT_ID);
+        assertEquals(table.getAssociations(EVENT_ID).size(), 1);
+        assertTrue(cacheEntries.isEmpty());
+
+        when(associationDAO.getWorkflowAssociationsForTenant(TENANT_ID)).thenReturn(associations());
+        associationCache.getAssociationTable(TENANT_ID);
+        assertTrue(cacheEntries.containsKey(new WorkflowAssociationCacheKey(TENANT_ID)));
+    }
+
+    private CacheImpl mockCache() {
+
+        cacheEntries = new ConcurrentHashMap<>();
+        CacheImpl cache = mock(CacheImpl.class);
+        when(cache.getStatus()).thenReturn(Status.STARTED);
+        when(cache.get(any())).thenAnswer(new Answer<Object>() {
+            @Override
+            public Object answer(InvocationOnMock invocation) {
+
+                return cacheEntries.get(invocation.getArguments()[0]);
+            }
+        });
+        doAnswer(new Answer<Void>() {
+            @Override
+            public Void answer(InvocationOnMock invocation) {
+
+                cacheEntries.put(invocation.getArguments()[0], invocation.getArguments()[1]);
+                return null;
+            }
+        }).when(cache).put(any(), any());
+        when(cache.remove(any())).thenAnswer(new Answer<Boolean>() {
+            @Override
+            public Boolean answer(InvocationOnMock invocation) {
+
+                return cacheEntries.remove(invocation.getArguments()[0]) != null;
+            }
+        });
+        return cache;
+    }
+
+    private static List<WorkflowAssociation> associations() {
+
+        WorkflowAssociation association = new WorkflowAssociation();
+        association.setEventId(EVENT_ID);
+        association.setWorkflowId(WORKFLOW_ID);
+        association.setAssociationCondition("boolean(1)");
+        association.setIsEnabled(true);
+        return Collections.singletonList(association);
+    }
+}
@@ -263,6 +263,13 @@ CREATE TABLE IDN_AUTH_SESSION_STORE (
             PRIMARY KEY (SESSION_ID, SESSION_TYPE, TIME_CREATED, OPERATION)
 )
 /
+
+CREATE INDEX IDX_AUTH_SESSION_TID_TC ON IDN_AUTH_SESSION_STORE(TENANT_ID, TIME_CREATED)
+/
+
+CREATE INDEX IDX_AUTH_SESSION_OP_TC ON IDN_AUTH_SESSION_STORE(OPERATION, TIME_CREATED)
+/
+
 CREATE TABLE SP_APP (
         ID INTEGER NOT NULL,
         TENANT_ID INTEGER NOT NULL,
@@ -0,0 +1,8 @@
+-- Creates the indexes of IDN_AUTH_SESSION_STORE used to clean up the expired session data, on a database created
+-- by the scripts of an earlier release. The fresh install scripts create these indexes already.
+
+IF NOT EXISTS (SELECT * FROM SYS.INDEXES WHERE NAME = 'IDX_AUTH_SESSION_TID_TC' AND OBJECT_ID = OBJECT_ID(N'[DBO].[IDN_AUTH_SESSION_STORE]'))
+CREATE INDEX IDX_AUTH_SESSION_TID_TC ON IDN_AUTH_SESSION_STORE(TENANT_ID, TIME_CREATED);
+
+IF NOT EXISTS (SELECT * FROM SYS.INDEXES WHERE NAME = 'IDX_AUTH_SESSION_OP_TC' AND OBJECT_ID = OBJECT_ID(N'[DBO].[IDN_AUTH_SESSION_STORE]'))
+CREATE INDEX IDX_AUTH_SESSION_OP_TC ON IDN_AUTH_SESSION_STORE(OPERATION, TIME_CREATED);
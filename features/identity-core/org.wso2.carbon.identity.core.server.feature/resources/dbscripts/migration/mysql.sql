@@ -0,0 +1,6 @@
+-- Creates the indexes of IDN_AUTH_SESSION_STORE used to clean up the expired session data, on a database created
+-- by the scripts of an earlier release. The fresh install scripts create these indexes already.
+
+CREATE INDEX IDX_AUTH_SESSION_TID_TC ON IDN_AUTH_SESSION_STORE(TENANT_ID, TIME_CREATED);
+
+CREATE INDEX IDX_AUTH_SESSION_OP_TC ON IDN_AUTH_SESSION_STORE(OPERATION, TIME_CREATED);
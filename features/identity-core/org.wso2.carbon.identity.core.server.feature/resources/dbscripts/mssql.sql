@@ -251,6 +251,10 @@ CREATE TABLE IDN_AUTH_SESSION_STORE (
   PRIMARY KEY (SESSION_ID, SESSION_TYPE, TIME_CREATED, OPERATION)
 );
 
+CREATE INDEX IDX_AUTH_SESSION_TID_TC ON IDN_AUTH_SESSION_STORE(TENANT_ID, TIME_CREATED);
+
+CREATE INDEX IDX_AUTH_SESSION_OP_TC ON IDN_AUTH_SESSION_STORE(OPERATION, TIME_CREATED);
+
 IF NOT  EXISTS (SELECT * FROM SYS.OBJECTS WHERE OBJECT_ID = OBJECT_ID(N'[DBO].[SP_APP]') AND TYPE IN (N'U'))
 CREATE TABLE SP_APP (
   ID INTEGER NOT NULL IDENTITY,
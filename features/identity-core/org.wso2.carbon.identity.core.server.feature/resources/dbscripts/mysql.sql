@@ -228,6 +228,10 @@ CREATE TABLE IF NOT EXISTS IDN_AUTH_SESSION_STORE (
             PRIMARY KEY (SESSION_ID, SESSION_TYPE, TIME_CREATED, OPERATION)
 )ENGINE INNODB;
 
+CREATE INDEX IDX_AUTH_SESSION_TID_TC ON IDN_AUTH_SESSION_STORE(TENANT_ID, TIME_CREATED);
+
+CREATE INDEX IDX_AUTH_SESSION_OP_TC ON IDN_AUTH_SESSION_STORE(OPERATION, TIME_CREATED);
+
 CREATE TABLE IF NOT EXISTS SP_APP (
         ID INTEGER NOT NULL AUTO_INCREMENT,
         TENANT_ID INTEGER NOT NULL,
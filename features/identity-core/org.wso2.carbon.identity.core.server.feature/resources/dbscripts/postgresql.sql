@@ -255,6 +255,10 @@ CREATE TABLE IDN_AUTH_SESSION_STORE (
             PRIMARY KEY (SESSION_ID, SESSION_TYPE, TIME_CREATED, OPERATION)
 	);
 
+CREATE INDEX IDX_AUTH_SESSION_TID_TC ON IDN_AUTH_SESSION_STORE(TENANT_ID, TIME_CREATED);
+
+CREATE INDEX IDX_AUTH_SESSION_OP_TC ON IDN_AUTH_SESSION_STORE(OPERATION, TIME_CREATED);
+
 DROP TABLE IF EXISTS SP_APP;
 DROP SEQUENCE IF EXISTS SP_APP_SEQ;
 CREATE SEQUENCE SP_APP_SEQ;